@@ -39,6 +39,16 @@ public class Config {
     private boolean commonJSCompatible = Options.COMPATIBILITY_COMMONJS.load();
     private boolean rhinoCompatible = Options.COMPATIBILITY_RHINO.load();
     private CompileMode compileMode = Options.CLI_COMPILE_MODE.load();
+    private int codeCacheSize = Options.CODE_CACHE_SIZE.load();
+    private int regExpCacheSize = Options.REGEXP_CACHE_SIZE.load();
+    private int maximumMethodSize = Options.MAXIMUM_METHOD_SIZE.load();
+    private boolean parallelCompile = Options.PARALLEL_COMPILE.load();
+    private String irPasses = Options.IR_PASSES.load();
+    private boolean irPassesReport = Options.IR_PASSES_REPORT.load();
+    private int irInlineThreshold = Options.IR_INLINE_THRESHOLD.load();
+    private int irInlineSize = Options.IR_INLINE_SIZE.load();
+    private boolean irCacheReport = Options.IR_CACHE_REPORT.load();
+    private String irStore = Options.IR_STORE.load();
     private final Classpath classpath;
 
     public Classpath getClasspath() {
@@ -81,6 +91,86 @@ public class Config {
         return this.compileMode;
     }
 
+    public void setCodeCacheSize(int codeCacheSize) {
+        this.codeCacheSize = codeCacheSize;
+    }
+
+    public int getCodeCacheSize() {
+        return this.codeCacheSize;
+    }
+
+    public void setRegExpCacheSize(int regExpCacheSize) {
+        this.regExpCacheSize = regExpCacheSize;
+    }
+
+    public int getRegExpCacheSize() {
+        return this.regExpCacheSize;
+    }
+
+    public void setMaximumMethodSize(int maximumMethodSize) {
+        this.maximumMethodSize = maximumMethodSize;
+    }
+
+    public int getMaximumMethodSize() {
+        return this.maximumMethodSize;
+    }
+
+    public void setParallelCompile(boolean parallelCompile) {
+        this.parallelCompile = parallelCompile;
+    }
+
+    public boolean isParallelCompile() {
+        return this.parallelCompile;
+    }
+
+    public void setIRPasses(String irPasses) {
+        this.irPasses = irPasses;
+    }
+
+    public String getIRPasses() {
+        return this.irPasses;
+    }
+
+    public void setIRPassesReport(boolean irPassesReport) {
+        this.irPassesReport = irPassesReport;
+    }
+
+    public boolean isIRPassesReport() {
+        return this.irPassesReport;
+    }
+
+    public void setIRInlineThreshold(int irInlineThreshold) {
+        this.irInlineThreshold = irInlineThreshold;
+    }
+
+    public int getIRInlineThreshold() {
+        return this.irInlineThreshold;
+    }
+
+    public void setIRInlineSize(int irInlineSize) {
+        this.irInlineSize = irInlineSize;
+    }
+
+    public int getIRInlineSize() {
+        return this.irInlineSize;
+    }
+
+    public void setIRCacheReport(boolean irCacheReport) {
+        this.irCacheReport = irCacheReport;
+    }
+
+    public boolean isIRCacheReport() {
+        return this.irCacheReport;
+    }
+
+    public void setIRStore(String irStore) {
+        this.irStore = irStore;
+    }
+
+    public String getIRStore() {
+        return this.irStore;
+    }
+
     public void setCommonJSCompatible(boolean enabled) {
         this.commonJSCompatible = enabled;
     }
@@ -2,6 +2,10 @@ package org.dynjs.cli;
 
 import com.headius.options.Option;
 import org.dynjs.Config;
+import org.dynjs.compiler.bytecode.MethodSizeLimit;
+import org.dynjs.ir.passes.PassManager;
+import org.dynjs.runtime.BlockManager;
+import org.dynjs.runtime.builtins.types.regexp.RegExpCache;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -10,6 +14,16 @@ import java.util.Collections;
 public class Options {
     public static final String PREFIX = "dynjs";
     public static final Option<Config.CompileMode> CLI_COMPILE_MODE = Option.enumeration(PREFIX, "compile.mode", Category.COMPILER, Config.CompileMode.OFF, "Set compile mode: OFF = no compilation (interpreted); JIT = at runtime; FORCE = before execution; IR = IR runtime");
+    public static final Option<Integer> CODE_CACHE_SIZE = Option.integer(PREFIX, "compile.cache.size", Category.COMPILER, BlockManager.DEFAULT_MAXIMUM_SIZE, "Number of recently used compiled blocks kept alive by the code cache");
+    public static final Option<Integer> REGEXP_CACHE_SIZE = Option.integer(PREFIX, "regexp.cache.size", Category.COMPILER, RegExpCache.DEFAULT_MAXIMUM_SIZE, "Number of recently used compiled regular expressions kept for reuse (0 for none)");
+    public static final Option<Integer> MAXIMUM_METHOD_SIZE = Option.integer(PREFIX, "compile.method.size", Category.COMPILER, MethodSizeLimit.HUGE_METHOD_LIMIT, "Split generated methods until their bytecode is at most this many bytes");
+    public static final Option<Boolean> PARALLEL_COMPILE = Option.bool(PREFIX, "compile.parallel", Category.COMPILER, true, "Compile the function bodies of a program in parallel in FORCE mode");
+    public static final Option<String> IR_PASSES = Option.string(PREFIX, "ir.passes", Category.COMPILER, PassManager.DEFAULT_PASSES, "Comma separated optimization passes run over the IR of each scope (empty for none)");
+    public static final Option<Boolean> IR_PASSES_REPORT = Option.bool(PREFIX, "ir.passes.report", Category.COMPILER, false, "Print the time spent and changes made by each IR pass on exit");
+    public static final Option<Integer> IR_INLINE_THRESHOLD = Option.integer(PREFIX, "ir.inline.threshold", Category.COMPILER, 100, "Executions of a call in an IR scope before it is inlined (0 disables inlining)");
+    public static final Option<Integer> IR_INLINE_SIZE = Option.integer(PREFIX, "ir.inline.size", Category.COMPILER, 20, "Most instructions a function may have to be inlined into IR callers");
+    public static final Option<Boolean> IR_CACHE_REPORT = Option.bool(PREFIX, "ir.cache.report", Category.COMPILER, false, "Print the hits and misses of IR property caches on exit");
+    public static final Option<String> IR_STORE = Option.string(PREFIX, "ir.store", Category.COMPILER, "", "Directory the IR of each script is serialized to so later runs load it instead of parsing (empty for none)");
     public static final Option<Boolean> INVOKEDYNAMIC = Option.bool(PREFIX, "invokedynamic.enabled", Category.INVOKEDYNAMIC, true, "Enable invokedynamic support");
     public static final Option<Boolean> COMPATIBILITY_RHINO = Option.bool(PREFIX, "compat.rhino.enabled", Category.COMPATIBILITY, true, "Enable Mozilla Rhino compatibility extensions");
     public static final Option<Boolean> COMPATIBILITY_COMMONJS = Option.bool(PREFIX, "compat.commonjs.enabled", Category.COMPATIBILITY, true, "Enable commonjs compatibility extensions");
@@ -35,5 +49,5 @@ public class Options {
         }
     }
 
-    public static final Collection<Option> PROPERTIES = Collections.unmodifiableCollection(Arrays.<Option>asList(CLI_COMPILE_MODE, INVOKEDYNAMIC, COMPATIBILITY_RHINO, COMPATIBILITY_COMMONJS));
+    public static final Collection<Option> PROPERTIES = Collections.unmodifiableCollection(Arrays.<Option>asList(CLI_COMPILE_MODE, CODE_CACHE_SIZE, REGEXP_CACHE_SIZE, MAXIMUM_METHOD_SIZE, PARALLEL_COMPILE, IR_PASSES, IR_PASSES_REPORT, IR_INLINE_THRESHOLD, IR_INLINE_SIZE, IR_CACHE_REPORT, IR_STORE, INVOKEDYNAMIC, COMPATIBILITY_RHINO, COMPATIBILITY_COMMONJS));
 }
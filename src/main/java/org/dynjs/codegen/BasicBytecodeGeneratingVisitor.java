@@ -92,6 +92,7 @@ import org.dynjs.runtime.JSObject;
 import org.dynjs.runtime.NameEnumerator;
 import org.dynjs.runtime.PropertyDescriptor;
 import org.dynjs.runtime.Reference;
+import org.dynjs.runtime.SwitchTable;
 import org.dynjs.runtime.Types;
 import org.dynjs.runtime.builtins.types.BuiltinArray;
 import org.dynjs.runtime.builtins.types.BuiltinNumber;
@@ -152,7 +153,7 @@ public class BasicBytecodeGeneratingVisitor extends CodeGeneratingVisitor {
         // val(lhs)
         dup();
         // val(lhs) val(lhs)
-        instance_of(p(String.class));
+        append(jsIsString());
         // val(lhs) bool
         expr.getRhs().accept(context, this, strict);
         // val(lhs) bool ref(rhs)
@@ -168,7 +169,7 @@ public class BasicBytecodeGeneratingVisitor extends CodeGeneratingVisitor {
         // val(lhs) val(rhs)
         dup();
         // val(lhs) val(rhs) val(rhs)
-        instance_of(p(String.class));
+        append(jsIsString());
         // val(lhs) val(rhs) bool
         iftrue(stringConcat);
 
@@ -222,16 +223,8 @@ public class BasicBytecodeGeneratingVisitor extends CodeGeneratingVisitor {
         // Strings
         label(stringConcat);
         // val(lhs) val(rhs)
-        append(jsToString());
-        // val(lhs) str(rhs)
-        swap();
-        // str(rhs) val(lhs)
-        append(jsToString());
-        // str(lhs) str(lhs)
-        swap();
-        // str(lhs) str(rhs)
-        invokevirtual(p(String.class), "concat", sig(String.class, String.class));
-        // obj(concat)
+        append(jsConcat());
+        // str(concat)
 
         // ----------------------------------------
         // TODO: Arrays
@@ -506,59 +499,7 @@ public class BasicBytecodeGeneratingVisitor extends CodeGeneratingVisitor {
             if (each == null) {
                 continue;
             }
-            LabelNode nonAbrupt = new LabelNode();
-            LabelNode bringForwardValue = new LabelNode();
-            LabelNode nextStatement = new LabelNode();
-
-            if (each.getPosition() != null) {
-                line(each.getPosition().getLine());
-                aload(Arities.EXECUTION_CONTEXT);
-                // context
-                ldc(each.getPosition().getLine());
-                // context line
-                invokevirtual(p(ExecutionContext.class), "setLineNumber", sig(void.class, int.class));
-                // <empty>
-            }
-            if (each.getSizeMetric() > Chunker.STATEMENT_THRESHOLD) {
-                interpretedStatement(each, strict);
-            } else {
-                each.accept(context, this, strict);
-            }
-            // completion(cur)
-            dup();
-            // completion(cur) completion(cur)
-            append(handleCompletion(nonAbrupt, abrupt, abrupt, abrupt));
-
-            // ----------------------------------------
-            // Non-abrupt
-
-            label(nonAbrupt);
-            // completion(cur);
-            dup();
-            // completion(cur) completion(cur)
-            append(jsCompletionValue());
-            // completion(cur) value
-            ifnull(bringForwardValue);
-            // completion(cur)
-            astore(Arities.COMPLETION);
-            // <empty>
-            go_to(nextStatement);
-
-            // ----------------------------------------
-
-            label(bringForwardValue);
-            // completion(cur)
-            dup();
-            // completion(cur) completion(cur)
-            aload(Arities.COMPLETION);
-            // completion(cur) completion(cur) completion(prev)
-            append(jsCompletionValue());
-            // completion(cur) completion(cur) val(prev)
-            putfield(p(Completion.class), "value", ci(Object.class));
-            // completion(cur)
-            astore(Arities.COMPLETION);
-            // <empty>
-            label(nextStatement);
+            blockMember(context, each, strict, abrupt);
         }
 
         go_to(end);
@@ -579,6 +520,83 @@ public class BasicBytecodeGeneratingVisitor extends CodeGeneratingVisitor {
         return null;
     }
 
+    @Override
+    public void chunkStatement(Object context, Statement statement, boolean strict) {
+        LabelNode abrupt = new LabelNode();
+        LabelNode next = new LabelNode();
+
+        blockMember(context, statement, strict, abrupt);
+        go_to(next);
+
+        label(abrupt);
+        // completion(cur)
+        areturn();
+
+        label(next);
+        // <empty>
+    }
+
+    /**
+     * One statement of a block: its completion replaces the block's, bringing
+     * the previous value forward if it has none, or, when abrupt, is left on
+     * the stack for abrupt.
+     */
+    private void blockMember(Object context, Statement each, boolean strict, LabelNode abrupt) {
+        LabelNode nonAbrupt = new LabelNode();
+        LabelNode bringForwardValue = new LabelNode();
+        LabelNode nextStatement = new LabelNode();
+
+        if (each.getPosition() != null) {
+            line(each.getPosition().getLine());
+            aload(Arities.EXECUTION_CONTEXT);
+            // context
+            ldc(each.getPosition().getLine());
+            // context line
+            invokevirtual(p(ExecutionContext.class), "setLineNumber", sig(void.class, int.class));
+            // <empty>
+        }
+        if (each.getSizeMetric() > Chunker.STATEMENT_THRESHOLD) {
+            interpretedStatement(each, strict);
+        } else {
+            each.accept(context, this, strict);
+        }
+        // completion(cur)
+        dup();
+        // completion(cur) completion(cur)
+        append(handleCompletion(nonAbrupt, abrupt, abrupt, abrupt));
+
+        // ----------------------------------------
+        // Non-abrupt
+
+        label(nonAbrupt);
+        // completion(cur);
+        dup();
+        // completion(cur) completion(cur)
+        append(jsCompletionValue());
+        // completion(cur) value
+        ifnull(bringForwardValue);
+        // completion(cur)
+        astore(Arities.COMPLETION);
+        // <empty>
+        go_to(nextStatement);
+
+        // ----------------------------------------
+
+        label(bringForwardValue);
+        // completion(cur)
+        dup();
+        // completion(cur) completion(cur)
+        aload(Arities.COMPLETION);
+        // completion(cur) completion(cur) completion(prev)
+        append(jsCompletionValue());
+        // completion(cur) completion(cur) val(prev)
+        putfield(p(Completion.class), "value", ci(Object.class));
+        // completion(cur)
+        astore(Arities.COMPLETION);
+        // <empty>
+        label(nextStatement);
+    }
+
     @Override
     public Object visit(Object context, BooleanLiteralExpression expr, boolean strict) {
         if (expr.getValue()) {
@@ -2200,19 +2218,22 @@ public class BasicBytecodeGeneratingVisitor extends CodeGeneratingVisitor {
         // 11.2.2
 
         expr.getExpr().accept(context, this, strict);
-        // obj
-
-        aload(Arities.EXECUTION_CONTEXT);
-        // obj context
-        swap();
-        // context obj
+        // ref
+        dup();
+        // ref ref
         append(jsGetValue(JSFunction.class));
-        // context ctor-fn
+        // ref ctor-fn
+        aload(Arities.EXECUTION_CONTEXT);
+        // ref ctor-fn context
+        dup_x2();
+        // context ref ctor-fn context
+        pop();
+        // context ref ctor-fn
 
         bipush(0);
         anewarray(p(Object.class));
-        // context function array
-        invokevirtual(p(ExecutionContext.class), "construct", sig(Object.class, JSFunction.class, Object[].class));
+        // context ref function array
+        invokevirtual(p(ExecutionContext.class), "construct", sig(Object.class, Object.class, JSFunction.class, Object[].class));
         // obj
 
         label(end);
@@ -2754,49 +2775,60 @@ public class BasicBytecodeGeneratingVisitor extends CodeGeneratingVisitor {
 
         int defaultIndex = -1;
 
-        // switchval
         for (int i = 0; i < numClauses; ++i) {
-            CaseClause eachCase = caseClauses.get(i);
-            LabelNode caseLabel = new LabelNode();
-
-            labels.add(caseLabel);
-
-            if (eachCase instanceof DefaultCaseClause) {
+            labels.add(new LabelNode());
+            if (caseClauses.get(i) instanceof DefaultCaseClause) {
                 defaultIndex = i;
-                continue;
             }
+        }
 
-            LabelNode notMatched = new LabelNode();
-
-            dup();
-            // switchval switchval
-            aload(Arities.EXECUTION_CONTEXT);
-            // switchval switchval context
-            swap();
-            // switchval context switchval
-            eachCase.getExpression().accept(context, this, strict);
-            // switchval context switchval caseref
-            append(jsGetValue());
-            // switchval context switchval caseval
-            invokestatic(p(Types.class), "compareStrictEquality", sig(boolean.class, ExecutionContext.class, Object.class, Object.class));
-            // switchval bool
-            iffalse(notMatched);
+        SwitchTable table = statement.getSwitchTable();
+        if (table != null) {
             // switchval
-            pop();
+            append(table.dispatch(labels.toArray(new LabelNode[numClauses]), defaultIndex >= 0 ? labels.get(defaultIndex) : end));
             // <empty>
-            go_to(caseLabel);
-
-            label(notMatched);
+        } else {
             // switchval
-        }
+            for (int i = 0; i < numClauses; ++i) {
+                CaseClause eachCase = caseClauses.get(i);
+                LabelNode caseLabel = labels.get(i);
 
-        // switchval
-        pop();
-        // <empty>
-        if (defaultIndex >= 0) {
-            go_to(labels.get(defaultIndex));
-        } else {
-            go_to(end);
+                if (eachCase instanceof DefaultCaseClause) {
+                    continue;
+                }
+
+                LabelNode notMatched = new LabelNode();
+
+                dup();
+                // switchval switchval
+                aload(Arities.EXECUTION_CONTEXT);
+                // switchval switchval context
+                swap();
+                // switchval context switchval
+                eachCase.getExpression().accept(context, this, strict);
+                // switchval context switchval caseref
+                append(jsGetValue());
+                // switchval context switchval caseval
+                invokestatic(p(Types.class), "compareStrictEquality", sig(boolean.class, ExecutionContext.class, Object.class, Object.class));
+                // switchval bool
+                iffalse(notMatched);
+                // switchval
+                pop();
+                // <empty>
+                go_to(caseLabel);
+
+                label(notMatched);
+                // switchval
+            }
+
+            // switchval
+            pop();
+            // <empty>
+            if (defaultIndex >= 0) {
+                go_to(labels.get(defaultIndex));
+            } else {
+                go_to(end);
+            }
         }
 
         for (int i = 0; i < numClauses; ++i) {
@@ -3,6 +3,8 @@ package org.dynjs.codegen;
 import static me.qmx.jitescript.util.CodegenUtils.*;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import me.qmx.jitescript.CodeBlock;
 
@@ -37,6 +39,7 @@ public abstract class CodeGeneratingVisitor extends CodeBlock implements CodeVis
 
     private InterpretingVisitorFactory interpFactory;
     private BlockManager blockManager;
+    private List<Entry> referencedEntries = new ArrayList<>();
 
     public CodeGeneratingVisitor(InterpretingVisitorFactory interpFactory, BlockManager blockManager) {
         this.interpFactory = interpFactory;
@@ -47,6 +50,20 @@ public abstract class CodeGeneratingVisitor extends CodeBlock implements CodeVis
         return this.blockManager;
     }
 
+    /**
+     * Entries the emitted code looks up by statement number at runtime. The
+     * compiled block must keep these reachable for as long as it lives.
+     */
+    public List<Entry> getReferencedEntries() {
+        return this.referencedEntries;
+    }
+
+    protected Entry retrieveEntry(int statementNumber) {
+        Entry entry = this.blockManager.retrieve(statementNumber);
+        this.referencedEntries.add(entry);
+        return entry;
+    }
+
     protected void emitDebug(String message) {
         ldc(message);
         aprintln();
@@ -78,6 +95,14 @@ public abstract class CodeGeneratingVisitor extends CodeBlock implements CodeVis
 
     public abstract Object visitMinus(ExecutionContext context, AdditiveExpression expr, boolean strict);
 
+    /**
+     * Emit statement as one member of a chunk method's body, whose prologue
+     * stores a normal completion and whose epilogue returns it. An abrupt
+     * completion is returned right away, so the code for consecutive statements
+     * can be appended in any grouping.
+     */
+    public abstract void chunkStatement(Object context, Statement statement, boolean strict);
+
     public CodeBlock jsCheckObjectCoercible(final String debug) {
         CodeBlock codeBlock = new CodeBlock()
             // IN: obj
@@ -204,6 +229,26 @@ public abstract class CodeGeneratingVisitor extends CodeBlock implements CodeVis
             .invokestatic(p(Types.class), "toString", sig(String.class, ExecutionContext.class, Object.class));
     }
 
+    public CodeBlock jsIsString() {
+        return new CodeBlock()
+            // IN: obj
+            .invokestatic(p(Types.class), "isString", sig(boolean.class, Object.class));
+            // bool
+    }
+
+    public CodeBlock jsConcat() {
+        return new CodeBlock()
+            // IN: lhs rhs
+            .aload(Arities.EXECUTION_CONTEXT)
+            // lhs rhs context
+            .dup_x2()
+            // context lhs rhs context
+            .pop()
+            // context lhs rhs
+            .invokestatic(p(Types.class), "concat", sig(Object.class, ExecutionContext.class, Object.class, Object.class));
+            // str
+    }
+
     public CodeBlock jsCreatePropertyReference() {
         return new CodeBlock()
             // IN: context obj identifier
@@ -523,7 +568,7 @@ public abstract class CodeGeneratingVisitor extends CodeBlock implements CodeVis
 
     public void compiledStatementBlock(final String grist, final Statement block, final boolean strict) {
         int statementNumber = block.getStatementNumber();
-        Entry entry = blockManager.retrieve(statementNumber);
+        Entry entry = retrieveEntry(statementNumber);
 
         // Stash statement if required
         if (entry.statement == null) {
@@ -580,7 +625,7 @@ public abstract class CodeGeneratingVisitor extends CodeBlock implements CodeVis
     public void compiledFunction(final String identifier, final String[] formalParams, final Statement block, final boolean strict) {
 
         int statementNumber = block.getStatementNumber();
-        Entry entry = blockManager.retrieve(statementNumber);
+        Entry entry = retrieveEntry(statementNumber);
 
         // Stash statement if required
         if (entry.statement == null) {
@@ -654,9 +699,12 @@ public abstract class CodeGeneratingVisitor extends CodeBlock implements CodeVis
     }
 
     void interpretedStatement(Statement statement, boolean strict) {
-        Entry entry = getBlockManager().retrieve(statement.getStatementNumber());
-        InterpretedBasicBlock interpreted = new InterpretedBasicBlock(this.interpFactory, statement, strict);
-        entry.setCompiled(interpreted);
+        // Codegen also runs on the JIT worker; publish a block only if there is
+        // none yet, and otherwise call the one already there.
+        Entry entry = retrieveEntry(statement.getStatementNumber());
+        if (entry.getCompiled() == null) {
+            entry.compareAndSetCompiled(null, new InterpretedBasicBlock(this.interpFactory, statement, strict));
+        }
 
         aload(Arities.EXECUTION_CONTEXT);
         ldc(statement.getStatementNumber());
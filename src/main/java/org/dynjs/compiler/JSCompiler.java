@@ -5,6 +5,7 @@ import org.dynjs.codegen.CodeGeneratingVisitorFactory;
 import org.dynjs.compiler.bytecode.ByteCodeFunctionCompiler;
 import org.dynjs.compiler.bytecode.BytecodeBasicBlockCompiler;
 import org.dynjs.compiler.bytecode.BytecodeProgramCompiler;
+import org.dynjs.compiler.bytecode.EagerFunctionCompiler;
 import org.dynjs.compiler.interpreter.InterpretingBasicBlockCompiler;
 import org.dynjs.compiler.interpreter.InterpretingFunctionCompiler;
 import org.dynjs.compiler.interpreter.InterpretingProgramCompiler;
@@ -34,9 +35,10 @@ public class JSCompiler {
             this.programCompiler = new InterpretingProgramCompiler( interpFactory );
             break;
         case FORCE:
-            this.basicBlockCompiler = new BytecodeBasicBlockCompiler(config, factory);
+            BytecodeBasicBlockCompiler blockCompiler = new BytecodeBasicBlockCompiler(config, factory);
+            this.basicBlockCompiler = blockCompiler;
             this.functionCompiler = new ByteCodeFunctionCompiler();
-            this.programCompiler = new BytecodeProgramCompiler();
+            this.programCompiler = new BytecodeProgramCompiler(config.isParallelCompile() ? new EagerFunctionCompiler(blockCompiler) : null);
             break;
         case JIT:
             this.basicBlockCompiler = new JITBasicBlockCompiler(config, interpFactory, factory);
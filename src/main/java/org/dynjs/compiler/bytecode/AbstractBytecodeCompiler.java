@@ -42,13 +42,17 @@ public abstract class AbstractBytecodeCompiler {
 
     @SuppressWarnings("unchecked")
     protected <T> T defineClass(DynamicClassLoader classLoader, JiteClass jiteClass) {
+        return (T) classLoader.define(jiteClass.getClassName().replace('/', '.'), toBytes(jiteClass));
+    }
+
+    protected byte[] toBytes(JiteClass jiteClass) {
         byte[] bytecode = jiteClass.toBytes(JDKVersion.V1_7);
 
         if (config.isDebug()) {
             ClassReader reader = new ClassReader(bytecode);
             CheckClassAdapter.verify(reader, true, new PrintWriter(System.out));
         }
-        return (T) classLoader.define(jiteClass.getClassName().replace('/', '.'), bytecode);
+        return bytecode;
     }
 
 }
@@ -1,10 +1,12 @@
 package org.dynjs.compiler.bytecode;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.dynjs.parser.ast.FunctionDeclaration;
 import org.dynjs.parser.ast.VariableDeclaration;
 import org.dynjs.runtime.BasicBlock;
+import org.dynjs.runtime.BlockManager.Entry;
 
 public abstract class BytecodeBasicBlock implements BasicBlock {
 
@@ -12,6 +14,7 @@ public abstract class BytecodeBasicBlock implements BasicBlock {
     private boolean strict;
     private List<VariableDeclaration> variableDeclarations;
     private List<FunctionDeclaration> functionDeclrataions;
+    private List<Entry> referencedEntries = Collections.emptyList();
 
     public BytecodeBasicBlock(String fileName, boolean strict, List<VariableDeclaration> variableDeclarations, List<FunctionDeclaration> functionDeclarations) {
         this.fileName = fileName;
@@ -19,6 +22,15 @@ public abstract class BytecodeBasicBlock implements BasicBlock {
         this.variableDeclarations = variableDeclarations;
         this.functionDeclrataions = functionDeclarations;
     }
+
+    /**
+     * Keep the block-manager entries our code retrieves by statement number
+     * alive exactly as long as this block is.
+     */
+    void setReferencedEntries(List<Entry> referencedEntries) {
+        this.referencedEntries = referencedEntries;
+    }
+
     @Override
     public String getFileName() {
         return this.fileName;
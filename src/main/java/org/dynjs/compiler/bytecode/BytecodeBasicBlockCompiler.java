@@ -5,7 +5,9 @@ import static me.qmx.jitescript.util.CodegenUtils.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import me.qmx.jitescript.CodeBlock;
@@ -29,9 +31,15 @@ import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
 public class BytecodeBasicBlockCompiler extends AbstractBytecodeCompiler implements BasicBlockCompiler {
     
     private AtomicInteger counter = new AtomicInteger();
+    private MethodSizeLimit methodSizeLimit;
 
     public BytecodeBasicBlockCompiler(Config config, CodeGeneratingVisitorFactory factory) {
         super(config, factory);
+        this.methodSizeLimit = new MethodSizeLimit(config.getMaximumMethodSize());
+    }
+
+    public MethodSizeLimit getMethodSizeLimit() {
+        return this.methodSizeLimit;
     }
 
     @Override
@@ -43,9 +51,33 @@ public class BytecodeBasicBlockCompiler extends AbstractBytecodeCompiler impleme
         if ( code instanceof BytecodeBasicBlock ) {
             return code;
         }
-        
-        String className = nextClassName(grist);
 
+        BytecodeBasicBlock block = compileBlock( context, grist, body, strict );
+        if ( ! entry.compareAndSetCompiled( code, block ) ) {
+            // raced with another thread; keep whichever bytecode got published
+            BasicBlock published = entry.getCompiled();
+            if ( published instanceof BytecodeBasicBlock ) {
+                return published;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Compile a block without publishing it through the block manager. The
+     * JIT uses this so the only place new code becomes visible is the
+     * delegating block it is installed into.
+     */
+    public BytecodeBasicBlock compileBlock(final ExecutionContext context, final String grist, final Statement body, boolean strict) {
+        return link( context, generate( context, nextClassName( grist ), body, strict ) );
+    }
+
+    /**
+     * Generate the bytecode for a block without loading anything. This only
+     * touches the (concurrent) block manager, so independent blocks may be
+     * generated on several threads at once.
+     */
+    public GeneratedBlock generate(final ExecutionContext context, final String className, final Statement body, boolean strict) {
         final JiteClass cls = new JiteClass(className,
                 p(BytecodeBasicBlock.class),
                 new String[] {});
@@ -72,7 +104,7 @@ public class BytecodeBasicBlockCompiler extends AbstractBytecodeCompiler impleme
                     .voidreturn()
                 );
 
-        CompilationPlanner planner = new CompilationPlanner(getConfig(), context.getClassLoader(), getFactory());
+        CompilationPlanner planner = new CompilationPlanner(getConfig(), getFactory(), this.methodSizeLimit);
 
         PartialCompiler compiler = null;
         if (body instanceof BlockStatement) {
@@ -82,16 +114,35 @@ public class BytecodeBasicBlockCompiler extends AbstractBytecodeCompiler impleme
         }
 
         compiler.define(cls, context, false);
-        Class<BytecodeBasicBlock> blockClass = defineClass(context.getClassLoader(), cls);
 
+        // helper classes first, as they were emitted, then the block itself
+        Map<String, byte[]> classes = new LinkedHashMap<>(compiler.getGeneratedClasses());
+        classes.put(className.replace('/', '.'), toBytes(cls));
+
+        return new GeneratedBlock(body, strict, classes, compiler.getReferencedEntries());
+    }
+
+    /**
+     * Define the classes of a generated block, in order, in a fresh unit
+     * loader, and instantiate the block.
+     */
+    public BytecodeBasicBlock link(final ExecutionContext context, final GeneratedBlock generated) {
+        DynamicClassLoader unitLoader = context.getClassLoader().createUnitLoader();
+
+        Class<?> blockClass = null;
+        for (Map.Entry<String, byte[]> each : generated.getClasses().entrySet()) {
+            blockClass = unitLoader.define(each.getKey(), each.getValue());
+        }
+
+        Statement body = generated.getBody();
         Position position = body.getPosition();
 
         String fileName = (position != null ? position.getFileName() : "eval");
         
         try {
-            Constructor<BytecodeBasicBlock> ctor = blockClass.getDeclaredConstructor(String.class, boolean.class, List.class, List.class);
-            BasicBlock block = ctor.newInstance(fileName, strict, body.getVariableDeclarations(), body.getFunctionDeclarations());
-            entry.setCompiled(block);
+            Constructor<?> ctor = blockClass.getDeclaredConstructor(String.class, boolean.class, List.class, List.class);
+            BytecodeBasicBlock block = (BytecodeBasicBlock) ctor.newInstance(fileName, generated.isStrict(), body.getVariableDeclarations(), body.getFunctionDeclarations());
+            block.setReferencedEntries(generated.getReferencedEntries());
             return block;
         } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
             throw new IllegalStateException(e);
@@ -8,7 +8,21 @@ import org.dynjs.runtime.JSProgram;
 import org.dynjs.runtime.wrapper.JavascriptProgram;
 
 public class BytecodeProgramCompiler implements ProgramCompiler {
+
+    private EagerFunctionCompiler functionCompiler;
+
+    public BytecodeProgramCompiler() {
+        this(null);
+    }
+
+    public BytecodeProgramCompiler(EagerFunctionCompiler functionCompiler) {
+        this.functionCompiler = functionCompiler;
+    }
+
     public JSProgram compile(final ExecutionContext context, final ProgramTree body, boolean forceStrict) {
+        if (this.functionCompiler != null) {
+            this.functionCompiler.compile(context, body);
+        }
         BasicBlock code = context.getCompiler().compileBasicBlock(context, "ProgramBody", body, forceStrict || body.isStrict() );
 
         return new JavascriptProgram( code );
@@ -1,6 +1,7 @@
 package org.dynjs.compiler.bytecode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -55,4 +56,14 @@ public class Chunker {
         return chunks;
     }
 
+    /**
+     * Split a block of at least two statements into two halves.
+     */
+    public static List<BlockStatement> split(BlockStatement block) {
+        List<Statement> statements = block.getBlockContent();
+        int middle = statements.size() / 2;
+        return Arrays.asList(new BlockStatement(statements.subList(0, middle)),
+                new BlockStatement(statements.subList(middle, statements.size())));
+    }
+
 }
@@ -0,0 +1,143 @@
+package org.dynjs.compiler.bytecode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.dynjs.parser.DefaultVisitor;
+import org.dynjs.parser.Statement;
+import org.dynjs.parser.ast.FunctionDeclaration;
+import org.dynjs.parser.ast.FunctionExpression;
+import org.dynjs.parser.ast.ProgramTree;
+import org.dynjs.parser.ast.PropertyGet;
+import org.dynjs.parser.ast.PropertySet;
+import org.dynjs.runtime.BlockManager.Entry;
+import org.dynjs.runtime.ExecutionContext;
+
+/**
+ * Compiles every function body of a program up front, generating bytecode on
+ * a fork-join pool.
+ *
+ * <p>
+ * Function bodies do not depend on each other at compile time, so their
+ * bytecode is generated in parallel. Class names are reserved and classes are
+ * defined on the calling thread in source order, which keeps the result the
+ * same as compiling them one by one. The compiled blocks are published
+ * through the block manager, where the function compiler picks them up.
+ * </p>
+ */
+public class EagerFunctionCompiler {
+
+    private static final ForkJoinPool compilationPool = new ForkJoinPool();
+
+    private BytecodeBasicBlockCompiler blockCompiler;
+
+    public EagerFunctionCompiler(BytecodeBasicBlockCompiler blockCompiler) {
+        this.blockCompiler = blockCompiler;
+    }
+
+    public void compile(ExecutionContext context, ProgramTree program) {
+        List<FunctionBody> bodies = new ArrayList<>();
+        for (FunctionBody each : collectFunctionBodies(program)) {
+            Entry entry = context.getBlockManager().retrieve(each.block.getStatementNumber());
+            if (entry.getCompiled() == null) {
+                each.entry = entry;
+                each.className = this.blockCompiler.nextClassName("FunctionBody");
+                bodies.add(each);
+            }
+        }
+
+        if (bodies.size() < 2) {
+            // not worth a trip through the pool; compile lazily as usual
+            return;
+        }
+
+        compilationPool.invoke(new GenerateAction(context, bodies, 0, bodies.size()));
+
+        for (FunctionBody each : bodies) {
+            if (each.generated != null) {
+                each.entry.compareAndSetCompiled(null, this.blockCompiler.link(context, each.generated));
+            }
+        }
+    }
+
+    static List<FunctionBody> collectFunctionBodies(ProgramTree program) {
+        final List<FunctionBody> bodies = new ArrayList<>();
+        program.accept(null, new DefaultVisitor() {
+            @Override
+            public Object visit(Object context, FunctionDeclaration statement, boolean strict) {
+                bodies.add(new FunctionBody(statement.getBlock(), statement.isStrict()));
+                return super.visit(context, statement, strict);
+            }
+
+            @Override
+            public Object visit(Object context, FunctionExpression expr, boolean strict) {
+                bodies.add(new FunctionBody(expr.getDescriptor().getBlock(), expr.getDescriptor().isStrict()));
+                return super.visit(context, expr, strict);
+            }
+
+            @Override
+            public Object visit(Object context, PropertyGet propertyGet, boolean strict) {
+                bodies.add(new FunctionBody(propertyGet.getBlock(), false));
+                return super.visit(context, propertyGet, strict);
+            }
+
+            @Override
+            public Object visit(Object context, PropertySet propertySet, boolean strict) {
+                bodies.add(new FunctionBody(propertySet.getBlock(), false));
+                return super.visit(context, propertySet, strict);
+            }
+        }, program.isStrict());
+        return bodies;
+    }
+
+    private class GenerateAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private ExecutionContext context;
+        private List<FunctionBody> bodies;
+        private int start;
+        private int end;
+
+        GenerateAction(ExecutionContext context, List<FunctionBody> bodies, int start, int end) {
+            this.context = context;
+            this.bodies = bodies;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start > 1) {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new GenerateAction(this.context, this.bodies, this.start, middle),
+                        new GenerateAction(this.context, this.bodies, middle, this.end));
+                return;
+            }
+
+            FunctionBody body = this.bodies.get(this.start);
+            try {
+                body.generated = blockCompiler.generate(this.context, body.className, body.block, body.strict);
+            } catch (RuntimeException e) {
+                // leave it to the lazy path, which reports errors where they happen
+            }
+        }
+    }
+
+    static class FunctionBody {
+
+        FunctionBody(Statement block, boolean strict) {
+            this.block = block;
+            this.strict = strict;
+        }
+
+        final Statement block;
+        final boolean strict;
+        Entry entry;
+        String className;
+        volatile GeneratedBlock generated;
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.dynjs.compiler.bytecode;
+
+import java.util.List;
+import java.util.Map;
+
+import org.dynjs.parser.Statement;
+import org.dynjs.runtime.BlockManager.Entry;
+
+/**
+ * The bytecode generated for one block, ready to be linked.
+ */
+public class GeneratedBlock {
+
+    private final Statement body;
+    private final boolean strict;
+    private final Map<String, byte[]> classes;
+    private final List<Entry> referencedEntries;
+
+    public GeneratedBlock(Statement body, boolean strict, Map<String, byte[]> classes, List<Entry> referencedEntries) {
+        this.body = body;
+        this.strict = strict;
+        this.classes = classes;
+        this.referencedEntries = referencedEntries;
+    }
+
+    public Statement getBody() {
+        return this.body;
+    }
+
+    public boolean isStrict() {
+        return this.strict;
+    }
+
+    /**
+     * @return the classes to define, by name, in definition order. The block
+     *         class itself comes last.
+     */
+    public Map<String, byte[]> getClasses() {
+        return this.classes;
+    }
+
+    public List<Entry> getReferencedEntries() {
+        return this.referencedEntries;
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.dynjs.compiler.bytecode;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.qmx.jitescript.CodeBlock;
+import me.qmx.jitescript.internal.org.objectweb.asm.ClassWriter;
+import me.qmx.jitescript.internal.org.objectweb.asm.Label;
+import me.qmx.jitescript.internal.org.objectweb.asm.MethodVisitor;
+import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
+import me.qmx.jitescript.internal.org.objectweb.asm.tree.TryCatchBlockNode;
+
+/**
+ * Measures the real size of generated method bodies against a limit.
+ *
+ * <p>
+ * HotSpot refuses to JIT-compile methods larger than its
+ * <code>HugeMethodLimit</code> (8000 bytes), so anything bigger than that
+ * stays interpreted by the JVM forever. The planners use this to keep
+ * splitting chunks until each generated method fits.
+ * </p>
+ */
+public class MethodSizeLimit {
+
+    public static final int HUGE_METHOD_LIMIT = 8_000;
+
+    private final int maximumSize;
+    private final AtomicInteger oversizedMethods = new AtomicInteger();
+
+    public MethodSizeLimit(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    public boolean fits(CodeBlock block) {
+        return measure(block) <= this.maximumSize;
+    }
+
+    /**
+     * Assemble the block into a scratch method and return the length of its
+     * code attribute. The block itself is left intact and may still be added
+     * to a class afterwards.
+     *
+     * @param block the method body.
+     * @return the emitted bytecode size, in bytes.
+     */
+    public static int measure(CodeBlock block) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, "MethodSizeLimit$Scratch", null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "measure", "()V", null, null);
+        method.visitCode();
+        for (TryCatchBlockNode each : block.getTryCatchBlockList()) {
+            each.accept(method);
+        }
+        block.getInstructionList().accept(method);
+        Label end = new Label();
+        method.visitLabel(end);
+        int size = end.getOffset();
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+
+        // labels are bound to the scratch writer now; let the real one start afresh
+        block.getInstructionList().resetLabels();
+        return size;
+    }
+
+    /**
+     * Record a method which could not be split any further and is still over
+     * the limit.
+     */
+    public void reportOversized() {
+        this.oversizedMethods.incrementAndGet();
+    }
+
+    /**
+     * @return the number of generated methods which ended up over the limit.
+     */
+    public int getOversizedMethodCount() {
+        return this.oversizedMethods.get();
+    }
+
+}
@@ -1,33 +1,198 @@
 package org.dynjs.compiler.bytecode.partial;
 
+import static me.qmx.jitescript.util.CodegenUtils.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.qmx.jitescript.CodeBlock;
 import me.qmx.jitescript.JiteClass;
 
 import org.dynjs.Config;
+import org.dynjs.codegen.CodeGeneratingVisitor;
+import org.dynjs.codegen.CodeGeneratingVisitor.Arities;
 import org.dynjs.codegen.CodeGeneratingVisitorFactory;
 import org.dynjs.compiler.bytecode.AbstractBytecodeCompiler;
-import org.dynjs.runtime.DynamicClassLoader;
+import org.dynjs.compiler.bytecode.MethodSizeLimit;
+import org.dynjs.parser.Statement;
+import org.dynjs.parser.ast.BlockStatement;
+import org.dynjs.runtime.BlockManager.Entry;
+import org.dynjs.runtime.Completion;
+import org.dynjs.runtime.ExecutionContext;
+import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
 
 public abstract class AbstractPartialCompiler extends AbstractBytecodeCompiler implements PartialCompiler {
     
-    private DynamicClassLoader classLoader;
+    private MethodSizeLimit methodSizeLimit;
+    private List<Entry> referencedEntries;
+    private Map<String, byte[]> generatedClasses;
 
-    public AbstractPartialCompiler(Config config, DynamicClassLoader classLoader, CodeGeneratingVisitorFactory factory) {
+    public AbstractPartialCompiler(Config config, CodeGeneratingVisitorFactory factory, MethodSizeLimit methodSizeLimit) {
         super( config, factory );
-        this.classLoader = classLoader;
+        this.methodSizeLimit = methodSizeLimit;
+        this.referencedEntries = new ArrayList<>();
+        this.generatedClasses = new LinkedHashMap<>();
     }
     
     public AbstractPartialCompiler(AbstractPartialCompiler parent) {
         super( parent );
-        this.classLoader = parent.classLoader;
+        this.methodSizeLimit = parent.methodSizeLimit;
+        this.referencedEntries = parent.referencedEntries;
+        this.generatedClasses = parent.generatedClasses;
+    }
+    
+    public MethodSizeLimit getMethodSizeLimit() {
+        return this.methodSizeLimit;
     }
     
-    public DynamicClassLoader getClassLoader() {
-        return this.classLoader;
+    
+    /**
+     * Emit a helper class. Nothing is loaded here; the owning compiler
+     * defines the emitted classes, in order, once the whole block has been
+     * generated.
+     */
+    protected void emitClass(JiteClass cls) {
+        this.generatedClasses.put( cls.getClassName().replace('/', '.'), toBytes( cls ) );
+    }
+    
+    protected void retainReferencedEntries(CodeGeneratingVisitor visitor) {
+        this.referencedEntries.addAll( visitor.getReferencedEntries() );
     }
     
+    @Override
+    public List<Entry> getReferencedEntries() {
+        return this.referencedEntries;
+    }
+    
+    @Override
+    public Map<String, byte[]> getGeneratedClasses() {
+        return this.generatedClasses;
+    }
+    
+    /**
+     * Generate the bodies of a chunk. Each statement is generated once, on its
+     * own, and measured; consecutive statements are then appended into one
+     * body for as long as it stays within the size limit. The statements of a
+     * plain block are chunked the same way, as if they were the chunk's own;
+     * the bodies of loops, conditionals and functions are blocks compiled on
+     * their own (see CodeGeneratingVisitor.invokeCompiledStatementBlock).
+     */
+    protected List<CodeBlock> generateChunkBodies(BlockStatement chunk, ExecutionContext context, boolean strict) {
+        ChunkBodies bodies = new ChunkBodies( this.methodSizeLimit.getMaximumSize() );
+        generateChunkStatements( bodies, chunk.getBlockContent(), context, strict );
+        return bodies.finish();
+    }
+
+    private void generateChunkStatements(ChunkBodies bodies, List<Statement> statements, ExecutionContext context, boolean strict) {
+        for (Statement each : statements) {
+            if (each == null) {
+                continue;
+            }
+            if ( each.getClass() == BlockStatement.class && each.getLabels().isEmpty() ) {
+                // 12.1: a block without labels completes as its statements do in turn
+                generateChunkStatements( bodies, ((BlockStatement) each).getBlockContent(), context, strict );
+                continue;
+            }
+            CodeGeneratingVisitor visitor = createVisitor( context.getBlockManager() );
+            visitor.chunkStatement(context, each, strict);
+            retainReferencedEntries( visitor );
+            bodies.add( visitor, MethodSizeLimit.measure( visitor ) );
+        }
+    }
+
+    /**
+     * Chunk bodies being filled with statements, each up to the size limit
+     * where the statements allow.
+     */
+    private static class ChunkBodies {
+        private final int maximumSize;
+        private final List<CodeBlock> bodies = new ArrayList<>();
+        private CodeBlock body;
+        private int bodySize;
+
+        ChunkBodies(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        void add(CodeBlock statement, int size) {
+            if ( this.body != null && this.bodySize + size + EPILOGUE_SIZE > this.maximumSize ) {
+                this.bodies.add( chunkEpilogue( this.body ) );
+                this.body = null;
+            }
+            if ( this.body == null ) {
+                this.body = chunkPrologue();
+                this.bodySize = PROLOGUE_SIZE;
+            }
+            this.body.append( statement );
+            this.bodySize += size;
+        }
+
+        List<CodeBlock> finish() {
+            if ( this.body == null ) {
+                this.body = chunkPrologue();
+            }
+            this.bodies.add( chunkEpilogue( this.body ) );
+            return this.bodies;
+        }
+    }
+
+    private static final int PROLOGUE_SIZE = MethodSizeLimit.measure( chunkPrologue() );
+    private static final int EPILOGUE_SIZE = MethodSizeLimit.measure( chunkEpilogue( new CodeBlock() ) );
+
+    private static CodeBlock chunkPrologue() {
+        return new CodeBlock()
+            .invokestatic(p(Completion.class), "createNormal", sig(Completion.class))
+            .astore(Arities.COMPLETION);
+    }
+
+    private static CodeBlock chunkEpilogue(CodeBlock body) {
+        return body
+            .aload(Arities.COMPLETION)
+            .areturn();
+    }
+    
+    protected void defineChunkMethods(JiteClass cls, List<CodeBlock> bodies) {
+        List<String> methodNames = new ArrayList<>();
+        for (CodeBlock each : bodies) {
+            String methodName = "callChunk" + methodNames.size();
+            defineMethod(cls, methodName, Opcodes.ACC_PROTECTED, sig(Completion.class, ExecutionContext.class), each);
+            methodNames.add(methodName);
+        }
+
+        defineMethod(cls, "initializeCode", Opcodes.ACC_PRIVATE, sig(void.class), new CodeBlock().voidreturn());
+        defineCaller(cls, "call", Opcodes.ACC_PUBLIC, methodNames);
+    }
+    
+    /**
+     * Define a method calling each of the chunk methods in turn. If there are
+     * so many chunks that the caller itself would be over the limit, callers
+     * for each half are defined first and called instead.
+     */
+    private void defineCaller(JiteClass cls, String callerName, int modifiers, List<String> methodNames) {
+        CodeBlock caller = new SingleClassCaller(cls.getClassName(), methodNames);
+        if ( methodNames.size() > 2 && ! this.methodSizeLimit.fits( caller ) ) {
+            int middle = methodNames.size() / 2;
+            List<String> halves = new ArrayList<>();
+            halves.add( callerName + "$0" );
+            halves.add( callerName + "$1" );
+            defineCaller( cls, halves.get(0), Opcodes.ACC_PROTECTED, methodNames.subList(0, middle) );
+            defineCaller( cls, halves.get(1), Opcodes.ACC_PROTECTED, methodNames.subList(middle, methodNames.size()) );
+            caller = new SingleClassCaller(cls.getClassName(), halves);
+        }
+        defineMethod(cls, callerName, modifiers, sig(Completion.class, ExecutionContext.class), caller);
+    }
     
-    protected <T> Class<T> defineClass(JiteClass cls) {
-        return defineClass( this.classLoader, cls );
+    protected void defineMethod(JiteClass cls, String methodName, int modifiers, String signature, CodeBlock body) {
+        int size = MethodSizeLimit.measure( body );
+        if ( size > this.methodSizeLimit.getMaximumSize() ) {
+            this.methodSizeLimit.reportOversized();
+            if ( getConfig().isDebug() ) {
+                getConfig().getErrorStream().println( "generated method " + cls.getClassName() + "." + methodName + " is " + size + " bytes" );
+            }
+        }
+        cls.defineMethod(methodName, modifiers, signature, body);
     }
     
 
@@ -5,19 +5,19 @@ import java.util.List;
 import org.dynjs.Config;
 import org.dynjs.codegen.CodeGeneratingVisitorFactory;
 import org.dynjs.compiler.bytecode.Chunker;
+import org.dynjs.compiler.bytecode.MethodSizeLimit;
 import org.dynjs.parser.ast.BlockStatement;
-import org.dynjs.runtime.DynamicClassLoader;
 
 public class CompilationPlanner {
     
     private Config config;
-    private DynamicClassLoader classLoader;
     private CodeGeneratingVisitorFactory factory;
+    private MethodSizeLimit methodSizeLimit;
 
-    public CompilationPlanner(Config config, DynamicClassLoader classLoader, CodeGeneratingVisitorFactory factory) {
+    public CompilationPlanner(Config config, CodeGeneratingVisitorFactory factory, MethodSizeLimit methodSizeLimit) {
         this.config = config;
-        this.classLoader = classLoader;
         this.factory = factory;
+        this.methodSizeLimit = methodSizeLimit;
     }
     public PartialCompiler plan(BlockStatement body) {
         return plan( Chunker.chunk( body ) );
@@ -34,14 +34,14 @@ public class CompilationPlanner {
     public PartialCompiler plan(List<BlockStatement> chunks, int chunksPerClass) {
         
         if ( chunks.size() == 1 ) {
-            return new InlineCompiler( this.config, this.classLoader, this.factory, chunks.get(0));
+            return new InlineCompiler( this.config, this.factory, this.methodSizeLimit, chunks.get(0));
         }
         
         if ( chunks.size() <= chunksPerClass ) {
-            return new SingleClassCompiler( this.config, this.classLoader, this.factory, chunks );
+            return new SingleClassCompiler( this.config, this.factory, this.methodSizeLimit, chunks );
         }
         
-        return new MultipleClassCompiler( this.config, this.classLoader, this.factory, chunks, chunksPerClass );
+        return new MultipleClassCompiler( this.config, this.factory, this.methodSizeLimit, chunks, chunksPerClass );
     }
 
 }
@@ -1,15 +1,17 @@
 package org.dynjs.compiler.bytecode.partial;
 
 import static me.qmx.jitescript.util.CodegenUtils.*;
+
+import java.util.List;
+
 import me.qmx.jitescript.CodeBlock;
 import me.qmx.jitescript.JiteClass;
 
 import org.dynjs.Config;
-import org.dynjs.codegen.CodeGeneratingVisitor;
 import org.dynjs.codegen.CodeGeneratingVisitorFactory;
+import org.dynjs.compiler.bytecode.MethodSizeLimit;
 import org.dynjs.parser.ast.BlockStatement;
 import org.dynjs.runtime.Completion;
-import org.dynjs.runtime.DynamicClassLoader;
 import org.dynjs.runtime.ExecutionContext;
 import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
 
@@ -17,17 +19,21 @@ public class InlineCompiler extends AbstractPartialCompiler {
     
     private BlockStatement block;
 
-    public InlineCompiler(Config config, DynamicClassLoader classLoader, CodeGeneratingVisitorFactory factory, BlockStatement block) {
-        super( config, classLoader, factory );
+    public InlineCompiler(Config config, CodeGeneratingVisitorFactory factory, MethodSizeLimit methodSizeLimit, BlockStatement block) {
+        super( config, factory, methodSizeLimit );
         this.block = block;
     }
     
     @Override
     public void define(JiteClass cls, ExecutionContext context, boolean strict) {
-        CodeGeneratingVisitor visitor = createVisitor( context.getBlockManager() );
-        block.accept(context, visitor, strict);
-        cls.defineMethod("call", Opcodes.ACC_PUBLIC, sig(Completion.class, ExecutionContext.class), visitor.areturn());
-        cls.defineMethod("initializeCode", Opcodes.ACC_PRIVATE, sig(void.class), new CodeBlock().voidreturn());
+        List<CodeBlock> bodies = generateChunkBodies(block, context, strict);
+        if (bodies.size() > 1) {
+            // too big to inline after all
+            defineChunkMethods(cls, bodies);
+            return;
+        }
+        defineMethod(cls, "call", Opcodes.ACC_PUBLIC, sig(Completion.class, ExecutionContext.class), bodies.get(0));
+        defineMethod(cls, "initializeCode", Opcodes.ACC_PRIVATE, sig(void.class), new CodeBlock().voidreturn());
     }
 
 }
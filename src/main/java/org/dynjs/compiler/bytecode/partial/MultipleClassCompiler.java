@@ -9,10 +9,10 @@ import me.qmx.jitescript.JiteClass;
 
 import org.dynjs.Config;
 import org.dynjs.codegen.CodeGeneratingVisitorFactory;
+import org.dynjs.compiler.bytecode.MethodSizeLimit;
 import org.dynjs.parser.ast.BlockStatement;
 import org.dynjs.runtime.BasicBlock;
 import org.dynjs.runtime.Completion;
-import org.dynjs.runtime.DynamicClassLoader;
 import org.dynjs.runtime.ExecutionContext;
 import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
 
@@ -20,8 +20,8 @@ public class MultipleClassCompiler extends AbstractPartialCompiler {
 
     private List<PartialCompiler> plans;
 
-    public MultipleClassCompiler(Config config, DynamicClassLoader classLoader, CodeGeneratingVisitorFactory factory, List<BlockStatement> chunks, int chunkSize) {
-        super(config, classLoader, factory);
+    public MultipleClassCompiler(Config config, CodeGeneratingVisitorFactory factory, MethodSizeLimit methodSizeLimit, List<BlockStatement> chunks, int chunkSize) {
+        super(config, factory, methodSizeLimit);
 
         List<PartialCompiler> plans = new ArrayList<PartialCompiler>();
 
@@ -81,14 +81,14 @@ public class MultipleClassCompiler extends AbstractPartialCompiler {
             JiteClass chunkClass = new JiteClass(cls.getClassName() + "$" + i, new String[] { p(BasicBlock.class) });
             chunkClass.defineDefaultConstructor();
             this.plans.get(i).define(chunkClass, context, strict);
-            defineClass(chunkClass);
+            emitClass(chunkClass);
 
             cls.defineField("chunk" + i, Opcodes.ACC_PRIVATE, ci(BasicBlock.class), null);
         }
 
-        cls.defineMethod("call", Opcodes.ACC_PUBLIC, sig(Completion.class, ExecutionContext.class), new MultipleClassCaller(cls.getClassName(), numChunks));
+        defineMethod(cls, "call", Opcodes.ACC_PUBLIC, sig(Completion.class, ExecutionContext.class), new MultipleClassCaller(cls.getClassName(), numChunks));
 
-        cls.defineMethod("initializeCode", Opcodes.ACC_PRIVATE, sig(void.class), new MultipleClassInitializer(cls.getClassName(), numChunks));
+        defineMethod(cls, "initializeCode", Opcodes.ACC_PRIVATE, sig(void.class), new MultipleClassInitializer(cls.getClassName(), numChunks));
     }
 
 }
@@ -21,8 +21,8 @@ public class MultipleClassInitializer extends CodeBlock {
             // this chunk
             putfield(className.replace('.', '/'), "chunk" + i, ci(BasicBlock.class));
             // <empty>
-            voidreturn();
         }
+        voidreturn();
     }
 
 }
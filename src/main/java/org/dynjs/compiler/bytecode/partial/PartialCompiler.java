@@ -1,11 +1,23 @@
 package org.dynjs.compiler.bytecode.partial;
 
+import java.util.List;
+import java.util.Map;
+
 import me.qmx.jitescript.JiteClass;
 
+import org.dynjs.runtime.BlockManager.Entry;
 import org.dynjs.runtime.ExecutionContext;
 
 public interface PartialCompiler {
     
     void define(JiteClass cls, ExecutionContext context, boolean strict);
+    
+    List<Entry> getReferencedEntries();
+    
+    /**
+     * @return the helper classes emitted by this compiler, by name, in the
+     *         order they need to be defined.
+     */
+    Map<String, byte[]> getGeneratedClasses();
 
 }
@@ -1,6 +1,10 @@
 package org.dynjs.compiler.bytecode.partial;
 
 import static me.qmx.jitescript.util.CodegenUtils.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import me.qmx.jitescript.CodeBlock;
 
 import org.dynjs.codegen.CodeGeneratingVisitor.Arities;
@@ -12,6 +16,10 @@ import me.qmx.jitescript.internal.org.objectweb.asm.tree.LabelNode;
 public class SingleClassCaller extends CodeBlock {
 
     public SingleClassCaller(final String className, final int numBodies) {
+        this(className, chunkMethodNames(numBodies));
+    }
+
+    public SingleClassCaller(final String className, final List<String> methodNames) {
         LabelNode abrupt = new LabelNode();
         LabelNode end = new LabelNode();
 
@@ -20,7 +28,7 @@ public class SingleClassCaller extends CodeBlock {
         astore(Arities.COMPLETION);
         // <empty>
 
-        for (int i = 0; i < numBodies; ++i) {
+        for (String methodName : methodNames) {
             LabelNode nonAbrupt = new LabelNode();
             LabelNode bringForwardValue = new LabelNode();
             LabelNode nextStatement = new LabelNode();
@@ -30,7 +38,7 @@ public class SingleClassCaller extends CodeBlock {
             // this
             aload( Arities.EXECUTION_CONTEXT );
             // this context
-            invokevirtual(className.replace(".", "/"), "callChunk" + i, sig(Completion.class, ExecutionContext.class));
+            invokevirtual(className.replace(".", "/"), methodName, sig(Completion.class, ExecutionContext.class));
             // completion
             dup();
             // completion completion
@@ -95,4 +103,12 @@ public class SingleClassCaller extends CodeBlock {
         
     }
 
+    private static List<String> chunkMethodNames(int numBodies) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < numBodies; ++i) {
+            names.add("callChunk" + i);
+        }
+        return names;
+    }
+
 }
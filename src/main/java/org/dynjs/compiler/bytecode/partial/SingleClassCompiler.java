@@ -1,27 +1,23 @@
 package org.dynjs.compiler.bytecode.partial;
 
-import static me.qmx.jitescript.util.CodegenUtils.*;
-
+import java.util.ArrayList;
 import java.util.List;
 
 import me.qmx.jitescript.CodeBlock;
 import me.qmx.jitescript.JiteClass;
 
 import org.dynjs.Config;
-import org.dynjs.codegen.CodeGeneratingVisitor;
 import org.dynjs.codegen.CodeGeneratingVisitorFactory;
+import org.dynjs.compiler.bytecode.MethodSizeLimit;
 import org.dynjs.parser.ast.BlockStatement;
-import org.dynjs.runtime.Completion;
-import org.dynjs.runtime.DynamicClassLoader;
 import org.dynjs.runtime.ExecutionContext;
-import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
 
 public class SingleClassCompiler extends AbstractPartialCompiler {
 
     private List<BlockStatement> chunks;
 
-    public SingleClassCompiler(Config config, DynamicClassLoader classLoader, CodeGeneratingVisitorFactory factory, List<BlockStatement> chunks) {
-        super(config, classLoader, factory);
+    public SingleClassCompiler(Config config, CodeGeneratingVisitorFactory factory, MethodSizeLimit methodSizeLimit, List<BlockStatement> chunks) {
+        super(config, factory, methodSizeLimit);
         this.chunks = chunks;
     }
 
@@ -32,15 +28,11 @@ public class SingleClassCompiler extends AbstractPartialCompiler {
 
     @Override
     public void define(JiteClass cls, ExecutionContext context, boolean strict) {
-        int i = 0;
+        List<CodeBlock> bodies = new ArrayList<>();
         for (BlockStatement each : chunks) {
-            CodeGeneratingVisitor visitor = createVisitor( context.getBlockManager() );
-            each.accept(context, visitor, strict);
-            cls.defineMethod("callChunk" + i, Opcodes.ACC_PROTECTED, sig(Completion.class, ExecutionContext.class), visitor.areturn());
-            ++i;
+            bodies.addAll(generateChunkBodies(each, context, strict));
         }
 
-        cls.defineMethod("initializeCode", Opcodes.ACC_PRIVATE, sig(void.class), new CodeBlock().voidreturn());
-        cls.defineMethod("call", Opcodes.ACC_PUBLIC, sig(Completion.class, ExecutionContext.class), new SingleClassCaller(cls.getClassName(), chunks.size()));
+        defineChunkMethods(cls, bodies);
     }
 }
@@ -21,6 +21,8 @@ public class JITBasicBlockCompiler implements BasicBlockCompiler {
 
     private InterpretingVisitorFactory interpFactory;
     private BytecodeBasicBlockCompiler jitCompiler;
+    private final AtomicInteger installed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
 
     private static final Executor compilationQueue = Executors.newFixedThreadPool(8, new ThreadFactory() {
             private final AtomicInteger count = new AtomicInteger(1);
@@ -47,12 +49,29 @@ public class JITBasicBlockCompiler implements BasicBlockCompiler {
         }
         InterpretedBasicBlock initial = new InterpretedBasicBlock(this.interpFactory, body, strict);
         code = new CompilableBasicBlock(this, grist, initial);
-        entry.setCompiled(code);
+        if (!entry.compareAndSetCompiled(null, code)) {
+            // another thread published a block for this statement first
+            return entry.getCompiled();
+        }
         return code;
     }
 
     private BasicBlock jitCompile(ExecutionContext context, String grist, Statement body, boolean strict) {
-        return this.jitCompiler.compile(context, grist, body, strict);
+        return this.jitCompiler.compileBlock(context, grist, body, strict);
+    }
+
+    /**
+     * @return the number of blocks compiled and installed by the JIT.
+     */
+    public int getInstalledCount() {
+        return this.installed.get();
+    }
+
+    /**
+     * @return the number of blocks the JIT failed to compile.
+     */
+    public int getFailedCount() {
+        return this.failed.get();
     }
 
     public void requestJitCompilation(ExecutionContext context, CompilableBasicBlock block) {
@@ -73,8 +92,18 @@ public class JITBasicBlockCompiler implements BasicBlockCompiler {
         public void run() {
             BasicBlock delegate = this.block.getDelegate();
             if (delegate instanceof InterpretedBasicBlock) {
-                BasicBlock compiled = jitCompile(this.context, block.getGrist(), ((InterpretedBasicBlock) delegate).getBody(), block.isStrict());
-                this.block.setDelegate(compiled);
+                BasicBlock compiled = null;
+                try {
+                    compiled = jitCompile(this.context, block.getGrist(), ((InterpretedBasicBlock) delegate).getBody(), block.isStrict());
+                } catch (RuntimeException | LinkageError e) {
+                    // keep interpreting; the block will not be requested again
+                    failed.incrementAndGet();
+                    return;
+                }
+                // only replace the code we compiled from; anything else was installed on purpose
+                if (this.block.install(delegate, compiled)) {
+                    installed.incrementAndGet();
+                }
             }
         }
     }
@@ -67,7 +67,7 @@ public class ThrowException extends DynJSException {
                 message += ((JSObject) value).get(null, "message");
             }
             return message;
-        } else if (value instanceof String) {
+        } else if (Types.isString(value)) {
             return value.toString();
         }
         return super.getMessage();
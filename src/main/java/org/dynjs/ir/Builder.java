@@ -15,38 +15,86 @@
  */
 package org.dynjs.ir;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.dynjs.Config;
 import org.dynjs.ir.instructions.Add;
-import org.dynjs.ir.instructions.BEQ;
+import org.dynjs.ir.instructions.ArrayLiteral;
+import org.dynjs.ir.instructions.BFalse;
+import org.dynjs.ir.instructions.BTrue;
+import org.dynjs.ir.instructions.BitwiseAnd;
+import org.dynjs.ir.instructions.BitwiseNot;
+import org.dynjs.ir.instructions.BitwiseOr;
+import org.dynjs.ir.instructions.BitwiseXor;
 import org.dynjs.ir.instructions.Call;
+import org.dynjs.ir.instructions.CallMethod;
 import org.dynjs.ir.instructions.Constructor;
 import org.dynjs.ir.instructions.Copy;
 import org.dynjs.ir.instructions.DefineFunction;
+import org.dynjs.ir.instructions.DeleteName;
+import org.dynjs.ir.instructions.DeleteProperty;
+import org.dynjs.ir.instructions.Div;
+import org.dynjs.ir.instructions.ElementAssign;
+import org.dynjs.ir.instructions.ElementLookup;
+import org.dynjs.ir.instructions.EnterCatch;
+import org.dynjs.ir.instructions.EnterWith;
+import org.dynjs.ir.instructions.Equal;
+import org.dynjs.ir.instructions.ExceptionRegionEndMarker;
+import org.dynjs.ir.instructions.ExceptionRegionStartMarker;
+import org.dynjs.ir.instructions.GE;
+import org.dynjs.ir.instructions.GT;
+import org.dynjs.ir.instructions.HasNextProperty;
+import org.dynjs.ir.instructions.In;
 import org.dynjs.ir.instructions.Instanceof;
 import org.dynjs.ir.instructions.Jump;
 import org.dynjs.ir.instructions.LE;
 import org.dynjs.ir.instructions.LT;
 import org.dynjs.ir.instructions.LabelInstr;
+import org.dynjs.ir.instructions.Mod;
 import org.dynjs.ir.instructions.Mul;
+import org.dynjs.ir.instructions.Negate;
+import org.dynjs.ir.instructions.NextProperty;
+import org.dynjs.ir.instructions.Not;
+import org.dynjs.ir.instructions.NotEqual;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.ir.instructions.PropertyAssign;
 import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.instructions.PropertyNames;
 import org.dynjs.ir.instructions.Raise;
+import org.dynjs.ir.instructions.ReceiveException;
 import org.dynjs.ir.instructions.ReceiveFunctionParameter;
+import org.dynjs.ir.instructions.ReceiveJSException;
+import org.dynjs.ir.instructions.RegExpLiteral;
+import org.dynjs.ir.instructions.RestoreEnvironment;
 import org.dynjs.ir.instructions.Return;
+import org.dynjs.ir.instructions.SaveEnvironment;
+import org.dynjs.ir.instructions.ShiftLeft;
+import org.dynjs.ir.instructions.ShiftRight;
+import org.dynjs.ir.instructions.StrictEqual;
+import org.dynjs.ir.instructions.StrictNotEqual;
 import org.dynjs.ir.instructions.Sub;
+import org.dynjs.ir.instructions.Switch;
+import org.dynjs.ir.instructions.ThrowException;
+import org.dynjs.ir.instructions.ToNumber;
+import org.dynjs.ir.instructions.TypeOf;
+import org.dynjs.ir.instructions.UnsignedShiftRight;
 import org.dynjs.ir.operands.BooleanLiteral;
 import org.dynjs.ir.operands.DynamicVariable;
 import org.dynjs.ir.operands.FloatNumber;
-import org.dynjs.ir.operands.Fn;
 import org.dynjs.ir.operands.IntegerNumber;
 import org.dynjs.ir.operands.Label;
+import org.dynjs.ir.operands.LocalVariable;
 import org.dynjs.ir.operands.Null;
 import org.dynjs.ir.operands.StringLiteral;
-import org.dynjs.ir.operands.TemporaryVariable;
 import org.dynjs.ir.operands.This;
 import org.dynjs.ir.operands.Undefined;
 import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.passes.Inliner;
+import org.dynjs.ir.passes.PassManager;
 import org.dynjs.parser.CodeVisitor;
 import org.dynjs.parser.Statement;
+import org.dynjs.parser.ast.AbstractBinaryExpression;
+import org.dynjs.parser.ast.AbstractForInStatement;
 import org.dynjs.parser.ast.AdditiveExpression;
 import org.dynjs.parser.ast.ArrayLiteralExpression;
 import org.dynjs.parser.ast.AssignmentExpression;
@@ -97,6 +145,7 @@ import org.dynjs.parser.ast.OfOperatorExpression;
 import org.dynjs.parser.ast.PostOpExpression;
 import org.dynjs.parser.ast.PreOpExpression;
 import org.dynjs.parser.ast.ProgramTree;
+import org.dynjs.parser.ast.PropertyAssignment;
 import org.dynjs.parser.ast.PropertyGet;
 import org.dynjs.parser.ast.PropertySet;
 import org.dynjs.parser.ast.RegexpLiteralExpression;
@@ -117,181 +166,286 @@ import org.dynjs.parser.ast.VariableStatement;
 import org.dynjs.parser.ast.VoidOperatorExpression;
 import org.dynjs.parser.ast.WhileStatement;
 import org.dynjs.parser.ast.WithStatement;
+import org.dynjs.runtime.ExecutionContext;
 import org.dynjs.runtime.JSProgram;
+import org.dynjs.runtime.SwitchTable;
 
-import java.util.List;
-import org.dynjs.runtime.Types;
-
+/**
+ * Builds IR instructions for a program and every function in it.
+ *
+ * Expressions return the Operand holding their value.  That is never a
+ * DynamicVariable (those are read into a temporary as they are referenced) and
+ * a LocalVariable is copied into a temporary whenever evaluating something after
+ * it could change it before it is used.
+ */
 public class Builder implements CodeVisitor {
     private static Builder BUILDER = new Builder();
 
-    public static JSProgram compile(ProgramTree program, Config.CompileMode mode) {
-        Scope scope = new Scope(null, program.getPosition().getFileName(), program.isStrict());
-        program.accept(scope, BUILDER, program.isStrict());
-
-        // FIXME: Add processing stage here/somewhere to do instr process/cfg/passes.
+    public static JSProgram compile(ExecutionContext context, ProgramTree program, Config.CompileMode mode) {
+        return compile(context, build(context, program), mode);
+    }
 
+    /**
+     * Program ready to run from scope, which build made or IRReader read.
+     */
+    public static JSProgram compile(ExecutionContext context, Scope scope, Config.CompileMode mode) {
         if (mode == Config.CompileMode.IRC) {
-            return new IRByteCodeCompiler(scope, program.getPosition().getFileName(), program.isStrict()).compile();
+            new IRByteCodeCompiler(context).compile(scope);
         }
+
         return new IRJSProgram(scope);
     }
 
-    @Override
-    public Object visit(Object context, AdditiveExpression expr, boolean strict) {
-        Scope scope = (Scope) context;
-        Operand lhs = (Operand) expr.getLhs().accept(context, this, strict);
-        Operand rhs = (Operand) expr.getRhs().accept(context, this, strict);
-        boolean subtract = expr.getOp().equals("-");
-        Operand value;
+    /**
+     * Instructions of program and every function in it before any pass has run.
+     */
+    public static Scope build(ExecutionContext context, ProgramTree program) {
+        boolean strict = program.isStrict();
+        Scope scope = new Scope(null, program.getPosition().getFileName(), strict);
+        scope.setPassManager(createPassManager(context.getConfig()));
+        ScopeAnalysis analysis = ScopeAnalysis.analyze(program, strict);
 
-        // FIXME: Review numeric representation of JS to figure out overflow etc..
-        if (lhs instanceof IntegerNumber) {
-            if (rhs instanceof IntegerNumber) {
-                if (subtract) {
-                    value = new IntegerNumber(((IntegerNumber) lhs).getValue() - ((IntegerNumber) rhs).getValue());
-                } else {
-                    value = new IntegerNumber(((IntegerNumber) lhs).getValue() + ((IntegerNumber) rhs).getValue());
-                }
-            } else if (rhs instanceof FloatNumber) {
-                if (subtract) {
-                    value = new FloatNumber(((FloatNumber) rhs).getValue() - ((IntegerNumber) lhs).getValue());
-                } else {
-                    value = new FloatNumber(((FloatNumber) rhs).getValue() + ((IntegerNumber) lhs).getValue());
-                }
-            } else {
-                Variable tmp = scope.createTemporaryVariable();
+        // Everything at the top level lives in the global object (or eval's environment)
+        scope.setUsesEnvironment(true);
+        scope.setDynamic(true);
+        scope.setAnalysis(analysis);
 
-                if (subtract) {
-                    scope.addInstruction(new Sub(tmp, lhs, rhs));
-                } else {
-                    scope.addInstruction(new Add(tmp, lhs, rhs));
-                }
+        for (VariableDeclaration declaration: program.getVariableDeclarations()) {
+            scope.declareVariable(declaration.getIdentifier());
+        }
+        for (FunctionDeclaration declaration: analysis.getFunctionDeclarations()) {
+            scope.declareVariable(declaration.getIdentifier());
+        }
 
-                value = tmp;
-            }
-        } else {
-            Variable tmp = scope.createTemporaryVariable();
+        Variable completion = scope.createTemporaryVariable();
+        scope.setCompletionVariable(completion);
+        scope.addInstruction(new Copy(completion, Undefined.UNDEFINED));
 
-            if (subtract) {
-                scope.addInstruction(new Sub(tmp, lhs, rhs));
-            } else {
-                scope.addInstruction(new Add(tmp, lhs, rhs));
-            }
+        BUILDER.buildDeclaredFunctions(scope, strict);
+        program.accept(scope, BUILDER, strict);
+        scope.addInstruction(new Return(completion));
+
+        return scope;
+    }
 
-            value = tmp;
+    public static PassManager createPassManager(Config config) {
+        PassManager passManager = PassManager.create(config.getIRPasses(), config.isIRPassesReport());
+
+        if (config.getIRInlineThreshold() > 0) {
+            passManager.setInliner(new Inliner(config.getIRInlineThreshold(), config.getIRInlineSize()));
         }
 
-        return value;
+        return passManager;
     }
 
-    @Override
-    public Object visit(Object context, BitwiseExpression bitwiseExpression, boolean strict) {
-        return unimplemented(context, bitwiseExpression, strict);
+    // ----------------------------------------------------------------------
+    // Functions
+    // ----------------------------------------------------------------------
+
+    private FunctionScope buildFunction(Scope parent, Statement body, String name, String selfName,
+                                        String[] parameterNames, String fileName, boolean strict) {
+        FunctionScope scope = new FunctionScope(parent, fileName, strict, parameterNames, name);
+        ScopeAnalysis analysis = parent.getAnalysis().getChild(body);
+
+        scope.setUsesEnvironment(analysis.usesEnvironment());
+        scope.setDynamic(analysis.isDynamic());
+        scope.setAnalysis(analysis);
+        parent.addChild(scope);
+
+        for (String parameterName: parameterNames) {
+            scope.declareVariable(parameterName);
+        }
+        for (FunctionDeclaration declaration: analysis.getFunctionDeclarations()) {
+            scope.declareVariable(declaration.getIdentifier());
+        }
+        for (VariableDeclaration declaration: body.getVariableDeclarations()) {
+            scope.declareVariable(declaration.getIdentifier());
+        }
+        if (selfName != null) {
+            scope.declareSelf(selfName);
+        }
+
+        // 1. receive arguments are first before any mandatory items like nested functions
+        // (an environment has them bound already when the function is called)
+        if (!scope.usesEnvironment()) {
+            for (int i = 0; i < parameterNames.length; i++) {
+                scope.addInstruction(new ReceiveFunctionParameter(scope.acquireLocalVariable(parameterNames[i]), i));
+            }
+        }
+
+        // 2. named functions must be visible before any code in the block executed so right after parms
+        buildDeclaredFunctions(scope, strict);
+
+        // 3. the actual block code.
+        body.accept(scope, this, strict);
+
+        return scope;
+    }
+
+    private void buildDeclaredFunctions(Scope scope, boolean strict) {
+        for (FunctionDeclaration declaration: scope.getAnalysis().getFunctionDeclarations()) {
+            FunctionScope functionScope = buildFunction(scope, declaration.getBlock(), declaration.getIdentifier(), null,
+                    declaration.getFormalParameters(), declaration.getPosition().getFileName(),
+                    strict || declaration.isStrict());
+
+            scope.addInstruction(new DefineFunction(variableFor(scope, declaration.getIdentifier()), functionScope));
+        }
     }
 
     @Override
-    public Object visit(Object context, ArrayLiteralExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, FunctionDeclaration statement, boolean strict) {
+        // We need to be able to define function decl before any code in the block
+        // they live in is executed so when we see them inline while building instructions
+        // we just ignore them.
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, AssignmentExpression expr, boolean strict) {
+    public Object visit(Object context, FunctionExpression expr, boolean strict) {
         Scope scope = (Scope) context;
-        Variable lhs = (Variable) expr.getLhs().accept(context, this, strict);
-        Operand rhs = (Operand) expr.getRhs().accept(context, this, strict);
+        FunctionDescriptor descriptor = expr.getDescriptor();
+        Variable result = scope.createTemporaryVariable();
+        FunctionScope functionScope = buildFunction(scope, descriptor.getBlock(), null, descriptor.getIdentifier(),
+                descriptor.getFormalParameterNames(), descriptor.getPosition().getFileName(),
+                strict || descriptor.isStrict());
 
-        scope.addInstruction(new Copy(lhs, rhs));
+        scope.addInstruction(new DefineFunction(result, functionScope));
 
-        return rhs;
+        return result;
     }
 
-    @Override
-    public Object visit(Object context, BitwiseInversionOperatorExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    private Operand buildAccessor(Scope scope, Statement body, String[] parameterNames, boolean strict) {
+        Variable result = scope.createTemporaryVariable();
+        FunctionScope functionScope = buildFunction(scope, body, null, null, parameterNames, scope.getFileName(), strict);
+
+        scope.addInstruction(new DefineFunction(result, functionScope));
+
+        return result;
     }
 
-    @Override
-    public Object visit(Object context, BlockStatement block, boolean strict) {
-        Scope scope = (Scope) context;
+    // ----------------------------------------------------------------------
+    // Statements
+    // ----------------------------------------------------------------------
 
-        buildDeclaredFunctions(scope, block.getFunctionDeclarations());
+    /**
+     * Build a statement which may be the target of a labelled break.
+     */
+    private void buildStatement(Scope scope, Statement statement, boolean strict) {
+        List<String> labels = statement.getLabels();
 
-        // FIXME: How can we use what the parser provides to good effect?
-        Operand value = Undefined.UNDEFINED;
-        for (Statement statement: block.getBlockContent()) {
-            value = (Operand) statement.accept(context, this, strict);
+        if (labels.isEmpty() || isBreakableStatement(statement)) {
+            statement.accept(scope, this, strict);
+            return;
         }
 
-        return value;
+        Label doneLabel = scope.getNewLabel();
+
+        scope.pushFrame(ControlFrame.breakable(labels, doneLabel));
+        statement.accept(scope, this, strict);
+        scope.popFrame();
+        scope.addInstruction(new LabelInstr(doneLabel));
     }
 
-    @Override
-    public Object visit(Object context, BooleanLiteralExpression expr, boolean strict) {
-        return expr.getValue() ? BooleanLiteral.TRUE : BooleanLiteral.FALSE;
+    private boolean isBreakableStatement(Statement statement) {
+        return statement instanceof WhileStatement || statement instanceof DoWhileStatement ||
+                statement instanceof ForExprStatement || statement instanceof ForVarDeclStatement ||
+                statement instanceof AbstractForInStatement || statement instanceof SwitchStatement;
     }
 
     @Override
-    public Object visit(Object context, BreakStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
+    public Object visit(Object context, BlockStatement block, boolean strict) {
+        Scope scope = (Scope) context;
+
+        for (Statement statement: block.getBlockContent()) {
+            buildStatement(scope, statement, strict);
+        }
+
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, CaseClause clause, boolean strict) {
-        return unimplemented(context, clause, strict);
+    public Object visit(Object context, EmptyStatement statement, boolean strict) {
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, DefaultCaseClause clause, boolean strict) {
-        return unimplemented(context, clause, strict);
+    public Object visit(Object context, ExpressionStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
+        Operand value = (Operand) acceptOrUndefined(context, statement.getExpr(), strict);
+
+        // The program answers the value of the last expression statement it ran
+        if (scope.getCompletionVariable() != null) {
+            scope.addInstruction(new Copy(scope.getCompletionVariable(), value));
+        }
+
+        return value;
     }
 
     @Override
-    public Object visit(Object context, CatchClause clause, boolean strict) {
-        return unimplemented(context, clause, strict);
+    public Object visit(Object context, VariableStatement statement, boolean strict) {
+        for (VariableDeclaration decl: statement.getVariableDeclarations()) {
+            decl.accept(context, this, strict);
+        }
+
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, CompoundAssignmentExpression expr, boolean strict) {
+    public Object visit(Object context, VariableDeclaration expr, boolean strict) {
         Scope scope = (Scope) context;
 
-        // FIXME: If name of lhs is 'eval' or 'assignments' then generate a raise error instance of doing copy.
-        // This is a little out of order with basicinterp where we check this before eval'ing value below.
+        // var without an initializer does nothing once the name is declared
+        if (expr.getExpr() == null) return Undefined.UNDEFINED;
 
-        // Of s += 1 this is (s + 1)
-        Operand value = (Operand) expr.getRootExpr().accept(context, this, strict);
-        Variable lhs = (Variable) expr.getRootExpr().getLhs().accept(context, this, strict);
+        Variable variable = variableFor(scope, expr.getIdentifier());
+        Operand value = build(scope, expr.getExpr(), strict);
 
-        scope.addInstruction(new Copy(lhs, value));
+        scope.addInstruction(new Copy(variable, value));
 
         return value;
     }
 
     @Override
-    public Object visit(Object context, ContinueStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
-    }
+    public Object visit(Object context, IfStatement ifNode, boolean strict) {
+        Scope scope = (Scope) context;
+        Label elseLabel = scope.getNewLabel();
+        Label doneLabel  = scope.getNewLabel();
 
-    @Override
-    public Object visit(Object context, DeleteOpExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+        // IF
+        scope.addInstruction(new BFalse(build(scope, ifNode.getTest(), strict), elseLabel));
+
+        // THEN
+        buildStatement(scope, ifNode.getThenBlock(), strict);
+        scope.addInstruction(new Jump(doneLabel));
+
+        // ELSE
+        scope.addInstruction(new LabelInstr(elseLabel));
+        if (ifNode.getElseBlock() != null) {
+            buildStatement(scope, ifNode.getElseBlock(), strict);
+        }
+
+        // END
+        scope.addInstruction(new LabelInstr(doneLabel));
+
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, DoWhileStatement statement, boolean strict) {
+    public Object visit(Object context, WhileStatement statement, boolean strict) {
         Scope scope = (Scope) context;
-        final Label startLabel = scope.getNewLabel();
+        final Label bodyLabel = scope.getNewLabel();
+        final Label testLabel = scope.getNewLabel();
         final Label doneLabel = scope.getNewLabel();
 
-        scope.addInstruction(new LabelInstr(startLabel));
+        scope.addInstruction(new Jump(testLabel));
 
         // BODY
-        statement.getBlock().accept(context, this, strict);
+        scope.addInstruction(new LabelInstr(bodyLabel));
+        buildLoopBody(scope, statement, statement.getBlock(), doneLabel, testLabel, strict);
 
         // TEST
-        scope.addInstruction(new BEQ((Operand) statement.getTest().accept(context, this, strict),
-                BooleanLiteral.FALSE, doneLabel));
-        scope.addInstruction(new Jump(startLabel));
+        scope.addInstruction(new LabelInstr(testLabel));
+        scope.addInstruction(new BTrue(build(scope, statement.getTest(), strict), bodyLabel));
 
         // END
         scope.addInstruction(new LabelInstr(doneLabel));
@@ -300,236 +454,462 @@ public class Builder implements CodeVisitor {
     }
 
     @Override
-    public Object visit(Object context, EmptyStatement statement, boolean strict) {
-        return Undefined.UNDEFINED;
-    }
-
-    @Override
-    public Object visit(Object context, EqualityOperatorExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
-    }
-
-    @Override
-    public Object visit(Object context, CommaOperator expr, boolean strict) {
-        return unimplemented(context, expr, strict);
-    }
+    public Object visit(Object context, DoWhileStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
+        final Label bodyLabel = scope.getNewLabel();
+        final Label testLabel = scope.getNewLabel();
+        final Label doneLabel = scope.getNewLabel();
 
-    @Override
-    public Object visit(Object context, ExpressionStatement statement, boolean strict) {
-        return acceptOrUndefined(context, statement.getExpr(), strict);
-    }
+        // BODY
+        scope.addInstruction(new LabelInstr(bodyLabel));
+        buildLoopBody(scope, statement, statement.getBlock(), doneLabel, testLabel, strict);
 
-    @Override
-    public Object visit(Object context, FloatingNumberExpression expr, boolean strict) {
-        return new FloatNumber(expr.getValue());
-    }
+        // TEST
+        scope.addInstruction(new LabelInstr(testLabel));
+        scope.addInstruction(new BTrue(build(scope, statement.getTest(), strict), bodyLabel));
 
-    @Override
-    public Object visit(Object context, ForExprInStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
-    }
+        // END
+        scope.addInstruction(new LabelInstr(doneLabel));
 
-    @Override
-    public Object visit(Object context, ForExprOfStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
+        return Undefined.UNDEFINED;
     }
 
     @Override
     public Object visit(Object context, ForExprStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
-    }
+        Scope scope = (Scope) context;
 
-    @Override
-    public Object visit(Object context, ForVarDeclInStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
-    }
+        if (statement.getExpr() != null) {
+            build(scope, statement.getExpr(), strict);
+        }
 
-    @Override
-    public Object visit(Object context, ForVarDeclOfStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
+        buildFor(scope, statement, statement.getTest(), statement.getIncrement(), statement.getBlock(), strict);
+
+        return Undefined.UNDEFINED;
     }
 
-    // FIXME: flow control may or may not be an issue but old runtime handles it explicitly after accept.
     @Override
     public Object visit(Object context, ForVarDeclStatement statement, boolean strict) {
         Scope scope = (Scope) context;
-        List<VariableDeclaration> decls = statement.getDeclarationList();
-        for (VariableDeclaration each : decls) {
+
+        for (VariableDeclaration each : statement.getDeclarationList()) {
             each.accept(context, this, strict);
         }
 
-        final Label startLabel = scope.getNewLabel();
+        buildFor(scope, statement, statement.getTest(), statement.getIncrement(), statement.getBlock(), strict);
+
+        return Undefined.UNDEFINED;
+    }
+
+    private void buildFor(Scope scope, Statement statement, Expression test, Expression increment, Statement body,
+                          boolean strict) {
+        final Label bodyLabel = scope.getNewLabel();
+        final Label incrementLabel = scope.getNewLabel();
+        final Label testLabel = scope.getNewLabel();
         final Label doneLabel = scope.getNewLabel();
 
-        scope.addInstruction(new LabelInstr(startLabel));
-        // TEST
-        scope.addInstruction(new BEQ((Operand) statement.getTest().accept(context, this, strict),
-                BooleanLiteral.FALSE, doneLabel));
+        scope.addInstruction(new Jump(testLabel));
 
         // BODY
-        statement.getBlock().accept(context, this, strict);
+        scope.addInstruction(new LabelInstr(bodyLabel));
+        buildLoopBody(scope, statement, body, doneLabel, incrementLabel, strict);
 
         // INCREMENT
-        statement.getIncrement().accept(context, this, strict);
+        scope.addInstruction(new LabelInstr(incrementLabel));
+        if (increment != null) {
+            build(scope, increment, strict);
+        }
 
-        scope.addInstruction(new Jump(startLabel));
+        // TEST
+        scope.addInstruction(new LabelInstr(testLabel));
+        if (test != null) {
+            scope.addInstruction(new BTrue(build(scope, test, strict), bodyLabel));
+        } else {
+            scope.addInstruction(new Jump(bodyLabel));
+        }
 
         // END
         scope.addInstruction(new LabelInstr(doneLabel));
+    }
 
-        return Undefined.UNDEFINED;
+    private void buildLoopBody(Scope scope, Statement loop, Statement body, Label breakLabel, Label continueLabel,
+                               boolean strict) {
+        scope.pushFrame(ControlFrame.loop(loop.getLabels(), breakLabel, continueLabel));
+        buildStatement(scope, body, strict);
+        scope.popFrame();
     }
 
     @Override
-    public Object visit(Object context, FunctionCallExpression expr, boolean strict) {
-        Scope scope = (Scope) context;
-        Variable result = scope.createTemporaryVariable();
-        List<Expression> argumentExpressions = expr.getArgumentExpressions();
-        int argsLength = argumentExpressions.size();
-        Operand[] args = new Operand[argsLength];
-
-        for (int i = 0; i < argsLength; i++) {
-            args[i] = (Operand) acceptOrUndefined(context, argumentExpressions.get(i), strict);
-        }
-
-        Expression memberExpression = expr.getMemberExpression();
-
-        // We can statically replace an attempt at calls to illegal member types with an exception
-        // raise.  This should eliminate needing to actually check this within the runtime.
-        if (memberExpression instanceof IllegalFunctionMemberExpression) {
-            scope.addInstruction(new Raise("TypeError", memberExpression + " is not callable"));
+    public Object visit(Object context, ForExprInStatement statement, boolean strict) {
+        buildForIn((Scope) context, statement, statement.getExpr(), false, strict);
 
-            return Undefined.UNDEFINED;
-        }
+        return Undefined.UNDEFINED;
+    }
 
-        final Operand name = (Operand) acceptOrUndefined(context, expr.getMemberExpression(), strict);
+    @Override
+    public Object visit(Object context, ForVarDeclInStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
 
-        scope.addInstruction(new Call(result, This.THIS, name, args));
+        statement.getDeclaration().accept(context, this, strict);
+        buildForIn(scope, statement, identifier(statement.getDeclaration()), false, strict);
 
-        return result;
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, FunctionDeclaration statement, boolean strict) {
-        // We need to be able to define function decl before any code in the block
-        // they live in is executed so when we see them inline while building instructions
-        // we just ignore them.
+    public Object visit(Object context, ForExprOfStatement statement, boolean strict) {
+        buildForIn((Scope) context, statement, statement.getExpr(), true, strict);
+
         return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, FunctionExpression expr, boolean strict) {
+    public Object visit(Object context, ForVarDeclOfStatement statement, boolean strict) {
         Scope scope = (Scope) context;
-        FunctionDescriptor descriptor = expr.getDescriptor();
-        Variable result = scope.createTemporaryVariable();
-        String[] parameterNames = descriptor.getFormalParameterNames();
-        FunctionScope functionScope = new FunctionScope(scope, descriptor.getPosition().getFileName(),
-                descriptor.isStrict(), parameterNames, null);
-
-        // 1. receive arguments are first before any mandatory items like nested functions
-        // Recieve all declared parameters
-        int paramsLength = parameterNames.length;
-        for (int i = 0; i < paramsLength; i++) {
-            functionScope.addInstruction(new ReceiveFunctionParameter(functionScope.acquireLocalVariable(parameterNames[i]), i));
-        }
-
-        // 2. named functions must be visible before any code in the block executed so right after parms
-        buildDeclaredFunctions(functionScope, descriptor.getBlock().getFunctionDeclarations());
 
-        // 3. the actual block code.
-        descriptor.getBlock().accept(functionScope, this, strict);
-
-        scope.addInstruction(new DefineFunction(result, functionScope));
+        statement.getDeclaration().accept(context, this, strict);
+        buildForIn(scope, statement, identifier(statement.getDeclaration()), true, strict);
 
-        return result;
+        return Undefined.UNDEFINED;
     }
 
-    private void buildDeclaredFunctions(Scope parentScope, List<FunctionDeclaration> functionDeclarations) {
-        // ENEBO: reusing the temp var here since it is not actually used.
-        Variable result = parentScope.createTemporaryVariable();
+    private Expression identifier(VariableDeclaration declaration) {
+        return new IdentifierReferenceExpression(declaration.getPosition(), declaration.getIdentifier());
+    }
 
-        for (FunctionDeclaration declaration: functionDeclarations) {
-            String[] parameterNames = declaration.getFormalParameters();
-            FunctionScope functionScope = new FunctionScope(parentScope, declaration.getPosition().getFileName(),
-                    declaration.isStrict(), declaration.getFormalParameters(), declaration.getIdentifier());
+    /**
+     * for-in walks the enumerable property names of the object, for-of their values.
+     */
+    private void buildForIn(Scope scope, AbstractForInStatement statement, Expression target, boolean values,
+                            boolean strict) {
+        final Label nextLabel = scope.getNewLabel();
+        final Label doneLabel = scope.getNewLabel();
+        Operand object = build(scope, statement.getRhs(), strict);
+        Variable names = scope.createTemporaryVariable();
+        Variable hasNext = scope.createTemporaryVariable();
+        Variable name = scope.createTemporaryVariable();
 
-            // 1. receive arguments are first before any mandatory items like nested functions
-            // Recieve all declared parameters
-            int paramsLength = parameterNames.length;
-            for (int i = 0; i < paramsLength; i++) {
-                functionScope.addInstruction(new ReceiveFunctionParameter(functionScope.acquireLocalVariable(parameterNames[i]), i));
-            }
+        if (values) {
+            object = copyAndReturnValue(scope, object);
+        }
 
-            // 2. named functions must be visible before any code in the block executed so right after parms
-            buildDeclaredFunctions(functionScope, declaration.getBlock().getFunctionDeclarations());
+        scope.addInstruction(new PropertyNames(names, object));
 
-            // 3. the actual block code.
-            declaration.getBlock().accept(functionScope, this, declaration.isStrict());
+        // NEXT
+        scope.addInstruction(new LabelInstr(nextLabel));
+        scope.addInstruction(new HasNextProperty(hasNext, names));
+        scope.addInstruction(new BFalse(hasNext, doneLabel));
+        scope.addInstruction(new NextProperty(name, names));
 
-            parentScope.addInstruction(new DefineFunction(result, functionScope));
+        Operand value = name;
+        if (values) {
+            Variable element = scope.createTemporaryVariable();
+            scope.addInstruction(new ElementLookup(element, object, name));
+            value = element;
         }
+        assign(scope, lvalue(scope, target, null, strict), value);
+
+        // BODY
+        buildLoopBody(scope, statement, statement.getBlock(), doneLabel, nextLabel, strict);
+        scope.addInstruction(new Jump(nextLabel));
+
+        // END
+        scope.addInstruction(new LabelInstr(doneLabel));
     }
 
     @Override
-    public Object visit(Object context, IdentifierReferenceExpression expr, boolean strict) {
+    public Object visit(Object context, SwitchStatement statement, boolean strict) {
         Scope scope = (Scope) context;
+        Operand value = copyAndReturnValue(scope, build(scope, statement.getExpr(), strict));
+        List<CaseClause> clauses = statement.getCaseClauses();
+        Label[] clauseLabels = new Label[clauses.size()];
+        Label doneLabel = scope.getNewLabel();
+        Label defaultLabel = doneLabel;
+        SwitchTable table = statement.getSwitchTable();
+
+        // TESTS (strict equality in source order, default if none match; one lookup if all labels are literals)
+        for (int i = 0; i < clauseLabels.length; i++) {
+            CaseClause clause = clauses.get(i);
+            clauseLabels[i] = scope.getNewLabel();
+
+            if (clause instanceof DefaultCaseClause) {
+                defaultLabel = clauseLabels[i];
+            } else if (table == null) {
+                Variable matches = scope.createTemporaryVariable();
+                scope.addInstruction(new StrictEqual(matches, value, build(scope, clause.getExpression(), strict)));
+                scope.addInstruction(new BTrue(matches, clauseLabels[i]));
+            }
+        }
+        if (table != null) {
+            scope.addInstruction(new Switch(value, table, clauseLabels, defaultLabel));
+        } else {
+            scope.addInstruction(new Jump(defaultLabel));
+        }
 
-        Variable variable = scope.findVariable(expr.getIdentifier());
-
-        // FIXME: Should this error out in strict mode?
-        if (variable == null) {
-            return new DynamicVariable(expr.getIdentifier());
+        // BODIES (falling through into the next)
+        scope.pushFrame(ControlFrame.switchStatement(statement.getLabels(), doneLabel));
+        for (int i = 0; i < clauseLabels.length; i++) {
+            scope.addInstruction(new LabelInstr(clauseLabels[i]));
+            if (clauses.get(i).getBlock() != null) {
+                buildStatement(scope, clauses.get(i).getBlock(), strict);
+            }
         }
+        scope.popFrame();
 
-        return variable;
+        // END
+        scope.addInstruction(new LabelInstr(doneLabel));
+
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, IfStatement ifNode, boolean strict) {
-        Scope scope = (Scope) context;
-        Label elseLabel = scope.getNewLabel();
-        Label doneLabel  = scope.getNewLabel();
-
-        // IF
-        scope.addInstruction(new BEQ((Operand) ifNode.getTest().accept(context, this, strict),
-                BooleanLiteral.FALSE, elseLabel));
+    public Object visit(Object context, CaseClause clause, boolean strict) {
+        return unimplemented(context, clause, strict);
+    }
 
-        // THEN
-        ifNode.getThenBlock().accept(context, this, strict);
-        scope.addInstruction(new Jump(doneLabel));
+    @Override
+    public Object visit(Object context, DefaultCaseClause clause, boolean strict) {
+        return unimplemented(context, clause, strict);
+    }
 
-        // ELSE
-        scope.addInstruction(new LabelInstr(elseLabel));
-        if (ifNode.getElseBlock() != null) {
-            ifNode.getElseBlock().accept(context, this, strict);
+    @Override
+    public Object visit(Object context, BreakStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
+        List<ControlFrame> frames = scope.getFrames();
+
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            if (frames.get(i).isBreakTarget(statement.getTarget())) {
+                jumpOut(scope, i, new Jump(frames.get(i).breakLabel));
+                return Undefined.UNDEFINED;
+            }
         }
 
-        // END
-        scope.addInstruction(new LabelInstr(doneLabel));
+        return raise(scope, "SyntaxError", "no break target: " + statement.getTarget());
+    }
+
+    @Override
+    public Object visit(Object context, ContinueStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
+        List<ControlFrame> frames = scope.getFrames();
+
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            if (frames.get(i).isContinueTarget(statement.getTarget())) {
+                jumpOut(scope, i, new Jump(frames.get(i).continueLabel));
+                return Undefined.UNDEFINED;
+            }
+        }
+
+        return raise(scope, "SyntaxError", "no continue target: " + statement.getTarget());
+    }
+
+    @Override
+    public Object visit(Object context, ReturnStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
+        Operand returnValue = (Operand) acceptOrUndefined(context, statement.getExpr(), strict);
+
+        // A finally block run on the way out could change what a variable holds
+        if (!scope.getFrames().isEmpty() && returnValue instanceof LocalVariable) {
+            returnValue = copyAndReturnValue(scope, returnValue);
+        }
+
+        jumpOut(scope, -1, new Return(returnValue));
+
+        return Undefined.UNDEFINED;
+    }
+
+    /**
+     * Leave every frame above target on the way to exit: close exception regions,
+     * run finally blocks and restore environments, innermost first.  Afterwards
+     * the (dead) code which follows is placed back in the regions it is in.
+     */
+    private void jumpOut(Scope scope, int target, Instruction exit) {
+        List<ControlFrame> frames = scope.getFrames();
+        List<ControlFrame> saved = new ArrayList<>(frames);
+        boolean leftRegion = false;
+
+        for (int i = saved.size() - 1; i > target; i--) {
+            ControlFrame frame = saved.get(i);
+
+            switch (frame.kind) {
+                case PROTECTED:
+                    endRegion(scope);
+                    leftRegion = true;
+                    break;
+                case FINALLY:
+                    endRegion(scope);
+                    leftRegion = true;
+
+                    // The finally block only sees what is outside of its try
+                    frames.subList(i, frames.size()).clear();
+                    buildStatement(scope, frame.finallyBlock, scope.isStrict());
+                    break;
+                case ENVIRONMENT:
+                    scope.addInstruction(new RestoreEnvironment(frame.savedEnvironment));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        scope.addInstruction(exit);
+
+        frames.clear();
+        frames.addAll(saved);
+
+        if (leftRegion) {
+            scope.addInstruction(new LabelInstr(scope.getNewLabel()));
+            for (int i = target + 1; i < saved.size(); i++) {
+                ControlFrame frame = saved.get(i);
+
+                if (frame.kind == ControlFrame.Kind.PROTECTED || frame.kind == ControlFrame.Kind.FINALLY) {
+                    scope.addInstruction(new ExceptionRegionStartMarker(frame.rescueLabel));
+                }
+            }
+        }
+    }
+
+    private void startRegion(Scope scope, Label rescueLabel) {
+        scope.addInstruction(new LabelInstr(scope.getNewLabel()));
+        scope.addInstruction(new ExceptionRegionStartMarker(rescueLabel));
+    }
+
+    private void endRegion(Scope scope) {
+        scope.addInstruction(new ExceptionRegionEndMarker());
+        scope.addInstruction(new LabelInstr(scope.getNewLabel()));
+    }
+
+    @Override
+    public Object visit(Object context, ThrowStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
+
+        scope.addInstruction(new ThrowException(build(scope, statement.getExpr(), strict)));
 
         return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, InOperatorExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, TryStatement statement, boolean strict) {
+        Scope scope = (Scope) context;
+        Statement finallyBlock = statement.getFinallyBlock();
+        CatchClause catchClause = statement.getCatchClause();
+        Variable savedEnvironment = null;
+        Label finallyLabel = null;
+
+        // Handlers put back the environment a with or catch inside of the try was using
+        if (scope.usesEnvironment()) {
+            savedEnvironment = scope.createTemporaryVariable();
+            scope.addInstruction(new SaveEnvironment(savedEnvironment));
+        }
+
+        if (finallyBlock != null) {
+            finallyLabel = scope.getNewLabel();
+            scope.pushFrame(ControlFrame.finallyRegion(finallyLabel, finallyBlock));
+            startRegion(scope, finallyLabel);
+        }
+
+        if (catchClause != null) {
+            Label catchLabel = scope.getNewLabel();
+            Label doneLabel = scope.getNewLabel();
+
+            // TRY
+            scope.pushFrame(ControlFrame.protectedRegion(catchLabel));
+            startRegion(scope, catchLabel);
+            buildStatement(scope, statement.getTryBlock(), strict);
+            endRegion(scope);
+            scope.popFrame();
+            scope.addInstruction(new Jump(doneLabel));
+
+            // CATCH
+            scope.addInstruction(new LabelInstr(catchLabel));
+            if (savedEnvironment != null) {
+                scope.addInstruction(new RestoreEnvironment(savedEnvironment));
+            }
+            Variable exception = scope.createTemporaryVariable();
+            scope.addInstruction(new ReceiveJSException(exception));
+            buildCatch(scope, catchClause, exception, savedEnvironment, strict);
+
+            scope.addInstruction(new LabelInstr(doneLabel));
+        } else {
+            buildStatement(scope, statement.getTryBlock(), strict);
+        }
+
+        if (finallyBlock != null) {
+            Label doneLabel = scope.getNewLabel();
+
+            endRegion(scope);
+            scope.popFrame();
+
+            // FINALLY (normal completion)
+            buildStatement(scope, finallyBlock, strict);
+            scope.addInstruction(new Jump(doneLabel));
+
+            // FINALLY (exception, which is rethrown afterwards)
+            scope.addInstruction(new LabelInstr(finallyLabel));
+            Variable exception = scope.createTemporaryVariable();
+            scope.addInstruction(new ReceiveException(exception));
+            if (savedEnvironment != null) {
+                scope.addInstruction(new RestoreEnvironment(savedEnvironment));
+            }
+            buildStatement(scope, finallyBlock, strict);
+            scope.addInstruction(new ThrowException(exception));
+
+            scope.addInstruction(new LabelInstr(doneLabel));
+        }
+
+        return Undefined.UNDEFINED;
+    }
+
+    private void buildCatch(Scope scope, CatchClause clause, Variable exception, Variable savedEnvironment,
+                            boolean strict) {
+        String name = clause.getIdentifier();
+
+        if (scope.usesEnvironment()) {
+            scope.addInstruction(new EnterCatch(name, exception));
+            scope.pushBlockVariable(name);
+            scope.pushFrame(ControlFrame.environment(savedEnvironment));
+            buildStatement(scope, clause.getBlock(), strict);
+            scope.popFrame();
+            scope.popBlockVariable();
+            scope.addInstruction(new RestoreEnvironment(savedEnvironment));
+        } else {
+            scope.addInstruction(new Copy(scope.pushBlockVariable(name), exception));
+            buildStatement(scope, clause.getBlock(), strict);
+            scope.popBlockVariable();
+        }
     }
 
     @Override
-    public Object visit(Object context, OfOperatorExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, CatchClause clause, boolean strict) {
+        return unimplemented(context, clause, strict);
     }
 
     @Override
-    public Object visit(Object context, InstanceofExpression expr, boolean strict) {
+    public Object visit(Object context, WithStatement statement, boolean strict) {
         Scope scope = (Scope) context;
-        Variable result = scope.createTemporaryVariable();
-        Operand lhs = (Variable) expr.getLhs().accept(context, this, strict);
-        Operand rhs = (Operand) expr.getRhs().accept(context, this, strict);
+        Operand object = build(scope, statement.getExpr(), strict);
+        Variable savedEnvironment = scope.createTemporaryVariable();
 
-        scope.addInstruction(new Instanceof(result, lhs, rhs));
+        scope.addInstruction(new SaveEnvironment(savedEnvironment));
+        scope.addInstruction(new EnterWith(object));
+        scope.pushFrame(ControlFrame.environment(savedEnvironment));
+        buildStatement(scope, statement.getBlock(), strict);
+        scope.popFrame();
+        scope.addInstruction(new RestoreEnvironment(savedEnvironment));
 
-        return result;
+        return Undefined.UNDEFINED;
+    }
+
+    // ----------------------------------------------------------------------
+    // Literals and names
+    // ----------------------------------------------------------------------
+
+    @Override
+    public Object visit(Object context, BooleanLiteralExpression expr, boolean strict) {
+        return expr.getValue() ? BooleanLiteral.TRUE : BooleanLiteral.FALSE;
+    }
+
+    @Override
+    public Object visit(Object context, FloatingNumberExpression expr, boolean strict) {
+        return new FloatNumber(expr.getValue());
     }
 
     @Override
@@ -538,295 +918,663 @@ public class Builder implements CodeVisitor {
     }
 
     @Override
-    public Object visit(Object context, LogicalExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, NullLiteralExpression expr, boolean strict) {
+        return Null.NULL;
     }
 
     @Override
-    public Object visit(Object context, LogicalNotOperatorExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, StringLiteralExpression expr, boolean strict) {
+        return new StringLiteral(expr.getLiteral());
     }
 
     @Override
-    public Object visit(Object context, DotExpression expr, boolean strict) {
+    public Object visit(Object context, ThisExpression expr, boolean strict) {
+        return This.THIS;
+    }
+
+    @Override
+    public Object visit(Object context, RegexpLiteralExpression expr, boolean strict) {
         Scope scope = (Scope) context;
         Variable result = scope.createTemporaryVariable();
-        Operand base = (Operand) expr.getLhs().accept(context, this, strict);
 
-        scope.addInstruction(new PropertyLookup(result, base, expr.getIdentifier()));
+        scope.addInstruction(new RegExpLiteral(result, expr.getPattern(), expr.getFlags()));
 
         return result;
     }
 
     @Override
-    public Object visit(Object context, BracketExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, IdentifierReferenceExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable variable = variableFor(scope, expr.getIdentifier());
+
+        // Read names from the environment right away so what we answer is a value.
+        if (variable instanceof DynamicVariable) {
+            return copyAndReturnValue(scope, variable);
+        }
+
+        return variable;
     }
 
     @Override
-    public Object visit(Object context, MultiplicativeExpression expr, boolean strict) {
+    public Object visit(Object context, ArrayLiteralExpression expr, boolean strict) {
         Scope scope = (Scope) context;
-        Operand lhs = (Operand) expr.getLhs().accept(context, this, strict);
-        Operand rhs = (Operand) expr.getRhs().accept(context, this, strict);
-        Operand value;
+        Variable result = scope.createTemporaryVariable();
 
-        // FIXME: Review numeric representation of JS to figure out overflow etc..
-        if (lhs instanceof IntegerNumber) {
-            if (rhs instanceof IntegerNumber) {
-                value = new IntegerNumber(((IntegerNumber) lhs).getValue() * ((IntegerNumber) rhs).getValue());
-            } else if (rhs instanceof FloatNumber) {
-                value = new FloatNumber(((FloatNumber) rhs).getValue() * ((IntegerNumber) lhs).getValue());
-            } else {
-                Variable tmp = scope.createTemporaryVariable();
+        scope.addInstruction(new ArrayLiteral(result, buildAll(scope, expr.getExprs(), strict)));
 
-                scope.addInstruction(new Mul(tmp, lhs, rhs));
+        return result;
+    }
 
-                value = tmp;
+    @Override
+    public Object visit(Object context, ObjectLiteralExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+        List<PropertyAssignment> assignments = expr.getPropertyAssignments();
+        int size = assignments.size();
+        String[] names = new String[size];
+        Operand[] values = new Operand[size];
+        int[] kinds = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            PropertyAssignment assignment = assignments.get(i);
+
+            names[i] = assignment.getName();
+            if (assignment instanceof PropertyGet) {
+                values[i] = buildAccessor(scope, ((PropertyGet) assignment).getBlock(), new String[0], strict);
+                kinds[i] = ObjectLiteral.GETTER;
+            } else if (assignment instanceof PropertySet) {
+                values[i] = buildAccessor(scope, ((PropertySet) assignment).getBlock(),
+                        new String[] { ((PropertySet) assignment).getIdentifier() }, strict);
+                kinds[i] = ObjectLiteral.SETTER;
+            } else {
+                values[i] = build(scope, ((NamedValue) assignment).getExpr(), strict);
+                kinds[i] = ObjectLiteral.VALUE;
+
+                // later values could change a variable before the object is made
+                if (values[i] instanceof LocalVariable) {
+                    values[i] = copyAndReturnValue(scope, values[i]);
+                }
             }
-        } else {
-            Variable tmp = scope.createTemporaryVariable();
+        }
 
-            scope.addInstruction(new Mul(tmp, lhs, rhs));
+        scope.addInstruction(new ObjectLiteral(result, names, values, kinds));
 
-            value = tmp;
-        }
+        return result;
+    }
 
-        return value;
+    @Override
+    public Object visit(Object context, PropertyGet propertyGet, boolean strict) {
+        return unimplemented(context, propertyGet, strict);
     }
 
     @Override
-    public Object visit(Object context, NewOperatorExpression expr, boolean strict) {
+    public Object visit(Object context, PropertySet propertySet, boolean strict) {
+        return unimplemented(context, propertySet, strict);
+    }
+
+    @Override
+    public Object visit(Object context, NamedValue namedValue, boolean strict) {
+        return unimplemented(context, namedValue, strict);
+    }
+
+    // ----------------------------------------------------------------------
+    // Property access
+    // ----------------------------------------------------------------------
+
+    @Override
+    public Object visit(Object context, DotExpression expr, boolean strict) {
         Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+        Operand base = build(scope, expr.getLhs(), strict);
 
-        // We can statically replace an attempt at calls to illegal member types with an exception
-        // raise.  This should eliminate needing to actually check this within the runtime.
-        if (expr.getExpr() instanceof IllegalFunctionMemberExpression) {
-            scope.addInstruction(new Raise("TypeError", expr.getExpr() + " is not callable"));
+        scope.addInstruction(new PropertyLookup(result, base, expr.getIdentifier()));
 
-            return Undefined.UNDEFINED;
+        return result;
+    }
+
+    @Override
+    public Object visit(Object context, BracketExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+        Operand base = pin(scope, build(scope, expr.getLhs(), strict), expr.getRhs());
+        Operand index = build(scope, expr.getRhs(), strict);
+
+        scope.addInstruction(new ElementLookup(result, base, index));
+
+        return result;
+    }
+
+    // ----------------------------------------------------------------------
+    // Assignment
+    // ----------------------------------------------------------------------
+
+    /**
+     * Where an assignment stores: a variable, a named property or an element.
+     */
+    private static class LValue {
+        Variable variable;
+        Operand base;
+        String name;
+        Operand index;
+    }
+
+    /**
+     * Evaluate the parts of an assignment target.  rest is what is evaluated before
+     * the store happens (null if nothing is).
+     */
+    private LValue lvalue(Scope scope, Expression expr, Expression rest, boolean strict) {
+        LValue lvalue = new LValue();
+
+        if (expr instanceof IdentifierReferenceExpression) {
+            lvalue.variable = variableFor(scope, ((IdentifierReferenceExpression) expr).getIdentifier());
+        } else if (expr instanceof DotExpression) {
+            lvalue.base = pin(scope, build(scope, ((DotExpression) expr).getLhs(), strict), rest);
+            lvalue.name = ((DotExpression) expr).getIdentifier();
+        } else if (expr instanceof BracketExpression) {
+            BracketExpression bracket = (BracketExpression) expr;
+            lvalue.base = copyAndReturnValue(scope, build(scope, bracket.getLhs(), strict));
+            lvalue.index = pin(scope, build(scope, bracket.getRhs(), strict), rest);
+        } else {
+            build(scope, expr, strict);
+            raise(scope, "ReferenceError", "invalid assignment target: " + expr);
+            lvalue.variable = scope.createTemporaryVariable();
         }
 
-        Operand memberExpression = (Operand) expr.getExpr().accept(context, this, strict);
-        Variable tmp = scope.createTemporaryVariable();
-        List<Expression> argumentExpressions = expr.getArgumentExpressions();
-        Operand args[] = new Operand[argumentExpressions.size()];
+        return lvalue;
+    }
+
+    private Operand load(Scope scope, LValue lvalue) {
+        Variable result = scope.createTemporaryVariable();
 
-        for (int i = 0; i < args.length; i++) {
-            args[i] = (Operand) argumentExpressions.get(i).accept(context, this, strict);
+        if (lvalue.variable != null) {
+            scope.addInstruction(new Copy(result, lvalue.variable));
+        } else if (lvalue.name != null) {
+            scope.addInstruction(new PropertyLookup(result, lvalue.base, lvalue.name));
+        } else {
+            scope.addInstruction(new ElementLookup(result, lvalue.base, lvalue.index));
         }
 
-        scope.addInstruction(new Constructor(tmp, memberExpression, args));
+        return result;
+    }
 
-        return tmp;
+    private void assign(Scope scope, LValue lvalue, Operand value) {
+        if (lvalue.variable != null) {
+            scope.addInstruction(new Copy(lvalue.variable, value));
+        } else if (lvalue.name != null) {
+            scope.addInstruction(new PropertyAssign(lvalue.base, lvalue.name, value));
+        } else {
+            scope.addInstruction(new ElementAssign(lvalue.base, lvalue.index, value));
+        }
     }
 
     @Override
-    public Object visit(Object context, NullLiteralExpression expr, boolean strict) {
-        return Null.NULL;
+    public Object visit(Object context, AssignmentExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        LValue lhs = lvalue(scope, expr.getLhs(), expr.getRhs(), strict);
+        Operand value = build(scope, expr.getRhs(), strict);
+
+        assign(scope, lhs, value);
+
+        // The variable may be changed again before our value is used
+        return lhs.variable instanceof LocalVariable && value instanceof LocalVariable ?
+                copyAndReturnValue(scope, value) : value;
     }
 
     @Override
-    public Object visit(Object context, ObjectLiteralExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, CompoundAssignmentExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        AbstractBinaryExpression root = expr.getRootExpr();
+        LValue lhs = lvalue(scope, root.getLhs(), root.getRhs(), strict);
+        Operand current = load(scope, lhs);
+        Operand value = binary(scope, root, current, build(scope, root.getRhs(), strict));
+
+        assign(scope, lhs, value);
+
+        return value;
+    }
+
+    @Override
+    public Object visit(Object context, PreOpExpression expr, boolean strict) {
+        return increment((Scope) context, expr.getExpr(), expr.getOp(), false, strict);
     }
 
     @Override
     public Object visit(Object context, PostOpExpression expr, boolean strict) {
-        Scope scope = (Scope) context;
-        Variable tmp = scope.createTemporaryVariable();
-        Variable variable = (Variable) expr.getExpr().accept(context, this, strict);
-        boolean subtract = expr.getOp().equals("-");
+        return increment((Scope) context, expr.getExpr(), expr.getOp(), true, strict);
+    }
 
-        if (subtract) {
-            scope.addInstruction(new Sub(tmp, variable, new IntegerNumber(1)));
+    private Operand increment(Scope scope, Expression target, String op, boolean post, boolean strict) {
+        LValue lvalue = lvalue(scope, target, null, strict);
+        Variable oldValue = scope.createTemporaryVariable();
+        Variable newValue = scope.createTemporaryVariable();
+
+        scope.addInstruction(new ToNumber(oldValue, load(scope, lvalue)));
+        if (op.equals("--") || op.equals("-")) {
+            scope.addInstruction(new Sub(newValue, oldValue, new IntegerNumber(1)));
         } else {
-            scope.addInstruction(new Add(tmp, variable, new IntegerNumber(1)));
+            scope.addInstruction(new Add(newValue, oldValue, new IntegerNumber(1)));
         }
-        scope.addInstruction(new Copy(variable, tmp));
+        assign(scope, lvalue, newValue);
 
-        return variable;
+        return post ? oldValue : newValue;
     }
 
-    @Override
-    public Object visit(Object context, PreOpExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    // ----------------------------------------------------------------------
+    // Operators
+    // ----------------------------------------------------------------------
+
+    /**
+     * Emit the operation of a binary (or compound assignment) expression.
+     */
+    private Operand binary(Scope scope, AbstractBinaryExpression expr, Operand lhs, Operand rhs) {
+        Variable result = scope.createTemporaryVariable();
+        String op = expr.getOp();
+
+        switch (op) {
+            case "+": scope.addInstruction(new Add(result, lhs, rhs)); break;
+            case "-": scope.addInstruction(new Sub(result, lhs, rhs)); break;
+            case "*": scope.addInstruction(new Mul(result, lhs, rhs)); break;
+            case "/": scope.addInstruction(new Div(result, lhs, rhs)); break;
+            case "%": scope.addInstruction(new Mod(result, lhs, rhs)); break;
+            case "<<": scope.addInstruction(new ShiftLeft(result, lhs, rhs)); break;
+            case ">>": scope.addInstruction(new ShiftRight(result, lhs, rhs)); break;
+            case ">>>": scope.addInstruction(new UnsignedShiftRight(result, lhs, rhs)); break;
+            case "&": scope.addInstruction(new BitwiseAnd(result, lhs, rhs)); break;
+            case "|": scope.addInstruction(new BitwiseOr(result, lhs, rhs)); break;
+            case "^": scope.addInstruction(new BitwiseXor(result, lhs, rhs)); break;
+            case "<": scope.addInstruction(new LT(result, lhs, rhs)); break;
+            case ">": scope.addInstruction(new GT(result, lhs, rhs)); break;
+            case "<=": scope.addInstruction(new LE(result, lhs, rhs)); break;
+            case ">=": scope.addInstruction(new GE(result, lhs, rhs)); break;
+            case "==": scope.addInstruction(new Equal(result, lhs, rhs)); break;
+            case "!=": scope.addInstruction(new NotEqual(result, lhs, rhs)); break;
+            case "===": scope.addInstruction(new StrictEqual(result, lhs, rhs)); break;
+            case "!==": scope.addInstruction(new StrictNotEqual(result, lhs, rhs)); break;
+            default:
+                throw new RuntimeException("EXPR: '" + expr + "' has unknown operator " + op);
+        }
+
+        return result;
     }
 
-    @Override
-    public Object visit(Object context, PropertyGet propertyGet, boolean strict) {
-        return unimplemented(context, propertyGet, strict);
+    private Operand buildBinary(Scope scope, AbstractBinaryExpression expr, boolean strict) {
+        Operand lhs = pin(scope, build(scope, expr.getLhs(), strict), expr.getRhs());
+        Operand rhs = build(scope, expr.getRhs(), strict);
+
+        return binary(scope, expr, lhs, rhs);
     }
 
     @Override
-    public Object visit(Object context, PropertySet propertySet, boolean strict) {
-        return unimplemented(context, propertySet, strict);
+    public Object visit(Object context, AdditiveExpression expr, boolean strict) {
+        return buildBinary((Scope) context, expr, strict);
     }
 
     @Override
-    public Object visit(Object context, NamedValue namedValue, boolean strict) {
-        return unimplemented(context, namedValue, strict);
+    public Object visit(Object context, MultiplicativeExpression expr, boolean strict) {
+        return buildBinary((Scope) context, expr, strict);
     }
 
     @Override
-    public Object visit(Object context, RegexpLiteralExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, BitwiseExpression expr, boolean strict) {
+        return buildBinary((Scope) context, expr, strict);
     }
 
     @Override
     public Object visit(Object context, RelationalExpression expr, boolean strict) {
-        Scope scope = (Scope) context;
-        Variable result = scope.createTemporaryVariable();
-        Operand lhsValue = (Operand) expr.getLhs().accept(context, this, strict);
-        Operand rhsValue = (Operand) expr.getRhs().accept(context, this, strict);
-
-        switch (expr.getOp()) {
-            case "<":
-                scope.addInstruction(new LT(result, lhsValue, rhsValue));
-                break;
-            case ">":
-                scope.addInstruction(new LT(result, rhsValue, lhsValue));
-                break;
-            case "<=":
-                scope.addInstruction(new LE(result, lhsValue, rhsValue));
-                break;
-            case ">=":
-                scope.addInstruction(new LE(result, rhsValue, lhsValue));
-                break;
-        }
+        return buildBinary((Scope) context, expr, strict);
+    }
 
-        return result;
+    @Override
+    public Object visit(Object context, EqualityOperatorExpression expr, boolean strict) {
+        return buildBinary((Scope) context, expr, strict);
     }
 
     @Override
-    public Object visit(Object context, ReturnStatement statement, boolean strict) {
+    public Object visit(Object context, StrictEqualityOperatorExpression expr, boolean strict) {
+        return buildBinary((Scope) context, expr, strict);
+    }
+
+    @Override
+    public Object visit(Object context, InOperatorExpression expr, boolean strict) {
         Scope scope = (Scope) context;
-        Operand returnValue = (Operand) acceptOrUndefined(context, statement.getExpr(), strict);
+        Variable result = scope.createTemporaryVariable();
+        Operand lhs = pin(scope, build(scope, expr.getLhs(), strict), expr.getRhs());
+        Operand rhs = build(scope, expr.getRhs(), strict);
 
-        scope.addInstruction(new Return(returnValue));
+        scope.addInstruction(new In(result, lhs, rhs));
 
-        return returnValue;
+        return result;
     }
 
     @Override
-    public Object visit(Object context, StrictEqualityOperatorExpression expr, boolean strict) {
+    public Object visit(Object context, OfOperatorExpression expr, boolean strict) {
         return unimplemented(context, expr, strict);
     }
 
     @Override
-    public Object visit(Object context, StringLiteralExpression expr, boolean strict) {
-        return new StringLiteral(expr.getLiteral());
+    public Object visit(Object context, InstanceofExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+        Operand lhs = pin(scope, build(scope, expr.getLhs(), strict), expr.getRhs());
+        Operand rhs = build(scope, expr.getRhs(), strict);
+
+        scope.addInstruction(new Instanceof(result, lhs, rhs));
+
+        return result;
     }
 
     @Override
-    public Object visit(Object context, SwitchStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
+    public Object visit(Object context, LogicalExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+        Label doneLabel = scope.getNewLabel();
+
+        scope.addInstruction(new Copy(result, build(scope, expr.getLhs(), strict)));
+        if (expr.getOp().equals("&&")) {
+            scope.addInstruction(new BFalse(result, doneLabel));
+        } else {
+            scope.addInstruction(new BTrue(result, doneLabel));
+        }
+        scope.addInstruction(new Copy(result, build(scope, expr.getRhs(), strict)));
+        scope.addInstruction(new LabelInstr(doneLabel));
+
+        return result;
     }
 
     @Override
     public Object visit(Object context, TernaryExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+        Label elseLabel = scope.getNewLabel();
+        Label doneLabel = scope.getNewLabel();
+
+        scope.addInstruction(new BFalse(build(scope, expr.getTest(), strict), elseLabel));
+        scope.addInstruction(new Copy(result, build(scope, expr.getThenExpr(), strict)));
+        scope.addInstruction(new Jump(doneLabel));
+        scope.addInstruction(new LabelInstr(elseLabel));
+        scope.addInstruction(new Copy(result, build(scope, expr.getElseExpr(), strict)));
+        scope.addInstruction(new LabelInstr(doneLabel));
+
+        return result;
     }
 
     @Override
-    public Object visit(Object context, ThisExpression expr, boolean strict) {
-        return This.THIS;
+    public Object visit(Object context, CommaOperator expr, boolean strict) {
+        Scope scope = (Scope) context;
+
+        build(scope, expr.getLhs(), strict);
+
+        return build(scope, expr.getRhs(), strict);
     }
 
     @Override
-    public Object visit(Object context, ThrowStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
+    public Object visit(Object context, VoidOperatorExpression expr, boolean strict) {
+        build((Scope) context, expr.getExpr(), strict);
+
+        return Undefined.UNDEFINED;
     }
 
     @Override
-    public Object visit(Object context, TryStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
+    public Object visit(Object context, LogicalNotOperatorExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+
+        scope.addInstruction(new Not(result, build(scope, expr.getExpr(), strict)));
+
+        return result;
     }
 
     @Override
-    public Object visit(Object context, TypeOfOpExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+    public Object visit(Object context, BitwiseInversionOperatorExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+
+        scope.addInstruction(new BitwiseNot(result, build(scope, expr.getExpr(), strict)));
+
+        return result;
     }
 
     @Override
     public Object visit(Object context, UnaryMinusExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+
+        scope.addInstruction(new Negate(result, build(scope, expr.getExpr(), strict)));
+
+        return result;
     }
 
     @Override
     public Object visit(Object context, UnaryPlusExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+
+        scope.addInstruction(new ToNumber(result, build(scope, expr.getExpr(), strict)));
+
+        return result;
     }
 
     @Override
-    public Object visit(Object context, VariableDeclaration expr, boolean strict) {
+    public Object visit(Object context, TypeOfOpExpression expr, boolean strict) {
         Scope scope = (Scope) context;
-        Variable variable = scope.acquireLocalVariable(expr.getIdentifier());
-        Operand value = (Operand) acceptOrUndefined(context, expr.getExpr(), strict);
+        Variable result = scope.createTemporaryVariable();
+        Operand value;
 
-        scope.addInstruction(new Copy(variable, value));
+        // typeof of a name nobody declared is 'undefined' and not a ReferenceError
+        if (expr.getExpr() instanceof IdentifierReferenceExpression) {
+            value = variableFor(scope, ((IdentifierReferenceExpression) expr.getExpr()).getIdentifier());
+        } else {
+            value = build(scope, expr.getExpr(), strict);
+        }
 
-        return value;
+        scope.addInstruction(new TypeOf(result, value));
+
+        return result;
     }
 
     @Override
-    public Object visit(Object context, VariableStatement statement, boolean strict) {
-        for (VariableDeclaration decl: statement.getVariableDeclarations()) {
-            decl.accept(context, this, strict);
+    public Object visit(Object context, DeleteOpExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+        Variable result = scope.createTemporaryVariable();
+        Expression target = expr.getExpr();
+
+        if (target instanceof IdentifierReferenceExpression) {
+            String name = ((IdentifierReferenceExpression) target).getIdentifier();
+
+            if (scope.findVariable(name) != null) {
+                // declared bindings are never deletable
+                scope.addInstruction(new Copy(result, BooleanLiteral.FALSE));
+            } else {
+                scope.addInstruction(new DeleteName(result, name));
+            }
+        } else if (target instanceof DotExpression) {
+            Operand base = build(scope, ((DotExpression) target).getLhs(), strict);
+            scope.addInstruction(new DeleteProperty(result, base, new StringLiteral(((DotExpression) target).getIdentifier())));
+        } else if (target instanceof BracketExpression) {
+            Operand base = pin(scope, build(scope, ((BracketExpression) target).getLhs(), strict),
+                    ((BracketExpression) target).getRhs());
+            Operand index = build(scope, ((BracketExpression) target).getRhs(), strict);
+            scope.addInstruction(new DeleteProperty(result, base, index));
+        } else {
+            build(scope, target, strict);
+            scope.addInstruction(new Copy(result, BooleanLiteral.TRUE));
         }
 
-        return Undefined.UNDEFINED;
+        return result;
     }
 
-    @Override
-    public Object visit(Object context, VoidOperatorExpression expr, boolean strict) {
-        return unimplemented(context, expr, strict);
-    }
+    // ----------------------------------------------------------------------
+    // Calls
+    // ----------------------------------------------------------------------
 
     @Override
-    public Object visit(Object context, WhileStatement statement, boolean strict) {
+    public Object visit(Object context, FunctionCallExpression expr, boolean strict) {
         Scope scope = (Scope) context;
-        final Label startLabel = scope.getNewLabel();
-        final Label doneLabel = scope.getNewLabel();
+        Variable result = scope.createTemporaryVariable();
+        Expression memberExpression = expr.getMemberExpression();
 
-        scope.addInstruction(new LabelInstr(startLabel));
-        // TEST
-        scope.addInstruction(new BEQ((Operand) statement.getTest().accept(context, this, strict),
-                BooleanLiteral.FALSE, doneLabel));
+        // We can statically replace an attempt at calls to illegal member types with an exception
+        // raise.  This should eliminate needing to actually check this within the runtime.
+        if (memberExpression instanceof IllegalFunctionMemberExpression) {
+            return raise(scope, "TypeError", memberExpression + " is not callable");
+        }
 
-        // BODY
-        statement.getBlock().accept(context, this, strict);
-        scope.addInstruction(new Jump(startLabel));
+        Operand self = Undefined.UNDEFINED;
+        Operand function;
 
-        // END
-        scope.addInstruction(new LabelInstr(doneLabel));
+        if (memberExpression instanceof DotExpression) {
+            DotExpression dot = (DotExpression) memberExpression;
 
-        return Undefined.UNDEFINED;
+            self = copyAndReturnValue(scope, build(scope, dot.getLhs(), strict));
+
+            // The method is looked up before the arguments are evaluated, so it can only
+            // be looked up by the call itself when they are evaluated by no instruction.
+            int mark = scope.getInstructions().size();
+            Operand[] args = buildAll(scope, expr.getArgumentExpressions(), strict);
+            if (scope.getInstructions().size() == mark) {
+                scope.addInstruction(new CallMethod(result, self, dot.getIdentifier(), args));
+            } else {
+                Variable lookup = scope.createTemporaryVariable();
+                scope.getInstructions().add(mark, new PropertyLookup(lookup, self, dot.getIdentifier()));
+                scope.addInstruction(new Call(result, self, lookup, args));
+            }
+
+            return result;
+        } else if (memberExpression instanceof BracketExpression) {
+            BracketExpression bracket = (BracketExpression) memberExpression;
+            Variable lookup = scope.createTemporaryVariable();
+
+            self = copyAndReturnValue(scope, build(scope, bracket.getLhs(), strict));
+            scope.addInstruction(new ElementLookup(lookup, self, build(scope, bracket.getRhs(), strict)));
+            function = lookup;
+        } else if (memberExpression instanceof IdentifierReferenceExpression) {
+            // Names from the environment are called through their reference (with, eval)
+            function = variableFor(scope, ((IdentifierReferenceExpression) memberExpression).getIdentifier());
+            if (function instanceof LocalVariable) {
+                function = pin(scope, function, expr.getArgumentExpressions());
+            }
+        } else {
+            function = build(scope, memberExpression, strict);
+        }
+
+        scope.addInstruction(new Call(result, self, function, buildAll(scope, expr.getArgumentExpressions(), strict)));
+
+        return result;
     }
 
     @Override
-    public Object visit(Object context, WithStatement statement, boolean strict) {
-        return unimplemented(context, statement, strict);
+    public Object visit(Object context, NewOperatorExpression expr, boolean strict) {
+        Scope scope = (Scope) context;
+
+        // We can statically replace an attempt at calls to illegal member types with an exception
+        // raise.  This should eliminate needing to actually check this within the runtime.
+        if (expr.getExpr() instanceof IllegalFunctionMemberExpression) {
+            return raise(scope, "TypeError", expr.getExpr() + " is not callable");
+        }
+
+        Operand function;
+        if (expr.getExpr() instanceof IdentifierReferenceExpression) {
+            function = variableFor(scope, ((IdentifierReferenceExpression) expr.getExpr()).getIdentifier());
+            if (function instanceof LocalVariable) {
+                function = pin(scope, function, expr.getArgumentExpressions());
+            }
+        } else {
+            function = copyAndReturnValue(scope, build(scope, expr.getExpr(), strict));
+        }
+
+        Variable tmp = scope.createTemporaryVariable();
+        scope.addInstruction(new Constructor(tmp, function, buildAll(scope, expr.getArgumentExpressions(), strict)));
+
+        return tmp;
     }
 
+    // ----------------------------------------------------------------------
+    // Helpers
+    // ----------------------------------------------------------------------
+
     private Object unimplemented(Object context, Object expr, boolean strict) {
         throw new RuntimeException("EXPR: '" + expr + "' is unimplemented.");
     }
 
+    private Operand raise(Scope scope, String type, String message) {
+        scope.addInstruction(new Raise(type, message));
+        // Raise ends the block so what follows needs one of its own
+        scope.addInstruction(new LabelInstr(scope.getNewLabel()));
+
+        return Undefined.UNDEFINED;
+    }
+
+    private Operand build(Scope scope, Expression expr, boolean strict) {
+        return (Operand) expr.accept(scope, this, strict);
+    }
+
     private Object acceptOrUndefined(Object context, Expression expr, boolean strict) {
         return expr != null ? expr.accept(context, this, strict) : Undefined.UNDEFINED;
     }
 
-    private Variable copyAndReturnValue(Scope scope, Operand value) {
-        Variable variable = scope.createTemporaryVariable();
+    /**
+     * Build expressions evaluated left to right (holes stay null).
+     */
+    private Operand[] buildAll(Scope scope, List<Expression> expressions, boolean strict) {
+        Operand[] operands = new Operand[expressions.size()];
 
-        scope.addInstruction(new Copy(variable, value));
+        for (int i = 0; i < operands.length; i++) {
+            Expression expr = expressions.get(i);
 
-        return variable;
+            if (expr != null) {
+                operands[i] = build(scope, expr, strict);
+                if (operands[i] instanceof LocalVariable) {
+                    operands[i] = pin(scope, operands[i], expressions.subList(i + 1, operands.length));
+                }
+            }
+        }
+
+        return operands;
     }
 
-    private Variable getValueInTemporaryVariable(Scope scope, Operand value) {
-        if (value != null && value instanceof TemporaryVariable) return (Variable) value;
+    /**
+     * The variable a name refers to: a slot in this or an outer scope or, failing
+     * that, a name to look up in the environment.
+     */
+    private Variable variableFor(Scope scope, String name) {
+        Variable variable = scope.findVariable(name);
+
+        return variable != null ? variable : new DynamicVariable(name);
+    }
+
+    /**
+     * Copy a local variable into a temporary when evaluating rest afterwards could
+     * change it before it is used.
+     */
+    private Operand pin(Scope scope, Operand value, Expression rest) {
+        if (!(value instanceof LocalVariable) || rest == null || isSimple(rest)) return value;
 
         return copyAndReturnValue(scope, value);
     }
+
+    private Operand pin(Scope scope, Operand value, List<Expression> rest) {
+        if (!(value instanceof LocalVariable)) return value;
+
+        for (Expression expr: rest) {
+            if (expr != null && !isSimple(expr)) return copyAndReturnValue(scope, value);
+        }
+
+        return value;
+    }
+
+    // Cannot change any variable
+    private boolean isSimple(Expression expr) {
+        return expr instanceof IdentifierReferenceExpression || expr instanceof IntegerNumberExpression ||
+                expr instanceof FloatingNumberExpression || expr instanceof StringLiteralExpression ||
+                expr instanceof BooleanLiteralExpression || expr instanceof NullLiteralExpression ||
+                expr instanceof ThisExpression;
+    }
+
+    private Variable copyAndReturnValue(Scope scope, Operand value) {
+        Variable variable = scope.createTemporaryVariable();
+
+        scope.addInstruction(new Copy(variable, value));
+
+        return variable;
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+/**
+ * What a call site has called so far, recorded as it runs for the Inliner.
+ * A site is monomorphic while every function it called came from one FunctionScope.
+ */
+public class CallProfile {
+    private FunctionScope target;
+    private boolean polymorphic;
+    private int count;
+
+    public void record(Object function) {
+        count++;
+
+        if (polymorphic) return;
+
+        if (!(function instanceof IRJSFunction)) {
+            polymorphic = true;
+            return;
+        }
+
+        FunctionScope scope = ((IRJSFunction) function).getFunctionScope();
+
+        if (target == null) {
+            target = scope;
+        } else if (target != scope) {
+            polymorphic = true;
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Scope of every function called from this site or null if there is no single one.
+     */
+    public FunctionScope getTarget() {
+        return polymorphic ? null : target;
+    }
+}
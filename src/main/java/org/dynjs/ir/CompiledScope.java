@@ -0,0 +1,26 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import org.dynjs.runtime.ExecutionContext;
+
+/**
+ * Bytecode generated by the IRByteCodeCompiler for a single Scope.  It is run in
+ * place of interpreting the scope's instructions.
+ */
+public interface CompiledScope {
+    Object execute(ExecutionContext context, Scope scope);
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.util.Collections;
+import java.util.List;
+import org.dynjs.ir.operands.Label;
+import org.dynjs.ir.operands.Variable;
+import org.dynjs.parser.Statement;
+
+/**
+ * Something the Builder is lexically inside of which a break, continue or return
+ * has to know about while it leaves: a breakable statement to jump to, a finally
+ * block which has to run on the way out, an exception region which has to be
+ * closed or an environment which has to be restored.
+ */
+class ControlFrame {
+    enum Kind { BREAKABLE, FINALLY, PROTECTED, ENVIRONMENT }
+
+    final Kind kind;
+
+    // BREAKABLE
+    List<String> labels = Collections.emptyList();
+    Label breakLabel;
+    Label continueLabel;
+    boolean isLoop;
+    boolean isSwitch;
+
+    // FINALLY and PROTECTED
+    Label rescueLabel;
+    Statement finallyBlock;
+
+    // ENVIRONMENT
+    Variable savedEnvironment;
+
+    private ControlFrame(Kind kind) {
+        this.kind = kind;
+    }
+
+    static ControlFrame loop(List<String> labels, Label breakLabel, Label continueLabel) {
+        ControlFrame frame = breakable(labels, breakLabel);
+        frame.continueLabel = continueLabel;
+        frame.isLoop = true;
+        return frame;
+    }
+
+    static ControlFrame switchStatement(List<String> labels, Label breakLabel) {
+        ControlFrame frame = breakable(labels, breakLabel);
+        frame.isSwitch = true;
+        return frame;
+    }
+
+    static ControlFrame breakable(List<String> labels, Label breakLabel) {
+        ControlFrame frame = new ControlFrame(Kind.BREAKABLE);
+        frame.labels = labels;
+        frame.breakLabel = breakLabel;
+        return frame;
+    }
+
+    static ControlFrame protectedRegion(Label rescueLabel) {
+        ControlFrame frame = new ControlFrame(Kind.PROTECTED);
+        frame.rescueLabel = rescueLabel;
+        return frame;
+    }
+
+    static ControlFrame finallyRegion(Label rescueLabel, Statement finallyBlock) {
+        ControlFrame frame = new ControlFrame(Kind.FINALLY);
+        frame.rescueLabel = rescueLabel;
+        frame.finallyBlock = finallyBlock;
+        return frame;
+    }
+
+    static ControlFrame environment(Variable savedEnvironment) {
+        ControlFrame frame = new ControlFrame(Kind.ENVIRONMENT);
+        frame.savedEnvironment = savedEnvironment;
+        return frame;
+    }
+
+    boolean isBreakTarget(String label) {
+        if (kind != Kind.BREAKABLE) return false;
+        if (label == null) return isLoop || isSwitch;
+
+        return labels.contains(label);
+    }
+
+    boolean isContinueTarget(String label) {
+        if (kind != Kind.BREAKABLE || !isLoop) return false;
+
+        return label == null || labels.contains(label);
+    }
+
+    @Override
+    public String toString() {
+        return kind + (labels.isEmpty() ? "" : " " + labels);
+    }
+}
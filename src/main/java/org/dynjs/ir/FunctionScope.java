@@ -1,10 +1,15 @@
 package org.dynjs.ir;
 
+import org.dynjs.ir.operands.LocalVariable;
+
 /**
  */
 public class FunctionScope extends Scope {
     private String[] parameterNames;
     private String name;
+    // Name a function expression can call itself by and where it is kept
+    private String selfName;
+    private LocalVariable selfVariable;
 
     public FunctionScope(Scope parent, String fileName, boolean isStrict, String[] parameterNames, String name) {
         super(parent, fileName, isStrict);
@@ -20,4 +25,36 @@ public class FunctionScope extends Scope {
     public String[] getParameterNames() {
         return parameterNames;
     }
+
+    public String getSelfName() {
+        return selfName;
+    }
+
+    public LocalVariable getSelfVariable() {
+        return selfVariable;
+    }
+
+    /**
+     * Make the function visible by name within itself unless something it declares
+     * already uses that name.  Call after all other declarations.
+     */
+    public void declareSelf(String selfName) {
+        this.selfName = selfName;
+
+        if (!usesEnvironment()) {
+            LocalVariable declared = findVariable(selfName);
+
+            if (declared == null || declared.getDepth() != 0) selfVariable = acquireLocalVariable(selfName);
+        }
+    }
+
+    void setSelf(String selfName, LocalVariable selfVariable) {
+        this.selfName = selfName;
+        this.selfVariable = selfVariable;
+    }
+
+    @Override
+    protected boolean declares(String name) {
+        return super.declares(name) || name.equals(selfName);
+    }
 }
@@ -1,290 +1,1071 @@
 package org.dynjs.ir;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import me.qmx.jitescript.CodeBlock;
+import me.qmx.jitescript.JDKVersion;
 import me.qmx.jitescript.JiteClass;
-import org.dynjs.ir.instructions.Add;
+import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
+import me.qmx.jitescript.internal.org.objectweb.asm.tree.LabelNode;
+import org.dynjs.exception.ThrowException;
+import org.dynjs.ir.instructions.ArrayLiteral;
 import org.dynjs.ir.instructions.BEQ;
+import org.dynjs.ir.instructions.BFalse;
+import org.dynjs.ir.instructions.BTrue;
+import org.dynjs.ir.instructions.BinaryInstr;
+import org.dynjs.ir.instructions.Call;
+import org.dynjs.ir.instructions.CallMethod;
+import org.dynjs.ir.instructions.Constructor;
 import org.dynjs.ir.instructions.Copy;
 import org.dynjs.ir.instructions.DefineFunction;
+import org.dynjs.ir.instructions.DeleteName;
+import org.dynjs.ir.instructions.DeleteProperty;
+import org.dynjs.ir.instructions.ElementAssign;
+import org.dynjs.ir.instructions.ElementLookup;
+import org.dynjs.ir.instructions.EnterCatch;
+import org.dynjs.ir.instructions.EnterWith;
+import org.dynjs.ir.instructions.InlineGuard;
 import org.dynjs.ir.instructions.Jump;
-import org.dynjs.ir.instructions.LT;
+import org.dynjs.ir.instructions.LoadName;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.ir.instructions.PropertyAssign;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.instructions.Raise;
+import org.dynjs.ir.instructions.ReceiveFunctionParameter;
+import org.dynjs.ir.instructions.RegExpLiteral;
+import org.dynjs.ir.instructions.RestoreEnvironment;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.instructions.Return;
+import org.dynjs.ir.instructions.Switch;
+import org.dynjs.ir.instructions.UnaryInstr;
 import org.dynjs.ir.operands.BooleanLiteral;
 import org.dynjs.ir.operands.DynamicVariable;
+import org.dynjs.ir.operands.FloatNumber;
 import org.dynjs.ir.operands.IntegerNumber;
 import org.dynjs.ir.operands.Label;
 import org.dynjs.ir.operands.LocalVariable;
+import org.dynjs.ir.operands.StringLiteral;
 import org.dynjs.ir.operands.TemporaryVariable;
 import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.passes.TypeInference;
 import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
 import org.dynjs.runtime.DynamicClassLoader;
 import org.dynjs.runtime.ExecutionContext;
-import org.dynjs.runtime.JSProgram;
 import org.dynjs.runtime.Types;
-import me.qmx.jitescript.internal.org.objectweb.asm.ClassReader;
-import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
-import me.qmx.jitescript.internal.org.objectweb.asm.tree.LabelNode;
-import me.qmx.jitescript.internal.org.objectweb.asm.util.CheckClassAdapter;
-
-import java.io.PrintWriter;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import org.dynjs.runtime.VariableValues;
 
+import static me.qmx.jitescript.util.CodegenUtils.ci;
 import static me.qmx.jitescript.util.CodegenUtils.p;
-import static me.qmx.jitescript.util.CodegenUtils.params;
 import static me.qmx.jitescript.util.CodegenUtils.sig;
 
+/**
+ * Compiles the instructions of a scope (and of every function in it) into a
+ * JVM class implementing CompiledScope.
+ *
+ * The generated code mirrors the Interpreter: temporaries become JVM locals,
+ * operations are calls to IRRuntimeHelpers and every basic block with a rescuer
+ * is covered by a handler for ThrowException which jumps to it.
+ *
+ * Temporaries TypeInference found to always hold a Long, Double or Boolean are
+ * kept unboxed in long, double and int locals.  Arithmetic, bitwise operators
+ * and comparisons on them are plain JVM instructions computing what the helper
+ * would (Long arithmetic wraps in both); an operand of unknown type is
+ * converted by a helper which has a fast path for Long, and an unboxed value is
+ * only boxed where generic code needs it.  A scope which
+ * cannot be compiled (e.g. its method would be too large) stays interpreted.
+ */
 public class IRByteCodeCompiler {
-    private final Scope scope;
-    private final String fileName;
-    private final boolean strict;
-    private final List<BasicBlock> blockList;
-    private final AtomicInteger methodCounter = new AtomicInteger();
-
-    public IRByteCodeCompiler(Scope scope, String fileName, boolean strict) {
-        this.scope = scope;
-        this.fileName = fileName;
-        this.strict = strict;
-        this.blockList = scope.prepareForCompilation();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final String HELPERS = p(IRRuntimeHelpers.class);
+
+    private static final int THIS = 0;
+    private static final int CONTEXT = 1;
+    private static final int SCOPE = 2;
+    private static final int VARS = 3;
+    private static final int EXCEPTION = 4;
+    private static final int CACHES = 5;
+    private static final int TEMPS = 6;
+
+    private final ExecutionContext context;
+
+    public IRByteCodeCompiler(ExecutionContext context) {
+        this.context = context;
     }
 
-    public JSProgram compile() {
-        final int varOffset = 2;
-        final List<BasicBlock> blockList = scope.prepareForCompilation();
-        Object[] temps = new Object[scope.getTemporaryVariableSize()];
-        Object[] vars = new Object[scope.getLocalVariableSize()];
-        final HashMap<Label, LabelNode> jumpMap = new HashMap<>();
+    /**
+     * Compile scope and the scopes nested in it, installing the compiled form of
+     * each on success.
+     */
+    public void compile(Scope scope) {
+        Map<Scope, JiteClass> classes = new LinkedHashMap<>();
 
+        generate(scope, classes, true);
+        install(classes);
+    }
 
-        System.out.println("VROGRAM:");
+    /**
+     * Compile scope again after its CFG has changed (see Scope.execute).  The
+     * scopes nested in it keep the form they have.
+     */
+    public void recompile(Scope scope) {
+        Map<Scope, JiteClass> classes = new LinkedHashMap<>();
 
-        final JiteClass jiteClass = new JiteClass("org/dynjs/gen/" + "MEH");
-        jiteClass.defineDefaultConstructor();
-        CodeBlock block = new CodeBlock();
-        // first pass for gathering labels
-        for (BasicBlock bb : blockList) {
-            final Label label = bb.getLabel();
-            System.out.println("label: " + label);
-            final LabelNode labelNode = new LabelNode();
-            jumpMap.put(label, labelNode);
-        }
-
-        // second pass for emitting
-        for (BasicBlock bb : blockList) {
-            block.label(jumpMap.get(bb.getLabel()));
-
-            for (Instruction instruction : bb.getInstructions()) {
-                System.out.println(instruction);
-                emitInstruction(jiteClass, jumpMap, block, instruction);
-            }
-        }
-        block.aconst_null();
-        block.areturn();
+        generate(scope, classes, false);
+        install(classes);
+    }
+
+    private void install(Map<Scope, JiteClass> classes) {
+        DynamicClassLoader loader = context.getClassLoader().createUnitLoader();
 
-        jiteClass.defineMethod("execute", Opcodes.ACC_STATIC | Opcodes.ACC_PUBLIC, sig(Object.class), block);
-        final byte[] bytes = jiteClass.toBytes();
-        ClassReader reader = new ClassReader(bytes);
-        CheckClassAdapter.verify(reader, true, new PrintWriter(System.out));
+        for (Map.Entry<Scope, JiteClass> each : classes.entrySet()) {
+            JiteClass jiteClass = each.getValue();
 
-        final DynamicClassLoader loader = new DynamicClassLoader();
-        final Class<?> define = loader.define(jiteClass.getClassName().replace("/", "."), bytes);
+            try {
+                byte[] bytecode = jiteClass.toBytes(JDKVersion.V1_7);
+                Class<?> cls = loader.define(jiteClass.getClassName().replace('/', '.'), bytecode);
 
+                each.getKey().setCompiled((CompiledScope) cls.getConstructor().newInstance());
+            } catch (RuntimeException | LinkageError | InstantiationException | IllegalAccessException |
+                     NoSuchMethodException | InvocationTargetException e) {
+                if (context.getConfig().isDebug()) {
+                    System.err.println("IR: interpreting " + jiteClass.getClassName() + ": " + e);
+                }
+            }
+        }
+    }
 
+    private void generate(Scope scope, Map<Scope, JiteClass> classes, boolean nested) {
         try {
-            final Method execute;
-            final Method[] declaredMethods = define.getDeclaredMethods();
-            for (Method declaredMethod : declaredMethods) {
-                System.out.println(declaredMethod);
+            classes.put(scope, defineClass(scope));
+        } catch (RuntimeException e) {
+            // Something we do not know how to compile; the interpreter can run it
+            if (context.getConfig().isDebug()) {
+                System.err.println("IR: interpreting " + scope.getFileName() + ": " + e);
             }
-            execute = define.getDeclaredMethod("execute");
-            final Object invoke = execute.invoke(null);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
         }
 
-        return null;
+        if (!nested) return;
+
+        for (FunctionScope child : scope.getChildren()) {
+            generate(child, classes, true);
+        }
     }
 
-    private void emitInstruction(JiteClass jiteClass, HashMap<Label, LabelNode> jumpMap, CodeBlock block, Instruction instruction) {
-        switch (instruction.getOperation()) {
-            case DEFINE_FUNCTION:
-                emitFunction(jiteClass, jumpMap, block, (DefineFunction) instruction);
-                break;
-            case ADD:
-                emitAdd(block, (Add) instruction);
-                break;
-            case COPY:
-                emitCopy(block, (Copy) instruction);
-                break;
-            case BEQ:
-                emitBEQ(block, (BEQ) instruction, jumpMap);
-                break;
-            case LT:
-                emitLT(block, (LT) instruction);
-                break;
-            case JUMP:
-                emitJump(block, (Jump) instruction, jumpMap);
+    private JiteClass defineClass(Scope scope) {
+        String name = scope instanceof FunctionScope && ((FunctionScope) scope).getName() != null ?
+                ((FunctionScope) scope).getName() : "anonymous";
+        JiteClass jiteClass = new JiteClass("org/dynjs/gen/ir/" + sanitize(name) + "_" + SEQUENCE.incrementAndGet(),
+                p(Object.class), new String[] { p(CompiledScope.class) });
+
+        jiteClass.defineDefaultConstructor();
+        jiteClass.defineMethod("execute", Opcodes.ACC_PUBLIC, sig(Object.class, ExecutionContext.class, Scope.class),
+                new ScopeCompiler(scope).compile());
+
+        return jiteClass;
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            builder.append(Character.isJavaIdentifierPart(c) ? c : '_');
         }
+
+        return builder.toString();
     }
 
-    private void emitFunction(JiteClass jiteClass, HashMap<Label, LabelNode> jumpMap, CodeBlock block, DefineFunction instruction) {
-        final FunctionScope functionScope = ((DefineFunction) instruction).getScope();
-        final String[] parameterNames = functionScope.getParameterNames();
-        final CodeBlock fnBlock = new CodeBlock();
-        final List<BasicBlock> blocks = functionScope.prepareForCompilation();
-        for (BasicBlock bb : blocks) {
-            for (Instruction fnInstr : bb.getInstructions()) {
-                emitInstruction(jiteClass, jumpMap, fnBlock, fnInstr);
+    /**
+     * Emits the body of one scope.
+     */
+    private static class ScopeCompiler {
+        private final Scope scope;
+        private final CodeBlock block = new CodeBlock();
+        private final Map<Label, LabelNode> labels = new HashMap<>();
+        private final Map<BasicBlock, LabelNode> handlers = new HashMap<>();
+        // JVM local of each temporary (long and double take two)
+        private int[] temps;
+        // caches of the instructions emitted, loaded from the scope as they are indexed here
+        private final List<PropertyCache> caches = new ArrayList<>();
+        // callees guarded by inline_guard, indexed the same way
+        private final List<FunctionScope> inlined = new ArrayList<>();
+
+        ScopeCompiler(Scope scope) {
+            this.scope = scope;
+        }
+
+        CodeBlock compile() {
+            CFG cfg = scope.getCFG();
+            List<BasicBlock> blocks = scope.prepareForCompilation();
+
+            for (BasicBlock bb : blocks) {
+                labels.put(bb.getLabel(), new LabelNode());
             }
+
+            // vars never change while the scope runs and temps start out empty
+            block.aload(CONTEXT);
+            block.invokevirtual(p(ExecutionContext.class), "getVars", sig(VariableValues.class));
+            block.astore(VARS);
+            block.aconst_null();
+            block.astore(EXCEPTION);
+            block.aload(SCOPE);
+            block.invokevirtual(p(Scope.class), "getPropertyCaches", sig(PropertyCache[].class));
+            block.astore(CACHES);
+            temps = new int[scope.getTemporaryVariableSize()];
+            for (int i = 0, local = TEMPS; i < temps.length; i++) {
+                ValueType type = scope.getTemporaryType(i);
+
+                temps[i] = local;
+                local += type == ValueType.INTEGER || type == ValueType.FLOAT ? 2 : 1;
+
+                switch (type) {
+                    case INTEGER:
+                        block.lconst_0();
+                        block.lstore(temps[i]);
+                        break;
+                    case FLOAT:
+                        block.ldc(0.0);
+                        block.dstore(temps[i]);
+                        break;
+                    case BOOLEAN:
+                        block.iconst_0();
+                        block.istore(temps[i]);
+                        break;
+                    default:
+                        block.aconst_null();
+                        block.astore(temps[i]);
+                }
+            }
+
+            for (BasicBlock bb : blocks) {
+                LabelNode start = new LabelNode();
+                LabelNode end = new LabelNode();
+                boolean emitted = false;
+
+                block.label(labels.get(bb.getLabel()));
+                block.label(start);
+                for (Instruction instruction : bb.getInstructions()) {
+                    emitted |= emit(instruction);
+                }
+                block.label(end);
+
+                BasicBlock rescuer = cfg.getRescuerBBFor(bb);
+                if (emitted && rescuer != null) {
+                    block.trycatch(start, end, handlerFor(rescuer), p(ThrowException.class));
+                }
+            }
+
+            // falling off the end
+            block.getstatic(p(Types.class), "UNDEFINED", ci(Types.Undefined.class));
+            block.areturn();
+
+            // handlers remember the exception and continue in their rescuer
+            for (Map.Entry<BasicBlock, LabelNode> each : handlers.entrySet()) {
+                block.label(each.getValue());
+                block.astore(EXCEPTION);
+                block.go_to(label(each.getKey().getLabel()));
+            }
+
+            scope.setPropertyCaches(caches.toArray(new PropertyCache[caches.size()]));
+            scope.setInlinedScopes(inlined.toArray(new FunctionScope[inlined.size()]));
+
+            return block;
         }
-        if (!fnBlock.returns()) {
-            fnBlock.aconst_null().areturn();
+
+        private LabelNode handlerFor(BasicBlock rescuer) {
+            LabelNode handler = handlers.get(rescuer);
+
+            if (handler == null) {
+                handler = new LabelNode();
+                handlers.put(rescuer, handler);
+            }
+
+            return handler;
         }
-        final String methodName = nextSyntheticMethodName(functionScope);
-        jiteClass.defineMethod(methodName, Opcodes.ACC_STATIC | Opcodes.ACC_PUBLIC, sig(Object.class, params(Object.class, ExecutionContext.class, Object.class, parameterNames.length)), fnBlock);
-    }
 
-    private void emitJump(CodeBlock block, Jump instruction, HashMap<Label, LabelNode> jumpMap) {
-        block.go_to(jumpMap.get(instruction.getTarget()));
+        private LabelNode label(Label label) {
+            LabelNode node = labels.get(label);
 
-    }
+            if (node == null) throw new IllegalStateException("no basic block for " + label);
 
-    private void emitLT(CodeBlock block, LT instruction) {
-        emitOperand(block, instruction.getArg1());
-        emitOperand(block, instruction.getArg2());
-        block.invokestatic(p(IRByteCodeCompiler.class), "lt", sig(Boolean.class, Object.class, Object.class));
-        storeResult(block, instruction.getResult());
-    }
+            return node;
+        }
 
-    private void emitBEQ(CodeBlock block, BEQ instruction, Map<Label, LabelNode> jumpMap) {
-        emitOperand(block, instruction.getArg1());
-        block.invokevirtual(p(Boolean.class), "booleanValue", sig(boolean.class));
-        emitOperand(block, instruction.getArg2());
-        final Label label = instruction.getTarget();
-        System.out.println("looking for label: " + label);
-        final LabelNode node = jumpMap.get(label);
-        block.if_icmpeq(node);
-    }
+        /**
+         * Emit an instruction answering whether any code was generated for it.
+         */
+        private boolean emit(Instruction instr) {
+            switch (instr.getOperation()) {
+                case LABEL:
+                case EXCEPTION_REGION_START:
+                case EXCEPTION_REGION_END:
+                    return false;
+                case COPY:
+                    if (isUnboxed(typeOf(((Copy) instr).getResult()))) break;
 
-    private void emitOperand(CodeBlock block, Operand operand) {
-        switch (operand.getType()) {
-            case DYNAMIC_VAR:
-                emitDynamicVar(block, (DynamicVariable) operand);
-                break;
-            case INTEGER:
-                emitInteger(block, (IntegerNumber) operand);
-                break;
-            case TEMP_VAR:
-                emitTempVar(block, (TemporaryVariable) operand);
-                break;
-            case LOCAL_VAR:
-                emitLocalVar(block, (LocalVariable) operand);
-                break;
-            case BOOLEAN:
-                emitBoolean(block, (BooleanLiteral) operand);
+                    beginStore(((Copy) instr).getResult());
+                    operand(((Copy) instr).getValue());
+                    endStore(((Copy) instr).getResult());
+                    return true;
+                case JUMP:
+                    block.go_to(label(((Jump) instr).getTarget()));
+                    return true;
+                case SWITCH: {
+                    Switch sw = (Switch) instr;
+                    LabelNode[] targets = new LabelNode[sw.getTargets().length];
+
+                    for (int i = 0; i < targets.length; i++) {
+                        targets[i] = label(sw.getTargets()[i]);
+                    }
+                    operand(sw.getValue());
+                    block.append(sw.getTable().dispatch(targets, label(sw.getDefaultTarget())));
+                    return true;
+                }
+                case BEQ: {
+                    BEQ beq = (BEQ) instr;
+                    operand(beq.getArg1());
+                    operand(beq.getArg2());
+                    block.invokevirtual(p(Object.class), "equals", sig(boolean.class, Object.class));
+                    block.ifne(label(beq.getTarget()));
+                    return true;
+                }
+                case B_TRUE:
+                    test(((BTrue) instr).getTest());
+                    block.ifne(label(((BTrue) instr).getTarget()));
+                    return true;
+                case B_FALSE:
+                    test(((BFalse) instr).getTest());
+                    block.ifeq(label(((BFalse) instr).getTarget()));
+                    return true;
+                case RETURN:
+                    operand(((Return) instr).getValue());
+                    block.areturn();
+                    return true;
+                case THROW_EXCEPTION:
+                    block.aload(CONTEXT);
+                    operand(((org.dynjs.ir.instructions.ThrowException) instr).getValue());
+                    block.invokestatic(HELPERS, "throwValue", sig(ThrowException.class, ExecutionContext.class, Object.class));
+                    block.athrow();
+                    return true;
+                case RAISE:
+                    block.aload(CONTEXT);
+                    block.ldc(((Raise) instr).getType());
+                    block.ldc(((Raise) instr).getMessage());
+                    block.invokestatic(HELPERS, "raise", sig(ThrowException.class, ExecutionContext.class, String.class, String.class));
+                    block.athrow();
+                    return true;
+                case PROPERTY_ASSIGN: {
+                    PropertyAssign assign = (PropertyAssign) instr;
+                    cache(assign.getCache());
+                    block.aload(CONTEXT);
+                    operand(assign.getBase());
+                    block.ldc(assign.getIdentifier());
+                    operand(assign.getValue());
+                    block.invokevirtual(p(PropertyCache.class), "put", sig(void.class, ExecutionContext.class, Object.class, String.class, Object.class));
+                    return true;
+                }
+                case ELEMENT_ASSIGN: {
+                    ElementAssign assign = (ElementAssign) instr;
+                    cache(assign.getCache());
+                    block.aload(CONTEXT);
+                    operand(assign.getBase());
+                    operand(assign.getIndex());
+                    operand(assign.getValue());
+                    block.invokevirtual(p(PropertyCache.class), "putElement", sig(void.class, ExecutionContext.class, Object.class, Object.class, Object.class));
+                    return true;
+                }
+                case RESTORE_ENVIRONMENT:
+                    block.aload(CONTEXT);
+                    operand(((RestoreEnvironment) instr).getEnvironment());
+                    block.invokestatic(HELPERS, "restoreEnvironment", sig(void.class, ExecutionContext.class, Object.class));
+                    return true;
+                case ENTER_WITH:
+                    block.aload(CONTEXT);
+                    operand(((EnterWith) instr).getObject());
+                    block.invokestatic(HELPERS, "enterWith", sig(void.class, ExecutionContext.class, Object.class));
+                    return true;
+                case ENTER_CATCH:
+                    block.aload(CONTEXT);
+                    block.ldc(((EnterCatch) instr).getName());
+                    operand(((EnterCatch) instr).getValue());
+                    block.invokestatic(HELPERS, "enterCatch", sig(void.class, ExecutionContext.class, String.class, Object.class));
+                    return true;
+                case OBJECT_LITERAL:
+                    emitObjectLiteral((ObjectLiteral) instr);
+                    return true;
+            }
+
+            Variable result = ((ResultInstruction) instr).getResult();
+            ValueType type = typeOf(result);
+
+            beginStore(result);
+            if (!isUnboxed(type)) {
+                value(instr);
+            } else if (!unboxedValue(instr, type)) {
+                value(instr);
+                unbox(type);
+            }
+            endStore(result);
+
+            return true;
         }
-    }
 
-    public CodeBlock jsGetValue() {
-        CodeBlock codeBlock = new CodeBlock()
-                // IN: reference
-                .aload(1)
-                        // reference context
-                .swap()
-                        // context reference
-                .invokestatic(p(Types.class), "getValue", sig(Object.class, ExecutionContext.class, Object.class));
-        return codeBlock;
-    }
+        // Push the truth of a branch test as an int
+        private void test(Operand operand) {
+            if (typeOf(operand) == ValueType.BOOLEAN) {
+                unboxed(operand, ValueType.BOOLEAN);
+            } else {
+                operand(operand);
+                block.invokestatic(HELPERS, "isTrue", sig(boolean.class, Object.class));
+            }
+        }
 
-    private void emitDynamicVar(CodeBlock block, DynamicVariable operand) {
-        block
-                .aload(1)
-                        // context
-                .ldc(operand.getName())
-                        // context name
-                .invokevirtual(p(ExecutionContext.class), "resolve", sig(Object.class, String.class))
-                        // reference
-                .aload(1)
-                        // reference context
-                .swap()
-                        // context reference
-                .invokestatic(p(Types.class), "getValue", sig(Object.class, ExecutionContext.class, Object.class));
-    }
+        /**
+         * Push the value of an instruction whose result is unboxed (long, double or
+         * int for a boolean) without going through a helper or answer false when
+         * that is not possible.
+         */
+        private boolean unboxedValue(Instruction instr, ValueType type) {
+            if (instr.getOperation() == Operation.COPY) {
+                unboxed(((Copy) instr).getValue(), type);
+                return true;
+            }
 
-    private void emitBoolean(CodeBlock block, BooleanLiteral operand) {
-        block.pushBoolean((Boolean) operand.retrieve(null, null));
-    }
+            if (instr instanceof BinaryInstr) {
+                Operand lhs = ((BinaryInstr) instr).getLHS();
+                Operand rhs = ((BinaryInstr) instr).getRHS();
 
-    private void emitLocalVar(CodeBlock block, LocalVariable operand) {
-        block.aload(getLocalVarOffset() + operand.getOffset());
-    }
+                switch (type) {
+                    case INTEGER: return integerValue(instr.getOperation(), lhs, rhs);
+                    case FLOAT: return floatValue(instr.getOperation(), lhs, rhs);
+                    case BOOLEAN: return booleanValue(instr.getOperation(), lhs, rhs);
+                }
+            } else if (instr instanceof UnaryInstr) {
+                Operand value = ((UnaryInstr) instr).getValue();
 
-    private void emitTempVar(CodeBlock block, TemporaryVariable operand) {
-        block.aload(getTempVarOffset() + operand.getOffset());
-    }
+                switch (instr.getOperation()) {
+                    case BITWISE_NOT:
+                        int32(value);
+                        block.ldc(-1L);
+                        block.lxor();
+                        return true;
+                    case NOT:
+                        test(value);
+                        block.iconst_1();
+                        block.ixor();
+                        return true;
+                }
+            } else if (instr.getOperation() == Operation.INLINE_GUARD) {
+                inlineGuard((InlineGuard) instr);
+                return true;
+            }
 
-    private int getTempVarOffset() {
-        return getLocalVarOffset() + scope.getLocalVariableSize();
-    }
+            return false;
+        }
 
-    private int getLocalVarOffset() {
-        return 1;
-    }
+        private boolean integerValue(Operation operation, Operand lhs, Operand rhs) {
+            switch (operation) {
+                case ADD: case SUB: case MUL:
+                    if (typeOf(lhs) != ValueType.INTEGER || typeOf(rhs) != ValueType.INTEGER) return false;
 
-    private void emitInteger(CodeBlock block, IntegerNumber operand) {
-        block.pushInt((int) operand.getValue());
-        block.invokestatic(p(Integer.class), "valueOf", sig(Integer.class, int.class));
-    }
+                    unboxed(lhs, ValueType.INTEGER);
+                    unboxed(rhs, ValueType.INTEGER);
+                    if (operation == Operation.ADD) {
+                        block.ladd();
+                    } else if (operation == Operation.SUB) {
+                        block.lsub();
+                    } else {
+                        block.lmul();
+                    }
+                    return true;
+                case BITWISE_AND:
+                    int32(lhs);
+                    int32(rhs);
+                    block.land();
+                    return true;
+                case BITWISE_OR:
+                    int32(lhs);
+                    int32(rhs);
+                    block.lor();
+                    return true;
+                case BITWISE_XOR:
+                    int32(lhs);
+                    int32(rhs);
+                    block.lxor();
+                    return true;
+                case SHIFT_LEFT: case SHIFT_RIGHT:
+                    int32(lhs);
+                    block.l2i();
+                    shiftCount(rhs);
+                    if (operation == Operation.SHIFT_LEFT) {
+                        block.ishl();
+                    } else {
+                        block.ishr();
+                    }
+                    block.i2l();
+                    return true;
+                case UNSIGNED_SHIFT_RIGHT:
+                    uint32(lhs);
+                    shiftCount(rhs);
+                    block.lushr();
+                    return true;
+            }
 
-    private void emitAdd(CodeBlock block, Add instruction) {
-        emitOperand(block, instruction.getLHS());
-        emitOperand(block, instruction.getRHS());
-        block.invokestatic(p(IRByteCodeCompiler.class), "add", sig(Object.class, Object.class, Object.class));
-        storeResult(block, instruction.getResult());
-    }
+            return false;
+        }
 
-    private void emitCopy(CodeBlock block, Copy instruction) {
-        emitOperand(block, instruction.getValue());
-        final Variable result = instruction.getResult();
-        storeResult(block, result);
-    }
+        private boolean floatValue(Operation operation, Operand lhs, Operand rhs) {
+            if (!isUnboxedNumber(typeOf(lhs)) || !isUnboxedNumber(typeOf(rhs))) return false;
 
-    private void storeResult(CodeBlock block, Variable result) {
-        int offset = 0;
-        switch (result.getType()) {
-            case TEMP_VAR:
-                offset = getTempVarOffset() + ((TemporaryVariable) result).getOffset();
-                break;
-            case LOCAL_VAR:
-                offset = getLocalVarOffset() + ((LocalVariable) result).getOffset();
-                break;
-        }
-        block.astore(offset);
-    }
+            switch (operation) {
+                case ADD:
+                    unboxed(lhs, ValueType.FLOAT);
+                    unboxed(rhs, ValueType.FLOAT);
+                    block.dadd();
+                    return true;
+                case SUB:
+                    unboxed(lhs, ValueType.FLOAT);
+                    unboxed(rhs, ValueType.FLOAT);
+                    block.dsub();
+                    return true;
+                case MUL:
+                    unboxed(lhs, ValueType.FLOAT);
+                    unboxed(rhs, ValueType.FLOAT);
+                    block.dmul();
+                    return true;
+            }
+
+            return false;
+        }
 
+        private boolean booleanValue(Operation operation, Operand lhs, Operand rhs) {
+            ValueType lhsType = typeOf(lhs);
+            ValueType rhsType = typeOf(rhs);
 
-    private String nextSyntheticMethodName(FunctionScope scope) {
-        final String[] parameterNames = scope.getParameterNames();
-        final StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < parameterNames.length; i++) {
-            builder.append(parameterNames[i]);
-            builder.append("_");
+            switch (operation) {
+                case LT: case LE: case GT: case GE:
+                    if (lhsType == ValueType.INTEGER && rhsType == ValueType.INTEGER) {
+                        unboxed(lhs, ValueType.INTEGER);
+                        unboxed(rhs, ValueType.INTEGER);
+                        block.lcmp();
+                    } else if (isUnboxedNumber(lhsType) && isUnboxedNumber(rhsType)) {
+                        unboxed(lhs, ValueType.FLOAT);
+                        unboxed(rhs, ValueType.FLOAT);
+                        // NaN has to make the comparison false
+                        if (operation == Operation.LT || operation == Operation.LE) {
+                            block.dcmpg();
+                        } else {
+                            block.dcmpl();
+                        }
+                    } else {
+                        return false;
+                    }
+                    compareToBoolean(operation);
+                    return true;
+                case EQUAL: case NOT_EQUAL: case STRICT_EQUAL: case STRICT_NOT_EQUAL:
+                    if (lhsType == ValueType.INTEGER && rhsType == ValueType.INTEGER) {
+                        unboxed(lhs, ValueType.INTEGER);
+                        unboxed(rhs, ValueType.INTEGER);
+                        block.lcmp();
+                    } else if (lhsType == ValueType.BOOLEAN && rhsType == ValueType.BOOLEAN) {
+                        unboxed(lhs, ValueType.BOOLEAN);
+                        unboxed(rhs, ValueType.BOOLEAN);
+                        block.ixor();
+                    } else {
+                        return false;
+                    }
+                    compareToBoolean(operation);
+                    return true;
+            }
+
+            return false;
         }
-        return "m_" + builder.toString() + "_" + methodCounter.getAndIncrement();
-    }
 
-    public static Boolean lt(Object a, Object b) {
-        return ((Integer) a).compareTo((Integer) b) == -1;
-    }
+        // Turn the int left by a comparison (negative, zero or positive) into 0 or 1
+        private void compareToBoolean(Operation operation) {
+            LabelNode isTrue = new LabelNode();
+            LabelNode done = new LabelNode();
+
+            switch (operation) {
+                case LT: block.iflt(isTrue); break;
+                case LE: block.ifle(isTrue); break;
+                case GT: block.ifgt(isTrue); break;
+                case GE: block.ifge(isTrue); break;
+                case EQUAL: case STRICT_EQUAL: block.ifeq(isTrue); break;
+                default: block.ifne(isTrue); break;
+            }
+            block.iconst_0();
+            block.go_to(done);
+            block.label(isTrue);
+            block.iconst_1();
+            block.label(done);
+        }
+
+        // ToInt32 of an operand as a long
+        private void int32(Operand operand) {
+            if (typeOf(operand) == ValueType.INTEGER) {
+                unboxed(operand, ValueType.INTEGER);
+                block.invokestatic(HELPERS, "toInt32", sig(long.class, long.class));
+            } else {
+                block.aload(CONTEXT);
+                operand(operand);
+                block.invokestatic(HELPERS, "toInt32", sig(long.class, ExecutionContext.class, Object.class));
+            }
+        }
+
+        // ToUint32 of an operand as a long
+        private void uint32(Operand operand) {
+            if (typeOf(operand) == ValueType.INTEGER) {
+                unboxed(operand, ValueType.INTEGER);
+                block.invokestatic(HELPERS, "toUint32", sig(long.class, long.class));
+            } else {
+                block.aload(CONTEXT);
+                operand(operand);
+                block.invokestatic(HELPERS, "toUint32", sig(long.class, ExecutionContext.class, Object.class));
+            }
+        }
+
+        private void shiftCount(Operand operand) {
+            uint32(operand);
+            block.l2i();
+            block.pushInt(0x1F);
+            block.iand();
+        }
 
-    public static Object add(Object a, Object b) {
-        return ((Integer) a) + ((Integer) b);
+        /**
+         * Push the value of an instruction with a result.
+         */
+        private void value(Instruction instr) {
+            switch (instr.getOperation()) {
+                case RECEIVE_FUNCTION_PARAM:
+                    block.aload(CONTEXT);
+                    block.pushInt(((ReceiveFunctionParameter) instr).getIndex());
+                    block.invokestatic(HELPERS, "receiveParameter", sig(Object.class, ExecutionContext.class, int.class));
+                    return;
+                case ADD: binary(instr, "add"); return;
+                case SUB: binary(instr, "sub"); return;
+                case MUL: binary(instr, "mul"); return;
+                case DIV: binary(instr, "div"); return;
+                case MOD: binary(instr, "mod"); return;
+                case LT: binary(instr, "lessThan"); return;
+                case LE: binary(instr, "lessThanOrEqual"); return;
+                case GT: binary(instr, "greaterThan"); return;
+                case GE: binary(instr, "greaterThanOrEqual"); return;
+                case SHIFT_LEFT: binary(instr, "shiftLeft"); return;
+                case SHIFT_RIGHT: binary(instr, "shiftRight"); return;
+                case UNSIGNED_SHIFT_RIGHT: binary(instr, "unsignedShiftRight"); return;
+                case BITWISE_AND: binary(instr, "bitwiseAnd"); return;
+                case BITWISE_OR: binary(instr, "bitwiseOr"); return;
+                case BITWISE_XOR: binary(instr, "bitwiseXor"); return;
+                case EQUAL: binary(instr, "equal"); return;
+                case NOT_EQUAL: binary(instr, "notEqual"); return;
+                case STRICT_EQUAL: binary(instr, "strictEqual"); return;
+                case STRICT_NOT_EQUAL: binary(instr, "strictNotEqual"); return;
+                case IN: binary(instr, "in"); return;
+                case INSTANCEOF: binary(instr, "instanceOf"); return;
+                case NEGATE: unary(instr, "negate"); return;
+                case TO_NUMBER: unary(instr, "toNumber"); return;
+                case BITWISE_NOT: unary(instr, "bitwiseNot"); return;
+                case PROPERTY_NAMES: unary(instr, "propertyNames"); return;
+                case NOT:
+                    operand(((UnaryInstr) instr).getValue());
+                    block.invokestatic(HELPERS, "not", sig(Object.class, Object.class));
+                    return;
+                case HAS_NEXT_PROPERTY:
+                    operand(((UnaryInstr) instr).getValue());
+                    block.invokestatic(HELPERS, "hasNextProperty", sig(Object.class, Object.class));
+                    return;
+                case NEXT_PROPERTY:
+                    operand(((UnaryInstr) instr).getValue());
+                    block.invokestatic(HELPERS, "nextProperty", sig(Object.class, Object.class));
+                    return;
+                case TYPEOF: {
+                    Operand operand = ((UnaryInstr) instr).getValue();
+
+                    block.aload(CONTEXT);
+                    if (operand instanceof DynamicVariable) {
+                        block.ldc(((DynamicVariable) operand).getName());
+                        block.invokestatic(HELPERS, "typeOfName", sig(Object.class, ExecutionContext.class, String.class));
+                    } else {
+                        operand(operand);
+                        block.invokestatic(HELPERS, "typeOf", sig(Object.class, ExecutionContext.class, Object.class));
+                    }
+                    return;
+                }
+                case PROPERTY_LOOKUP: {
+                    PropertyLookup lookup = (PropertyLookup) instr;
+
+                    cache(lookup.getCache());
+                    block.aload(CONTEXT);
+                    operand(lookup.getBase());
+                    block.ldc(lookup.getIdentifier());
+                    block.invokevirtual(p(PropertyCache.class), lookup.isInvariant() ? "getInvariant" : "get",
+                            sig(Object.class, ExecutionContext.class, Object.class, String.class));
+                    return;
+                }
+                case LOAD_NAME:
+                    cache(((LoadName) instr).getCache());
+                    block.aload(CONTEXT);
+                    block.ldc(((LoadName) instr).getName());
+                    block.invokevirtual(p(PropertyCache.class), "getName", sig(Object.class, ExecutionContext.class, String.class));
+                    return;
+                case ELEMENT_LOOKUP:
+                    cache(((ElementLookup) instr).getCache());
+                    block.aload(CONTEXT);
+                    operand(((ElementLookup) instr).getBase());
+                    operand(((ElementLookup) instr).getIndex());
+                    block.invokevirtual(p(PropertyCache.class), "getElement", sig(Object.class, ExecutionContext.class, Object.class, Object.class));
+                    return;
+                case DELETE_PROPERTY:
+                    block.aload(CONTEXT);
+                    operand(((DeleteProperty) instr).getBase());
+                    operand(((DeleteProperty) instr).getIndex());
+                    block.invokestatic(HELPERS, "deleteProperty", sig(Object.class, ExecutionContext.class, Object.class, Object.class));
+                    return;
+                case DELETE_NAME:
+                    block.aload(CONTEXT);
+                    block.ldc(((DeleteName) instr).getName());
+                    block.invokestatic(HELPERS, "deleteName", sig(Object.class, ExecutionContext.class, String.class));
+                    return;
+                case CALL: {
+                    Call call = (Call) instr;
+
+                    block.aload(CONTEXT);
+                    if (call.getIdentifier() instanceof DynamicVariable) {
+                        block.ldc(((DynamicVariable) call.getIdentifier()).getName());
+                        array(call.getArgs());
+                        block.invokestatic(HELPERS, "callName", sig(Object.class, ExecutionContext.class, String.class, Object[].class));
+                    } else {
+                        operand(call.getIdentifier());
+                        operand(call.getSelf());
+                        array(call.getArgs());
+                        block.invokestatic(HELPERS, "call", sig(Object.class, ExecutionContext.class, Object.class, Object.class, Object[].class));
+                    }
+                    return;
+                }
+                case CALL_METHOD: {
+                    CallMethod call = (CallMethod) instr;
+
+                    cache(call.getCache());
+                    block.aload(CONTEXT);
+                    operand(call.getBase());
+                    block.ldc(call.getIdentifier());
+                    array(call.getArgs());
+                    block.invokevirtual(p(PropertyCache.class), "call", sig(Object.class, ExecutionContext.class, Object.class, String.class, Object[].class));
+                    return;
+                }
+                case INLINE_GUARD:
+                    inlineGuard((InlineGuard) instr);
+                    block.invokestatic(p(Boolean.class), "valueOf", sig(Boolean.class, boolean.class));
+                    return;
+                case CONSTRUCTOR: {
+                    Constructor constructor = (Constructor) instr;
+
+                    block.aload(CONTEXT);
+                    if (constructor.getIdentifier() instanceof DynamicVariable) {
+                        block.ldc(((DynamicVariable) constructor.getIdentifier()).getName());
+                        array(constructor.getArgs());
+                        block.invokestatic(HELPERS, "constructName", sig(Object.class, ExecutionContext.class, String.class, Object[].class));
+                    } else {
+                        operand(constructor.getIdentifier());
+                        array(constructor.getArgs());
+                        block.invokestatic(HELPERS, "construct", sig(Object.class, ExecutionContext.class, Object.class, Object[].class));
+                    }
+                    return;
+                }
+                case DEFINE_FUNCTION: {
+                    int index = scope.getChildren().indexOf(((DefineFunction) instr).getScope());
+
+                    if (index == -1) throw new IllegalStateException("function is not a child of its scope");
+
+                    block.aload(CONTEXT);
+                    block.aload(SCOPE);
+                    block.invokevirtual(p(Scope.class), "getChildren", sig(List.class));
+                    block.pushInt(index);
+                    block.invokeinterface(p(List.class), "get", sig(Object.class, int.class));
+                    block.checkcast(p(FunctionScope.class));
+                    block.invokestatic(HELPERS, "defineFunction", sig(Object.class, ExecutionContext.class, FunctionScope.class));
+                    return;
+                }
+                case ARRAY_LITERAL:
+                    block.aload(CONTEXT);
+                    array(((ArrayLiteral) instr).getElements());
+                    block.invokestatic(HELPERS, "newArray", sig(Object.class, ExecutionContext.class, Object[].class));
+                    return;
+                case REGEXP_LITERAL:
+                    block.aload(CONTEXT);
+                    block.ldc(((RegExpLiteral) instr).getPattern());
+                    string(((RegExpLiteral) instr).getFlags());
+                    block.invokestatic(HELPERS, "newRegExp", sig(Object.class, ExecutionContext.class, String.class, String.class));
+                    return;
+                case RECEIVE_EXCEPTION:
+                    block.aload(EXCEPTION);
+                    return;
+                case RECEIVE_JS_EXCEPTION:
+                    block.aload(EXCEPTION);
+                    block.invokestatic(HELPERS, "exceptionValue", sig(Object.class, Object.class));
+                    return;
+                case SAVE_ENVIRONMENT:
+                    block.aload(CONTEXT);
+                    block.invokestatic(HELPERS, "saveEnvironment", sig(Object.class, ExecutionContext.class));
+                    return;
+            }
+
+            throw new IllegalStateException("Unhandled instruction: " + instr);
+        }
+
+        private void binary(Instruction instr, String helper) {
+            block.aload(CONTEXT);
+            operand(((BinaryInstr) instr).getLHS());
+            operand(((BinaryInstr) instr).getRHS());
+            block.invokestatic(HELPERS, helper, sig(Object.class, ExecutionContext.class, Object.class, Object.class));
+        }
+
+        private void unary(Instruction instr, String helper) {
+            block.aload(CONTEXT);
+            operand(((UnaryInstr) instr).getValue());
+            block.invokestatic(HELPERS, helper, sig(Object.class, ExecutionContext.class, Object.class));
+        }
+
+        private void emitObjectLiteral(ObjectLiteral literal) {
+            Variable result = literal.getResult();
+            String[] names = literal.getNames();
+            Operand[] values = literal.getValues();
+            int[] kinds = literal.getKinds();
+
+            beginStore(result);
+            block.aload(CONTEXT);
+            block.invokestatic(HELPERS, "newObject", sig(Object.class, ExecutionContext.class));
+            endStore(result);
+
+            for (int i = 0; i < names.length; i++) {
+                block.aload(CONTEXT);
+                operand(result);
+                block.ldc(names[i]);
+                operand(values[i]);
+                block.pushInt(kinds[i]);
+                block.invokestatic(HELPERS, "defineLiteralProperty", sig(void.class, ExecutionContext.class, Object.class, String.class, Object.class, int.class));
+            }
+        }
+
+        private void cache(PropertyCache cache) {
+            block.aload(CACHES);
+            block.pushInt(caches.size());
+            block.aaload();
+            caches.add(cache);
+        }
+
+        private void inlineGuard(InlineGuard guard) {
+            operand(guard.getFunction());
+            operand(guard.getSelf());
+            block.aload(SCOPE);
+            block.invokevirtual(p(Scope.class), "getInlinedScopes", sig(FunctionScope[].class));
+            block.pushInt(inlined.size());
+            block.aaload();
+            inlined.add(guard.getScope());
+            if (guard.isObjectSelf()) {
+                block.iconst_1();
+            } else {
+                block.iconst_0();
+            }
+            block.invokestatic(HELPERS, "isInlined", sig(boolean.class, Object.class, Object.class, FunctionScope.class, boolean.class));
+        }
+
+        // Elements which are null (array holes) stay null
+        private void array(Operand[] operands) {
+            block.pushInt(operands.length);
+            block.anewarray(p(Object.class));
+            for (int i = 0; i < operands.length; i++) {
+                if (operands[i] == null) continue;
+
+                block.dup();
+                block.pushInt(i);
+                operand(operands[i]);
+                block.aastore();
+            }
+        }
+
+        private void string(String value) {
+            if (value == null) {
+                block.aconst_null();
+            } else {
+                block.ldc(value);
+            }
+        }
+
+        private void operand(Operand operand) {
+            switch (operand.getType()) {
+                case TEMP_VAR: {
+                    int offset = ((TemporaryVariable) operand).getOffset();
+
+                    switch (scope.getTemporaryType(offset)) {
+                        case INTEGER:
+                            block.lload(temps[offset]);
+                            block.invokestatic(p(Long.class), "valueOf", sig(Long.class, long.class));
+                            return;
+                        case FLOAT:
+                            block.dload(temps[offset]);
+                            block.invokestatic(p(Double.class), "valueOf", sig(Double.class, double.class));
+                            return;
+                        case BOOLEAN:
+                            block.iload(temps[offset]);
+                            block.invokestatic(p(Boolean.class), "valueOf", sig(Boolean.class, boolean.class));
+                            return;
+                    }
+                    block.aload(temps[offset]);
+                    return;
+                }
+                case LOCAL_VAR:
+                    block.aload(VARS);
+                    block.pushInt(((LocalVariable) operand).getOffset());
+                    block.pushInt(((LocalVariable) operand).getDepth());
+                    block.invokevirtual(p(VariableValues.class), "getVar", sig(Object.class, int.class, int.class));
+                    return;
+                case DYNAMIC_VAR:
+                    block.aload(CONTEXT);
+                    block.ldc(((DynamicVariable) operand).getName());
+                    block.invokestatic(HELPERS, "getName", sig(Object.class, ExecutionContext.class, String.class));
+                    return;
+                case INTEGER:
+                    block.ldc(((IntegerNumber) operand).getValue());
+                    block.invokestatic(p(Long.class), "valueOf", sig(Long.class, long.class));
+                    return;
+                case FLOAT:
+                    block.ldc(((FloatNumber) operand).getValue());
+                    block.invokestatic(p(Double.class), "valueOf", sig(Double.class, double.class));
+                    return;
+                case STRING:
+                    block.ldc(((StringLiteral) operand).retrieve(null, null));
+                    return;
+                case BOOLEAN:
+                    block.getstatic(p(Boolean.class), operand == BooleanLiteral.TRUE ? "TRUE" : "FALSE", ci(Boolean.class));
+                    return;
+                case NULL:
+                    block.getstatic(p(Types.class), "NULL", ci(Types.Null.class));
+                    return;
+                case UNDEFINED:
+                    block.getstatic(p(Types.class), "UNDEFINED", ci(Types.Undefined.class));
+                    return;
+                case THIS:
+                    block.aload(CONTEXT);
+                    block.invokevirtual(p(ExecutionContext.class), "getThisBinding", sig(Object.class));
+                    return;
+            }
+
+            throw new IllegalStateException("Unhandled operand: " + operand);
+        }
+
+        private ValueType typeOf(Operand operand) {
+            if (operand instanceof TemporaryVariable) return scope.getTemporaryType(((TemporaryVariable) operand).getOffset());
+
+            return TypeInference.literalType(operand);
+        }
+
+        private boolean isUnboxed(ValueType type) {
+            return type == ValueType.INTEGER || type == ValueType.FLOAT || type == ValueType.BOOLEAN;
+        }
+
+        private boolean isUnboxedNumber(ValueType type) {
+            return type == ValueType.INTEGER || type == ValueType.FLOAT;
+        }
+
+        /**
+         * Push an operand known to be of type as a long, double or int (boolean).
+         * An INTEGER operand can be pushed as a double.
+         */
+        private void unboxed(Operand operand, ValueType type) {
+            ValueType actual = typeOf(operand);
+
+            if (type == ValueType.FLOAT && actual == ValueType.INTEGER) {
+                unboxed(operand, ValueType.INTEGER);
+                block.l2d();
+                return;
+            }
+
+            if (operand instanceof TemporaryVariable) {
+                int local = temps[((TemporaryVariable) operand).getOffset()];
+
+                switch (type) {
+                    case INTEGER: block.lload(local); return;
+                    case FLOAT: block.dload(local); return;
+                    case BOOLEAN: block.iload(local); return;
+                }
+            } else if (operand instanceof IntegerNumber) {
+                block.ldc(((IntegerNumber) operand).getValue());
+                return;
+            } else if (operand instanceof FloatNumber) {
+                block.ldc(((FloatNumber) operand).getValue());
+                return;
+            } else if (operand instanceof BooleanLiteral) {
+                block.pushInt(operand == BooleanLiteral.TRUE ? 1 : 0);
+                return;
+            }
+
+            throw new IllegalStateException("Not unboxed: " + operand);
+        }
+
+        // Unbox the value on top of the stack which is known to be of type
+        private void unbox(ValueType type) {
+            switch (type) {
+                case INTEGER:
+                    block.checkcast(p(Long.class));
+                    block.invokevirtual(p(Long.class), "longValue", sig(long.class));
+                    return;
+                case FLOAT:
+                    block.checkcast(p(Double.class));
+                    block.invokevirtual(p(Double.class), "doubleValue", sig(double.class));
+                    return;
+                case BOOLEAN:
+                    block.checkcast(p(Boolean.class));
+                    block.invokevirtual(p(Boolean.class), "booleanValue", sig(boolean.class));
+                    return;
+            }
+        }
+
+        // Stores take what the value is pushed on top of first
+        private void beginStore(Variable result) {
+            switch (result.getType()) {
+                case LOCAL_VAR:
+                    block.aload(VARS);
+                    block.pushInt(((LocalVariable) result).getOffset());
+                    block.pushInt(((LocalVariable) result).getDepth());
+                    return;
+                case DYNAMIC_VAR:
+                    block.aload(CONTEXT);
+                    block.ldc(result.getName());
+                    return;
+            }
+        }
+
+        private void endStore(Variable result) {
+            switch (result.getType()) {
+                case TEMP_VAR: {
+                    int offset = ((TemporaryVariable) result).getOffset();
+
+                    switch (scope.getTemporaryType(offset)) {
+                        case INTEGER: block.lstore(temps[offset]); return;
+                        case FLOAT: block.dstore(temps[offset]); return;
+                        case BOOLEAN: block.istore(temps[offset]); return;
+                    }
+                    block.astore(temps[offset]);
+                    return;
+                }
+                case LOCAL_VAR:
+                    block.invokevirtual(p(VariableValues.class), "setVar", sig(void.class, int.class, int.class, Object.class));
+                    return;
+                case DYNAMIC_VAR:
+                    block.invokestatic(HELPERS, "setName", sig(void.class, ExecutionContext.class, String.class, Object.class));
+                    return;
+            }
+
+            throw new IllegalStateException("Unhandled result: " + result);
+        }
     }
 }
@@ -1,106 +1,79 @@
 package org.dynjs.ir;
 
 import java.util.List;
-import org.dynjs.exception.ThrowException;
+import org.dynjs.ir.operands.LocalVariable;
 import org.dynjs.parser.ast.FunctionDeclaration;
 import org.dynjs.parser.ast.VariableDeclaration;
+import org.dynjs.runtime.AbstractFunction;
+import org.dynjs.runtime.DeclarativeEnvironmentRecord;
 import org.dynjs.runtime.DynObject;
 import org.dynjs.runtime.ExecutionContext;
 import org.dynjs.runtime.GlobalObject;
-import org.dynjs.runtime.JSFunction;
-import org.dynjs.runtime.JSObject;
 import org.dynjs.runtime.LexicalEnvironment;
+import org.dynjs.runtime.PropertyDescriptor;
 import org.dynjs.runtime.Types;
 import org.dynjs.runtime.VariableValues;
 
-public class IRJSFunction extends DynObject implements JSFunction {
+public class IRJSFunction extends AbstractFunction {
     private final FunctionScope scope;
-    private Instruction[] instructions;
-    private final LexicalEnvironment lexicalEnvironment;
-    private String debugContext = "";
     // Lexically-captured values of this function
     private VariableValues capturedValues;
 
     public IRJSFunction(FunctionScope scope, VariableValues capturedValues, LexicalEnvironment lexicalEnvironment,
                         GlobalObject globalObject) {
-        super(globalObject);
+        super(globalObject, lexicalEnvironment, scope.isStrict(), scope.getParameterNames());
         this.scope = scope;
-        this.instructions = scope.prepareForInterpret(); // FIXME This is a big up front cost...make lazy
-        this.lexicalEnvironment = lexicalEnvironment;
         this.capturedValues = capturedValues;
-    }
-
-    public String[] getFormalParameters() {
-        return scope.getParameterNames();
-    }
 
-    public LexicalEnvironment getScope() {
-        return lexicalEnvironment;
-    }
+        String identifier = scope.getName() != null ? scope.getName() : scope.getSelfName();
+        final DynObject proto = new DynObject(globalObject);
 
-    @Override
-    public String getFileName() {
-        return scope.getFileName();
-    }
+        proto.defineOwnProperty(null, "constructor",
+                PropertyDescriptor.newDataPropertyDescriptor(this, true, true, false), false);
+        defineOwnProperty(null, "prototype",
+                PropertyDescriptor.newDataPropertyDescriptor(proto, true, false, false), false);
+        defineOwnProperty(null, "name",
+                PropertyDescriptor.newDataPropertyDescriptor(identifier, true, true, false), false);
 
-    // FIXME: Not sure but constructor is likely a different beast than IRJSFunction
-    public boolean isConstructor() {
-        return false;
+        setDebugContext(identifier != null ? identifier : "");
     }
 
-    public String getDebugContext() {
-        return debugContext;
+    public FunctionScope getFunctionScope() {
+        return scope;
     }
 
-    public void setDebugContext(String debugContext) {
-        this.debugContext = debugContext;
+    /**
+     * Does the execution context of a call need its declarations bound in the
+     * environment the way an ordinary function's are?
+     */
+    public boolean needsDeclarationBindings() {
+        return scope.usesEnvironment();
     }
 
-    public JSObject createNewObject(ExecutionContext context) {
-        return new DynObject(context.getGlobalObject());
-    }
-
-    // FIXME: Stolen from AbstractionFunction (could be refactored out unless we can somehow have whatever calls this
-    // replaced by IR (I have no idea)
-    public boolean hasInstance(ExecutionContext context, Object v) {
-        if (!(v instanceof JSObject)) {
-            return false;
-        }
-
-        Object o = get(null, "prototype");
-        if (!(o instanceof JSObject)) {
-
-            throw new ThrowException(context, context.createTypeError("prototype must be an object"));
-        }
-
-        JSObject proto = (JSObject) o;
-
-        if (proto == null || v == Types.UNDEFINED) {
-            return false;
-        }
-
-        while (true) {
-            v = ((JSObject) v).getPrototype();
-            if (v == null || v == Types.UNDEFINED) {
-                return false;
-            }
-            if (v == proto) {
-                return true;
-            }
-        }
+    @Override
+    public String getFileName() {
+        return scope.getFileName();
     }
 
     @Override
     public Object call(ExecutionContext context) {
         // Allocate space for variables of this function and establish link to captured ones.
-        context.allocVars(scope.getLocalVariableSize(), capturedValues);
-
-        return Interpreter.execute(context, scope, instructions);
-    }
+        VariableValues vars = context.allocVars(scope.getLocalVariableSize(), capturedValues);
+        vars.fill(Types.UNDEFINED);
+
+        LocalVariable self = scope.getSelfVariable();
+        if (self != null) {
+            vars.setVar(self.getOffset(), 0, this);
+        } else if (scope.getSelfName() != null && scope.usesEnvironment()) {
+            DeclarativeEnvironmentRecord env = (DeclarativeEnvironmentRecord) context.getVariableEnvironment().getRecord();
+
+            if (!env.hasBinding(context, scope.getSelfName())) {
+                env.createImmutableBinding(scope.getSelfName());
+                env.initializeImmutableBinding(scope.getSelfName(), this);
+            }
+        }
 
-    @Override
-    public boolean isStrict() {
-        return scope.isStrict();
+        return scope.execute(context);
     }
 
     // FIXME: Remove or replace once we learn how IR should handle these
@@ -109,9 +82,8 @@ public class IRJSFunction extends DynObject implements JSFunction {
         return FunctionDeclaration.EMPTY_LIST;
     }
 
-    // FIXME: Remove or replace once we learn how IR should handle these
     @Override
     public List<VariableDeclaration> getVariableDeclarations() {
-        return VariableDeclaration.EMPTY_LIST;
+        return scope.getVariableDeclarations();
     }
 }
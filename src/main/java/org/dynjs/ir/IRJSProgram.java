@@ -16,51 +16,36 @@
 package org.dynjs.ir;
 
 import java.util.List;
-import org.dynjs.exception.ThrowException;
-import org.dynjs.ir.instructions.Add;
-import org.dynjs.ir.instructions.BEQ;
-import org.dynjs.ir.instructions.Call;
-import org.dynjs.ir.instructions.Copy;
-import org.dynjs.ir.instructions.Jump;
-import org.dynjs.ir.instructions.LE;
-import org.dynjs.ir.instructions.LT;
-import org.dynjs.ir.instructions.ResultInstruction;
-import org.dynjs.ir.instructions.Return;
-import org.dynjs.ir.operands.LocalVariable;
-import org.dynjs.ir.operands.OffsetVariable;
-import org.dynjs.ir.operands.Variable;
 import org.dynjs.parser.ast.FunctionDeclaration;
 import org.dynjs.parser.ast.VariableDeclaration;
 import org.dynjs.runtime.Completion;
-import org.dynjs.runtime.DynObject;
-import org.dynjs.runtime.EnvironmentRecord;
 import org.dynjs.runtime.ExecutionContext;
-import org.dynjs.runtime.JSFunction;
 import org.dynjs.runtime.JSProgram;
-import org.dynjs.runtime.Reference;
-import org.dynjs.runtime.Types;
-import org.jruby.dirgra.DirectedGraph;
+import org.dynjs.runtime.LexicalEnvironment;
 
 public class IRJSProgram implements JSProgram {
     private Scope scope;
-    private Instruction[] instructions;
 
     public IRJSProgram(Scope scope) {
         this.scope = scope;
-        this.instructions = scope.prepareForInterpret();
+    }
 
-        System.out.println("PROGRAM:");
-        int size = instructions.length;
-        for (int i = 0; i < size; i++) {
-            System.out.println("" + instructions[i]);
-        }
+    public Scope getScope() {
+        return scope;
     }
+
     @Override
     public Completion execute(ExecutionContext context) {
         // Allocate space for variables of this function and establish link to captured ones.
         context.allocVars(scope.getLocalVariableSize(), null);
 
-        return Completion.createNormal(Interpreter.execute(context, scope, instructions));
+        // An exception leaving a with statement must not leave its environment behind
+        LexicalEnvironment environment = context.getLexicalEnvironment();
+        try {
+            return Completion.createNormal(scope.execute(context));
+        } finally {
+            context.setLexicalEnvironment(environment);
+        }
     }
 
     @Override
@@ -73,15 +58,14 @@ public class IRJSProgram implements JSProgram {
         return scope.isStrict();
     }
 
-    // FIXME: Remove or replace once we learn how IR should handle these
+    // Function declarations are defined by the program itself once bound as variables
     @Override
     public List<FunctionDeclaration> getFunctionDeclarations() {
         return FunctionDeclaration.EMPTY_LIST;
     }
 
-    // FIXME: Remove or replace once we learn how IR should handle these
     @Override
     public List<VariableDeclaration> getVariableDeclarations() {
-        return VariableDeclaration.EMPTY_LIST;
+        return scope.getVariableDeclarations();
     }
 }
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.dynjs.ir.instructions.Add;
+import org.dynjs.ir.instructions.ArrayLiteral;
+import org.dynjs.ir.instructions.BEQ;
+import org.dynjs.ir.instructions.BFalse;
+import org.dynjs.ir.instructions.BTrue;
+import org.dynjs.ir.instructions.BitwiseAnd;
+import org.dynjs.ir.instructions.BitwiseNot;
+import org.dynjs.ir.instructions.BitwiseOr;
+import org.dynjs.ir.instructions.BitwiseXor;
+import org.dynjs.ir.instructions.Call;
+import org.dynjs.ir.instructions.CallMethod;
+import org.dynjs.ir.instructions.Constructor;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.instructions.DefineFunction;
+import org.dynjs.ir.instructions.DeleteName;
+import org.dynjs.ir.instructions.DeleteProperty;
+import org.dynjs.ir.instructions.Div;
+import org.dynjs.ir.instructions.ElementAssign;
+import org.dynjs.ir.instructions.ElementLookup;
+import org.dynjs.ir.instructions.EnterCatch;
+import org.dynjs.ir.instructions.EnterWith;
+import org.dynjs.ir.instructions.Equal;
+import org.dynjs.ir.instructions.ExceptionRegionEndMarker;
+import org.dynjs.ir.instructions.ExceptionRegionStartMarker;
+import org.dynjs.ir.instructions.GE;
+import org.dynjs.ir.instructions.GT;
+import org.dynjs.ir.instructions.HasNextProperty;
+import org.dynjs.ir.instructions.In;
+import org.dynjs.ir.instructions.Instanceof;
+import org.dynjs.ir.instructions.Jump;
+import org.dynjs.ir.instructions.LE;
+import org.dynjs.ir.instructions.LT;
+import org.dynjs.ir.instructions.LabelInstr;
+import org.dynjs.ir.instructions.LoadName;
+import org.dynjs.ir.instructions.Mod;
+import org.dynjs.ir.instructions.Mul;
+import org.dynjs.ir.instructions.Negate;
+import org.dynjs.ir.instructions.NextProperty;
+import org.dynjs.ir.instructions.Not;
+import org.dynjs.ir.instructions.NotEqual;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.ir.instructions.PropertyAssign;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.instructions.PropertyNames;
+import org.dynjs.ir.instructions.Raise;
+import org.dynjs.ir.instructions.ReceiveException;
+import org.dynjs.ir.instructions.ReceiveFunctionParameter;
+import org.dynjs.ir.instructions.ReceiveJSException;
+import org.dynjs.ir.instructions.RegExpLiteral;
+import org.dynjs.ir.instructions.RestoreEnvironment;
+import org.dynjs.ir.instructions.Return;
+import org.dynjs.ir.instructions.SaveEnvironment;
+import org.dynjs.ir.instructions.ShiftLeft;
+import org.dynjs.ir.instructions.ShiftRight;
+import org.dynjs.ir.instructions.StrictEqual;
+import org.dynjs.ir.instructions.StrictNotEqual;
+import org.dynjs.ir.instructions.Sub;
+import org.dynjs.ir.instructions.Switch;
+import org.dynjs.ir.instructions.ThrowException;
+import org.dynjs.ir.instructions.ToNumber;
+import org.dynjs.ir.instructions.TypeOf;
+import org.dynjs.ir.instructions.UnsignedShiftRight;
+import org.dynjs.ir.operands.BooleanLiteral;
+import org.dynjs.ir.operands.DynamicVariable;
+import org.dynjs.ir.operands.FloatNumber;
+import org.dynjs.ir.operands.IntegerNumber;
+import org.dynjs.ir.operands.Label;
+import org.dynjs.ir.operands.LocalVariable;
+import org.dynjs.ir.operands.Null;
+import org.dynjs.ir.operands.StringLiteral;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.This;
+import org.dynjs.ir.operands.Undefined;
+import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.passes.PassManager;
+import org.dynjs.runtime.SwitchTable;
+
+/**
+ * Reads back a scope IRWriter wrote, ready to run as though Builder had just
+ * built it.
+ *
+ * Labels and local variables are the same instance wherever the same one is
+ * read within a scope, as Builder makes them.  A stream of another version is
+ * an IOException.
+ */
+public class IRReader {
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final OperandType[] OPERAND_TYPES = OperandType.values();
+
+    private final byte[] data;
+    private int position;
+    private final List<String> strings = new ArrayList<>();
+    private Map<String, Label> labels;
+    private Map<String, LocalVariable> variables;
+
+    public IRReader(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Program scope read with passManager used for it and every function in it.
+     */
+    public Scope read(PassManager passManager) throws IOException {
+        if (readInt() != IRWriter.MAGIC || readInt() != IRWriter.VERSION) {
+            throw new IOException("Not serialized IR of version " + IRWriter.VERSION);
+        }
+
+        Scope scope = new Scope(null, readString(), readBoolean());
+        scope.setPassManager(passManager);
+        readScope(scope);
+
+        return scope;
+    }
+
+    private void readScope(Scope scope) throws IOException {
+        scope.setUsesEnvironment(readBoolean());
+        scope.setDynamic(readBoolean());
+        scope.setTemporaryVariableSize(readCount());
+        int localVariableSize = readCount();
+
+        for (int count = readCount(); count > 0; count--) {
+            scope.declareVariable(readString());
+        }
+        scope.setLocalVariableSize(localVariableSize);
+
+        for (int count = readCount(); count > 0; count--) {
+            scope.getPrefixCounts().put(readString(), readCount());
+        }
+
+        for (int count = readCount(); count > 0; count--) {
+            String name = readString();
+            String[] parameterNames = readStrings();
+            String selfName = readString();
+            variables = null;
+            LocalVariable selfVariable = (LocalVariable) readOperand();
+            FunctionScope child = new FunctionScope(scope, readString(), readBoolean(), parameterNames, name);
+
+            child.setSelf(selfName, selfVariable);
+            scope.addChild(child);
+            readScope(child);
+        }
+
+        labels = new HashMap<>();
+        variables = new HashMap<>();
+        if (scope instanceof FunctionScope && ((FunctionScope) scope).getSelfVariable() != null) {
+            LocalVariable self = ((FunctionScope) scope).getSelfVariable();
+
+            variables.put(key(self.getName(), self.getOffset(), self.getDepth()), self);
+        }
+        for (int count = readCount(); count > 0; count--) {
+            scope.addInstruction(readInstruction(scope));
+        }
+    }
+
+    private Instruction readInstruction(Scope scope) throws IOException {
+        int ordinal = readCount();
+        if (ordinal >= OPERATIONS.length) throw new IOException("Unknown operation " + ordinal);
+
+        Operation operation = OPERATIONS[ordinal];
+        switch (operation) {
+            case ADD: return new Add(readVariable(), readOperand(), readOperand());
+            case SUB: return new Sub(readVariable(), readOperand(), readOperand());
+            case MUL: return new Mul(readVariable(), readOperand(), readOperand());
+            case DIV: return new Div(readVariable(), readOperand(), readOperand());
+            case MOD: return new Mod(readVariable(), readOperand(), readOperand());
+            case LT: return new LT(readVariable(), readOperand(), readOperand());
+            case LE: return new LE(readVariable(), readOperand(), readOperand());
+            case GT: return new GT(readVariable(), readOperand(), readOperand());
+            case GE: return new GE(readVariable(), readOperand(), readOperand());
+            case SHIFT_LEFT: return new ShiftLeft(readVariable(), readOperand(), readOperand());
+            case SHIFT_RIGHT: return new ShiftRight(readVariable(), readOperand(), readOperand());
+            case UNSIGNED_SHIFT_RIGHT: return new UnsignedShiftRight(readVariable(), readOperand(), readOperand());
+            case BITWISE_AND: return new BitwiseAnd(readVariable(), readOperand(), readOperand());
+            case BITWISE_OR: return new BitwiseOr(readVariable(), readOperand(), readOperand());
+            case BITWISE_XOR: return new BitwiseXor(readVariable(), readOperand(), readOperand());
+            case EQUAL: return new Equal(readVariable(), readOperand(), readOperand());
+            case NOT_EQUAL: return new NotEqual(readVariable(), readOperand(), readOperand());
+            case STRICT_EQUAL: return new StrictEqual(readVariable(), readOperand(), readOperand());
+            case STRICT_NOT_EQUAL: return new StrictNotEqual(readVariable(), readOperand(), readOperand());
+            case INSTANCEOF: return new Instanceof(readVariable(), readOperand(), readOperand());
+            case IN: return new In(readVariable(), readOperand(), readOperand());
+            case BITWISE_NOT: return new BitwiseNot(readVariable(), readOperand());
+            case NOT: return new Not(readVariable(), readOperand());
+            case NEGATE: return new Negate(readVariable(), readOperand());
+            case TO_NUMBER: return new ToNumber(readVariable(), readOperand());
+            case TYPEOF: return new TypeOf(readVariable(), readOperand());
+            case PROPERTY_NAMES: return new PropertyNames(readVariable(), readOperand());
+            case HAS_NEXT_PROPERTY: return new HasNextProperty(readVariable(), readOperand());
+            case NEXT_PROPERTY: return new NextProperty(readVariable(), readOperand());
+            case BEQ: return new BEQ(readOperand(), readOperand(), (Label) readOperand());
+            case B_TRUE: return new BTrue(readOperand(), (Label) readOperand());
+            case B_FALSE: return new BFalse(readOperand(), (Label) readOperand());
+            case JUMP: return new Jump((Label) readOperand());
+            case SWITCH: {
+                Operand value = readOperand();
+                Map<Object, Integer> indexes = new LinkedHashMap<>();
+                int size = readCount();
+
+                for (int i = 0; i < size; i++) {
+                    Operand key = readOperand();
+
+                    indexes.put(key instanceof IntegerNumber ? (Object) ((IntegerNumber) key).getValue() : ((StringLiteral) key).getValue(),
+                            readCount());
+                }
+
+                Operand[] targets = readOperands();
+                return new Switch(value, new SwitchTable(indexes), Arrays.copyOf(targets, targets.length, Label[].class),
+                        (Label) readOperand());
+            }
+            case LABEL: return new LabelInstr((Label) readOperand());
+            case EXCEPTION_REGION_START: return new ExceptionRegionStartMarker((Label) readOperand());
+            case EXCEPTION_REGION_END: return new ExceptionRegionEndMarker();
+            case RECEIVE_EXCEPTION: return new ReceiveException(readVariable());
+            case RECEIVE_JS_EXCEPTION: return new ReceiveJSException(readVariable());
+            case SAVE_ENVIRONMENT: return new SaveEnvironment(readVariable());
+            case COPY: return new Copy(readVariable(), readOperand());
+            case RETURN: return new Return(readOperand());
+            case THROW_EXCEPTION: return new ThrowException(readOperand());
+            case RAISE: return new Raise(readString(), readString());
+            case CALL: return new Call(readVariable(), readOperand(), readOperand(), readOperands());
+            case CALL_METHOD: return new CallMethod(readVariable(), readOperand(), readString(), readOperands());
+            case CONSTRUCTOR: return new Constructor(readVariable(), readOperand(), readOperands());
+            case DEFINE_FUNCTION: return new DefineFunction(readVariable(), scope.getChildren().get(readCount()));
+            case RECEIVE_FUNCTION_PARAM: return new ReceiveFunctionParameter(readVariable(), readCount());
+            case PROPERTY_LOOKUP: return new PropertyLookup(readVariable(), readOperand(), readString());
+            case PROPERTY_ASSIGN: return new PropertyAssign(readOperand(), readString(), readOperand());
+            case ELEMENT_LOOKUP: return new ElementLookup(readVariable(), readOperand(), readOperand());
+            case ELEMENT_ASSIGN: return new ElementAssign(readOperand(), readOperand(), readOperand());
+            case DELETE_PROPERTY: return new DeleteProperty(readVariable(), readOperand(), readOperand());
+            case DELETE_NAME: return new DeleteName(readVariable(), readString());
+            case LOAD_NAME: return new LoadName(readVariable(), readString());
+            case ARRAY_LITERAL: return new ArrayLiteral(readVariable(), readOperands());
+            case OBJECT_LITERAL: {
+                Variable result = readVariable();
+                String[] names = readStrings();
+                Operand[] values = readOperands();
+                int[] kinds = new int[names.length];
+
+                for (int i = 0; i < kinds.length; i++) {
+                    kinds[i] = readCount();
+                }
+
+                return new ObjectLiteral(result, names, values, kinds);
+            }
+            case REGEXP_LITERAL: return new RegExpLiteral(readVariable(), readString(), readString());
+            case RESTORE_ENVIRONMENT: return new RestoreEnvironment(readOperand());
+            case ENTER_WITH: return new EnterWith(readOperand());
+            case ENTER_CATCH: return new EnterCatch(readString(), readOperand());
+        }
+
+        throw new IOException("Cannot read " + operation);
+    }
+
+    private Variable readVariable() throws IOException {
+        return (Variable) readOperand();
+    }
+
+    private Operand[] readOperands() throws IOException {
+        Operand[] operands = new Operand[readCount()];
+
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = readOperand();
+        }
+
+        return operands;
+    }
+
+    private Operand readOperand() throws IOException {
+        byte ordinal = readByte();
+        if (ordinal == -1) return null;
+        if (ordinal < 0 || ordinal >= OPERAND_TYPES.length) throw new IOException("Unknown operand " + ordinal);
+
+        switch (OPERAND_TYPES[ordinal]) {
+            case NULL: return Null.NULL;
+            case THIS: return This.THIS;
+            case UNDEFINED: return Undefined.UNDEFINED;
+            case BOOLEAN: return readBoolean() ? BooleanLiteral.TRUE : BooleanLiteral.FALSE;
+            case INTEGER: return new IntegerNumber(readLong());
+            case FLOAT: return new FloatNumber(Double.longBitsToDouble(readLong()));
+            case STRING: return new StringLiteral(readString());
+            case TEMP_VAR: return new TemporaryVariable(readCount());
+            case LOCAL_VAR: {
+                String name = readString();
+                int offset = readCount();
+                int depth = readCount();
+                String key = key(name, offset, depth);
+                LocalVariable variable = variables == null ? null : variables.get(key);
+
+                if (variable == null) {
+                    variable = new LocalVariable(name, offset, depth);
+                    if (variables != null) variables.put(key, variable);
+                }
+
+                return variable;
+            }
+            case DYNAMIC_VAR: return new DynamicVariable(readString());
+            case LABEL: {
+                String prefix = readString();
+                int id = readCount();
+                String key = prefix + "_" + id;
+                Label label = labels.get(key);
+
+                if (label == null) {
+                    label = key.equals(Label.UNRESCUED_REGION_LABEL.toString()) ?
+                            Label.UNRESCUED_REGION_LABEL : new Label(prefix, id);
+                    labels.put(key, label);
+                }
+
+                return label;
+            }
+        }
+
+        throw new IOException("Cannot read " + OPERAND_TYPES[ordinal]);
+    }
+
+    private static String key(String name, int offset, int depth) {
+        return name + "/" + offset + "/" + depth;
+    }
+
+    private String[] readStrings() throws IOException {
+        String[] values = new String[readCount()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString();
+        }
+
+        return values;
+    }
+
+    private String readString() throws IOException {
+        int index = readCount();
+
+        if (index == 0) return null;
+        if (index > 1) {
+            if (index - 2 >= strings.size()) throw new IOException("Unknown string " + (index - 2));
+
+            return strings.get(index - 2);
+        }
+
+        char[] chars = new char[readCount()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) readCount();
+        }
+
+        String value = new String(chars);
+        strings.add(value);
+
+        return value;
+    }
+
+    private byte readByte() throws IOException {
+        if (position == data.length) throw new EOFException();
+
+        return data[position++];
+    }
+
+    private boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    private int readInt() throws IOException {
+        return (readByte() & 0xff) << 24 | (readByte() & 0xff) << 16 | (readByte() & 0xff) << 8 | readByte() & 0xff;
+    }
+
+    private long readLong() throws IOException {
+        return (long) readInt() << 32 | readInt() & 0xffffffffL;
+    }
+
+    private int readCount() throws IOException {
+        int value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte();
+
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
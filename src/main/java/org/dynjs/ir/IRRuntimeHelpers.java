@@ -0,0 +1,637 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.util.Collections;
+import java.util.Iterator;
+import org.dynjs.exception.ThrowException;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.ir.instructions.RegExpLiteral;
+import org.dynjs.runtime.DynArray;
+import org.dynjs.runtime.DynObject;
+import org.dynjs.runtime.EnvironmentRecord;
+import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.JSFunction;
+import org.dynjs.runtime.JSObject;
+import org.dynjs.runtime.LexicalEnvironment;
+import org.dynjs.runtime.PropertyDescriptor;
+import org.dynjs.runtime.Reference;
+import org.dynjs.runtime.Types;
+import org.dynjs.runtime.builtins.types.BuiltinArray;
+import org.dynjs.runtime.builtins.types.BuiltinNumber;
+import org.dynjs.runtime.builtins.types.BuiltinObject;
+import org.dynjs.runtime.builtins.types.BuiltinRegExp;
+import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
+import org.joni.Regex;
+
+/**
+ * Semantics of IR instructions.  The Interpreter and code generated by the
+ * IRByteCodeCompiler both call these so the two modes cannot drift apart.  They
+ * mirror what BasicInterpretingVisitor does for the same AST nodes, with all
+ * references already resolved by the Builder.
+ */
+public class IRRuntimeHelpers {
+
+    // ----------------------------------------------------------------------
+    // Arithmetic
+    // ----------------------------------------------------------------------
+
+    public static Object add(ExecutionContext context, Object lhs, Object rhs) {
+        if (lhs instanceof Long && rhs instanceof Long) {
+            return (Long) lhs + (Long) rhs;
+        }
+
+        lhs = Types.toPrimitive(context, lhs);
+        rhs = Types.toPrimitive(context, rhs);
+
+        if (Types.isString(lhs) || Types.isString(rhs)) {
+            return Types.concat(context, lhs, rhs);
+        }
+
+        Number lhsNum = Types.toNumber(context, lhs);
+        Number rhsNum = Types.toNumber(context, rhs);
+
+        if (Double.isNaN(lhsNum.doubleValue()) || Double.isNaN(rhsNum.doubleValue())) {
+            return Double.NaN;
+        }
+
+        if (lhsNum instanceof Double || rhsNum instanceof Double) {
+            if (lhsNum.doubleValue() == 0.0 && rhsNum.doubleValue() == 0.0) {
+                if (isNegative(lhsNum) && isNegative(rhsNum)) {
+                    return -0.0;
+                }
+                return 0.0;
+            }
+            return lhsNum.doubleValue() + rhsNum.doubleValue();
+        }
+
+        return lhsNum.longValue() + rhsNum.longValue();
+    }
+
+    public static Object sub(ExecutionContext context, Object lhs, Object rhs) {
+        if (lhs instanceof Long && rhs instanceof Long) {
+            return (Long) lhs - (Long) rhs;
+        }
+
+        Number lhsNum = Types.toNumber(context, lhs);
+        Number rhsNum = Types.toNumber(context, rhs);
+
+        if (Double.isNaN(lhsNum.doubleValue()) || Double.isNaN(rhsNum.doubleValue())) {
+            return Double.NaN;
+        }
+
+        if (lhsNum instanceof Double || rhsNum instanceof Double) {
+            if (lhsNum.doubleValue() == 0.0 && rhsNum.doubleValue() == 0.0) {
+                if (isNegative(lhsNum) && isNegative(rhsNum)) {
+                    return +0.0;
+                }
+            }
+            return lhsNum.doubleValue() - rhsNum.doubleValue();
+        }
+
+        return lhsNum.longValue() - rhsNum.longValue();
+    }
+
+    public static Object mul(ExecutionContext context, Object lhs, Object rhs) {
+        Number lval = Types.toNumber(context, lhs);
+        Number rval = Types.toNumber(context, rhs);
+
+        if (Double.isNaN(lval.doubleValue()) || Double.isNaN(rval.doubleValue())) {
+            return Double.NaN;
+        }
+
+        if (lval instanceof Double || rval instanceof Double) {
+            return lval.doubleValue() * rval.doubleValue();
+        }
+
+        return lval.longValue() * rval.longValue();
+    }
+
+    public static Object div(ExecutionContext context, Object lhs, Object rhs) {
+        Number lval = Types.toNumber(context, lhs);
+        Number rval = Types.toNumber(context, rhs);
+
+        if (Double.isNaN(lval.doubleValue()) || Double.isNaN(rval.doubleValue())) {
+            return Double.NaN;
+        }
+
+        if (lval instanceof Double || rval instanceof Double) {
+            if (isZero(rval)) {
+                if (isZero(lval)) {
+                    return Double.NaN;
+                }
+                return isSameSign(lval, rval) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+            }
+
+            if (isZero(lval)) {
+                return isSameSign(lval, rval) ? (Object) 0L : (Object) (-0.0);
+            }
+
+            double primaryValue = lval.doubleValue() / rval.doubleValue();
+            if (isRepresentableByLong(primaryValue)) {
+                return (long) primaryValue;
+            }
+            return primaryValue;
+        }
+
+        if (rval.longValue() == 0L) {
+            if (lval.longValue() == 0L) {
+                return Double.NaN;
+            }
+            return isSameSign(lval, rval) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        }
+
+        if (lval.longValue() == 0L) {
+            return rval.longValue() > 0 ? (Object) 0L : (Object) (-0.0);
+        }
+
+        double primaryResult = lval.doubleValue() / rval.longValue();
+        if (primaryResult == (long) primaryResult) {
+            return (long) primaryResult;
+        }
+        return primaryResult;
+    }
+
+    public static Object mod(ExecutionContext context, Object lhs, Object rhs) {
+        Number lval = Types.toNumber(context, lhs);
+        Number rval = Types.toNumber(context, rhs);
+
+        if (Double.isNaN(lval.doubleValue()) || Double.isNaN(rval.doubleValue()) || rval.doubleValue() == 0.0) {
+            return Double.NaN;
+        }
+
+        return BuiltinNumber.modulo(lval, rval);
+    }
+
+    public static Object negate(ExecutionContext context, Object value) {
+        Number number = Types.toNumber(context, value);
+
+        if (number instanceof Double) {
+            if (Double.isNaN(number.doubleValue())) {
+                return Double.NaN;
+            }
+            return -1 * number.doubleValue();
+        }
+
+        if (number.longValue() == 0L) {
+            return -0.0;
+        }
+        return -1 * number.longValue();
+    }
+
+    public static Object toNumber(ExecutionContext context, Object value) {
+        return Types.toNumber(context, value);
+    }
+
+    // ----------------------------------------------------------------------
+    // Bitwise
+    // ----------------------------------------------------------------------
+
+    public static Object shiftLeft(ExecutionContext context, Object lhs, Object rhs) {
+        long lhsNum = Types.toInt32(context, lhs);
+        int shiftCount = Types.toUint32(context, rhs).intValue() & 0x1F;
+        return (long) (int) (lhsNum << shiftCount);
+    }
+
+    public static Object shiftRight(ExecutionContext context, Object lhs, Object rhs) {
+        long lhsNum = Types.toInt32(context, lhs);
+        int shiftCount = Types.toUint32(context, rhs).intValue() & 0x1F;
+        return (long) (int) (lhsNum >> shiftCount);
+    }
+
+    public static Object unsignedShiftRight(ExecutionContext context, Object lhs, Object rhs) {
+        long lhsNum = Types.toUint32(context, lhs);
+        int shiftCount = Types.toUint32(context, rhs).intValue() & 0x1F;
+        return lhsNum >>> shiftCount;
+    }
+
+    // Unboxed forms for IRByteCodeCompiler.  Long is handled without rounding through
+    // double when it already is in range since that gives the same answer.
+
+    public static long toInt32(ExecutionContext context, Object value) {
+        if (value instanceof Long) return toInt32((Long) value);
+
+        return Types.toInt32(context, value);
+    }
+
+    public static long toInt32(long value) {
+        if (value == (int) value) return value;
+
+        return Types.toInt32(null, value);
+    }
+
+    public static long toUint32(ExecutionContext context, Object value) {
+        if (value instanceof Long) return toUint32((Long) value);
+
+        return Types.toUint32(context, value);
+    }
+
+    public static long toUint32(long value) {
+        if (value >= 0 && value <= 0xFFFFFFFFL) return value;
+
+        return Types.toUint32(null, value);
+    }
+
+    public static Object bitwiseAnd(ExecutionContext context, Object lhs, Object rhs) {
+        return Types.toInt32(context, lhs) & Types.toInt32(context, rhs);
+    }
+
+    public static Object bitwiseOr(ExecutionContext context, Object lhs, Object rhs) {
+        return Types.toInt32(context, lhs) | Types.toInt32(context, rhs);
+    }
+
+    public static Object bitwiseXor(ExecutionContext context, Object lhs, Object rhs) {
+        return Types.toInt32(context, lhs) ^ Types.toInt32(context, rhs);
+    }
+
+    public static Object bitwiseNot(ExecutionContext context, Object value) {
+        return ~Types.toInt32(context, value);
+    }
+
+    // ----------------------------------------------------------------------
+    // Comparison
+    // ----------------------------------------------------------------------
+
+    public static Object lessThan(ExecutionContext context, Object lhs, Object rhs) {
+        if (lhs instanceof Long && rhs instanceof Long) {
+            return (Long) lhs < (Long) rhs;
+        }
+        return Types.compareRelational(context, lhs, rhs, true) == Boolean.TRUE;
+    }
+
+    public static Object greaterThan(ExecutionContext context, Object lhs, Object rhs) {
+        if (lhs instanceof Long && rhs instanceof Long) {
+            return (Long) lhs > (Long) rhs;
+        }
+        return Types.compareRelational(context, rhs, lhs, false) == Boolean.TRUE;
+    }
+
+    public static Object lessThanOrEqual(ExecutionContext context, Object lhs, Object rhs) {
+        if (lhs instanceof Long && rhs instanceof Long) {
+            return (Long) lhs <= (Long) rhs;
+        }
+        return Types.compareRelational(context, rhs, lhs, false) == Boolean.FALSE;
+    }
+
+    public static Object greaterThanOrEqual(ExecutionContext context, Object lhs, Object rhs) {
+        if (lhs instanceof Long && rhs instanceof Long) {
+            return (Long) lhs >= (Long) rhs;
+        }
+        return Types.compareRelational(context, lhs, rhs, true) == Boolean.FALSE;
+    }
+
+    public static Object equal(ExecutionContext context, Object lhs, Object rhs) {
+        return Types.compareEquality(context, lhs, rhs);
+    }
+
+    public static Object notEqual(ExecutionContext context, Object lhs, Object rhs) {
+        return !Types.compareEquality(context, lhs, rhs);
+    }
+
+    public static Object strictEqual(ExecutionContext context, Object lhs, Object rhs) {
+        return Types.compareStrictEquality(context, lhs, rhs);
+    }
+
+    public static Object strictNotEqual(ExecutionContext context, Object lhs, Object rhs) {
+        return !Types.compareStrictEquality(context, lhs, rhs);
+    }
+
+    public static boolean isTrue(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return Types.toBoolean(value);
+    }
+
+    public static Object not(Object value) {
+        return !isTrue(value);
+    }
+
+    public static Object in(ExecutionContext context, Object lhs, Object rhs) {
+        if (!(rhs instanceof JSObject)) {
+            throw new ThrowException(context, context.createTypeError(Types.toString(context, rhs) + " is not an object"));
+        }
+        return ((JSObject) rhs).hasProperty(context, Types.toString(context, lhs));
+    }
+
+    public static Object instanceOf(ExecutionContext context, Object lhs, Object rhs) {
+        if (rhs instanceof JSFunction) {
+            return ((JSFunction) rhs).hasInstance(context, lhs);
+        }
+
+        if (rhs instanceof Class) {
+            return lhs.getClass().getName().equals(((Class<?>) rhs).getName());
+        }
+
+        throw new ThrowException(context, context.createTypeError(Types.toString(context, rhs) + " is not a function"));
+    }
+
+    public static Object typeOf(ExecutionContext context, Object value) {
+        return Types.type(value);
+    }
+
+    public static Object typeOfName(ExecutionContext context, String name) {
+        return Types.typeof(context, context.resolve(name));
+    }
+
+    // ----------------------------------------------------------------------
+    // Environment
+    // ----------------------------------------------------------------------
+
+    public static Object getName(ExecutionContext context, String name) {
+        return context.resolve(name).getValue(context);
+    }
+
+    public static void setName(ExecutionContext context, String name, Object value) {
+        context.resolve(name).putValue(context, value);
+    }
+
+    public static Object deleteName(ExecutionContext context, String name) {
+        Reference reference = context.resolve(name);
+
+        if (reference.isUnresolvableReference()) {
+            if (context.isStrict()) {
+                throw new ThrowException(context, context.createSyntaxError("cannot delete unresolvable reference"));
+            }
+            return true;
+        }
+
+        if (reference.isPropertyReference()) {
+            return Types.toObject(context, reference.getBase()).delete(context, name, reference.isStrictReference());
+        }
+
+        if (context.isStrict()) {
+            throw new ThrowException(context, context.createSyntaxError("cannot delete from environment record binding"));
+        }
+
+        return ((EnvironmentRecord) reference.getBase()).deleteBinding(context, name);
+    }
+
+    public static Object saveEnvironment(ExecutionContext context) {
+        return context.getLexicalEnvironment();
+    }
+
+    public static void restoreEnvironment(ExecutionContext context, Object environment) {
+        context.setLexicalEnvironment((LexicalEnvironment) environment);
+    }
+
+    public static void enterWith(ExecutionContext context, Object value) {
+        JSObject object = Types.toObject(context, value);
+        context.setLexicalEnvironment(LexicalEnvironment.newObjectEnvironment(object, true, context.getLexicalEnvironment()));
+    }
+
+    public static void enterCatch(ExecutionContext context, String name, Object value) {
+        LexicalEnvironment catchEnv = LexicalEnvironment.newDeclarativeEnvironment(context.getLexicalEnvironment());
+        catchEnv.getRecord().createMutableBinding(context, name, false);
+        catchEnv.getRecord().setMutableBinding(context, name, value, false);
+        context.setLexicalEnvironment(catchEnv);
+    }
+
+    public static Object receiveParameter(ExecutionContext context, int index) {
+        Object[] parameters = context.getFunctionParameters();
+
+        if (index >= parameters.length) {
+            return Types.UNDEFINED;
+        }
+
+        return parameters[index];
+    }
+
+    // ----------------------------------------------------------------------
+    // Properties
+    // ----------------------------------------------------------------------
+
+    public static Object getProperty(ExecutionContext context, Object base, String name) {
+        if (base instanceof JSObject) {
+            return ((JSObject) base).get(context, name);
+        }
+
+        Types.checkObjectCoercible(context, base, name);
+
+        return context.createPropertyReference(base, name).getValue(context);
+    }
+
+    public static Object getElement(ExecutionContext context, Object base, Object index) {
+        Types.checkObjectCoercible(context, base);
+
+        return getProperty(context, base, Types.toString(context, index));
+    }
+
+    public static void setProperty(ExecutionContext context, Object base, String name, Object value) {
+        if (base instanceof JSObject) {
+            ((JSObject) base).put(context, name, value, context.isStrict());
+            return;
+        }
+
+        Types.checkObjectCoercible(context, base, name);
+
+        context.createPropertyReference(base, name).putValue(context, value);
+    }
+
+    public static void setElement(ExecutionContext context, Object base, Object index, Object value) {
+        Types.checkObjectCoercible(context, base);
+
+        setProperty(context, base, Types.toString(context, index), value);
+    }
+
+    public static Object deleteProperty(ExecutionContext context, Object base, Object index) {
+        Types.checkObjectCoercible(context, base);
+
+        return Types.toObject(context, base).delete(context, Types.toString(context, index), context.isStrict());
+    }
+
+    public static Object propertyNames(ExecutionContext context, Object value) {
+        if (value == Types.NULL || value == Types.UNDEFINED) {
+            return Collections.<String>emptyList().iterator();
+        }
+
+        return Types.toObject(context, value).getAllEnumerablePropertyNames().toList().iterator();
+    }
+
+    public static Object hasNextProperty(Object iterator) {
+        return ((Iterator<?>) iterator).hasNext();
+    }
+
+    public static Object nextProperty(Object iterator) {
+        return ((Iterator<?>) iterator).next();
+    }
+
+    // ----------------------------------------------------------------------
+    // Literals
+    // ----------------------------------------------------------------------
+
+    public static Object newArray(ExecutionContext context, Object[] elements) {
+        DynArray array = BuiltinArray.newArray(context);
+
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i] != null) {
+                array.defineOwnProperty(context, "" + i,
+                        PropertyDescriptor.newPropertyDescriptorForObjectInitializer(elements[i]), false);
+            }
+        }
+        array.put(context, "length", (long) elements.length, true);
+
+        return array;
+    }
+
+    public static Object newObject(ExecutionContext context) {
+        return BuiltinObject.newObject(context);
+    }
+
+    public static void defineLiteralProperty(ExecutionContext context, Object object, String name, Object value, int kind) {
+        DynObject obj = (DynObject) object;
+        PropertyDescriptor descriptor;
+
+        switch (kind) {
+            case ObjectLiteral.GETTER:
+                descriptor = PropertyDescriptor.newPropertyDescriptorForObjectInitializerGet(
+                        obj.getOwnProperty(context, name), name, (JSFunction) value);
+                break;
+            case ObjectLiteral.SETTER:
+                descriptor = PropertyDescriptor.newPropertyDescriptorForObjectInitializerSet(
+                        obj.getOwnProperty(context, name), name, (JSFunction) value);
+                break;
+            default:
+                descriptor = PropertyDescriptor.newPropertyDescriptorForObjectInitializer(name, value);
+        }
+
+        obj.defineOwnProperty(context, name, descriptor, false);
+    }
+
+    public static Object newRegExp(ExecutionContext context, String pattern, String flags) {
+        return BuiltinRegExp.newRegExp(context, pattern, flags);
+    }
+
+    public static Object newRegExp(ExecutionContext context, RegExpLiteral literal) {
+        Regex regex = literal.getRegex();
+        if (regex == null) {
+            regex = DynRegExp.compile(context, context.getGlobalObject(), literal.getPattern(), literal.getFlags());
+            literal.setRegex(regex);
+        }
+        return BuiltinRegExp.newRegExp(context, literal.getPattern(), literal.getFlags(), regex);
+    }
+
+    public static Object defineFunction(ExecutionContext context, FunctionScope scope) {
+        return new IRJSFunction(scope, context.getVars(), context.getLexicalEnvironment(), context.getGlobalObject());
+    }
+
+    // ----------------------------------------------------------------------
+    // Calls
+    // ----------------------------------------------------------------------
+
+    public static Object call(ExecutionContext context, Object function, Object self, Object[] args) {
+        if (!(function instanceof JSFunction)) {
+            throw new ThrowException(context, context.createTypeError(Types.toString(context, function) + " is not callable"));
+        }
+
+        return context.call((JSFunction) function, self, args);
+    }
+
+    /**
+     * Is function one compiled from scope, so code inlined from scope may run in
+     * place of calling it?  Code using this also needs an object as self.
+     */
+    public static boolean isInlined(Object function, Object self, FunctionScope scope, boolean objectSelf) {
+        return function instanceof IRJSFunction && ((IRJSFunction) function).getFunctionScope() == scope &&
+                (!objectSelf || self instanceof JSObject);
+    }
+
+    /**
+     * Call a function found by name.  The reference is handed to the call so that
+     * implicit this (with) and direct eval work as they do for the AST interpreter.
+     */
+    public static Object callName(ExecutionContext context, String name, Object[] args) {
+        Reference reference = context.resolve(name);
+        Object function = reference.getValue(context);
+
+        if (!(function instanceof JSFunction)) {
+            throw new ThrowException(context, context.createTypeError(name + " is not callable"));
+        }
+
+        Object self;
+        if (reference.isPropertyReference()) {
+            self = reference.getBase();
+        } else {
+            self = ((EnvironmentRecord) reference.getBase()).implicitThisValue();
+        }
+
+        return context.call(reference, (JSFunction) function, self, args);
+    }
+
+    public static Object construct(ExecutionContext context, Object function, Object[] args) {
+        if (!(function instanceof JSFunction)) {
+            throw new ThrowException(context, context.createTypeError("can only construct using functions"));
+        }
+
+        return context.construct(null, (JSFunction) function, args);
+    }
+
+    public static Object constructName(ExecutionContext context, String name, Object[] args) {
+        Reference reference = context.resolve(name);
+        Object function = reference.getValue(context);
+
+        if (!(function instanceof JSFunction)) {
+            throw new ThrowException(context, context.createTypeError("can only construct using functions"));
+        }
+
+        return context.construct(reference, (JSFunction) function, args);
+    }
+
+    // ----------------------------------------------------------------------
+    // Exceptions
+    // ----------------------------------------------------------------------
+
+    /**
+     * The exception to throw for a throw statement, or the exception itself when
+     * rethrowing one received by a finally handler.
+     */
+    public static ThrowException throwValue(ExecutionContext context, Object value) {
+        if (value instanceof ThrowException) {
+            return (ThrowException) value;
+        }
+
+        return new ThrowException(context, value);
+    }
+
+    public static ThrowException raise(ExecutionContext context, String type, String message) {
+        return new ThrowException(context, context.createError(type, message));
+    }
+
+    public static Object exceptionValue(Object exception) {
+        return ((ThrowException) exception).getValue();
+    }
+
+    // ----------------------------------------------------------------------
+
+    private static boolean isZero(Number n) {
+        return n.doubleValue() == 0.0;
+    }
+
+    private static boolean isNegative(Number n) {
+        return Double.compare(n.doubleValue(), 0.0) < 0;
+    }
+
+    private static boolean isSameSign(Number n1, Number n2) {
+        return isNegative(n1) == isNegative(n2);
+    }
+
+    private static boolean isRepresentableByLong(double n) {
+        if (n == 0.0 && isNegative(n)) {
+            return false;
+        }
+        return n == (long) n;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.dynjs.ir.passes.PassManager;
+
+/**
+ * A directory of serialized IR (see IRWriter) of programs run before, so later
+ * runs load it instead of parsing and building again (see Runner).
+ *
+ * Each program is kept in a file named by a digest of its source, file name and
+ * strictness, so an edited script simply has no entry yet.  The store is only
+ * a cache: an entry which cannot be read is ignored and one which cannot be
+ * written is skipped.
+ */
+public class IRStore {
+    private final File directory;
+
+    public IRStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Program scope stored for source or null if there is none.
+     */
+    public Scope load(String source, String fileName, boolean strict, PassManager passManager) {
+        File file = fileFor(source, fileName, strict);
+
+        if (!file.isFile()) return null;
+
+        try {
+            return new IRReader(Files.readAllBytes(file.toPath())).read(passManager);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Keep scope, just built from source, for later runs.
+     */
+    public void save(String source, String fileName, boolean strict, Scope scope) {
+        File file = fileFor(source, fileName, strict);
+        File temporary = null;
+
+        // Written aside and renamed so a concurrent run never reads half an entry
+        try {
+            directory.mkdirs();
+            temporary = File.createTempFile(file.getName(), ".tmp", directory);
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temporary))) {
+                new IRWriter(out).write(scope);
+            }
+
+            if (temporary.renameTo(file)) temporary = null;
+        } catch (IOException | RuntimeException e) {
+            // not stored this time
+        } finally {
+            if (temporary != null) temporary.delete();
+        }
+    }
+
+    private File fileFor(String source, String fileName, boolean strict) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        digest.update((IRWriter.VERSION + "/" + strict + "/" + fileName + "/").getBytes());
+
+        ByteBuffer chars = ByteBuffer.allocate(source.length() * 2);
+        chars.asCharBuffer().put(source);
+        digest.update(chars);
+
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest()) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return new File(directory, name.append(".ir").toString());
+    }
+}
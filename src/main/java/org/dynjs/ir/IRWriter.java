@@ -0,0 +1,376 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.dynjs.ir.instructions.ArrayLiteral;
+import org.dynjs.ir.instructions.BEQ;
+import org.dynjs.ir.instructions.BFalse;
+import org.dynjs.ir.instructions.BTrue;
+import org.dynjs.ir.instructions.BinaryInstr;
+import org.dynjs.ir.instructions.Call;
+import org.dynjs.ir.instructions.CallMethod;
+import org.dynjs.ir.instructions.Constructor;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.instructions.DefineFunction;
+import org.dynjs.ir.instructions.DeleteName;
+import org.dynjs.ir.instructions.DeleteProperty;
+import org.dynjs.ir.instructions.ElementAssign;
+import org.dynjs.ir.instructions.ElementLookup;
+import org.dynjs.ir.instructions.EnterCatch;
+import org.dynjs.ir.instructions.EnterWith;
+import org.dynjs.ir.instructions.ExceptionRegionStartMarker;
+import org.dynjs.ir.instructions.Jump;
+import org.dynjs.ir.instructions.LabelInstr;
+import org.dynjs.ir.instructions.LoadName;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.ir.instructions.PropertyAssign;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.instructions.Raise;
+import org.dynjs.ir.instructions.ReceiveFunctionParameter;
+import org.dynjs.ir.instructions.RegExpLiteral;
+import org.dynjs.ir.instructions.RestoreEnvironment;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.instructions.Return;
+import org.dynjs.ir.instructions.Switch;
+import org.dynjs.ir.instructions.ThrowException;
+import org.dynjs.ir.instructions.UnaryInstr;
+import org.dynjs.ir.operands.BooleanLiteral;
+import org.dynjs.ir.operands.DynamicVariable;
+import org.dynjs.ir.operands.FloatNumber;
+import org.dynjs.ir.operands.IntegerNumber;
+import org.dynjs.ir.operands.Label;
+import org.dynjs.ir.operands.LocalVariable;
+import org.dynjs.ir.operands.StringLiteral;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.parser.ast.VariableDeclaration;
+
+/**
+ * Writes a scope, the functions nested in it and their instructions as built
+ * (before any pass has run) in a compact binary form IRReader loads back.
+ *
+ * The stream starts with MAGIC and VERSION.  Each scope is its flags, names
+ * and sizes, then its children and then its instructions, each an Operation
+ * ordinal followed by its operands.  Operands are an OperandType ordinal (or
+ * -1 for a missing one) and their value.  Counts and offsets are unsigned
+ * variable length ints and each distinct string is written once and referred
+ * to by index afterwards.
+ *
+ * VERSION has to change whenever this format, Operation or OperandType does.
+ */
+public class IRWriter {
+    public static final int MAGIC = 0x444a4952; // DJIR
+    public static final int VERSION = 2;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public IRWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public void write(Scope scope) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeScope(scope);
+        out.flush();
+    }
+
+    private void writeScope(Scope scope) throws IOException {
+        writeString(scope.getFileName());
+        out.writeBoolean(scope.isStrict());
+        out.writeBoolean(scope.usesEnvironment());
+        out.writeBoolean(scope.isDynamic());
+        writeCount(scope.getTemporaryVariableSize());
+        writeCount(scope.getLocalVariableSize());
+
+        List<VariableDeclaration> declarations = scope.getVariableDeclarations();
+        writeCount(declarations.size());
+        for (VariableDeclaration declaration : declarations) {
+            writeString(declaration.getIdentifier());
+        }
+
+        Map<String, Integer> prefixCounts = scope.getPrefixCounts();
+        writeCount(prefixCounts.size());
+        for (Map.Entry<String, Integer> each : prefixCounts.entrySet()) {
+            writeString(each.getKey());
+            writeCount(each.getValue());
+        }
+
+        List<FunctionScope> children = scope.getChildren();
+        writeCount(children.size());
+        for (FunctionScope child : children) {
+            writeString(child.getName());
+            writeStrings(child.getParameterNames());
+            writeString(child.getSelfName());
+            writeOperand(child.getSelfVariable());
+            writeScope(child);
+        }
+
+        List<Instruction> instructions = scope.getInstructions();
+        writeCount(instructions.size());
+        for (Instruction instruction : instructions) {
+            writeInstruction(scope, instruction);
+        }
+    }
+
+    private void writeInstruction(Scope scope, Instruction instruction) throws IOException {
+        Operation operation = instruction.getOperation();
+
+        writeCount(operation.ordinal());
+        if (instruction instanceof ResultInstruction) writeOperand(((ResultInstruction) instruction).getResult());
+
+        if (instruction instanceof BinaryInstr) {
+            writeOperand(((BinaryInstr) instruction).getLHS());
+            writeOperand(((BinaryInstr) instruction).getRHS());
+            return;
+        } else if (instruction instanceof UnaryInstr) {
+            writeOperand(((UnaryInstr) instruction).getValue());
+            return;
+        }
+
+        switch (operation) {
+            case BEQ:
+                writeOperand(((BEQ) instruction).getArg1());
+                writeOperand(((BEQ) instruction).getArg2());
+                writeOperand(((BEQ) instruction).getTarget());
+                break;
+            case B_TRUE:
+                writeOperand(((BTrue) instruction).getTest());
+                writeOperand(((BTrue) instruction).getTarget());
+                break;
+            case B_FALSE:
+                writeOperand(((BFalse) instruction).getTest());
+                writeOperand(((BFalse) instruction).getTarget());
+                break;
+            case JUMP:
+                writeOperand(((Jump) instruction).getTarget());
+                break;
+            case SWITCH: {
+                Switch sw = (Switch) instruction;
+                Map<Object, Integer> indexes = sw.getTable().getIndexes();
+
+                writeOperand(sw.getValue());
+                writeCount(indexes.size());
+                for (Map.Entry<Object, Integer> each : indexes.entrySet()) {
+                    Object key = each.getKey();
+
+                    writeOperand(key instanceof Long ? new IntegerNumber((Long) key) : new StringLiteral((String) key));
+                    writeCount(each.getValue());
+                }
+                writeOperands(sw.getTargets());
+                writeOperand(sw.getDefaultTarget());
+                break;
+            }
+            case LABEL:
+                writeOperand(((LabelInstr) instruction).getLabel());
+                break;
+            case EXCEPTION_REGION_START:
+                writeOperand(((ExceptionRegionStartMarker) instruction).getLabel());
+                break;
+            case EXCEPTION_REGION_END:
+            case RECEIVE_EXCEPTION:
+            case RECEIVE_JS_EXCEPTION:
+            case SAVE_ENVIRONMENT:
+                break;
+            case COPY:
+                writeOperand(((Copy) instruction).getValue());
+                break;
+            case RETURN:
+                writeOperand(((Return) instruction).getValue());
+                break;
+            case THROW_EXCEPTION:
+                writeOperand(((ThrowException) instruction).getValue());
+                break;
+            case RAISE:
+                writeString(((Raise) instruction).getType());
+                writeString(((Raise) instruction).getMessage());
+                break;
+            case CALL:
+                writeOperand(((Call) instruction).getSelf());
+                writeOperand(((Call) instruction).getIdentifier());
+                writeOperands(((Call) instruction).getArgs());
+                break;
+            case CALL_METHOD:
+                writeOperand(((CallMethod) instruction).getBase());
+                writeString(((CallMethod) instruction).getIdentifier());
+                writeOperands(((CallMethod) instruction).getArgs());
+                break;
+            case CONSTRUCTOR:
+                writeOperand(((Constructor) instruction).getIdentifier());
+                writeOperands(((Constructor) instruction).getArgs());
+                break;
+            case DEFINE_FUNCTION:
+                writeCount(scope.getChildren().indexOf(((DefineFunction) instruction).getScope()));
+                break;
+            case RECEIVE_FUNCTION_PARAM:
+                writeCount(((ReceiveFunctionParameter) instruction).getIndex());
+                break;
+            case PROPERTY_LOOKUP:
+                writeOperand(((PropertyLookup) instruction).getBase());
+                writeString(((PropertyLookup) instruction).getIdentifier());
+                break;
+            case PROPERTY_ASSIGN:
+                writeOperand(((PropertyAssign) instruction).getBase());
+                writeString(((PropertyAssign) instruction).getIdentifier());
+                writeOperand(((PropertyAssign) instruction).getValue());
+                break;
+            case ELEMENT_LOOKUP:
+                writeOperand(((ElementLookup) instruction).getBase());
+                writeOperand(((ElementLookup) instruction).getIndex());
+                break;
+            case ELEMENT_ASSIGN:
+                writeOperand(((ElementAssign) instruction).getBase());
+                writeOperand(((ElementAssign) instruction).getIndex());
+                writeOperand(((ElementAssign) instruction).getValue());
+                break;
+            case DELETE_PROPERTY:
+                writeOperand(((DeleteProperty) instruction).getBase());
+                writeOperand(((DeleteProperty) instruction).getIndex());
+                break;
+            case DELETE_NAME:
+                writeString(((DeleteName) instruction).getName());
+                break;
+            case LOAD_NAME:
+                writeString(((LoadName) instruction).getName());
+                break;
+            case ARRAY_LITERAL:
+                writeOperands(((ArrayLiteral) instruction).getElements());
+                break;
+            case OBJECT_LITERAL: {
+                ObjectLiteral literal = (ObjectLiteral) instruction;
+
+                writeStrings(literal.getNames());
+                writeOperands(literal.getValues());
+                for (int kind : literal.getKinds()) {
+                    writeCount(kind);
+                }
+                break;
+            }
+            case REGEXP_LITERAL:
+                writeString(((RegExpLiteral) instruction).getPattern());
+                writeString(((RegExpLiteral) instruction).getFlags());
+                break;
+            case RESTORE_ENVIRONMENT:
+                writeOperand(((RestoreEnvironment) instruction).getEnvironment());
+                break;
+            case ENTER_WITH:
+                writeOperand(((EnterWith) instruction).getObject());
+                break;
+            case ENTER_CATCH:
+                writeString(((EnterCatch) instruction).getName());
+                writeOperand(((EnterCatch) instruction).getValue());
+                break;
+            default:
+                // Only passes make the rest and they run after loading
+                throw new IllegalArgumentException("Cannot serialize " + operation + ": " + instruction);
+        }
+    }
+
+    private void writeOperands(Operand[] operands) throws IOException {
+        writeCount(operands.length);
+        for (Operand operand : operands) {
+            writeOperand(operand);
+        }
+    }
+
+    private void writeOperand(Operand operand) throws IOException {
+        if (operand == null) {
+            out.writeByte(-1);
+            return;
+        }
+
+        OperandType type = operand.getType();
+        out.writeByte(type.ordinal());
+
+        switch (type) {
+            case NULL:
+            case THIS:
+            case UNDEFINED:
+                break;
+            case BOOLEAN:
+                out.writeBoolean(((BooleanLiteral) operand).isTrue());
+                break;
+            case INTEGER:
+                out.writeLong(((IntegerNumber) operand).getValue());
+                break;
+            case FLOAT:
+                out.writeDouble(((FloatNumber) operand).getValue());
+                break;
+            case STRING:
+                writeString(((StringLiteral) operand).getValue());
+                break;
+            case TEMP_VAR:
+                writeCount(((TemporaryVariable) operand).getOffset());
+                break;
+            case LOCAL_VAR:
+                writeString(((LocalVariable) operand).getName());
+                writeCount(((LocalVariable) operand).getOffset());
+                writeCount(((LocalVariable) operand).getDepth());
+                break;
+            case DYNAMIC_VAR:
+                writeString(((DynamicVariable) operand).getName());
+                break;
+            case LABEL:
+                writeString(((Label) operand).prefix);
+                writeCount(((Label) operand).id);
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot serialize " + type + ": " + operand);
+        }
+    }
+
+    private void writeStrings(String[] values) throws IOException {
+        writeCount(values.length);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    // 0 is null, 1 a new string (its length and chars follow) and n + 2 the one with index n
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeCount(0);
+            return;
+        }
+
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeCount(index + 2);
+            return;
+        }
+
+        strings.put(value, strings.size());
+        writeCount(1);
+        writeCount(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            writeCount(value.charAt(i));
+        }
+    }
+
+    private void writeCount(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -15,7 +15,11 @@
  */
 package org.dynjs.ir;
 
-public class Instruction {
+import java.util.Map;
+
+public class Instruction implements Cloneable {
+    protected static final Operand[] NO_OPERANDS = new Operand[0];
+
     private final Operation operation;
     // Mutable state to make it easier for jumping around
     private int ipc = -1;
@@ -49,10 +53,60 @@ public class Instruction {
     }
 
     /**
-     * Can this instruction potentially raise a JS Exception?
+     * Can this instruction potentially raise a JS Exception?  Anything which converts,
+     * calls or touches the environment can, so only instructions which are known to
+     * be safe answer false.
      */
     public boolean canRaiseException() {
-        return false;
+        return true;
+    }
+
+    /**
+     * Can this instruction be removed when nothing uses its result?
+     */
+    public boolean hasSideEffects() {
+        return true;
+    }
+
+    /**
+     * Operands this instruction reads (its result is not one of them).
+     */
+    public Operand[] getOperands() {
+        return NO_OPERANDS;
+    }
+
+    /**
+     * Replace each operand this instruction reads which has an entry in valueMap
+     * with that entry.
+     */
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+    }
+
+    /**
+     * Copy of this instruction whose operands can be simplified without touching this
+     * one (see Inliner).  Instructions holding arrays of operands or state of their
+     * own site copy those as well.
+     */
+    public Instruction copy() {
+        try {
+            Instruction copy = (Instruction) clone();
+            copy.ipc = -1;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected static Operand simplify(Operand operand, Map<Operand, Operand> valueMap) {
+        Operand value = operand == null ? null : valueMap.get(operand);
+
+        return value == null ? operand : value;
+    }
+
+    protected static void simplify(Operand[] operands, Map<Operand, Operand> valueMap) {
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = simplify(operands[i], valueMap);
+        }
     }
 
     /**
@@ -1,32 +1,56 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 package org.dynjs.ir;
 
 import org.dynjs.exception.ThrowException;
-import org.dynjs.ir.instructions.Add;
+import org.dynjs.ir.instructions.ArrayLiteral;
 import org.dynjs.ir.instructions.BEQ;
+import org.dynjs.ir.instructions.BFalse;
+import org.dynjs.ir.instructions.BTrue;
+import org.dynjs.ir.instructions.BinaryInstr;
 import org.dynjs.ir.instructions.Call;
+import org.dynjs.ir.instructions.CallMethod;
 import org.dynjs.ir.instructions.Constructor;
 import org.dynjs.ir.instructions.Copy;
 import org.dynjs.ir.instructions.DefineFunction;
-import org.dynjs.ir.instructions.Instanceof;
+import org.dynjs.ir.instructions.DeleteName;
+import org.dynjs.ir.instructions.DeleteProperty;
+import org.dynjs.ir.instructions.ElementAssign;
+import org.dynjs.ir.instructions.ElementLookup;
+import org.dynjs.ir.instructions.EnterCatch;
+import org.dynjs.ir.instructions.EnterWith;
+import org.dynjs.ir.instructions.InlineGuard;
 import org.dynjs.ir.instructions.Jump;
-import org.dynjs.ir.instructions.LE;
-import org.dynjs.ir.instructions.LT;
+import org.dynjs.ir.instructions.LoadName;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.ir.instructions.PropertyAssign;
+import org.dynjs.ir.instructions.PropertyLookup;
 import org.dynjs.ir.instructions.Raise;
 import org.dynjs.ir.instructions.ReceiveFunctionParameter;
+import org.dynjs.ir.instructions.RegExpLiteral;
+import org.dynjs.ir.instructions.RestoreEnvironment;
 import org.dynjs.ir.instructions.ResultInstruction;
 import org.dynjs.ir.instructions.Return;
-import org.dynjs.ir.instructions.Sub;
+import org.dynjs.ir.instructions.Switch;
+import org.dynjs.ir.instructions.UnaryInstr;
+import org.dynjs.ir.operands.DynamicVariable;
 import org.dynjs.ir.operands.LocalVariable;
-import org.dynjs.ir.operands.OffsetVariable;
+import org.dynjs.ir.operands.TemporaryVariable;
 import org.dynjs.ir.operands.Variable;
-import org.dynjs.parser.ast.FunctionDeclaration;
-import org.dynjs.runtime.EnvironmentRecord;
 import org.dynjs.runtime.ExecutionContext;
-import org.dynjs.runtime.JSFunction;
-import org.dynjs.runtime.JSObject;
-import org.dynjs.runtime.ObjectEnvironmentRecord;
-import org.dynjs.runtime.PropertyDescriptor;
-import org.dynjs.runtime.Reference;
 import org.dynjs.runtime.Types;
 
 /**
@@ -35,235 +59,314 @@ import org.dynjs.runtime.Types;
 public class Interpreter {
 
     public static Object execute(ExecutionContext context, Scope scope, Instruction[] instructions) {
-        //System.out.println("Executing: " + context.getFileName() + ":" + context.getLineNumber());
-        Object result = Types.UNDEFINED;
         Object[] temps = new Object[scope.getTemporaryVariableSize()];
         int size = instructions.length;
-        Object value = Types.UNDEFINED;
+        Object exception = null;
 
         int ipc = 0;
         while (ipc < size) {
             Instruction instr = instructions[ipc];
-            ipc++;
-            //System.out.println("EX: " + instr);
-
-            switch(instr.getOperation()) {
-                case ADD:
-                    value = add(context,
-                            ((Add) instr).getLHS().retrieve(context, temps),
-                            ((Add) instr).getRHS().retrieve(context, temps));
-                    break;
-                case SUB:
-                    value = sub(context,
-                            ((Sub) instr).getLHS().retrieve(context, temps),
-                            ((Sub) instr).getRHS().retrieve(context, temps));
-                    break;
-                case RECEIVE_FUNCTION_PARAM:
-                    value = context.getFunctionParameters()[((ReceiveFunctionParameter) instr).getIndex()];
-                    break;
-                case COPY:
-                    value = ((Copy) instr).getValue().retrieve(context, temps);
-                    break;
-                case JUMP:
-                    ipc = ((Jump) instr).getTarget().getTargetIPC();
-                    break;
-                case CALL: {
-                    Call call = (Call) instr;
-                    Object ref = call.getIdentifier().retrieve(context, temps);
-                    Object function = Types.getValue(context, ref);
-                    Operand[] opers = call.getArgs();
-                    Object[] args = new Object[opers.length];
-
-                    if (!(function instanceof JSFunction)) {
-                        throw new ThrowException(context, context.createTypeError(ref + " is not callable"));
+            Object value = null;
+
+            try {
+                ipc++;
+
+                switch(instr.getOperation()) {
+                    case COPY:
+                        value = ((Copy) instr).getValue().retrieve(context, temps);
+                        break;
+                    case JUMP:
+                        ipc = ((Jump) instr).getTarget().getTargetIPC();
+                        break;
+                    case BEQ: {
+                        BEQ beq = (BEQ) instr;
+                        Object arg1 = beq.getArg1().retrieve(context, temps);
+                        Object arg2 = beq.getArg2().retrieve(context, temps);
+
+                        if (arg1.equals(arg2)) {
+                            ipc = beq.getTarget().getTargetIPC();
+                        }
+                        break;
                     }
+                    case B_TRUE:
+                        if (IRRuntimeHelpers.isTrue(((BTrue) instr).getTest().retrieve(context, temps))) {
+                            ipc = ((BTrue) instr).getTarget().getTargetIPC();
+                        }
+                        break;
+                    case B_FALSE:
+                        if (!IRRuntimeHelpers.isTrue(((BFalse) instr).getTest().retrieve(context, temps))) {
+                            ipc = ((BFalse) instr).getTarget().getTargetIPC();
+                        }
+                        break;
+                    case SWITCH: {
+                        Switch sw = (Switch) instr;
 
-                    for (int i = 0; i < args.length; i++) {
-                        args[i] = opers[i].retrieve(context, temps);
+                        ipc = sw.getTarget(sw.getValue().retrieve(context, temps)).getTargetIPC();
+                        break;
                     }
-
-                    Object thisValue = null;
-
-                    // FIXME: We can probably remove this check for IRJSFunctions since we will not be using references
-                    if (ref instanceof Reference) {
-                        if (((Reference) ref).isPropertyReference()) {
-                            thisValue = ((Reference) ref).getBase();
+                    case RETURN:
+                        return ((Return) instr).getValue().retrieve(context, temps);
+                    case RECEIVE_FUNCTION_PARAM:
+                        value = IRRuntimeHelpers.receiveParameter(context, ((ReceiveFunctionParameter) instr).getIndex());
+                        break;
+                    case ADD:
+                    case SUB:
+                    case MUL:
+                    case DIV:
+                    case MOD:
+                    case LT:
+                    case LE:
+                    case GT:
+                    case GE:
+                    case SHIFT_LEFT:
+                    case SHIFT_RIGHT:
+                    case UNSIGNED_SHIFT_RIGHT:
+                    case BITWISE_AND:
+                    case BITWISE_OR:
+                    case BITWISE_XOR:
+                    case EQUAL:
+                    case NOT_EQUAL:
+                    case STRICT_EQUAL:
+                    case STRICT_NOT_EQUAL:
+                    case IN:
+                    case INSTANCEOF:
+                        value = binary(context, (BinaryInstr) instr,
+                                ((BinaryInstr) instr).getLHS().retrieve(context, temps),
+                                ((BinaryInstr) instr).getRHS().retrieve(context, temps));
+                        break;
+                    case NOT:
+                    case NEGATE:
+                    case TO_NUMBER:
+                    case BITWISE_NOT:
+                    case PROPERTY_NAMES:
+                    case HAS_NEXT_PROPERTY:
+                    case NEXT_PROPERTY:
+                        value = unary(context, (UnaryInstr) instr, ((UnaryInstr) instr).getValue().retrieve(context, temps));
+                        break;
+                    case TYPEOF: {
+                        Operand operand = ((UnaryInstr) instr).getValue();
+
+                        if (operand instanceof DynamicVariable) {
+                            value = IRRuntimeHelpers.typeOfName(context, ((DynamicVariable) operand).getName());
                         } else {
-                            thisValue = ((EnvironmentRecord) ((Reference) ref).getBase()).implicitThisValue();
+                            value = IRRuntimeHelpers.typeOf(context, operand.retrieve(context, temps));
                         }
+                        break;
                     }
+                    case PROPERTY_LOOKUP: {
+                        PropertyLookup lookup = (PropertyLookup) instr;
+                        Object base = lookup.getBase().retrieve(context, temps);
 
-                    value = context.call(ref, (JSFunction) function, thisValue, args);
-                }
-                break;
-                case CONSTRUCTOR: {
-                    Constructor constructor = (Constructor) instr;
-                    Object ref = constructor.getIdentifier().retrieve(context, temps);
-                    Object function = Types.getValue(context, ref);
-                    Operand[] opers = constructor.getArgs();
-                    Object[] args = new Object[opers.length];
-
-                    if (!(function instanceof JSFunction)) {
-                        throw new ThrowException(context, context.createTypeError(ref + " is not callable"));
+                        if (lookup.isInvariant()) {
+                            value = lookup.getCache().getInvariant(context, base, lookup.getIdentifier());
+                        } else {
+                            value = lookup.getCache().get(context, base, lookup.getIdentifier());
+                        }
+                        break;
                     }
+                    case LOAD_NAME:
+                        value = ((LoadName) instr).getCache().getName(context, ((LoadName) instr).getName());
+                        break;
+                    case PROPERTY_ASSIGN: {
+                        PropertyAssign assign = (PropertyAssign) instr;
+                        assign.getCache().put(context, assign.getBase().retrieve(context, temps),
+                                assign.getIdentifier(), assign.getValue().retrieve(context, temps));
+                        break;
+                    }
+                    case ELEMENT_LOOKUP: {
+                        ElementLookup lookup = (ElementLookup) instr;
+                        value = lookup.getCache().getElement(context, lookup.getBase().retrieve(context, temps),
+                                lookup.getIndex().retrieve(context, temps));
+                        break;
+                    }
+                    case ELEMENT_ASSIGN: {
+                        ElementAssign assign = (ElementAssign) instr;
+                        assign.getCache().putElement(context, assign.getBase().retrieve(context, temps),
+                                assign.getIndex().retrieve(context, temps), assign.getValue().retrieve(context, temps));
+                        break;
+                    }
+                    case DELETE_PROPERTY: {
+                        DeleteProperty delete = (DeleteProperty) instr;
+                        value = IRRuntimeHelpers.deleteProperty(context, delete.getBase().retrieve(context, temps),
+                                delete.getIndex().retrieve(context, temps));
+                        break;
+                    }
+                    case DELETE_NAME:
+                        value = IRRuntimeHelpers.deleteName(context, ((DeleteName) instr).getName());
+                        break;
+                    case CALL: {
+                        Call call = (Call) instr;
+                        Object[] args = retrieveAll(context, temps, call.getArgs());
+
+                        if (call.getIdentifier() instanceof DynamicVariable) {
+                            value = IRRuntimeHelpers.callName(context, ((DynamicVariable) call.getIdentifier()).getName(), args);
+                        } else {
+                            Object function = call.getIdentifier().retrieve(context, temps);
 
-                    for (int i = 0; i < args.length; i++) {
-                        args[i] = opers[i].retrieve(context, temps);
+                            call.getProfile().record(function);
+                            value = IRRuntimeHelpers.call(context, function, call.getSelf().retrieve(context, temps), args);
+                        }
+                        break;
                     }
+                    case CALL_METHOD: {
+                        CallMethod call = (CallMethod) instr;
+                        Object base = call.getBase().retrieve(context, temps);
 
-                    value = context.construct(ref, (JSFunction) function, args);
-                }
-                break;
-                case LT: {
-                    Object arg1  = ((LT) instr).getArg1().retrieve(context, temps);
-                    Object arg2  = ((LT) instr).getArg2().retrieve(context, temps);
-                    Object r = Types.compareRelational(context, arg1, arg2, true);
-                    value = r == Types.UNDEFINED ? false : r;
-                    break;
-                }
-                case LE: {
-                    Object arg1  = ((LE) instr).getArg1().retrieve(context, temps);
-                    Object arg2  = ((LE) instr).getArg2().retrieve(context, temps);
-                    Object r = Types.compareRelational(context, arg1, arg2, true);
-                    value = r == Boolean.TRUE || r == Types.UNDEFINED ? false : r;
-                    break;
-                }
-                case BEQ: {
-                    BEQ beq = (BEQ) instr;
-                    Object arg1 = beq.getArg1().retrieve(context, temps);
-                    Object arg2 = beq.getArg2().retrieve(context, temps);
+                        value = call.getCache().call(context, base, call.getIdentifier(), retrieveAll(context, temps, call.getArgs()));
+                        break;
+                    }
+                    case INLINE_GUARD: {
+                        InlineGuard guard = (InlineGuard) instr;
 
-                    if (arg1.equals(arg2)) {
-                        ipc = beq.getTarget().getTargetIPC();
+                        value = IRRuntimeHelpers.isInlined(guard.getFunction().retrieve(context, temps),
+                                guard.getSelf().retrieve(context, temps), guard.getScope(), guard.isObjectSelf());
+                        break;
                     }
-                    break;
-                }
-                case RETURN:
-                    return ((Return) instr).getValue().retrieve(context, temps);
-                case DEFINE_FUNCTION: {
-                    // FIXME: configurableBindings is false here but I think a define_function in an eval they should be true
-                    FunctionScope functionScope = ((DefineFunction) instr).getScope();
-                    value = new IRJSFunction(functionScope, context.getVars(),
-                            context.getLexicalEnvironment(), context.getGlobalObject());
+                    case CONSTRUCTOR: {
+                        Constructor constructor = (Constructor) instr;
+                        Object[] args = retrieveAll(context, temps, constructor.getArgs());
 
-                    if (functionScope.getName() != null) {
-                        EnvironmentRecord env = context.getVariableEnvironment().getRecord();
-                        String identifier = functionScope.getName();
-                        if (!env.hasBinding(context, identifier)) {
-                            env.createMutableBinding(context, identifier, false);
-                        } else if (env.isGlobal()) {
-                            JSObject globalObject = ((ObjectEnvironmentRecord) env).getBindingObject();
-                            PropertyDescriptor existingProp = (PropertyDescriptor) globalObject.getProperty(context, identifier, false);
-                            if (existingProp.isConfigurable()) {
-                                globalObject.defineOwnProperty(context, identifier,
-                                        PropertyDescriptor.newDataPropertyDescriptor(Types.UNDEFINED, true, false, true), true);
-                            } else if (existingProp.isAccessorDescriptor() || (!existingProp.isWritable() && !existingProp.isEnumerable())) {
-                                throw new ThrowException(context, context.createTypeError("unable to bind function '" + identifier + "'"));
-                            }
+                        if (constructor.getIdentifier() instanceof DynamicVariable) {
+                            value = IRRuntimeHelpers.constructName(context, ((DynamicVariable) constructor.getIdentifier()).getName(), args);
+                        } else {
+                            value = IRRuntimeHelpers.construct(context, constructor.getIdentifier().retrieve(context, temps), args);
                         }
-
-                        ((JSFunction) value).setDebugContext(identifier);
-                        env.setMutableBinding(context, identifier, value, functionScope.isStrict());
+                        break;
                     }
-                    break;
-                }
-                case RAISE:
-                    throw new ThrowException(context,
-                            context.createError(((Raise) instr).getType(), ((Raise) instr).getMessage()));
-                case INSTANCEOF: {
-                    Object lhs  = ((Instanceof) instr).getLHS().retrieve(context, temps);
-                    Object rhs  = ((Instanceof) instr).getRHS().retrieve(context, temps);
-
-                    if (rhs instanceof JSObject) {
-                        if (!(rhs instanceof JSFunction)) {
-                            // FIXME: Might have to pass in original rhs to instr for proper string...
-                            throw new ThrowException(context, context.createTypeError(rhs + " is not a function"));
+                    case DEFINE_FUNCTION:
+                        value = IRRuntimeHelpers.defineFunction(context, ((DefineFunction) instr).getScope());
+                        break;
+                    case ARRAY_LITERAL: {
+                        Operand[] elements = ((ArrayLiteral) instr).getElements();
+                        Object[] values = new Object[elements.length];
+
+                        for (int i = 0; i < values.length; i++) {
+                            if (elements[i] != null) values[i] = elements[i].retrieve(context, temps);
                         }
 
-                        value = ((JSFunction) rhs).hasInstance(context, lhs);
-                    } else if (rhs instanceof Class) {
-                        Class clazz = (Class) rhs;
-                        value = lhs.getClass().getName().equals(clazz.getName());
-                    } else {
-                        // FIXME: Review against master...
-                        throw new ThrowException(context, context.createTypeError(rhs + " is not a function"));
+                        value = IRRuntimeHelpers.newArray(context, values);
+                        break;
                     }
-                }
-            }
-
-            if (instr instanceof ResultInstruction) {
-                Variable variable = ((ResultInstruction) instr).getResult();
-                if (variable instanceof OffsetVariable) {
-                    int offset = ((OffsetVariable) variable).getOffset();
-
-                    if (variable instanceof LocalVariable) {
-                        context.getVars().setVar(offset, ((LocalVariable) variable).getDepth(), value);
-                    } else {
-                        temps[offset] = value;
+                    case OBJECT_LITERAL: {
+                        ObjectLiteral literal = (ObjectLiteral) instr;
+                        String[] names = literal.getNames();
+                        Operand[] values = literal.getValues();
+                        int[] kinds = literal.getKinds();
+
+                        value = IRRuntimeHelpers.newObject(context);
+                        for (int i = 0; i < names.length; i++) {
+                            IRRuntimeHelpers.defineLiteralProperty(context, value, names[i],
+                                    values[i].retrieve(context, temps), kinds[i]);
+                        }
+                        break;
                     }
-                } else {
-                    // FIXME: Lookup dynamicvariable
+                    case REGEXP_LITERAL:
+                        value = IRRuntimeHelpers.newRegExp(context, (RegExpLiteral) instr);
+                        break;
+                    case THROW_EXCEPTION:
+                        throw IRRuntimeHelpers.throwValue(context,
+                                ((org.dynjs.ir.instructions.ThrowException) instr).getValue().retrieve(context, temps));
+                    case RAISE:
+                        throw IRRuntimeHelpers.raise(context, ((Raise) instr).getType(), ((Raise) instr).getMessage());
+                    case RECEIVE_EXCEPTION:
+                        value = exception;
+                        break;
+                    case RECEIVE_JS_EXCEPTION:
+                        value = IRRuntimeHelpers.exceptionValue(exception);
+                        break;
+                    case SAVE_ENVIRONMENT:
+                        value = IRRuntimeHelpers.saveEnvironment(context);
+                        break;
+                    case RESTORE_ENVIRONMENT:
+                        IRRuntimeHelpers.restoreEnvironment(context,
+                                ((RestoreEnvironment) instr).getEnvironment().retrieve(context, temps));
+                        break;
+                    case ENTER_WITH:
+                        IRRuntimeHelpers.enterWith(context, ((EnterWith) instr).getObject().retrieve(context, temps));
+                        break;
+                    case ENTER_CATCH:
+                        IRRuntimeHelpers.enterCatch(context, ((EnterCatch) instr).getName(),
+                                ((EnterCatch) instr).getValue().retrieve(context, temps));
+                        break;
+                    default:
+                        throw new RuntimeException("Unhandled instruction: " + instr);
                 }
-            }
-        }
 
-        System.out.println("RESULT is " + result);
+                if (instr instanceof ResultInstruction) {
+                    store(context, temps, ((ResultInstruction) instr).getResult(), value);
+                }
+            } catch (ThrowException e) {
+                int rescuePC = scope.getRescuePC(instr.getIPC());
 
-        return result;
-    }
+                if (rescuePC == -1) throw e;
 
-    // FIXME: This breaks for non-numeric uses if isSubtraction
-    private static Object add(ExecutionContext context, Object lhs, Object rhs) {
-        if (lhs instanceof String || rhs instanceof String) {
-            return(Types.toString(context, lhs) + Types.toString(context, rhs));
+                exception = e;
+                ipc = rescuePC;
+            }
         }
 
-        Number lhsNum = Types.toNumber(context, lhs);
-        Number rhsNum = Types.toNumber(context, rhs);
+        return Types.UNDEFINED;
+    }
 
-        if (Double.isNaN(lhsNum.doubleValue()) || Double.isNaN(rhsNum.doubleValue())) {
-            return(Double.NaN);
+    private static void store(ExecutionContext context, Object[] temps, Variable variable, Object value) {
+        if (variable instanceof TemporaryVariable) {
+            temps[((TemporaryVariable) variable).getOffset()] = value;
+        } else if (variable instanceof LocalVariable) {
+            context.getVars().setVar(((LocalVariable) variable).getOffset(), ((LocalVariable) variable).getDepth(), value);
+        } else {
+            IRRuntimeHelpers.setName(context, variable.getName(), value);
         }
+    }
 
-        if (lhsNum instanceof Double || rhsNum instanceof Double) {
-            if (lhsNum.doubleValue() == 0.0 && rhsNum.doubleValue() == 0.0) {
-                if (Double.compare(lhsNum.doubleValue(), 0.0) < 0 && Double.compare(rhsNum.doubleValue(), 0.0) < 0) {
-                    return(-0.0);
-                } else {
-                    return(0.0);
-                }
-            }
+    private static Object[] retrieveAll(ExecutionContext context, Object[] temps, Operand[] operands) {
+        Object[] values = new Object[operands.length];
 
-            return(lhsNum.doubleValue() - rhsNum.doubleValue());
+        for (int i = 0; i < values.length; i++) {
+            values[i] = operands[i].retrieve(context, temps);
         }
 
-        return(lhsNum.longValue() + rhsNum.longValue());
+        return values;
     }
 
-    private static Object sub(ExecutionContext context, Object lhs, Object rhs) {
-        if (lhs instanceof String || rhs instanceof String) {
-            return(Double.NaN);
+    private static Object binary(ExecutionContext context, BinaryInstr instr, Object lhs, Object rhs) {
+        switch (instr.getOperation()) {
+            case ADD: return IRRuntimeHelpers.add(context, lhs, rhs);
+            case SUB: return IRRuntimeHelpers.sub(context, lhs, rhs);
+            case MUL: return IRRuntimeHelpers.mul(context, lhs, rhs);
+            case DIV: return IRRuntimeHelpers.div(context, lhs, rhs);
+            case MOD: return IRRuntimeHelpers.mod(context, lhs, rhs);
+            case LT: return IRRuntimeHelpers.lessThan(context, lhs, rhs);
+            case LE: return IRRuntimeHelpers.lessThanOrEqual(context, lhs, rhs);
+            case GT: return IRRuntimeHelpers.greaterThan(context, lhs, rhs);
+            case GE: return IRRuntimeHelpers.greaterThanOrEqual(context, lhs, rhs);
+            case SHIFT_LEFT: return IRRuntimeHelpers.shiftLeft(context, lhs, rhs);
+            case SHIFT_RIGHT: return IRRuntimeHelpers.shiftRight(context, lhs, rhs);
+            case UNSIGNED_SHIFT_RIGHT: return IRRuntimeHelpers.unsignedShiftRight(context, lhs, rhs);
+            case BITWISE_AND: return IRRuntimeHelpers.bitwiseAnd(context, lhs, rhs);
+            case BITWISE_OR: return IRRuntimeHelpers.bitwiseOr(context, lhs, rhs);
+            case BITWISE_XOR: return IRRuntimeHelpers.bitwiseXor(context, lhs, rhs);
+            case EQUAL: return IRRuntimeHelpers.equal(context, lhs, rhs);
+            case NOT_EQUAL: return IRRuntimeHelpers.notEqual(context, lhs, rhs);
+            case STRICT_EQUAL: return IRRuntimeHelpers.strictEqual(context, lhs, rhs);
+            case STRICT_NOT_EQUAL: return IRRuntimeHelpers.strictNotEqual(context, lhs, rhs);
+            case IN: return IRRuntimeHelpers.in(context, lhs, rhs);
+            case INSTANCEOF: return IRRuntimeHelpers.instanceOf(context, lhs, rhs);
         }
 
-        Number lhsNum = Types.toNumber(context, lhs);
-        Number rhsNum = Types.toNumber(context, rhs);
-
-        if (Double.isNaN(lhsNum.doubleValue()) || Double.isNaN(rhsNum.doubleValue())) {
-            return(Double.NaN);
-        }
-
-        if (lhsNum instanceof Double || rhsNum instanceof Double) {
-            if (lhsNum.doubleValue() == 0.0 && rhsNum.doubleValue() == 0.0) {
-                if (Double.compare(lhsNum.doubleValue(), 0.0) < 0 && Double.compare(rhsNum.doubleValue(), 0.0) < 0) {
-                    return(-0.0);
-                } else {
-                    return(0.0);
-                }
-            }
+        throw new RuntimeException("Unhandled binary instruction: " + instr);
+    }
 
-            return(lhsNum.doubleValue() - rhsNum.doubleValue());
+    private static Object unary(ExecutionContext context, UnaryInstr instr, Object value) {
+        switch (instr.getOperation()) {
+            case NOT: return IRRuntimeHelpers.not(value);
+            case NEGATE: return IRRuntimeHelpers.negate(context, value);
+            case TO_NUMBER: return IRRuntimeHelpers.toNumber(context, value);
+            case BITWISE_NOT: return IRRuntimeHelpers.bitwiseNot(context, value);
+            case PROPERTY_NAMES: return IRRuntimeHelpers.propertyNames(context, value);
+            case HAS_NEXT_PROPERTY: return IRRuntimeHelpers.hasNextProperty(value);
+            case NEXT_PROPERTY: return IRRuntimeHelpers.nextProperty(value);
         }
 
-        return(lhsNum.longValue() - rhsNum.longValue());
+        throw new RuntimeException("Unhandled unary instruction: " + instr);
     }
 }
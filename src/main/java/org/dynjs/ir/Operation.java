@@ -1,7 +1,13 @@
 package org.dynjs.ir;
 
 public enum Operation {
-    BEQ, COPY, LT, JUMP, LE, MUL, LABEL, RETURN, CALL, PROPERTY_LOOKUP, THROW_EXCEPTION,
+    BEQ, COPY, LT, JUMP, LE, MUL, LABEL, RETURN, CALL, CALL_METHOD, PROPERTY_LOOKUP, THROW_EXCEPTION,
     EXCEPTION_REGION_END, EXCEPTION_REGION_START, DEFINE_FUNCTION, ADD, SUB, RECEIVE_FUNCTION_PARAM,
     CONSTRUCTOR, RAISE, INSTANCEOF,
+    B_TRUE, B_FALSE, DIV, MOD, GT, GE, SHIFT_LEFT, SHIFT_RIGHT, UNSIGNED_SHIFT_RIGHT, BITWISE_AND,
+    BITWISE_OR, BITWISE_XOR, BITWISE_NOT, EQUAL, NOT_EQUAL, STRICT_EQUAL, STRICT_NOT_EQUAL, NOT, NEGATE,
+    TO_NUMBER, TYPEOF, IN, DELETE_PROPERTY, DELETE_NAME, PROPERTY_ASSIGN, ELEMENT_LOOKUP, ELEMENT_ASSIGN,
+    ARRAY_LITERAL, OBJECT_LITERAL, REGEXP_LITERAL, PROPERTY_NAMES, HAS_NEXT_PROPERTY, NEXT_PROPERTY,
+    RECEIVE_EXCEPTION, RECEIVE_JS_EXCEPTION, SAVE_ENVIRONMENT, RESTORE_ENVIRONMENT, ENTER_WITH, ENTER_CATCH,
+    INLINE_GUARD, LOAD_NAME, SWITCH,
 }
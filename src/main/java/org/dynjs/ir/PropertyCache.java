@@ -0,0 +1,383 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import org.dynjs.runtime.DeclarativeEnvironmentRecord;
+import org.dynjs.runtime.DynObject;
+import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.EnvironmentRecord;
+import org.dynjs.runtime.JSObject;
+import org.dynjs.runtime.LexicalEnvironment;
+import org.dynjs.runtime.ObjectEnvironmentRecord;
+import org.dynjs.runtime.PropertyDescriptor;
+import org.dynjs.runtime.Shape;
+import org.dynjs.runtime.Types;
+
+/**
+ * Monomorphic inline cache for one property access or method call instruction.
+ *
+ * A cache remembers the class and shape of the last receiver it saw, and when
+ * the property was found on a prototype, the shape and identity of every
+ * object along the way.  While those still match the property is read straight
+ * out of its slot.  Anything else (primitives, accessors, objects which
+ * override property lookup or have dropped their shape) takes the generic
+ * path in IRRuntimeHelpers.  A site which keeps missing is left uncached.
+ *
+ * Names which LoopInvariantCodeMotion found to be read the same way each time
+ * round a loop remember where their binding was found: the descriptor of a
+ * declarative binding or the object holding it, and the version of each
+ * declarative record searched on the way.  While the lexical environment and
+ * those versions are the same the value is read straight out of the binding.
+ */
+public class PropertyCache {
+    private static final int MAXIMUM_DEPTH = 4;
+    private static final int MAXIMUM_UPDATES = 16;
+
+    private static final AtomicLongFieldUpdater<PropertyCache> HITS = AtomicLongFieldUpdater.newUpdater(PropertyCache.class, "hits");
+    private static final AtomicLongFieldUpdater<PropertyCache> MISSES = AtomicLongFieldUpdater.newUpdater(PropertyCache.class, "misses");
+
+    private static final ClassValue<Boolean> READABLE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return inherits(type, "getOwnProperty", ExecutionContext.class, String.class, boolean.class) &&
+                    inherits(type, "getProperty", ExecutionContext.class, String.class, boolean.class) &&
+                    inherits(type, "get", ExecutionContext.class, String.class);
+        }
+    };
+
+    private static final ClassValue<Boolean> WRITABLE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return READABLE.get(type) &&
+                    inherits(type, "put", ExecutionContext.class, String.class, Object.class, boolean.class) &&
+                    inherits(type, "canPut", ExecutionContext.class, String.class) &&
+                    inherits(type, "defineOwnProperty", ExecutionContext.class, String.class, PropertyDescriptor.class, boolean.class);
+        }
+    };
+
+    private final CallProfile profile;
+    private Entry entry;
+    private int updates;
+    // Counted only when the runtime has a PropertyCacheReport
+    private volatile long hits;
+    private volatile long misses;
+
+    private LexicalEnvironment nameEnvironment;
+    private DeclarativeEnvironmentRecord[] nameRecords;
+    private int[] nameVersions;
+    // The binding's descriptor when declarative, else the object with it as own property
+    private PropertyDescriptor nameBinding;
+    private JSObject nameObject;
+
+    public PropertyCache() {
+        this(null);
+    }
+
+    /**
+     * Cache of a method call site which records what it calls in profile.
+     */
+    public PropertyCache(CallProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Hits so far, if the runtime counts them (see DynJS.getPropertyCacheReport()).
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    private void hit(ExecutionContext context) {
+        PropertyCacheReport report = context.getRuntime().getPropertyCacheReport();
+
+        if (report == null) return;
+
+        HITS.incrementAndGet(this);
+        report.hit();
+    }
+
+    private void miss(ExecutionContext context) {
+        PropertyCacheReport report = context.getRuntime().getPropertyCacheReport();
+
+        if (report == null) return;
+
+        // every cache misses before it can hit
+        if (MISSES.getAndIncrement(this) == 0) report.used();
+        report.miss();
+    }
+
+    public Object get(ExecutionContext context, Object base, String name) {
+        PropertyDescriptor desc = cached(base, name);
+
+        if (desc != null) {
+            hit(context);
+            Object value = desc.getValue();
+            return value == null ? Types.UNDEFINED : value;
+        }
+
+        miss(context);
+        Object value = IRRuntimeHelpers.getProperty(context, base, name);
+        if (base instanceof DynObject) update(lookup((DynObject) base, name));
+
+        return value;
+    }
+
+    /**
+     * Read of a property LoopInvariantCodeMotion found to be the same each time
+     * round a loop.  The guards of the cache (class, shapes and prototypes)
+     * already cover everything which can change what it answers except the
+     * value, which is read out of its slot, so this is get.
+     */
+    public Object getInvariant(ExecutionContext context, Object base, String name) {
+        return get(context, base, name);
+    }
+
+    /**
+     * Value of a name, read straight out of the binding it was found in last
+     * time while the lexical environment it is looked up in is the same and no
+     * declarative record searched has gained or lost a binding.  Only bindings
+     * which are not computed on each read are remembered: those of declarative
+     * records and own data properties of ordinary objects (the global object)
+     * with only declarative records before them.
+     */
+    public Object getName(ExecutionContext context, String name) {
+        LexicalEnvironment environment = context.getLexicalEnvironment();
+
+        if (environment == nameEnvironment && unchanged()) {
+            PropertyDescriptor desc = nameBinding != null ? nameBinding : ownDataProperty(context, nameObject, name);
+            if (desc != null) {
+                hit(context);
+                return desc.getValue();
+            }
+        }
+
+        miss(context);
+        Object value = context.resolve(name).getValue(context);
+
+        rememberName(context, environment, name);
+
+        return value;
+    }
+
+    private boolean unchanged() {
+        DeclarativeEnvironmentRecord[] records = nameRecords;
+        int[] versions = nameVersions;
+
+        for (int i = 0; i < records.length; i++) {
+            if (records[i].getVersion() != versions[i]) return false;
+        }
+
+        return true;
+    }
+
+    // Where name is found from environment, if it is a binding getName can remember
+    private void rememberName(ExecutionContext context, LexicalEnvironment environment, String name) {
+        nameEnvironment = null;
+
+        List<DeclarativeEnvironmentRecord> records = new ArrayList<>();
+        for (LexicalEnvironment each = environment; each != null; each = each.getOuter()) {
+            EnvironmentRecord record = each.getRecord();
+
+            if (record instanceof DeclarativeEnvironmentRecord) {
+                DeclarativeEnvironmentRecord declarative = (DeclarativeEnvironmentRecord) record;
+                records.add(declarative);
+
+                if (!declarative.hasBinding(context, name)) continue;
+
+                PropertyDescriptor binding = declarative.getInitializedBinding(name);
+                if (binding != null) rememberName(environment, records, binding, null);
+                return;
+            }
+
+            if (!(record instanceof ObjectEnvironmentRecord)) return;
+
+            JSObject object = ((ObjectEnvironmentRecord) record).getBindingObject();
+            if (isReadable(object.getClass()) && ownDataProperty(context, object, name) != null) {
+                rememberName(environment, records, null, object);
+            }
+            return;
+        }
+    }
+
+    private void rememberName(LexicalEnvironment environment, List<DeclarativeEnvironmentRecord> records,
+                              PropertyDescriptor binding, JSObject object) {
+        int[] versions = new int[records.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = records.get(i).getVersion();
+        }
+
+        nameRecords = records.toArray(new DeclarativeEnvironmentRecord[versions.length]);
+        nameVersions = versions;
+        nameBinding = binding;
+        nameObject = object;
+        nameEnvironment = environment;
+    }
+
+    private static PropertyDescriptor ownDataProperty(ExecutionContext context, JSObject object, String name) {
+        Object desc = object.getOwnProperty(context, name, false);
+
+        if (!(desc instanceof PropertyDescriptor) || !((PropertyDescriptor) desc).isDataDescriptor()) return null;
+
+        return (PropertyDescriptor) desc;
+    }
+
+    // Descriptor of the data property this cache says name of base is or null
+    private PropertyDescriptor cached(Object base, String name) {
+        Entry entry = this.entry;
+
+        if (entry == null || base == null || base.getClass() != entry.type || !name.equals(entry.name)) return null;
+
+        DynObject object = (DynObject) base;
+        if (object.getShape() != entry.shapes[0]) return null;
+
+        int depth = 0;
+        while (depth < entry.prototypes.length && object.getPrototype() == entry.prototypes[depth]) {
+            object = entry.prototypes[depth++];
+            if (object.getShape() != entry.shapes[depth]) return null;
+        }
+
+        if (depth != entry.prototypes.length) return null;
+
+        PropertyDescriptor desc = object.getSlot(entry.index);
+
+        return desc.isDataDescriptor() ? desc : null;
+    }
+
+    public Object getElement(ExecutionContext context, Object base, Object index) {
+        Types.checkObjectCoercible(context, base);
+
+        return get(context, base, Types.toString(context, index));
+    }
+
+    public void put(ExecutionContext context, Object base, String name, Object value) {
+        Entry entry = this.entry;
+
+        if (entry != null && base != null && base.getClass() == entry.type && name.equals(entry.name) &&
+                ((DynObject) base).getShape() == entry.shapes[0]) {
+            PropertyDescriptor desc = ((DynObject) base).getSlot(entry.index);
+
+            if (desc.isDataDescriptor() && desc.isWritable()) {
+                hit(context);
+                desc.setValue(value);
+                return;
+            }
+        }
+
+        miss(context);
+        IRRuntimeHelpers.setProperty(context, base, name, value);
+        if (base instanceof DynObject && WRITABLE.get(base.getClass())) update(lookupOwn((DynObject) base, name));
+    }
+
+    public void putElement(ExecutionContext context, Object base, Object index, Object value) {
+        Types.checkObjectCoercible(context, base);
+
+        put(context, base, Types.toString(context, index), value);
+    }
+
+    public Object call(ExecutionContext context, Object base, String name, Object[] args) {
+        Object function = get(context, base, name);
+
+        if (profile != null) profile.record(function);
+
+        return IRRuntimeHelpers.call(context, function, base, args);
+    }
+
+    private void update(Entry entry) {
+        if (entry == null || updates >= MAXIMUM_UPDATES) return;
+
+        updates++;
+        this.entry = entry;
+    }
+
+    // Only own data properties are written through the cache
+    private static Entry lookupOwn(DynObject object, String name) {
+        Shape shape = object.getShape();
+        if (shape == null) return null;
+
+        int index = shape.indexOf(name);
+        if (index < 0 || !object.getSlot(index).isDataDescriptor()) return null;
+
+        return new Entry(object.getClass(), name, new Shape[] { shape }, new DynObject[0], index);
+    }
+
+    private static Entry lookup(DynObject receiver, String name) {
+        List<Shape> shapes = new ArrayList<>();
+        List<DynObject> prototypes = new ArrayList<>();
+        DynObject object = receiver;
+
+        while (READABLE.get(object.getClass())) {
+            Shape shape = object.getShape();
+            if (shape == null) return null;
+
+            shapes.add(shape);
+
+            int index = shape.indexOf(name);
+            if (index >= 0) {
+                if (!object.getSlot(index).isDataDescriptor()) return null;
+
+                return new Entry(receiver.getClass(), name, shapes.toArray(new Shape[shapes.size()]),
+                        prototypes.toArray(new DynObject[prototypes.size()]), index);
+            }
+
+            JSObject prototype = object.getPrototype();
+            if (!(prototype instanceof DynObject) || prototypes.size() == MAXIMUM_DEPTH) return null;
+
+            object = (DynObject) prototype;
+            prototypes.add(object);
+        }
+
+        return null;
+    }
+
+    /**
+     * Are properties of objects of type found the way DynObject finds them?
+     */
+    public static boolean isReadable(Class<?> type) {
+        return READABLE.get(type);
+    }
+
+    private static boolean inherits(Class<?> type, String name, Class<?>... parameters) {
+        try {
+            return type.getMethod(name, parameters).getDeclaringClass() == DynObject.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static class Entry {
+        final Class<?> type;
+        final String name;
+        // receiver shape followed by the shape of each prototype in turn
+        final Shape[] shapes;
+        final DynObject[] prototypes;
+        final int index;
+
+        Entry(Class<?> type, String name, Shape[] shapes, DynObject[] prototypes, int index) {
+            this.type = type;
+            this.name = name;
+            this.shapes = shapes;
+            this.prototypes = prototypes;
+            this.index = index;
+        }
+    }
+}
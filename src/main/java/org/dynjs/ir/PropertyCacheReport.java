@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hits and misses of the property caches of one runtime (see DynJS), printed
+ * to stderr on exit.  Caches count into the report of the runtime they run in
+ * and only totals are kept here, so caches no longer used go away as they
+ * would have without a report.
+ */
+public class PropertyCacheReport {
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PropertyCacheReport() {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                System.err.print(getReport());
+            }
+        });
+    }
+
+    void used() {
+        used.incrementAndGet();
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Sites used, hits and misses totalled over the caches of the runtime.
+     */
+    public String getReport() {
+        long hits = this.hits.get();
+        long misses = this.misses.get();
+        long total = hits + misses;
+
+        return String.format("property caches: %d sites used, %d hits, %d misses, %.1f%% hit rate%n",
+                used.get(), hits, misses, total == 0 ? 0.0 : 100.0 * hits / total);
+    }
+}
@@ -17,41 +17,97 @@ package org.dynjs.ir;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.dynjs.ir.operands.Label;
 import org.dynjs.ir.operands.LocalVariable;
 import org.dynjs.ir.operands.TemporaryVariable;
 import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.passes.Inliner;
+import org.dynjs.ir.passes.PassManager;
 import org.dynjs.ir.representations.BasicBlock;
 import org.dynjs.ir.representations.CFG;
 import org.dynjs.ir.representations.CFGLinearizer;
-import org.jruby.dirgra.DirectedGraph;
+import org.dynjs.parser.ast.VariableDeclaration;
+import org.dynjs.runtime.ExecutionContext;
 
-// FIXME: Modelled as single scope now but I doubt this will hold for long.
+/**
+ * Instructions of a program or function body plus what is needed to run them.
+ *
+ * A scope keeps its variables in one of two places.  Normally each declared name
+ * gets a slot in the VariableValues allocated for every call, and inner scopes
+ * address it by offset and depth.  A scope which usesEnvironment() instead keeps
+ * them as bindings in its LexicalEnvironment (see ScopeAnalysis for when), and
+ * names declared by it are looked up dynamically.
+ */
 public class Scope {
     private Scope parent;
 
     private Map<Integer, Variable> temporaryVariables = new HashMap<>();
     private int temporaryVariablesIndex = 0;
+    // What each temporary holds by offset when TypeInference has run
+    private ValueType[] temporaryTypes;
+    // Inline caches of property instructions in the order compiled code indexes them
+    private PropertyCache[] propertyCaches;
+    // Callees whose inline guards compiled code indexes the same way
+    private FunctionScope[] inlinedScopes;
 
     private Map<String, LocalVariable> localVariables = new HashMap<>();
     // What next variable index will be (also happens to be current size
     private int localVariablesIndex = 0;
 
+    // Names bound in the environment when usesEnvironment is set
+    private Set<String> declaredNames = new LinkedHashSet<>();
+
+    // Catch parameters currently in scope (null variable means bound in environment)
+    private List<BlockVariable> blockVariables = new ArrayList<>();
+
+    // What break/continue/return have to unwind while building
+    private List<ControlFrame> frames = new ArrayList<>();
+
+    private List<FunctionScope> children = new ArrayList<>();
+
     private List<Instruction> instructions = new ArrayList<>();
 
     private Map<String, Integer> nextVarIndex = new HashMap<>();
 
-    private HashMap<Integer, Integer> rescueMap;
-
     private boolean isStrict;
     private String fileName;
+    private boolean usesEnvironment;
+    private boolean dynamic;
+
+    // Builder state: facts about the body being built and the program's completion value
+    private ScopeAnalysis analysis;
+    private Variable completionVariable;
+
+    // Optimizations run over the CFG before it is used (children share their parent's)
+    private PassManager passManager;
+
+    private CFG cfg;
+    private List<BasicBlock> linearizedBBs;
+    private Instruction[] preparedInstructions;
+    private int[] rescuePCs;
+    private volatile CompiledScope compiled;
+
+    // Executions so far and whether the CFG has been reoptimized (or never will be).  Until then
+    // executions hold the read lock of rewrite and reoptimizing its write lock.
+    private final AtomicInteger executions = new AtomicInteger();
+    private final ReentrantReadWriteLock rewrite = new ReentrantReadWriteLock();
+    private volatile boolean reoptimized;
+    // Calls the Inliner could inline, as first built
+    private CallProfile[] callProfiles;
 
     public Scope(Scope parent, String fileName, boolean isStrict) {
         this.parent = parent;
         this.fileName = fileName;
         this.isStrict = isStrict;
+
+        if (parent != null) passManager = parent.getPassManager();
     }
 
     public Instruction addInstruction(Instruction instruction) {
@@ -60,6 +116,10 @@ public class Scope {
         return instruction;
     }
 
+    public Scope getParent() {
+        return parent;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -72,9 +132,92 @@ public class Scope {
         return instructions;
     }
 
+    /**
+     * Are variables of this scope bindings in its environment rather than slots?
+     */
+    public boolean usesEnvironment() {
+        return usesEnvironment;
+    }
+
+    public void setUsesEnvironment(boolean usesEnvironment) {
+        this.usesEnvironment = usesEnvironment;
+    }
+
+    /**
+     * Can names used in this scope resolve to bindings not known while building (with, eval)?
+     */
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    public void setDynamic(boolean dynamic) {
+        this.dynamic = dynamic;
+    }
+
+    ScopeAnalysis getAnalysis() {
+        return analysis;
+    }
+
+    void setAnalysis(ScopeAnalysis analysis) {
+        this.analysis = analysis;
+    }
+
+    Variable getCompletionVariable() {
+        return completionVariable;
+    }
+
+    void setCompletionVariable(Variable completionVariable) {
+        this.completionVariable = completionVariable;
+    }
+
+    public PassManager getPassManager() {
+        return passManager;
+    }
+
+    public void setPassManager(PassManager passManager) {
+        this.passManager = passManager;
+    }
+
+    public void addChild(FunctionScope child) {
+        children.add(child);
+    }
+
+    public List<FunctionScope> getChildren() {
+        return children;
+    }
+
+    /**
+     * Declare a var, parameter or function name of this scope.
+     */
+    public void declareVariable(String name) {
+        if (usesEnvironment) {
+            declaredNames.add(name);
+        } else {
+            acquireLocalVariable(name);
+        }
+    }
+
+    protected boolean declares(String name) {
+        return declaredNames.contains(name);
+    }
+
+    /**
+     * Names which the environment of this scope must bind before it runs.
+     */
+    public List<VariableDeclaration> getVariableDeclarations() {
+        List<VariableDeclaration> declarations = new ArrayList<>();
+
+        for (String name: declaredNames) {
+            declarations.add(new VariableDeclaration(null, name, null));
+        }
+
+        return declarations;
+    }
+
     /**
      * Tries to find a variable or returns null if it cannot.  This
-     * will walk all scopes to find a captured variable.
+     * will walk all scopes to find a captured variable.  Null means the name
+     * has to be resolved through the environment.
      */
     public LocalVariable findVariable(String name) {
         return findVariable(name, 0);
@@ -85,15 +228,18 @@ public class Scope {
      * will walk all scopes to find a captured variable.
      */
     public LocalVariable findVariable(String name, int depth) {
-        LocalVariable variable = localVariables.get(name);
+        for (int i = blockVariables.size() - 1; i >= 0; i--) {
+            BlockVariable blockVariable = blockVariables.get(i);
 
-        if (variable != null) {
-            // Destined scope need adjusted variable since it need to know how deep to look for it.
-            if (depth != 0) {
-                return new LocalVariable(name, variable.getOffset(), depth);
-            }
+            if (blockVariable.name.equals(name)) return atDepth(blockVariable.variable, depth);
+        }
+
+        if (usesEnvironment) {
+            if (dynamic || declares(name)) return null;
+        } else {
+            LocalVariable variable = localVariables.get(name);
 
-            return variable;
+            if (variable != null) return atDepth(variable, depth);
         }
 
         if (parent != null) {
@@ -103,16 +249,26 @@ public class Scope {
         return null;
     }
 
+    private LocalVariable atDepth(LocalVariable variable, int depth) {
+        // Destined scope need adjusted variable since it need to know how deep to look for it.
+        if (variable == null || depth == 0) return variable;
+
+        return new LocalVariable(variable.getName(), variable.getOffset(), depth);
+    }
+
     public int getLocalVariableSize() {
         return localVariablesIndex;
     }
 
+    void setLocalVariableSize(int size) {
+        localVariablesIndex = size;
+    }
+
     /**
-     * Return an existing variable or return a new one made in this scope.
+     * Return an existing variable of this scope or return a new one made in this scope.
      */
-    public Variable acquireLocalVariable(String name) {
-        int depth = 0;
-        LocalVariable variable = findVariable(name, depth);
+    public LocalVariable acquireLocalVariable(String name) {
+        LocalVariable variable = localVariables.get(name);
 
         if (variable == null) {
             variable = new LocalVariable(name, localVariablesIndex, 0);
@@ -123,6 +279,39 @@ public class Scope {
         return variable;
     }
 
+    /**
+     * Make name (a catch parameter) visible until popBlockVariable.  In a scope with
+     * slots it gets a fresh one, otherwise it is expected to be bound in the environment.
+     */
+    public LocalVariable pushBlockVariable(String name) {
+        LocalVariable variable = null;
+
+        if (!usesEnvironment) {
+            variable = new LocalVariable(name, localVariablesIndex, 0);
+            localVariablesIndex++;
+        }
+
+        blockVariables.add(new BlockVariable(name, variable));
+
+        return variable;
+    }
+
+    public void popBlockVariable() {
+        blockVariables.remove(blockVariables.size() - 1);
+    }
+
+    List<ControlFrame> getFrames() {
+        return frames;
+    }
+
+    void pushFrame(ControlFrame frame) {
+        frames.add(frame);
+    }
+
+    void popFrame() {
+        frames.remove(frames.size() - 1);
+    }
+
     // FIXME: Do I care about all the boxing here of index?
     public Variable acquireTemporaryVariable(int index) {
         Variable variable = temporaryVariables.get(index);
@@ -142,6 +331,48 @@ public class Scope {
         return temporaryVariablesIndex;
     }
 
+    public ValueType getTemporaryType(int offset) {
+        if (temporaryTypes == null || offset >= temporaryTypes.length) return ValueType.ANY;
+
+        return temporaryTypes[offset];
+    }
+
+    public ValueType[] getTemporaryTypes() {
+        return temporaryTypes;
+    }
+
+    public void setTemporaryTypes(ValueType[] temporaryTypes) {
+        this.temporaryTypes = temporaryTypes;
+    }
+
+    public PropertyCache[] getPropertyCaches() {
+        return propertyCaches;
+    }
+
+    public void setPropertyCaches(PropertyCache[] propertyCaches) {
+        this.propertyCaches = propertyCaches;
+    }
+
+    public FunctionScope[] getInlinedScopes() {
+        return inlinedScopes;
+    }
+
+    public void setInlinedScopes(FunctionScope[] inlinedScopes) {
+        this.inlinedScopes = inlinedScopes;
+    }
+
+    /**
+     * Shrink the temporaries of this scope once they have been renumbered (TemporaryCoalescing).
+     */
+    public void setTemporaryVariableSize(int size) {
+        temporaryVariablesIndex = size;
+    }
+
+    // Next index of each label prefix (IRWriter and IRReader keep them so later labels stay unique)
+    Map<String, Integer> getPrefixCounts() {
+        return nextVarIndex;
+    }
+
     protected int getPrefixCountSize(String prefix) {
         Integer index = nextVarIndex.get(prefix);
 
@@ -166,41 +397,163 @@ public class Scope {
         return getNewLabel("LBL");
     }
 
+    /**
+     * Run this scope: its compiled form when it has one, otherwise interpret it.
+     */
+    public Object execute(ExecutionContext context) {
+        if (!reoptimized) return executeProfiled(context);
+
+        CompiledScope code = compiled;
+
+        if (code != null) return code.execute(context, this);
+
+        return Interpreter.execute(context, this, prepareForInterpret());
+    }
+
+    // Until the Inliner has had its go executions are counted and hold the read lock
+    private Object executeProfiled(ExecutionContext context) {
+        Inliner inliner = passManager == null ? null : passManager.getInliner();
+
+        if (inliner == null || getCallProfiles().length == 0) {
+            reoptimized = true;
+        } else if (hasHotCall(inliner.getThreshold())) {
+            reoptimize(context);
+        } else if (executions.incrementAndGet() > inliner.getThreshold()) {
+            // none of its calls runs often enough to be worth inlining
+            reoptimized = true;
+        }
 
-    public Instruction[] prepareForInterpret() {
-        final CFG cfg = new CFG(this);
-        final DirectedGraph<BasicBlock> graph = cfg.build(getInstructions());
+        Lock lock = rewrite.readLock();
+        lock.lock();
+        try {
+            CompiledScope code = compiled;
 
-        // FIXME: Add debug config for this
-        System.out.println(cfg.toStringInstrs());
-        System.out.println(graph.toString());
+            if (code != null) return code.execute(context, this);
 
-        // FIXME: We don't save this linearized set yet
-        return prepareIPCs(CFGLinearizer.linearize(cfg), cfg);
+            return Interpreter.execute(context, this, prepareForInterpret());
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public List<BasicBlock> prepareForCompilation() {
-        final CFG cfg = new CFG(this);
-        cfg.build(getInstructions());
-        return CFGLinearizer.linearize(cfg);
+    private boolean hasHotCall(int threshold) {
+        for (CallProfile profile : getCallProfiles()) {
+            if (profile.getCount() >= threshold) return true;
+        }
+
+        return false;
     }
 
-    private static Label[] catLabels(Label[] labels, Label cat) {
-        if (labels == null) return new Label[] {cat};
-        Label[] newLabels = new Label[labels.length + 1];
-        System.arraycopy(labels, 0, newLabels, 0, labels.length);
-        newLabels[labels.length] = cat;
-        return newLabels;
+    private synchronized CallProfile[] getCallProfiles() {
+        if (callProfiles == null) {
+            List<CallProfile> profiles = new ArrayList<>();
+
+            for (BasicBlock bb : getCFG().getBasicBlocks()) {
+                for (Instruction instruction : bb.getInstructions()) {
+                    CallProfile profile = Inliner.getProfile(instruction);
+
+                    if (profile != null) profiles.add(profile);
+                }
+            }
+
+            callProfiles = profiles.toArray(new CallProfile[profiles.size()]);
+        }
+
+        return callProfiles;
+    }
+
+    /**
+     * Run the passes again now that the call sites of this scope know what they call
+     * (see Inliner) and recompile if it had been compiled.  Instructions are changed
+     * in place so this only happens when no execution of this scope is under way,
+     * recursive ones included; otherwise a later execution tries again.  A call in a
+     * loop of a scope entered once is inlined when the scope is next entered.
+     */
+    private synchronized void reoptimize(ExecutionContext context) {
+        Lock lock = rewrite.writeLock();
+
+        if (!lock.tryLock()) return;
+
+        try {
+            if (!reoptimized && passManager.reoptimize(getCFG())) {
+                linearizedBBs = null;
+                preparedInstructions = null;
+
+                if (compiled != null) {
+                    // interpreted until (and unless) the new code is installed
+                    compiled = null;
+                    new IRByteCodeCompiler(context).recompile(this);
+                }
+            }
+        } finally {
+            reoptimized = true;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the CFG of this scope will not be rewritten again.
+     */
+    public boolean isReoptimized() {
+        return reoptimized;
+    }
+
+    public CompiledScope getCompiled() {
+        return compiled;
+    }
+
+    public void setCompiled(CompiledScope compiled) {
+        this.compiled = compiled;
+    }
+
+    /**
+     * CFG of this scope after the passes of its PassManager have run.  Built once
+     * on first use and shared by the Interpreter and IRByteCodeCompiler.
+     */
+    public synchronized CFG getCFG() {
+        if (cfg == null) {
+            CFG newCFG = new CFG(this);
+            newCFG.build(getInstructions());
+
+            if (passManager != null) passManager.run(newCFG);
+
+            cfg = newCFG;
+        }
+
+        return cfg;
+    }
+
+    /**
+     * Linearized instructions for the Interpreter.  Built once on first use.
+     */
+    public synchronized Instruction[] prepareForInterpret() {
+        if (preparedInstructions == null) {
+            preparedInstructions = prepareIPCs(prepareForCompilation(), getCFG());
+        }
+
+        return preparedInstructions;
+    }
+
+    /**
+     * IPC of the instruction which handles an exception raised by the instruction at ipc
+     * or -1 if it leaves this scope.
+     */
+    public int getRescuePC(int ipc) {
+        return rescuePCs[ipc];
+    }
+
+    public synchronized List<BasicBlock> prepareForCompilation() {
+        if (linearizedBBs == null) linearizedBBs = CFGLinearizer.linearize(getCFG());
+
+        return linearizedBBs;
     }
 
     private Instruction[] prepareIPCs(List<BasicBlock> list, CFG cfg) {
         // Set up IPCs
         List<Instruction> newInstrs = new ArrayList<Instruction>();
-        HashMap<Label, Integer> labelIPCMap = new HashMap<Label, Integer>();
         int ipc = 0;
         for (BasicBlock basicBlock: list) {
             Label label = basicBlock.getLabel();
-            labelIPCMap.put(label, ipc);
             // This assumes if multiple equal/same labels exist which are scattered around the scope
             // must be the same Java instance or only this one will get a targetPC set.
             label.setTargetIPC(ipc);
@@ -217,20 +570,29 @@ public class Scope {
 
         cfg.getExitBB().getLabel().setTargetIPC(ipc + 1);  // Exit BasicBlock IPC
 
-
-        setupRescueMap(list, cfg); // Set up the rescue map
+        setupRescueMap(list, cfg, ipc); // Set up the rescue map
 
         return newInstrs.toArray(new Instruction[newInstrs.size()]);
     }
 
-    public void setupRescueMap(List<BasicBlock> list, CFG cfg) {
-        rescueMap = new HashMap<Integer, Integer>();
+    private void setupRescueMap(List<BasicBlock> list, CFG cfg, int size) {
+        rescuePCs = new int[size];
         for (BasicBlock basicBlock : list) {
             BasicBlock rescuerBB = cfg.getRescuerBBFor(basicBlock);
             int rescuerPC = (rescuerBB == null) ? -1 : rescuerBB.getLabel().getTargetIPC();
             for (Instruction instruction : basicBlock.getInstructions()) {
-                rescueMap.put(instruction.getIPC(), rescuerPC);
+                rescuePCs[instruction.getIPC()] = rescuerPC;
             }
         }
     }
+
+    private static class BlockVariable {
+        final String name;
+        final LocalVariable variable;
+
+        BlockVariable(String name, LocalVariable variable) {
+            this.name = name;
+            this.variable = variable;
+        }
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.dynjs.parser.DefaultVisitor;
+import org.dynjs.parser.Statement;
+import org.dynjs.parser.ast.Expression;
+import org.dynjs.parser.ast.FunctionCallExpression;
+import org.dynjs.parser.ast.FunctionDeclaration;
+import org.dynjs.parser.ast.FunctionExpression;
+import org.dynjs.parser.ast.IdentifierReferenceExpression;
+import org.dynjs.parser.ast.NewOperatorExpression;
+import org.dynjs.parser.ast.PropertyGet;
+import org.dynjs.parser.ast.PropertySet;
+import org.dynjs.parser.ast.WithStatement;
+
+/**
+ * What the Builder needs to know about a function body before it builds it: the
+ * function declarations it has to hoist and whether its variables can live in
+ * VariableValues or must live in a real environment.  A body which contains with
+ * or a direct eval is dynamic since names in it can come from anywhere.  Such a
+ * body and every body around it keep their variables in the environment, as does
+ * one which uses arguments (its mapping aliases the parameters).
+ */
+public class ScopeAnalysis extends DefaultVisitor {
+    private final List<FunctionDeclaration> functionDeclarations = new ArrayList<>();
+    private final Map<Statement, ScopeAnalysis> children = new IdentityHashMap<>();
+
+    private boolean usesArguments;
+    private boolean usesWith;
+    private boolean usesEval;
+    private boolean nestedDynamic;
+
+    public static ScopeAnalysis analyze(Statement body, boolean strict) {
+        ScopeAnalysis analysis = new ScopeAnalysis();
+
+        body.accept(null, analysis, strict);
+
+        return analysis;
+    }
+
+    /**
+     * Function declarations of this body in source order (not those of nested functions).
+     */
+    public List<FunctionDeclaration> getFunctionDeclarations() {
+        return functionDeclarations;
+    }
+
+    public ScopeAnalysis getChild(Statement body) {
+        return children.get(body);
+    }
+
+    public boolean isDynamic() {
+        return usesWith || usesEval;
+    }
+
+    public boolean usesEnvironment() {
+        return isDynamic() || nestedDynamic || usesArguments;
+    }
+
+    private void addChild(Statement body, boolean strict) {
+        ScopeAnalysis child = analyze(body, strict);
+
+        children.put(body, child);
+        if (child.isDynamic() || child.nestedDynamic) nestedDynamic = true;
+    }
+
+    @Override
+    public Object visit(Object context, FunctionDeclaration statement, boolean strict) {
+        functionDeclarations.add(statement);
+        addChild(statement.getBlock(), strict || statement.isStrict());
+        return null;
+    }
+
+    @Override
+    public Object visit(Object context, FunctionExpression expr, boolean strict) {
+        addChild(expr.getDescriptor().getBlock(), strict || expr.getDescriptor().isStrict());
+        return null;
+    }
+
+    @Override
+    public Object visit(Object context, PropertyGet propertyGet, boolean strict) {
+        addChild(propertyGet.getBlock(), strict);
+        return null;
+    }
+
+    @Override
+    public Object visit(Object context, PropertySet propertySet, boolean strict) {
+        addChild(propertySet.getBlock(), strict);
+        return null;
+    }
+
+    @Override
+    public Object visit(Object context, IdentifierReferenceExpression expr, boolean strict) {
+        if ("arguments".equals(expr.getIdentifier())) usesArguments = true;
+        return null;
+    }
+
+    @Override
+    public Object visit(Object context, WithStatement statement, boolean strict) {
+        usesWith = true;
+        return super.visit(context, statement, strict);
+    }
+
+    @Override
+    public Object visit(Object context, FunctionCallExpression expr, boolean strict) {
+        if (expr.getMemberExpression() instanceof IdentifierReferenceExpression &&
+                "eval".equals(((IdentifierReferenceExpression) expr.getMemberExpression()).getIdentifier())) {
+            usesEval = true;
+        }
+        return super.visit(context, expr, strict);
+    }
+
+    // DefaultVisitor only walks the constructor expression
+    @Override
+    public Object visit(Object context, NewOperatorExpression expr, boolean strict) {
+        expr.getExpr().accept(context, this, strict);
+        for (Expression each : expr.getArgumentExpressions()) {
+            each.accept(context, this, strict);
+        }
+        return null;
+    }
+}
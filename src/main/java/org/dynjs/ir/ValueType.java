@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir;
+
+/**
+ * What is known about the values a temporary can hold (see TypeInference).
+ * IRByteCodeCompiler keeps INTEGER, FLOAT and BOOLEAN temporaries unboxed.
+ */
+public enum ValueType {
+    INTEGER,  // always a Long
+    FLOAT,    // always a Double
+    NUMBER,   // always a Number
+    BOOLEAN,
+    STRING,
+    ANY;
+
+    public boolean isNumeric() {
+        return this == INTEGER || this == FLOAT || this == NUMBER;
+    }
+
+    /**
+     * Type of a value which is either of this type or of other.  A null
+     * type means nothing is known yet.
+     */
+    public ValueType join(ValueType other) {
+        if (other == null || other == this) return this;
+        if (isNumeric() && other.isNumeric()) return NUMBER;
+
+        return ANY;
+    }
+}
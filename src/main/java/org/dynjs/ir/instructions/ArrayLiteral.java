@@ -0,0 +1,79 @@
+package org.dynjs.ir.instructions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Create an array from an array literal.  Elisions (holes) are null elements.
+ */
+public class ArrayLiteral extends Instruction implements ResultInstruction {
+    private Variable result;
+    private Operand[] elements;
+
+    public ArrayLiteral(Variable result, Operand[] elements) {
+        super(Operation.ARRAY_LITERAL);
+        this.result = result;
+        this.elements = elements;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public Operand[] getElements() {
+        return elements;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+
+        buf.append(result).append(" = [");
+        for (int i = 0; i < elements.length; i++) {
+            if (i != 0) buf.append(", ");
+            if (elements[i] != null) buf.append(elements[i]);
+        }
+        buf.append("]");
+
+        return buf.toString();
+    }
+
+    @Override
+    public Instruction copy() {
+        ArrayLiteral copy = (ArrayLiteral) super.copy();
+        copy.elements = elements.clone();
+        return copy;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        List<Operand> operands = new ArrayList<>();
+
+        for (Operand element : elements) {
+            if (element != null) operands.add(element);
+        }
+
+        return operands.toArray(new Operand[operands.size()]);
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        simplify(elements, valueMap);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
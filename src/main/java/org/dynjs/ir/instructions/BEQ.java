@@ -1,5 +1,6 @@
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
 import org.dynjs.ir.operands.Label;
@@ -34,4 +35,15 @@ public class BEQ extends Branch {
     public String toString() {
         return "BEQ " + arg1 + ", " + arg2 + " -> " + getTarget();
     }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { arg1, arg2 };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        arg1 = simplify(arg1, valueMap);
+        arg2 = simplify(arg2, valueMap);
+    }
 }
@@ -0,0 +1,36 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Label;
+
+/**
+ * Branch when the boolean value (ToBoolean) of an operand is true.
+ */
+public class BTrue extends Branch {
+    private Operand test;
+
+    public BTrue(Operand test, Label target) {
+        super(Operation.B_TRUE, target);
+        this.test = test;
+    }
+
+    public Operand getTest() {
+        return test;
+    }
+
+    public String toString() {
+        return "B_TRUE " + test + " -> " + getTarget();
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { test };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        test = simplify(test, valueMap);
+    }
+}
@@ -1,5 +1,6 @@
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
 import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
@@ -24,6 +25,11 @@ public abstract class BinaryInstr extends Instruction implements ResultInstructi
         return result;
     }
 
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
     public Operand getLHS() {
         return lhs;
     }
@@ -31,4 +37,15 @@ public abstract class BinaryInstr extends Instruction implements ResultInstructi
     public Operand getRHS() {
         return rhs;
     }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { lhs, rhs };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        lhs = simplify(lhs, valueMap);
+        rhs = simplify(rhs, valueMap);
+    }
 }
@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * 32 bit bitwise and.
+ */
+public class BitwiseAnd extends BinaryInstr {
+    public BitwiseAnd(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.BITWISE_AND, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " & " + getRHS();
+    }
+}
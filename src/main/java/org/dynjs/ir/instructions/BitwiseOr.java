@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * 32 bit bitwise or.
+ */
+public class BitwiseOr extends BinaryInstr {
+    public BitwiseOr(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.BITWISE_OR, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " | " + getRHS();
+    }
+}
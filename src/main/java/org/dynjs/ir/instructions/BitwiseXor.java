@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * 32 bit bitwise xor.
+ */
+public class BitwiseXor extends BinaryInstr {
+    public BitwiseXor(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.BITWISE_XOR, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " ^ " + getRHS();
+    }
+}
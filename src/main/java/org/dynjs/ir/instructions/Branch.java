@@ -16,8 +16,17 @@ public abstract class Branch extends Instruction {
         return target;
     }
 
+    public void setTarget(Label target) {
+        this.target = target;
+    }
+
     @Override
     public boolean transfersControl() {
         return true;
     }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
 }
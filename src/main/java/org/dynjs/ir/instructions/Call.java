@@ -1,5 +1,7 @@
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
+import org.dynjs.ir.CallProfile;
 import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
@@ -10,6 +12,7 @@ public class Call extends Instruction implements ResultInstruction {
     private Operand self;
     private Operand identifier;
     private Operand[] args;
+    private CallProfile profile = new CallProfile();
 
     public Call(Variable result, Operand self, Operand identifier, Operand[] args) {
         super(Operation.CALL);
@@ -23,6 +26,11 @@ public class Call extends Instruction implements ResultInstruction {
         return result;
     }
 
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
     public Operand getSelf() {
         return self;
     }
@@ -35,6 +43,10 @@ public class Call extends Instruction implements ResultInstruction {
         return args;
     }
 
+    public CallProfile getProfile() {
+        return profile;
+    }
+
     public String toString() {
         StringBuilder buf = new StringBuilder();
 
@@ -52,4 +64,30 @@ public class Call extends Instruction implements ResultInstruction {
 
         return buf.toString();
     }
+
+    @Override
+    public Instruction copy() {
+        Call copy = (Call) super.copy();
+        copy.args = args.clone();
+        copy.profile = new CallProfile();
+        return copy;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        Operand[] operands = new Operand[args.length + 2];
+
+        operands[0] = self;
+        operands[1] = identifier;
+        System.arraycopy(args, 0, operands, 2, args.length);
+
+        return operands;
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        self = simplify(self, valueMap);
+        identifier = simplify(identifier, valueMap);
+        simplify(args, valueMap);
+    }
 }
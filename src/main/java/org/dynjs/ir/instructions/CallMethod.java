@@ -0,0 +1,98 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.CallProfile;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.PropertyCache;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Call of a named method with its base as this (base.identifier(args)).
+ */
+public class CallMethod extends Instruction implements ResultInstruction {
+    private Variable result;
+    private Operand base;
+    private String identifier;
+    private Operand[] args;
+    private CallProfile profile = new CallProfile();
+    private PropertyCache cache = new PropertyCache(profile);
+
+    public CallMethod(Variable result, Operand base, String identifier, Operand[] args) {
+        super(Operation.CALL_METHOD);
+        this.result = result;
+        this.base = base;
+        this.identifier = identifier;
+        this.args = args;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public Operand getBase() {
+        return base;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public Operand[] getArgs() {
+        return args;
+    }
+
+    public PropertyCache getCache() {
+        return cache;
+    }
+
+    public CallProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public Instruction copy() {
+        CallMethod copy = (CallMethod) super.copy();
+        copy.args = args.clone();
+        copy.profile = new CallProfile();
+        copy.cache = new PropertyCache(copy.profile);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+
+        buf.append(result).append(" = call_method ");
+        buf.append(base).append(".").append(identifier);
+
+        for (Operand arg : args) {
+            buf.append(", ").append(arg);
+        }
+
+        return buf.toString();
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        Operand[] operands = new Operand[args.length + 1];
+
+        operands[0] = base;
+        System.arraycopy(args, 0, operands, 1, args.length);
+
+        return operands;
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        base = simplify(base, valueMap);
+        simplify(args, valueMap);
+    }
+}
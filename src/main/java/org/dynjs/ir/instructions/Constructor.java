@@ -1,5 +1,6 @@
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
 import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
@@ -33,6 +34,11 @@ public class Constructor extends Instruction implements ResultInstruction {
         return result;
     }
 
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
     public String toString() {
         StringBuilder buf = new StringBuilder("new " + identifier + "(");
 
@@ -49,4 +55,27 @@ public class Constructor extends Instruction implements ResultInstruction {
 
         return buf.toString();
     }
+
+    @Override
+    public Instruction copy() {
+        Constructor copy = (Constructor) super.copy();
+        copy.args = args.clone();
+        return copy;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        Operand[] operands = new Operand[args.length + 1];
+
+        operands[0] = identifier;
+        System.arraycopy(args, 0, operands, 1, args.length);
+
+        return operands;
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        identifier = simplify(identifier, valueMap);
+        simplify(args, valueMap);
+    }
 }
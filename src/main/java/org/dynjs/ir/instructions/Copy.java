@@ -1,8 +1,10 @@
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
 import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.DynamicVariable;
 import org.dynjs.ir.operands.Variable;
 
 public class Copy extends Instruction implements ResultInstruction {
@@ -19,12 +21,38 @@ public class Copy extends Instruction implements ResultInstruction {
         return result;
     }
 
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
     public Operand getValue() {
         return value;
     }
 
+    @Override
+    public boolean canRaiseException() {
+        // only reading or writing through the environment can fail
+        return result instanceof DynamicVariable || value instanceof DynamicVariable;
+    }
+
     @Override
     public String toString() {
         return "" + result + " = " + value + " (copy)";
     }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        value = simplify(value, valueMap);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return canRaiseException();
+    }
 }
@@ -20,6 +20,11 @@ public class DefineFunction extends Instruction implements ResultInstruction {
         return result;
     }
 
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
     public FunctionScope getScope() {
         return function;
     }
@@ -28,4 +33,14 @@ public class DefineFunction extends Instruction implements ResultInstruction {
     public String toString() {
         return "" + result + " = function()";
     }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
 }
@@ -0,0 +1,39 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * delete operator applied to an identifier which lives in the environment
+ * (locals which live in a slot are never deletable so do not need this).
+ */
+public class DeleteName extends Instruction implements ResultInstruction {
+    private Variable result;
+    private String name;
+
+    public DeleteName(Variable result, String name) {
+        super(Operation.DELETE_NAME);
+        this.result = result;
+        this.name = name;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = delete " + name;
+    }
+}
@@ -0,0 +1,57 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * delete operator applied to a property (delete base[index]).
+ */
+public class DeleteProperty extends Instruction implements ResultInstruction {
+    private Variable result;
+    private Operand base;
+    private Operand index;
+
+    public DeleteProperty(Variable result, Operand base, Operand index) {
+        super(Operation.DELETE_PROPERTY);
+        this.result = result;
+        this.base = base;
+        this.index = index;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public Operand getBase() {
+        return base;
+    }
+
+    public Operand getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = delete " + base + "[" + index + "]";
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { base, index };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        base = simplify(base, valueMap);
+        index = simplify(index, valueMap);
+    }
+}
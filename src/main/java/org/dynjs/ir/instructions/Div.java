@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Division (lhs / rhs).
+ */
+public class Div extends BinaryInstr {
+    public Div(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.DIV, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " / " + getRHS();
+    }
+}
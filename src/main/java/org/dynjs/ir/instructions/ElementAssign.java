@@ -0,0 +1,64 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.PropertyCache;
+
+/**
+ * Computed property put (base[index] = value).
+ */
+public class ElementAssign extends Instruction {
+    private Operand base;
+    private Operand index;
+    private Operand value;
+    private PropertyCache cache = new PropertyCache();
+
+    public ElementAssign(Operand base, Operand index, Operand value) {
+        super(Operation.ELEMENT_ASSIGN);
+        this.base = base;
+        this.index = index;
+        this.value = value;
+    }
+
+    public Operand getBase() {
+        return base;
+    }
+
+    public Operand getIndex() {
+        return index;
+    }
+
+    public Operand getValue() {
+        return value;
+    }
+
+    public PropertyCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Instruction copy() {
+        ElementAssign copy = (ElementAssign) super.copy();
+        copy.cache = new PropertyCache();
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "" + base + "[" + index + "] = " + value;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { base, index, value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        base = simplify(base, valueMap);
+        index = simplify(index, valueMap);
+        value = simplify(value, valueMap);
+    }
+}
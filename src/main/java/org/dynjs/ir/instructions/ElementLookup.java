@@ -0,0 +1,70 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.PropertyCache;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Computed property get (base[index]).
+ */
+public class ElementLookup extends Instruction implements ResultInstruction {
+    private Variable result;
+    private Operand base;
+    private Operand index;
+    private PropertyCache cache = new PropertyCache();
+
+    public ElementLookup(Variable result, Operand base, Operand index) {
+        super(Operation.ELEMENT_LOOKUP);
+        this.result = result;
+        this.base = base;
+        this.index = index;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public Operand getBase() {
+        return base;
+    }
+
+    public Operand getIndex() {
+        return index;
+    }
+
+    public PropertyCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Instruction copy() {
+        ElementLookup copy = (ElementLookup) super.copy();
+        copy.cache = new PropertyCache();
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = " + base + "[" + index + "]";
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { base, index };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        base = simplify(base, valueMap);
+        index = simplify(index, valueMap);
+    }
+}
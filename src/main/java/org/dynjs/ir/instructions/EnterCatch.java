@@ -0,0 +1,44 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+
+/**
+ * Push a declarative environment binding the identifier of a catch clause.
+ * Only needed when the scope cannot keep the identifier in a slot.
+ */
+public class EnterCatch extends Instruction {
+    private String name;
+    private Operand value;
+
+    public EnterCatch(String name, Operand value) {
+        super(Operation.ENTER_CATCH);
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Operand getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "enter_catch(" + name + ", " + value + ")";
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        value = simplify(value, valueMap);
+    }
+}
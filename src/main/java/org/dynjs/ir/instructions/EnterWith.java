@@ -0,0 +1,37 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+
+/**
+ * Push an object environment for the object of a with statement.
+ */
+public class EnterWith extends Instruction {
+    private Operand object;
+
+    public EnterWith(Operand object) {
+        super(Operation.ENTER_WITH);
+        this.object = object;
+    }
+
+    public Operand getObject() {
+        return object;
+    }
+
+    @Override
+    public String toString() {
+        return "enter_with(" + object + ")";
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { object };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        object = simplify(object, valueMap);
+    }
+}
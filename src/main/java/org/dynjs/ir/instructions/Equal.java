@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Abstract equality (11.9.3).
+ */
+public class Equal extends BinaryInstr {
+    public Equal(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.EQUAL, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " == " + getRHS();
+    }
+}
@@ -7,4 +7,9 @@ public class ExceptionRegionEndMarker extends Instruction {
     public ExceptionRegionEndMarker() {
         super(Operation.EXCEPTION_REGION_END);
     }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
 }
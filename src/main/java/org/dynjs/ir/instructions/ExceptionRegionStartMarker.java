@@ -15,4 +15,9 @@ public class ExceptionRegionStartMarker extends Instruction {
     public Label getLabel() {
         return label;
     }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
 }
@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Greater than, where an undefined comparison (NaN) is false.
+ */
+public class GT extends BinaryInstr {
+    public GT(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.GT, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " > " + getRHS();
+    }
+}
@@ -0,0 +1,24 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Whether a property name iteration made by {@link PropertyNames} has more names.
+ */
+public class HasNextProperty extends UnaryInstr {
+    public HasNextProperty(Variable result, Operand value) {
+        super(Operation.HAS_NEXT_PROPERTY, result, value);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = has_next_property(" + getValue() + ")";
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Property existence check of lhs name in rhs object.
+ */
+public class In extends BinaryInstr {
+    public In(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.IN, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " in " + getRHS();
+    }
+}
@@ -0,0 +1,84 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.FunctionScope;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Whether the function about to be called is one of scope, whose body has been
+ * inlined after this (see Inliner).  When false the real call is made instead.
+ */
+public class InlineGuard extends Instruction implements ResultInstruction {
+    private Variable result;
+    private Operand function;
+    private Operand self;
+    private FunctionScope scope;
+    private boolean objectSelf;
+
+    public InlineGuard(Variable result, Operand function, Operand self, FunctionScope scope, boolean objectSelf) {
+        super(Operation.INLINE_GUARD);
+        this.result = result;
+        this.function = function;
+        this.self = self;
+        this.scope = scope;
+        this.objectSelf = objectSelf;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public Operand getFunction() {
+        return function;
+    }
+
+    public Operand getSelf() {
+        return self;
+    }
+
+    public FunctionScope getScope() {
+        return scope;
+    }
+
+    /**
+     * Does the inlined body also need self to be an object (it uses this)?
+     */
+    public boolean isObjectSelf() {
+        return objectSelf;
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = inline_guard " + function + ", " + self + (objectSelf ? " (object)" : "");
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { function, self };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        function = simplify(function, valueMap);
+        self = simplify(self, valueMap);
+    }
+}
@@ -23,7 +23,16 @@ public class Jump extends Instruction {
         return target;
     }
 
+    public void setTarget(Label target) {
+        this.target = target;
+    }
+
     public String toString() {
         return "jump -> " + target;
     }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
 }
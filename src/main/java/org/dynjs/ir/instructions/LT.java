@@ -1,38 +1,19 @@
 package org.dynjs.ir.instructions;
 
-import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
 import org.dynjs.ir.operands.Variable;
 
 /**
+ * Less than, where an undefined comparison (NaN) is false.
  */
-public class LT extends Instruction implements ResultInstruction {
-    private Variable result;
-    private Operand arg1;
-    private Operand arg2;
-
-    public LT(Variable result, Operand arg1, Operand arg2) {
-        super(Operation.LT);
-        this.result = result;
-        this.arg1 = arg1;
-        this.arg2 = arg2;
+public class LT extends BinaryInstr {
+    public LT(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.LT, result, lhs, rhs);
     }
 
     @Override
-    public Variable getResult() {
-        return result;
-    }
-
-    public Operand getArg1() {
-        return arg1;
-    }
-
-    public Operand getArg2() {
-        return arg2;
-    }
-
     public String toString() {
-        return "" + result + " = " + arg1 + " < " + arg2;
+        return "" + getResult() + " = " + getLHS() + " < " + getRHS();
     }
 }
@@ -0,0 +1,54 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.PropertyCache;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Read of a name which lives in the environment that LoopInvariantCodeMotion
+ * found inside a loop, and which is read out of the binding found last time
+ * while that is still the one found (see PropertyCache.getName).  Otherwise the same as a copy of a
+ * DynamicVariable.
+ */
+public class LoadName extends Instruction implements ResultInstruction {
+    private Variable result;
+    private String name;
+    private PropertyCache cache = new PropertyCache();
+
+    public LoadName(Variable result, String name) {
+        super(Operation.LOAD_NAME);
+        this.result = result;
+        this.name = name;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PropertyCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Instruction copy() {
+        LoadName copy = (LoadName) super.copy();
+        copy.cache = new PropertyCache();
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = load_name " + name;
+    }
+}
@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Remainder (lhs % rhs).
+ */
+public class Mod extends BinaryInstr {
+    public Mod(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.MOD, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " % " + getRHS();
+    }
+}
@@ -1,6 +1,5 @@
 package org.dynjs.ir.instructions;
 
-import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
 import org.dynjs.ir.operands.Variable;
@@ -12,27 +11,13 @@ import org.dynjs.ir.operands.Variable;
  * optimization.
  */
 // FIXME: This should be merged into call when call is created
-public class Mul extends Instruction {
-    private Variable result;
-    private Operand lhs;
-    private Operand rhs;
-
+public class Mul extends BinaryInstr {
     public Mul(Variable result, Operand lhs, Operand rhs) {
-        super(Operation.MUL);
-        this.result = result;
-        this.lhs = lhs;
-        this.rhs = rhs;
-    }
-
-    public Variable getResult() {
-        return result;
-    }
-
-    public Operand getLHS() {
-        return lhs;
+        super(Operation.MUL, result, lhs, rhs);
     }
 
-    public Operand getRHS() {
-        return rhs;
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " * " + getRHS();
     }
 }
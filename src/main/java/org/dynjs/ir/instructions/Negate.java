@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Unary minus.
+ */
+public class Negate extends UnaryInstr {
+    public Negate(Variable result, Operand value) {
+        super(Operation.NEGATE, result, value);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = negate(" + getValue() + ")";
+    }
+}
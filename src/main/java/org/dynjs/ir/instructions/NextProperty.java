@@ -0,0 +1,24 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * The next name of a property name iteration made by {@link PropertyNames}.
+ */
+public class NextProperty extends UnaryInstr {
+    public NextProperty(Variable result, Operand value) {
+        super(Operation.NEXT_PROPERTY, result, value);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = next_property(" + getValue() + ")";
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+}
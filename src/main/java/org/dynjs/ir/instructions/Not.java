@@ -0,0 +1,29 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Logical not of the boolean value of an operand.
+ */
+public class Not extends UnaryInstr {
+    public Not(Variable result, Operand value) {
+        super(Operation.NOT, result, value);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = not(" + getValue() + ")";
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Negated abstract equality (11.9.3).
+ */
+public class NotEqual extends BinaryInstr {
+    public NotEqual(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.NOT_EQUAL, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " != " + getRHS();
+    }
+}
@@ -0,0 +1,90 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Create an object from an object literal.  Each property is a plain value or
+ * the function of a getter or setter.
+ */
+public class ObjectLiteral extends Instruction implements ResultInstruction {
+    public static final int VALUE = 0;
+    public static final int GETTER = 1;
+    public static final int SETTER = 2;
+
+    private Variable result;
+    private String[] names;
+    private Operand[] values;
+    private int[] kinds;
+
+    public ObjectLiteral(Variable result, String[] names, Operand[] values, int[] kinds) {
+        super(Operation.OBJECT_LITERAL);
+        this.result = result;
+        this.names = names;
+        this.values = values;
+        this.kinds = kinds;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public Operand[] getValues() {
+        return values;
+    }
+
+    public int[] getKinds() {
+        return kinds;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+
+        buf.append(result).append(" = {");
+        for (int i = 0; i < names.length; i++) {
+            if (i != 0) buf.append(", ");
+            if (kinds[i] == GETTER) buf.append("get ");
+            if (kinds[i] == SETTER) buf.append("set ");
+            buf.append(names[i]).append(": ").append(values[i]);
+        }
+        buf.append("}");
+
+        return buf.toString();
+    }
+
+    @Override
+    public Instruction copy() {
+        ObjectLiteral copy = (ObjectLiteral) super.copy();
+        copy.values = values.clone();
+        return copy;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return values.clone();
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        simplify(values, valueMap);
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
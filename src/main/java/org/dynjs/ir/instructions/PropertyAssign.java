@@ -0,0 +1,63 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.PropertyCache;
+
+/**
+ * Named property put (base.identifier = value).
+ */
+public class PropertyAssign extends Instruction {
+    private Operand base;
+    private String identifier;
+    private Operand value;
+    private PropertyCache cache = new PropertyCache();
+
+    public PropertyAssign(Operand base, String identifier, Operand value) {
+        super(Operation.PROPERTY_ASSIGN);
+        this.base = base;
+        this.identifier = identifier;
+        this.value = value;
+    }
+
+    public Operand getBase() {
+        return base;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public Operand getValue() {
+        return value;
+    }
+
+    public PropertyCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Instruction copy() {
+        PropertyAssign copy = (PropertyAssign) super.copy();
+        copy.cache = new PropertyCache();
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "" + base + "." + identifier + " = " + value;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { base, value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        base = simplify(base, valueMap);
+        value = simplify(value, valueMap);
+    }
+}
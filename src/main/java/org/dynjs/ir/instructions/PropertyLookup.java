@@ -1,16 +1,21 @@
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
 import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
+import org.dynjs.ir.PropertyCache;
 import org.dynjs.ir.operands.Variable;
 
 /**
+ * Named property get (base.identifier).
  */
 public class PropertyLookup extends Instruction implements ResultInstruction {
     private Variable result;
     private Operand base;
     private String identifier;
+    private PropertyCache cache = new PropertyCache();
+    private boolean invariant;
 
     public PropertyLookup(Variable result, Operand base, String identifier) {
         super(Operation.PROPERTY_LOOKUP);
@@ -24,6 +29,11 @@ public class PropertyLookup extends Instruction implements ResultInstruction {
         return result;
     }
 
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
     public Operand getBase() {
         return base;
     }
@@ -31,4 +41,42 @@ public class PropertyLookup extends Instruction implements ResultInstruction {
     public String getIdentifier() {
         return identifier;
     }
+
+    public PropertyCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Does this read the same property of the same object each time round a loop
+     * (see PropertyCache.getInvariant)?
+     */
+    public boolean isInvariant() {
+        return invariant;
+    }
+
+    public void setInvariant(boolean invariant) {
+        this.invariant = invariant;
+    }
+
+    @Override
+    public Instruction copy() {
+        PropertyLookup copy = (PropertyLookup) super.copy();
+        copy.cache = new PropertyCache();
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = " + base + "." + identifier + (invariant ? " (invariant)" : "");
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { base };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        base = simplify(base, valueMap);
+    }
 }
@@ -0,0 +1,20 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Snapshot the enumerable property names of a value for for-in.  null and
+ * undefined produce an empty iteration.
+ */
+public class PropertyNames extends UnaryInstr {
+    public PropertyNames(Variable result, Operand value) {
+        super(Operation.PROPERTY_NAMES, result, value);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = property_names(" + getValue() + ")";
+    }
+}
@@ -0,0 +1,43 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * First instruction of a handler which needs the exception as it was thrown so
+ * that it can be rethrown unchanged (e.g. after a finally block).
+ */
+public class ReceiveException extends Instruction implements ResultInstruction {
+    private Variable result;
+
+    public ReceiveException(Variable result) {
+        super(Operation.RECEIVE_EXCEPTION);
+        this.result = result;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = receive_exception";
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
@@ -28,7 +28,22 @@ public class ReceiveFunctionParameter extends Instruction implements ResultInstr
         return result;
     }
 
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
     public String toString() {
         return "" + getResult() + " = receive_parameter(" + offset + ")";
     }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
 }
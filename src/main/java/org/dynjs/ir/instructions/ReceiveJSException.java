@@ -0,0 +1,42 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * First instruction of a catch handler.  Receives the value which was thrown.
+ */
+public class ReceiveJSException extends Instruction implements ResultInstruction {
+    private Variable result;
+
+    public ReceiveJSException(Variable result) {
+        super(Operation.RECEIVE_JS_EXCEPTION);
+        this.result = result;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = receive_js_exception";
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
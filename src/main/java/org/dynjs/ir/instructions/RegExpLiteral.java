@@ -0,0 +1,55 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+import org.joni.Regex;
+
+/**
+ * Create a new RegExp object from a regular expression literal.
+ */
+public class RegExpLiteral extends Instruction implements ResultInstruction {
+    private Variable result;
+    private String pattern;
+    private String flags;
+    // compiled on first execution; every execution creates a new RegExp using it
+    private volatile Regex regex;
+
+    public RegExpLiteral(Variable result, String pattern, String flags) {
+        super(Operation.REGEXP_LITERAL);
+        this.result = result;
+        this.pattern = pattern;
+        this.flags = flags;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getFlags() {
+        return flags;
+    }
+
+    public Regex getRegex() {
+        return regex;
+    }
+
+    public void setRegex(Regex regex) {
+        this.regex = regex;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = /" + pattern + "/" + flags;
+    }
+}
@@ -0,0 +1,42 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+
+/**
+ * Reinstate a lexical environment saved by {@link SaveEnvironment}.
+ */
+public class RestoreEnvironment extends Instruction {
+    private Operand environment;
+
+    public RestoreEnvironment(Operand environment) {
+        super(Operation.RESTORE_ENVIRONMENT);
+        this.environment = environment;
+    }
+
+    public Operand getEnvironment() {
+        return environment;
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "restore_environment(" + environment + ")";
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { environment };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        environment = simplify(environment, valueMap);
+    }
+}
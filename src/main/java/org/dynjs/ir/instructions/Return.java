@@ -15,6 +15,7 @@
  */
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
 import org.dynjs.ir.Instruction;
 import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
@@ -43,4 +44,19 @@ public class Return extends Instruction {
     public boolean transfersControl() {
         return true;
     }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        value = simplify(value, valueMap);
+    }
 }
@@ -0,0 +1,43 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Remember the current lexical environment so that it can be restored after
+ * leaving a with or catch block (including by an exception).
+ */
+public class SaveEnvironment extends Instruction implements ResultInstruction {
+    private Variable result;
+
+    public SaveEnvironment(Variable result) {
+        super(Operation.SAVE_ENVIRONMENT);
+        this.result = result;
+    }
+
+    @Override
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    @Override
+    public String toString() {
+        return "" + result + " = save_environment";
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
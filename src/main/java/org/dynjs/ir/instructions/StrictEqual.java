@@ -0,0 +1,29 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Strict equality (11.9.6).
+ */
+public class StrictEqual extends BinaryInstr {
+    public StrictEqual(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.STRICT_EQUAL, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " === " + getRHS();
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Negated strict equality (11.9.6).
+ */
+public class StrictNotEqual extends BinaryInstr {
+    public StrictNotEqual(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.STRICT_NOT_EQUAL, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " !== " + getRHS();
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Label;
+import org.dynjs.runtime.SwitchTable;
+
+/**
+ * Jump to the target table selects for value (see SwitchTable), or to
+ * defaultTarget when it selects none.
+ */
+public class Switch extends Instruction {
+    private Operand value;
+    private final SwitchTable table;
+    private Label[] targets;
+    private Label defaultTarget;
+
+    public Switch(Operand value, SwitchTable table, Label[] targets, Label defaultTarget) {
+        super(Operation.SWITCH);
+        this.value = value;
+        this.table = table;
+        this.targets = targets;
+        this.defaultTarget = defaultTarget;
+    }
+
+    public Operand getValue() {
+        return value;
+    }
+
+    public SwitchTable getTable() {
+        return table;
+    }
+
+    public Label[] getTargets() {
+        return targets;
+    }
+
+    public Label getDefaultTarget() {
+        return defaultTarget;
+    }
+
+    public Label getTarget(Object value) {
+        int index = table.lookup(value);
+
+        return index < 0 ? defaultTarget : targets[index];
+    }
+
+    /**
+     * Jump to to wherever this jumped to from.
+     */
+    public void retarget(Label from, Label to) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == from) targets[i] = to;
+        }
+        if (defaultTarget == from) defaultTarget = to;
+    }
+
+    @Override
+    public boolean transfersControl() {
+        return true;
+    }
+
+    @Override
+    public boolean canRaiseException() {
+        return false;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        value = simplify(value, valueMap);
+    }
+
+    @Override
+    public Instruction copy() {
+        Switch copy = (Switch) super.copy();
+        copy.targets = targets.clone();
+        return copy;
+    }
+
+    public String toString() {
+        return "SWITCH " + value + " " + table.getIndexes() + " -> " + Arrays.toString(targets) + " else " + defaultTarget;
+    }
+}
@@ -1,13 +1,43 @@
 package org.dynjs.ir.instructions;
 
+import java.util.Map;
 import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
 import org.dynjs.ir.Operation;
 
 /**
- * Created by enebo on 3/31/14.
+ * Throw a value.  An exception received by {@link ReceiveException} is
+ * rethrown as is.
  */
 public class ThrowException extends Instruction {
-    public ThrowException() {
+    private Operand value;
+
+    public ThrowException(Operand value) {
         super(Operation.THROW_EXCEPTION);
+        this.value = value;
+    }
+
+    public Operand getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean transfersControl() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "throw " + value;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        value = simplify(value, valueMap);
     }
 }
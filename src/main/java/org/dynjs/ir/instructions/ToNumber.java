@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Unary plus (ToNumber).
+ */
+public class ToNumber extends UnaryInstr {
+    public ToNumber(Variable result, Operand value) {
+        super(Operation.TO_NUMBER, result, value);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = to_number(" + getValue() + ")";
+    }
+}
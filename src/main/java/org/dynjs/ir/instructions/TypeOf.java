@@ -0,0 +1,27 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.DynamicVariable;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * typeof operator.  When the operand is a dynamic variable it is resolved by
+ * name so that an unresolvable name is 'undefined' instead of a ReferenceError.
+ */
+public class TypeOf extends UnaryInstr {
+    public TypeOf(Variable result, Operand value) {
+        super(Operation.TYPEOF, result, value);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = typeof(" + getValue() + ")";
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        // a name is looked up and with makes that a property get
+        return getValue() instanceof DynamicVariable;
+    }
+}
@@ -0,0 +1,44 @@
+package org.dynjs.ir.instructions;
+
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Common bits for unary operations which set a result (a = -b).
+ */
+public abstract class UnaryInstr extends Instruction implements ResultInstruction {
+    private Variable result;
+    private Operand value;
+
+    public UnaryInstr(Operation operation, Variable result, Operand value) {
+        super(operation);
+        this.result = result;
+        this.value = value;
+    }
+
+    public Variable getResult() {
+        return result;
+    }
+
+    @Override
+    public void updateResult(Variable result) {
+        this.result = result;
+    }
+
+    public Operand getValue() {
+        return value;
+    }
+
+    @Override
+    public Operand[] getOperands() {
+        return new Operand[] { value };
+    }
+
+    @Override
+    public void simplifyOperands(Map<Operand, Operand> valueMap) {
+        value = simplify(value, valueMap);
+    }
+}
@@ -0,0 +1,19 @@
+package org.dynjs.ir.instructions;
+
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.operands.Variable;
+
+/**
+ * Unsigned 32 bit right shift.
+ */
+public class UnsignedShiftRight extends BinaryInstr {
+    public UnsignedShiftRight(Variable result, Operand lhs, Operand rhs) {
+        super(Operation.UNSIGNED_SHIFT_RIGHT, result, lhs, rhs);
+    }
+
+    @Override
+    public String toString() {
+        return "" + getResult() + " = " + getLHS() + " >>> " + getRHS();
+    }
+}
@@ -18,6 +18,10 @@ public class BooleanLiteral extends Operand {
         this.truth = truth;
     }
 
+    public boolean isTrue() {
+        return truth;
+    }
+
     public String toString() {
         return "" + truth;
     }
@@ -12,6 +12,10 @@ public class StringLiteral extends Operand {
         this.value = value;
     }
 
+    public String getValue() {
+        return value;
+    }
+
     @Override
     public String toString() {
         return "\"" + value + "\"";
@@ -22,4 +22,14 @@ public class TemporaryVariable extends OffsetVariable {
             throw e;
         }
     }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TemporaryVariable && ((TemporaryVariable) other).getOffset() == getOffset();
+    }
+
+    @Override
+    public int hashCode() {
+        return getOffset();
+    }
 }
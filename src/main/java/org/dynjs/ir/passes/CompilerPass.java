@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.dynjs.ir.FunctionScope;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Scope;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.operands.LocalVariable;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * A transformation of the CFG of one scope run by the PassManager.
+ *
+ * Passes only reason about temporary variables.  Local variables can be changed
+ * by any call (closures share them) and dynamic ones by anything at all, while
+ * the Builder never reads a temporary before it is written.
+ */
+public abstract class CompilerPass {
+    /**
+     * Short name used to select the pass and in reports.
+     */
+    public abstract String getLabel();
+
+    /**
+     * Transform cfg answering how many changes (instructions or blocks) were made.
+     */
+    public abstract int run(CFG cfg);
+
+    /**
+     * Number of instructions which write each temporary.
+     */
+    protected static Map<TemporaryVariable, Integer> countDefinitions(CFG cfg) {
+        Map<TemporaryVariable, Integer> definitions = new HashMap<>();
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                if (!(instruction instanceof ResultInstruction)) continue;
+
+                Variable result = ((ResultInstruction) instruction).getResult();
+                if (result instanceof TemporaryVariable) increment(definitions, (TemporaryVariable) result);
+            }
+        }
+
+        return definitions;
+    }
+
+    /**
+     * Number of operands which read each temporary.
+     */
+    protected static Map<TemporaryVariable, Integer> countUses(CFG cfg) {
+        Map<TemporaryVariable, Integer> uses = new HashMap<>();
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                for (Operand operand : instruction.getOperands()) {
+                    if (operand instanceof TemporaryVariable) increment(uses, (TemporaryVariable) operand);
+                }
+            }
+        }
+
+        return uses;
+    }
+
+    /**
+     * Replace every read of a key of valueMap with its value, answering how many
+     * instructions changed.
+     */
+    protected static int simplifyOperands(CFG cfg, Map<Operand, Operand> valueMap) {
+        int changes = 0;
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                for (Operand operand : instruction.getOperands()) {
+                    if (valueMap.containsKey(operand)) {
+                        instruction.simplifyOperands(valueMap);
+                        changes++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Can variables of scope only be written by its own instructions?  Not if
+     * they live in the environment.
+     */
+    protected static boolean isPrivate(Scope scope) {
+        return !scope.usesEnvironment() && !scope.isDynamic();
+    }
+
+    /**
+     * Offsets of the variables of scope which a function nested in it reads or
+     * writes.  Those can change whenever anything is called.
+     */
+    protected static Set<Integer> capturedVariables(Scope scope) {
+        Set<Integer> captured = new HashSet<>();
+
+        for (FunctionScope child : scope.getChildren()) {
+            addCapturedVariables(child, 1, captured);
+        }
+
+        return captured;
+    }
+
+    private static void addCapturedVariables(Scope scope, int depth, Set<Integer> captured) {
+        for (Instruction instruction : scope.getInstructions()) {
+            for (Operand operand : instruction.getOperands()) {
+                addCapturedVariable(operand, depth, captured);
+            }
+            if (instruction instanceof ResultInstruction) {
+                addCapturedVariable(((ResultInstruction) instruction).getResult(), depth, captured);
+            }
+        }
+
+        for (FunctionScope child : scope.getChildren()) {
+            addCapturedVariables(child, depth + 1, captured);
+        }
+    }
+
+    private static void addCapturedVariable(Operand operand, int depth, Set<Integer> captured) {
+        if (operand instanceof LocalVariable && ((LocalVariable) operand).getDepth() == depth) {
+            captured.add(((LocalVariable) operand).getOffset());
+        }
+    }
+
+    private static void increment(Map<TemporaryVariable, Integer> counts, TemporaryVariable variable) {
+        Integer count = counts.get(variable);
+
+        counts.put(variable, count == null ? 1 : count + 1);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.dynjs.ir.IRRuntimeHelpers;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.instructions.BFalse;
+import org.dynjs.ir.instructions.BTrue;
+import org.dynjs.ir.instructions.BinaryInstr;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.instructions.Jump;
+import org.dynjs.ir.instructions.Switch;
+import org.dynjs.ir.instructions.UnaryInstr;
+import org.dynjs.ir.operands.BooleanLiteral;
+import org.dynjs.ir.operands.FloatNumber;
+import org.dynjs.ir.operands.IntegerNumber;
+import org.dynjs.ir.operands.Label;
+import org.dynjs.ir.operands.Null;
+import org.dynjs.ir.operands.StringLiteral;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.Undefined;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+import org.jruby.dirgra.Edge;
+
+/**
+ * Replaces reads of temporaries which only ever hold one literal with that
+ * literal, folds operations on literals into copies and turns branches and
+ * switches on a literal into a jump (or nothing).
+ *
+ * Only operations which cannot call back into JS are folded: arithmetic,
+ * bitwise and comparison operators on numbers, string concatenation, strict
+ * equality and logical not.
+ */
+public class ConstantPropagation extends CompilerPass {
+    @Override
+    public String getLabel() {
+        return "constprop";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        int changes = 0;
+
+        while (true) {
+            int changed = simplifyOperands(cfg, findConstants(cfg)) + fold(cfg);
+
+            if (changed == 0) break;
+
+            changes += changed;
+        }
+
+        return changes + foldBranches(cfg);
+    }
+
+    private Map<Operand, Operand> findConstants(CFG cfg) {
+        Map<TemporaryVariable, Integer> definitions = countDefinitions(cfg);
+        Map<Operand, Operand> constants = new HashMap<>();
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                if (!(instruction instanceof Copy)) continue;
+
+                Copy copy = (Copy) instruction;
+                if (copy.getResult() instanceof TemporaryVariable && isConstant(copy.getValue()) &&
+                        definitions.get(copy.getResult()) == 1) {
+                    constants.put(copy.getResult(), copy.getValue());
+                }
+            }
+        }
+
+        return constants;
+    }
+
+    private int fold(CFG cfg) {
+        int changes = 0;
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            List<Instruction> instructions = bb.getInstructions();
+
+            for (int i = 0; i < instructions.size(); i++) {
+                Instruction instruction = instructions.get(i);
+                Operand value = null;
+
+                if (instruction instanceof BinaryInstr) {
+                    value = fold((BinaryInstr) instruction);
+                    if (value != null) instructions.set(i, new Copy(((BinaryInstr) instruction).getResult(), value));
+                } else if (instruction instanceof UnaryInstr) {
+                    value = fold((UnaryInstr) instruction);
+                    if (value != null) instructions.set(i, new Copy(((UnaryInstr) instruction).getResult(), value));
+                }
+
+                if (value != null) changes++;
+            }
+        }
+
+        return changes;
+    }
+
+    private Operand fold(BinaryInstr instruction) {
+        if (!isConstant(instruction.getLHS()) || !isConstant(instruction.getRHS())) return null;
+
+        Object lhs = instruction.getLHS().retrieve(null, null);
+        Object rhs = instruction.getRHS().retrieve(null, null);
+
+        try {
+            switch (instruction.getOperation()) {
+                case STRICT_EQUAL:
+                    return toOperand(IRRuntimeHelpers.strictEqual(null, lhs, rhs));
+                case STRICT_NOT_EQUAL:
+                    return toOperand(IRRuntimeHelpers.strictNotEqual(null, lhs, rhs));
+                case ADD:
+                    if (lhs instanceof String && rhs instanceof String) return new StringLiteral((String) lhs + rhs);
+                    break;
+            }
+
+            if (!(lhs instanceof Number) || !(rhs instanceof Number)) return null;
+
+            switch (instruction.getOperation()) {
+                case ADD: return toOperand(IRRuntimeHelpers.add(null, lhs, rhs));
+                case SUB: return toOperand(IRRuntimeHelpers.sub(null, lhs, rhs));
+                case MUL: return toOperand(IRRuntimeHelpers.mul(null, lhs, rhs));
+                case DIV: return toOperand(IRRuntimeHelpers.div(null, lhs, rhs));
+                case MOD: return toOperand(IRRuntimeHelpers.mod(null, lhs, rhs));
+                case SHIFT_LEFT: return toOperand(IRRuntimeHelpers.shiftLeft(null, lhs, rhs));
+                case SHIFT_RIGHT: return toOperand(IRRuntimeHelpers.shiftRight(null, lhs, rhs));
+                case UNSIGNED_SHIFT_RIGHT: return toOperand(IRRuntimeHelpers.unsignedShiftRight(null, lhs, rhs));
+                case BITWISE_AND: return toOperand(IRRuntimeHelpers.bitwiseAnd(null, lhs, rhs));
+                case BITWISE_OR: return toOperand(IRRuntimeHelpers.bitwiseOr(null, lhs, rhs));
+                case BITWISE_XOR: return toOperand(IRRuntimeHelpers.bitwiseXor(null, lhs, rhs));
+                case LT: return toOperand(IRRuntimeHelpers.lessThan(null, lhs, rhs));
+                case LE: return toOperand(IRRuntimeHelpers.lessThanOrEqual(null, lhs, rhs));
+                case GT: return toOperand(IRRuntimeHelpers.greaterThan(null, lhs, rhs));
+                case GE: return toOperand(IRRuntimeHelpers.greaterThanOrEqual(null, lhs, rhs));
+                case EQUAL: return toOperand(IRRuntimeHelpers.equal(null, lhs, rhs));
+                case NOT_EQUAL: return toOperand(IRRuntimeHelpers.notEqual(null, lhs, rhs));
+            }
+        } catch (RuntimeException e) {
+            // Leave it for runtime to fail or succeed
+        }
+
+        return null;
+    }
+
+    private Operand fold(UnaryInstr instruction) {
+        if (!isConstant(instruction.getValue())) return null;
+
+        Object value = instruction.getValue().retrieve(null, null);
+
+        try {
+            switch (instruction.getOperation()) {
+                case NOT:
+                    return toOperand(IRRuntimeHelpers.not(value));
+                case NEGATE:
+                    if (value instanceof Number) return toOperand(IRRuntimeHelpers.negate(null, value));
+                    break;
+                case TO_NUMBER:
+                    if (value instanceof Number) return instruction.getValue();
+                    break;
+                case BITWISE_NOT:
+                    if (value instanceof Number) return toOperand(IRRuntimeHelpers.bitwiseNot(null, value));
+                    break;
+            }
+        } catch (RuntimeException e) {
+            // Leave it for runtime to fail or succeed
+        }
+
+        return null;
+    }
+
+    private int foldBranches(CFG cfg) {
+        int changes = 0;
+
+        for (BasicBlock bb : new ArrayList<>(cfg.getBasicBlocks())) {
+            Instruction last = bb.getLastInstr();
+            Operand test;
+            Label target;
+            boolean onTrue;
+
+            if (last instanceof BTrue) {
+                test = ((BTrue) last).getTest();
+                target = ((BTrue) last).getTarget();
+                onTrue = true;
+            } else if (last instanceof BFalse) {
+                test = ((BFalse) last).getTest();
+                target = ((BFalse) last).getTarget();
+                onTrue = false;
+            } else if (last instanceof Switch && isConstant(((Switch) last).getValue())) {
+                foldSwitch(cfg, bb, (Switch) last);
+                changes++;
+                continue;
+            } else {
+                continue;
+            }
+
+            if (!isConstant(test)) continue;
+
+            List<Instruction> instructions = bb.getInstructions();
+            if (IRRuntimeHelpers.isTrue(test.retrieve(null, null)) == onTrue) {
+                instructions.set(instructions.size() - 1, new Jump(target));
+                removeEdges(cfg, bb, CFG.EdgeType.FALL_THROUGH);
+            } else {
+                instructions.remove(instructions.size() - 1);
+                removeEdges(cfg, bb, CFG.EdgeType.REGULAR);
+            }
+            changes++;
+        }
+
+        return changes;
+    }
+
+    private void foldSwitch(CFG cfg, BasicBlock bb, Switch last) {
+        Label target = last.getTarget(last.getValue().retrieve(null, null));
+        List<Instruction> instructions = bb.getInstructions();
+
+        instructions.set(instructions.size() - 1, new Jump(target));
+        for (Edge<BasicBlock> edge : new ArrayList<>(cfg.getOutgoingEdges(bb))) {
+            if (edge.getType() == CFG.EdgeType.REGULAR && edge.getDestination().getData().getLabel() != target) {
+                cfg.removeEdge(edge);
+            }
+        }
+    }
+
+    private void removeEdges(CFG cfg, BasicBlock bb, CFG.EdgeType type) {
+        for (Edge<BasicBlock> edge : new ArrayList<>(cfg.getOutgoingEdges(bb))) {
+            if (edge.getType() == type) cfg.removeEdge(edge);
+        }
+    }
+
+    static boolean isConstant(Operand operand) {
+        return operand instanceof IntegerNumber || operand instanceof FloatNumber || operand instanceof StringLiteral ||
+                operand instanceof BooleanLiteral || operand instanceof Null || operand instanceof Undefined;
+    }
+
+    private static Operand toOperand(Object value) {
+        if (value instanceof Long) return new IntegerNumber((Long) value);
+        if (value instanceof Double) return new FloatNumber((Double) value);
+        if (value instanceof Boolean) return (Boolean) value ? BooleanLiteral.TRUE : BooleanLiteral.FALSE;
+        if (value instanceof String) return new StringLiteral((String) value);
+
+        throw new IllegalStateException("not a literal: " + value);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.This;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Replaces reads of a temporary which is only ever a copy of another temporary
+ * (written once) or of this with the original.  The copy is left for dead code
+ * elimination.
+ */
+public class CopyPropagation extends CompilerPass {
+    @Override
+    public String getLabel() {
+        return "copyprop";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        Map<TemporaryVariable, Integer> definitions = countDefinitions(cfg);
+        Map<Operand, Operand> copies = new HashMap<>();
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                if (!(instruction instanceof Copy)) continue;
+
+                Copy copy = (Copy) instruction;
+                Operand value = copy.getValue();
+                if (copy.getResult() instanceof TemporaryVariable && definitions.get(copy.getResult()) == 1 &&
+                        (value instanceof This ||
+                         value instanceof TemporaryVariable && definitions.get(value) != null && definitions.get(value) == 1)) {
+                    copies.put(copy.getResult(), value);
+                }
+            }
+        }
+
+        // t2 = t1; t3 = t2 means t3 is t1
+        for (Map.Entry<Operand, Operand> each : copies.entrySet()) {
+            Operand value = each.getValue();
+
+            while (copies.containsKey(value) && copies.get(value) != each.getKey()) {
+                value = copies.get(value);
+            }
+            each.setValue(value);
+        }
+
+        return simplifyOperands(cfg, copies);
+    }
+}
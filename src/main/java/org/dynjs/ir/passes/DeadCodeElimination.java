@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.Iterator;
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Removes instructions without side effects whose temporary result is never read.
+ */
+public class DeadCodeElimination extends CompilerPass {
+    @Override
+    public String getLabel() {
+        return "dce";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        int changes = 0;
+
+        while (true) {
+            Map<TemporaryVariable, Integer> uses = countUses(cfg);
+            int removed = 0;
+
+            for (BasicBlock bb : cfg.getBasicBlocks()) {
+                for (Iterator<Instruction> iterator = bb.getInstructions().iterator(); iterator.hasNext(); ) {
+                    Instruction instruction = iterator.next();
+
+                    if (!(instruction instanceof ResultInstruction) || instruction.hasSideEffects()) continue;
+
+                    Variable result = ((ResultInstruction) instruction).getResult();
+                    if (result instanceof TemporaryVariable && !uses.containsKey(result)) {
+                        iterator.remove();
+                        removed++;
+                    }
+                }
+            }
+
+            if (removed == 0) break;
+
+            changes += removed;
+        }
+
+        return changes;
+    }
+}
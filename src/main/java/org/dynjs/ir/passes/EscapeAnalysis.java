@@ -0,0 +1,345 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Scope;
+import org.dynjs.ir.instructions.ArrayLiteral;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.instructions.ElementAssign;
+import org.dynjs.ir.instructions.ElementLookup;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.ir.instructions.PropertyAssign;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.operands.IntegerNumber;
+import org.dynjs.ir.operands.LocalVariable;
+import org.dynjs.ir.operands.StringLiteral;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Replaces object and array literals which never escape the scope with a
+ * temporary per property (scalar replacement), so they are never allocated.
+ *
+ * A literal is followed through the variables holding it: its temporary and
+ * copies of it into temporaries or private variables (see isPrivate) written
+ * nowhere else.  Every read of those must come after the literal on all paths
+ * (its definition dominates the read) and be a get or put of a property the
+ * literal made itself.  Anything else (passing it, returning it, storing it,
+ * reading a missing or inherited property, in, delete, typeof...) lets it
+ * escape and it is left alone.  Getters, setters, holes and __proto__ keep a
+ * literal too.
+ *
+ * The literal becomes copies of its values into its temporaries, gets and puts
+ * become copies from and to them and length of an array is its size.
+ */
+public class EscapeAnalysis extends CompilerPass {
+    @Override
+    public String getLabel() {
+        return "escape";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        Scope scope = cfg.getScope();
+        Set<Integer> captured = isPrivate(scope) ? capturedVariables(scope) : null;
+        Map<Object, Integer> definitions = new HashMap<>();
+        Map<Object, Site> sites = new HashMap<>();
+        List<Allocation> allocations = new ArrayList<>();
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            List<Instruction> instructions = bb.getInstructions();
+
+            for (int i = 0; i < instructions.size(); i++) {
+                Instruction instruction = instructions.get(i);
+                if (!(instruction instanceof ResultInstruction)) continue;
+
+                Object key = key(((ResultInstruction) instruction).getResult(), captured);
+                if (key == null) continue;
+
+                Integer count = definitions.get(key);
+                definitions.put(key, count == null ? 1 : count + 1);
+                sites.put(key, new Site(bb, i));
+
+                Allocation allocation = Allocation.of(instruction);
+                if (allocation != null && key instanceof TemporaryVariable) allocations.add(allocation);
+            }
+        }
+
+        Map<Object, Allocation> holders = new HashMap<>();
+        for (Allocation allocation : allocations) {
+            Object key = key(((ResultInstruction) allocation.literal).getResult(), captured);
+
+            if (definitions.get(key) == 1) holders.put(key, allocation);
+        }
+        if (holders.isEmpty()) return 0;
+
+        // t2 = t1 holds what t1 does when it is the only write of t2
+        boolean added = true;
+        while (added) {
+            added = false;
+
+            for (BasicBlock bb : cfg.getBasicBlocks()) {
+                for (Instruction instruction : bb.getInstructions()) {
+                    if (!(instruction instanceof Copy)) continue;
+
+                    Allocation allocation = holders.get(key(((Copy) instruction).getValue(), captured));
+                    Object key = key(((Copy) instruction).getResult(), captured);
+                    if (allocation != null && key != null && definitions.get(key) == 1 && !holders.containsKey(key)) {
+                        holders.put(key, allocation);
+                        added = true;
+                    }
+                }
+            }
+        }
+
+        LoopAnalysis dominators = new LoopAnalysis(cfg);
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            List<Instruction> instructions = bb.getInstructions();
+
+            for (int i = 0; i < instructions.size(); i++) {
+                Instruction instruction = instructions.get(i);
+
+                for (Operand operand : instruction.getOperands()) {
+                    Object key = key(operand, captured);
+                    Allocation allocation = holders.get(key);
+                    if (allocation == null) continue;
+
+                    if (!sites.get(key).dominates(dominators, bb, i) ||
+                            !isReplaceable(instruction, allocation, holders, captured)) {
+                        allocation.escapes = true;
+                    }
+                }
+            }
+        }
+
+        return replace(cfg, holders, captured);
+    }
+
+    /**
+     * Is instruction, which reads a variable holding allocation, one which can
+     * work on its temporaries instead?
+     */
+    private static boolean isReplaceable(Instruction instruction, Allocation allocation, Map<Object, Allocation> holders,
+                                         Set<Integer> captured) {
+        if (instruction instanceof Copy) {
+            return holders.get(key(((Copy) instruction).getResult(), captured)) == allocation;
+        } else if (instruction instanceof PropertyLookup) {
+            return allocation.isLength(((PropertyLookup) instruction).getIdentifier()) ||
+                    allocation.has(((PropertyLookup) instruction).getIdentifier());
+        } else if (instruction instanceof PropertyAssign) {
+            PropertyAssign assign = (PropertyAssign) instruction;
+
+            return holders.get(key(assign.getBase(), captured)) == allocation &&
+                    !holders.containsKey(key(assign.getValue(), captured)) && allocation.has(assign.getIdentifier());
+        } else if (instruction instanceof ElementLookup) {
+            ElementLookup lookup = (ElementLookup) instruction;
+
+            return holders.get(key(lookup.getBase(), captured)) == allocation &&
+                    allocation.has(name(lookup.getIndex()));
+        } else if (instruction instanceof ElementAssign) {
+            ElementAssign assign = (ElementAssign) instruction;
+
+            return holders.get(key(assign.getBase(), captured)) == allocation &&
+                    !holders.containsKey(key(assign.getValue(), captured)) && allocation.has(name(assign.getIndex()));
+        }
+
+        return false;
+    }
+
+    private int replace(CFG cfg, Map<Object, Allocation> holders, Set<Integer> captured) {
+        Scope scope = cfg.getScope();
+        int changes = 0;
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (ListIterator<Instruction> iterator = bb.getInstructions().listIterator(); iterator.hasNext(); ) {
+                Instruction instruction = iterator.next();
+                Allocation allocation = null;
+
+                if (instruction instanceof ResultInstruction) {
+                    allocation = holders.get(key(((ResultInstruction) instruction).getResult(), captured));
+                }
+
+                if (allocation != null && allocation.literal == instruction) {
+                    if (allocation.escapes) continue;
+
+                    iterator.remove();
+                    for (Map.Entry<String, Operand> each : allocation.values.entrySet()) {
+                        iterator.add(new Copy(allocation.field(scope, each.getKey()), each.getValue()));
+                    }
+                    changes++;
+                    continue;
+                }
+
+                if (instruction instanceof Copy) {
+                    if (allocation != null && !allocation.escapes) {
+                        iterator.remove();
+                        changes++;
+                    }
+                    continue;
+                }
+
+                Operand[] operands = instruction.getOperands();
+                allocation = operands.length == 0 ? null : holders.get(key(operands[0], captured));
+                if (allocation == null || allocation.escapes) continue;
+
+                if (instruction instanceof PropertyLookup) {
+                    PropertyLookup lookup = (PropertyLookup) instruction;
+                    Operand value = allocation.isLength(lookup.getIdentifier()) ?
+                            new IntegerNumber(allocation.values.size()) : allocation.field(scope, lookup.getIdentifier());
+
+                    iterator.set(new Copy(lookup.getResult(), value));
+                } else if (instruction instanceof PropertyAssign) {
+                    PropertyAssign assign = (PropertyAssign) instruction;
+
+                    iterator.set(new Copy(allocation.field(scope, assign.getIdentifier()), assign.getValue()));
+                } else if (instruction instanceof ElementLookup) {
+                    ElementLookup lookup = (ElementLookup) instruction;
+
+                    iterator.set(new Copy(lookup.getResult(), allocation.field(scope, name(lookup.getIndex()))));
+                } else if (instruction instanceof ElementAssign) {
+                    ElementAssign assign = (ElementAssign) instruction;
+
+                    iterator.set(new Copy(allocation.field(scope, name(assign.getIndex())), assign.getValue()));
+                }
+                changes++;
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * What a variable is known by here: temporaries themselves and private,
+     * uncaptured variables of this scope by offset.  Null for anything else.
+     */
+    private static Object key(Operand operand, Set<Integer> captured) {
+        if (operand instanceof TemporaryVariable) return operand;
+
+        if (operand instanceof LocalVariable && captured != null) {
+            LocalVariable variable = (LocalVariable) operand;
+
+            if (variable.getDepth() == 0 && !captured.contains(variable.getOffset())) return variable.getOffset();
+        }
+
+        return null;
+    }
+
+    /**
+     * Property name a literal index gives or null if it is not a literal.
+     */
+    private static String name(Operand index) {
+        if (index instanceof IntegerNumber) return String.valueOf(((IntegerNumber) index).getValue());
+        if (index instanceof StringLiteral) return ((StringLiteral) index).getValue();
+
+        return null;
+    }
+
+    /**
+     * Where a variable is written.
+     */
+    private static class Site {
+        final BasicBlock bb;
+        final int index;
+
+        Site(BasicBlock bb, int index) {
+            this.bb = bb;
+            this.index = index;
+        }
+
+        boolean dominates(LoopAnalysis dominators, BasicBlock other, int otherIndex) {
+            return bb == other ? index < otherIndex : dominators.dominates(bb, other);
+        }
+    }
+
+    /**
+     * An object or array literal, the values of its properties in order and the
+     * temporaries replacing them.
+     */
+    private static class Allocation {
+        final Instruction literal;
+        final boolean array;
+        final Map<String, Operand> values = new LinkedHashMap<>();
+        final Map<String, Variable> fields = new HashMap<>();
+        boolean escapes;
+
+        Allocation(Instruction literal, boolean array) {
+            this.literal = literal;
+            this.array = array;
+        }
+
+        static Allocation of(Instruction instruction) {
+            if (instruction instanceof ObjectLiteral) {
+                ObjectLiteral literal = (ObjectLiteral) instruction;
+                Allocation allocation = new Allocation(instruction, false);
+
+                for (int i = 0; i < literal.getNames().length; i++) {
+                    String name = literal.getNames()[i];
+                    if (literal.getKinds()[i] != ObjectLiteral.VALUE || name.equals("__proto__")) return null;
+
+                    // a later value of the same name replaces an earlier one
+                    allocation.values.remove(name);
+                    allocation.values.put(name, literal.getValues()[i]);
+                }
+
+                return allocation;
+            } else if (instruction instanceof ArrayLiteral) {
+                Operand[] elements = ((ArrayLiteral) instruction).getElements();
+                Allocation allocation = new Allocation(instruction, true);
+
+                for (int i = 0; i < elements.length; i++) {
+                    if (elements[i] == null) return null;
+
+                    allocation.values.put(String.valueOf(i), elements[i]);
+                }
+
+                return allocation;
+            }
+
+            return null;
+        }
+
+        boolean has(String name) {
+            return name != null && values.containsKey(name);
+        }
+
+        boolean isLength(String name) {
+            return array && name.equals("length");
+        }
+
+        Variable field(Scope scope, String name) {
+            Variable field = fields.get(name);
+
+            if (field == null) {
+                field = scope.createTemporaryVariable();
+                fields.put(name, field);
+            }
+
+            return field;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.dynjs.ir.CallProfile;
+import org.dynjs.ir.FunctionScope;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.Scope;
+import org.dynjs.ir.instructions.BFalse;
+import org.dynjs.ir.instructions.Call;
+import org.dynjs.ir.instructions.CallMethod;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.instructions.InlineGuard;
+import org.dynjs.ir.instructions.Jump;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.instructions.ReceiveFunctionParameter;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.instructions.Return;
+import org.dynjs.ir.operands.BooleanLiteral;
+import org.dynjs.ir.operands.DynamicVariable;
+import org.dynjs.ir.operands.FloatNumber;
+import org.dynjs.ir.operands.IntegerNumber;
+import org.dynjs.ir.operands.LocalVariable;
+import org.dynjs.ir.operands.Null;
+import org.dynjs.ir.operands.StringLiteral;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.This;
+import org.dynjs.ir.operands.Undefined;
+import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+import org.jruby.dirgra.Edge;
+
+/**
+ * Replaces calls which have only ever called functions of one small scope with
+ * a copy of that scope's body.
+ *
+ * Unlike the other passes this one needs the CallProfile of each call site, so
+ * it runs when a scope is reoptimized once one of its calls has executed
+ * threshold times (see Scope.execute), and only calls which have are inlined.
+ * Only straight-line bodies which touch nothing but their own parameters and
+ * variables, this and properties are inlined; they need no ExecutionContext of
+ * their own.  The copy runs behind an InlineGuard checking the function really
+ * is one of that scope and falls back to the original call when it is not:
+ *
+ *   (call site block)  f = base.name; ok = inline_guard f, base; b_false ok, SLOW
+ *   (inlined body)     params = args; ...; result = returned value; jump JOIN
+ *   SLOW:              result = call base, f, args; jump JOIN
+ *   JOIN:              (rest of the call site block)
+ */
+public class Inliner extends CompilerPass {
+    private static final Set<Operation> INLINABLE = EnumSet.of(Operation.COPY, Operation.RETURN,
+            Operation.RECEIVE_FUNCTION_PARAM, Operation.PROPERTY_LOOKUP, Operation.PROPERTY_ASSIGN,
+            Operation.ELEMENT_LOOKUP, Operation.ELEMENT_ASSIGN, Operation.ADD, Operation.SUB, Operation.MUL,
+            Operation.DIV, Operation.MOD, Operation.SHIFT_LEFT, Operation.SHIFT_RIGHT,
+            Operation.UNSIGNED_SHIFT_RIGHT, Operation.BITWISE_AND, Operation.BITWISE_OR, Operation.BITWISE_XOR,
+            Operation.BITWISE_NOT, Operation.LT, Operation.LE, Operation.GT, Operation.GE, Operation.EQUAL,
+            Operation.NOT_EQUAL, Operation.STRICT_EQUAL, Operation.STRICT_NOT_EQUAL, Operation.NOT,
+            Operation.NEGATE, Operation.TO_NUMBER, Operation.TYPEOF, Operation.IN, Operation.INSTANCEOF);
+
+    private final int threshold;
+    private final int maximumSize;
+
+    /**
+     * @param threshold executions of a call before it is inlined
+     * @param maximumSize most instructions a body may have to be inlined
+     */
+    public Inliner(int threshold, int maximumSize) {
+        this.threshold = threshold;
+        this.maximumSize = maximumSize;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public String getLabel() {
+        return "inline";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        int inlined = 0;
+
+        for (BasicBlock bb : new ArrayList<>(cfg.getBasicBlocks())) {
+            // What follows an inlined call is moved to a new block which may hold more calls
+            for (BasicBlock rest = inlineCall(cfg, bb); rest != null; rest = inlineCall(cfg, rest)) {
+                inlined++;
+            }
+        }
+
+        return inlined;
+    }
+
+    /**
+     * Inline the first call in bb which can be, answering the block holding the
+     * instructions after it (or null if there was none).
+     */
+    private BasicBlock inlineCall(CFG cfg, BasicBlock bb) {
+        List<Instruction> instructions = bb.getInstructions();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instruction = instructions.get(i);
+            CallProfile profile = getProfile(instruction);
+            if (profile == null) continue;
+
+            // Only calls which have run as often as a scope must to be reoptimized
+            FunctionScope callee = profile.getTarget();
+            if (callee == null || profile.getCount() < threshold) continue;
+
+            BasicBlock body = inlinableBody(cfg.getScope(), callee);
+            if (body == null) continue;
+
+            Operand self;
+            Operand[] args;
+            if (instruction instanceof CallMethod) {
+                self = ((CallMethod) instruction).getBase();
+                args = ((CallMethod) instruction).getArgs();
+            } else {
+                self = ((Call) instruction).getSelf();
+                args = ((Call) instruction).getArgs();
+            }
+
+            boolean usesThis = usesThis(body);
+            if (usesThis && self == Undefined.UNDEFINED) continue;
+
+            return inline(cfg, bb, i, callee, body, self, args, usesThis);
+        }
+
+        return null;
+    }
+
+    /**
+     * Profile of instruction if it is a call this pass could inline or null.
+     */
+    public static CallProfile getProfile(Instruction instruction) {
+        if (instruction instanceof CallMethod) return ((CallMethod) instruction).getProfile();
+
+        if (instruction instanceof Call && !(((Call) instruction).getIdentifier() instanceof DynamicVariable)) {
+            return ((Call) instruction).getProfile();
+        }
+
+        return null;
+    }
+
+    private BasicBlock inline(CFG cfg, BasicBlock bb, int index, FunctionScope callee, BasicBlock body,
+                              Operand self, Operand[] args, boolean usesThis) {
+        Scope scope = cfg.getScope();
+        List<Instruction> instructions = bb.getInstructions();
+        Instruction call = instructions.get(index);
+        Variable result = ((ResultInstruction) call).getResult();
+
+        BasicBlock inlined = newBlock(cfg, scope);
+        BasicBlock slow = newBlock(cfg, scope);
+        BasicBlock join = newBlock(cfg, scope);
+
+        // Everything after the call continues in join, which leaves the way bb did
+        List<Instruction> rest = new ArrayList<>(instructions.subList(index + 1, instructions.size()));
+        instructions.subList(index, instructions.size()).clear();
+        join.getInstructions().addAll(rest);
+
+        for (Edge<BasicBlock> edge : new ArrayList<>(cfg.getOutgoingEdges(bb))) {
+            if (edge.getType() == CFG.EdgeType.EXCEPTION) continue;
+
+            cfg.removeEdge(edge);
+            cfg.addEdge(join, edge.getDestination().getData(), edge.getType());
+        }
+
+        Operand function;
+        if (call instanceof CallMethod) {
+            function = scope.createTemporaryVariable();
+            bb.addInstr(new PropertyLookup((Variable) function, self, ((CallMethod) call).getIdentifier()));
+            slow.addInstr(new Call(result, self, function, args));
+        } else {
+            function = ((Call) call).getIdentifier();
+            slow.addInstr(call);
+        }
+        slow.addInstr(new Jump(join.getLabel()));
+
+        Variable guard = scope.createTemporaryVariable();
+        bb.addInstr(new InlineGuard(guard, function, self, callee, usesThis));
+        bb.addInstr(new BFalse(guard, slow.getLabel()));
+
+        copyBody(scope, callee, body, inlined, result, self, args);
+        inlined.addInstr(new Jump(join.getLabel()));
+
+        cfg.addEdge(bb, inlined, CFG.EdgeType.FALL_THROUGH);
+        cfg.addEdge(bb, slow, CFG.EdgeType.REGULAR);
+        cfg.addEdge(inlined, join, CFG.EdgeType.REGULAR);
+        cfg.addEdge(slow, join, CFG.EdgeType.REGULAR);
+
+        BasicBlock rescuer = cfg.getRescuerBBFor(bb);
+        if (rescuer != null) {
+            for (BasicBlock each : new BasicBlock[] { inlined, slow, join }) {
+                cfg.setRescuerBB(each, rescuer);
+                cfg.addEdge(each, rescuer, CFG.EdgeType.EXCEPTION);
+            }
+        }
+
+        return join;
+    }
+
+    private BasicBlock newBlock(CFG cfg, Scope scope) {
+        BasicBlock block = new BasicBlock(cfg, scope.getNewLabel());
+
+        cfg.addBasicBlock(block);
+
+        return block;
+    }
+
+    /**
+     * Copy body into block with callee's temporaries and variables renamed to fresh
+     * temporaries of scope, parameters read from args and what it returns in result.
+     */
+    private void copyBody(Scope scope, FunctionScope callee, BasicBlock body, BasicBlock block, Variable result,
+                          Operand self, Operand[] args) {
+        Map<Operand, Operand> values = new HashMap<>();
+        Map<Integer, Variable> variables = new HashMap<>();
+
+        values.put(This.THIS, self);
+
+        // Variables start out undefined as they do in a fresh call
+        for (Instruction instruction : body.getInstructions()) {
+            for (Operand operand : operandsAndResult(instruction)) {
+                if (operand instanceof LocalVariable && !values.containsKey(operand)) {
+                    Integer offset = ((LocalVariable) operand).getOffset();
+                    Variable variable = variables.get(offset);
+
+                    if (variable == null) {
+                        variable = scope.createTemporaryVariable();
+                        variables.put(offset, variable);
+                        block.addInstr(new Copy(variable, Undefined.UNDEFINED));
+                    }
+                    values.put(operand, variable);
+                } else if (operand instanceof TemporaryVariable && !values.containsKey(operand)) {
+                    values.put(operand, scope.createTemporaryVariable());
+                }
+            }
+        }
+
+        boolean returned = false;
+        for (Instruction instruction : body.getInstructions()) {
+            if (instruction instanceof ReceiveFunctionParameter) {
+                int index = ((ReceiveFunctionParameter) instruction).getIndex();
+                Operand value = index < args.length && args[index] != null ? args[index] : Undefined.UNDEFINED;
+
+                block.addInstr(new Copy((Variable) values.get(((ReceiveFunctionParameter) instruction).getResult()), value));
+            } else if (instruction instanceof Return) {
+                Operand value = ((Return) instruction).getValue();
+
+                block.addInstr(new Copy(result, value == null ? Undefined.UNDEFINED : simplify(value, values)));
+                returned = true;
+            } else {
+                Instruction copy = instruction.copy();
+
+                copy.simplifyOperands(values);
+                if (copy instanceof ResultInstruction) {
+                    ResultInstruction resultInstruction = (ResultInstruction) copy;
+                    resultInstruction.updateResult((Variable) values.get(resultInstruction.getResult()));
+                }
+                block.addInstr(copy);
+            }
+        }
+
+        if (!returned) block.addInstr(new Copy(result, Undefined.UNDEFINED));
+    }
+
+    private static Operand simplify(Operand operand, Map<Operand, Operand> values) {
+        Operand value = values.get(operand);
+
+        return value == null ? operand : value;
+    }
+
+    /**
+     * The only block of callee with instructions if callee is small enough, runs
+     * straight through and uses nothing a call without its own context could not
+     * provide.
+     */
+    private BasicBlock inlinableBody(Scope caller, FunctionScope callee) {
+        if (callee == caller || callee.usesEnvironment() || callee.isDynamic() || callee.isStrict() != caller.isStrict()) {
+            return null;
+        }
+
+        // Its CFG could still be rewritten under us otherwise (inlinable bodies make no calls so are settled once run)
+        if (!callee.isReoptimized()) return null;
+
+        CFG cfg = callee.getCFG();
+        BasicBlock body = null;
+
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            if (bb.isEmpty() || bb == cfg.getExitBB()) continue;
+            if (body != null) return null;
+
+            body = bb;
+        }
+
+        if (body == null || body.instrCount() > maximumSize || cfg.getRescuerBBFor(body) != null) return null;
+
+        for (BasicBlock destination : cfg.getOutgoingDestinations(body)) {
+            if (destination != cfg.getExitBB()) return null;
+        }
+
+        LocalVariable self = callee.getSelfVariable();
+        List<Instruction> instructions = body.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instruction = instructions.get(i);
+
+            if (!INLINABLE.contains(instruction.getOperation())) return null;
+            if (instruction instanceof Return && i != instructions.size() - 1) return null;
+
+            for (Operand operand : operandsAndResult(instruction)) {
+                if (!isInlinable(operand)) return null;
+                if (self != null && operand instanceof LocalVariable &&
+                        ((LocalVariable) operand).getOffset() == self.getOffset()) {
+                    return null;
+                }
+            }
+        }
+
+        return body;
+    }
+
+    private boolean usesThis(BasicBlock body) {
+        for (Instruction instruction : body.getInstructions()) {
+            for (Operand operand : instruction.getOperands()) {
+                if (operand == This.THIS) return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static List<Operand> operandsAndResult(Instruction instruction) {
+        List<Operand> operands = new ArrayList<>();
+
+        for (Operand operand : instruction.getOperands()) {
+            operands.add(operand);
+        }
+        if (instruction instanceof ResultInstruction) operands.add(((ResultInstruction) instruction).getResult());
+
+        return operands;
+    }
+
+    // Its own temporaries and variables, this and literals
+    private static boolean isInlinable(Operand operand) {
+        if (operand instanceof LocalVariable) return ((LocalVariable) operand).getDepth() == 0;
+
+        return operand == null || operand instanceof TemporaryVariable || operand == This.THIS ||
+                operand instanceof IntegerNumber || operand instanceof FloatNumber || operand instanceof StringLiteral ||
+                operand instanceof BooleanLiteral || operand instanceof Null || operand instanceof Undefined;
+    }
+}
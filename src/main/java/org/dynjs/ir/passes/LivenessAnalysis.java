@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+import org.jruby.dirgra.Edge;
+
+/**
+ * Which temporaries are live (may still be read) on entry to and exit from
+ * each basic block.  Temporaries are numbered by their offset.
+ *
+ * An exception can leave a block before any of its instructions so whatever
+ * its rescuer reads is live throughout the block, not just on its exit.
+ */
+public class LivenessAnalysis {
+    private final Map<BasicBlock, BitSet> liveIn = new HashMap<>();
+    private final Map<BasicBlock, BitSet> liveOut = new HashMap<>();
+
+    public LivenessAnalysis(CFG cfg) {
+        Map<BasicBlock, BitSet> uses = new HashMap<>();
+        Map<BasicBlock, BitSet> definitions = new HashMap<>();
+        List<BasicBlock> blocks = new ArrayList<>(cfg.getBasicBlocks());
+
+        for (BasicBlock bb : blocks) {
+            BitSet use = new BitSet();
+            BitSet definition = new BitSet();
+
+            for (Instruction instruction : bb.getInstructions()) {
+                for (Operand operand : instruction.getOperands()) {
+                    if (operand instanceof TemporaryVariable) {
+                        int offset = ((TemporaryVariable) operand).getOffset();
+                        if (!definition.get(offset)) use.set(offset);
+                    }
+                }
+
+                TemporaryVariable result = getTemporaryResult(instruction);
+                if (result != null) definition.set(result.getOffset());
+            }
+
+            uses.put(bb, use);
+            definitions.put(bb, definition);
+            liveIn.put(bb, (BitSet) use.clone());
+            liveOut.put(bb, new BitSet());
+        }
+
+        // Blocks are roughly in program order so going backwards converges quickly
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                BasicBlock bb = blocks.get(i);
+                BitSet out = new BitSet();
+                BitSet rescued = new BitSet();
+
+                for (Edge<BasicBlock> edge : cfg.getOutgoingEdges(bb)) {
+                    BitSet in = liveIn.get(edge.getDestination().getData());
+
+                    out.or(in);
+                    if (edge.getType() == CFG.EdgeType.EXCEPTION) rescued.or(in);
+                }
+
+                BitSet in = (BitSet) out.clone();
+                in.andNot(definitions.get(bb));
+                in.or(uses.get(bb));
+                in.or(rescued);
+
+                if (!out.equals(liveOut.get(bb)) || !in.equals(liveIn.get(bb))) {
+                    liveOut.put(bb, out);
+                    liveIn.put(bb, in);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    public BitSet getLiveIn(BasicBlock bb) {
+        return liveIn.get(bb);
+    }
+
+    public BitSet getLiveOut(BasicBlock bb) {
+        return liveOut.get(bb);
+    }
+
+    static TemporaryVariable getTemporaryResult(Instruction instruction) {
+        if (!(instruction instanceof ResultInstruction)) return null;
+
+        Operand result = ((ResultInstruction) instruction).getResult();
+
+        return result instanceof TemporaryVariable ? (TemporaryVariable) result : null;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Dominators of each basic block and the natural loops they give.
+ *
+ * Dominators are found with the iterative algorithm of Cooper, Harvey and
+ * Kennedy over a reverse postorder of the blocks reachable from entry.  Every
+ * edge counts, exception edges included.  An edge whose destination dominates
+ * its source is a back edge and the loop it closes is its destination (the
+ * header) plus every block which reaches the source without going through the
+ * header.  Back edges to the same header make one loop.
+ */
+public class LoopAnalysis {
+    private final CFG cfg;
+    private final Map<BasicBlock, Integer> order = new HashMap<>();
+    private final List<BasicBlock> reversePostorder = new ArrayList<>();
+    private final Map<BasicBlock, BasicBlock> dominators = new HashMap<>();
+    private final List<Loop> loops = new ArrayList<>();
+
+    public LoopAnalysis(CFG cfg) {
+        this.cfg = cfg;
+
+        number(cfg.getEntryBB(), new HashSet<BasicBlock>());
+        Collections.reverse(reversePostorder);
+        for (int i = 0; i < reversePostorder.size(); i++) {
+            order.put(reversePostorder.get(i), i);
+        }
+
+        computeDominators();
+        findLoops();
+    }
+
+    /**
+     * Does a dominate b (every path from entry to b goes through a)?  A block
+     * dominates itself and unreachable blocks are dominated by nothing.
+     */
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        if (!dominators.containsKey(a) || !dominators.containsKey(b)) return false;
+
+        for (BasicBlock each = b; ; each = dominators.get(each)) {
+            if (each == a) return true;
+            if (each == cfg.getEntryBB()) return false;
+        }
+    }
+
+    /**
+     * Immediate dominator of bb or null for entry and unreachable blocks.
+     */
+    public BasicBlock getImmediateDominator(BasicBlock bb) {
+        return bb == cfg.getEntryBB() ? null : dominators.get(bb);
+    }
+
+    /**
+     * Loops of the CFG, inner ones before those containing them.
+     */
+    public List<Loop> getLoops() {
+        return loops;
+    }
+
+    // Postorder depth first walk (an explicit stack since CFGs can be deep)
+    private void number(BasicBlock entry, Set<BasicBlock> visited) {
+        List<BasicBlock> stack = new ArrayList<>();
+        List<Iterator<BasicBlock>> successors = new ArrayList<>();
+
+        visited.add(entry);
+        stack.add(entry);
+        successors.add(cfg.getOutgoingDestinations(entry).iterator());
+
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+
+            if (successors.get(top).hasNext()) {
+                BasicBlock next = successors.get(top).next();
+
+                if (visited.add(next)) {
+                    stack.add(next);
+                    successors.add(cfg.getOutgoingDestinations(next).iterator());
+                }
+            } else {
+                reversePostorder.add(stack.remove(top));
+                successors.remove(top);
+            }
+        }
+    }
+
+    private void computeDominators() {
+        BasicBlock entry = cfg.getEntryBB();
+        dominators.put(entry, entry);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (BasicBlock bb : reversePostorder) {
+                if (bb == entry) continue;
+
+                BasicBlock dominator = null;
+                for (BasicBlock predecessor : cfg.getIncomingSources(bb)) {
+                    if (!dominators.containsKey(predecessor)) continue;
+
+                    dominator = dominator == null ? predecessor : intersect(predecessor, dominator);
+                }
+
+                if (dominator != null && dominators.get(bb) != dominator) {
+                    dominators.put(bb, dominator);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private BasicBlock intersect(BasicBlock a, BasicBlock b) {
+        while (a != b) {
+            while (order.get(a) > order.get(b)) a = dominators.get(a);
+            while (order.get(b) > order.get(a)) b = dominators.get(b);
+        }
+
+        return a;
+    }
+
+    private void findLoops() {
+        Map<BasicBlock, Loop> byHeader = new LinkedHashMap<>();
+
+        for (BasicBlock bb : reversePostorder) {
+            for (BasicBlock header : cfg.getOutgoingDestinations(bb)) {
+                if (!dominates(header, bb)) continue;
+
+                Loop loop = byHeader.get(header);
+                if (loop == null) {
+                    loop = new Loop(header);
+                    byHeader.put(header, loop);
+                }
+
+                addBlocksReaching(loop, bb);
+            }
+        }
+
+        loops.addAll(byHeader.values());
+
+        // A loop nested in another has fewer blocks
+        Collections.sort(loops, new Comparator<Loop>() {
+            @Override
+            public int compare(Loop a, Loop b) {
+                return Integer.compare(a.blocks.size(), b.blocks.size());
+            }
+        });
+    }
+
+    private void addBlocksReaching(Loop loop, BasicBlock tail) {
+        List<BasicBlock> work = new ArrayList<>();
+
+        if (loop.blocks.add(tail)) work.add(tail);
+
+        while (!work.isEmpty()) {
+            BasicBlock bb = work.remove(work.size() - 1);
+
+            for (BasicBlock predecessor : cfg.getIncomingSources(bb)) {
+                if (dominators.containsKey(predecessor) && loop.blocks.add(predecessor)) work.add(predecessor);
+            }
+        }
+    }
+
+    /**
+     * A natural loop: its header and the blocks of its body (header included).
+     */
+    public static class Loop {
+        private final BasicBlock header;
+        private final Set<BasicBlock> blocks = new HashSet<>();
+
+        Loop(BasicBlock header) {
+            this.header = header;
+            blocks.add(header);
+        }
+
+        public BasicBlock getHeader() {
+            return header;
+        }
+
+        public Set<BasicBlock> getBlocks() {
+            return blocks;
+        }
+
+        public boolean contains(BasicBlock bb) {
+            return blocks.contains(bb);
+        }
+    }
+}
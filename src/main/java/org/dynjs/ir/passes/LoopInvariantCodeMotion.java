@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.Scope;
+import org.dynjs.ir.instructions.Branch;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.instructions.Jump;
+import org.dynjs.ir.instructions.LoadName;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.instructions.Switch;
+import org.dynjs.ir.operands.BooleanLiteral;
+import org.dynjs.ir.operands.DynamicVariable;
+import org.dynjs.ir.operands.FloatNumber;
+import org.dynjs.ir.operands.IntegerNumber;
+import org.dynjs.ir.operands.Label;
+import org.dynjs.ir.operands.LocalVariable;
+import org.dynjs.ir.operands.Null;
+import org.dynjs.ir.operands.StringLiteral;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.operands.This;
+import org.dynjs.ir.operands.Undefined;
+import org.dynjs.ir.operands.Variable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+import org.jruby.dirgra.Edge;
+
+/**
+ * Takes work which gives the same answer each time round a loop out of it.
+ *
+ * Instructions without side effects which cannot raise and whose operands do
+ * not change in the loop move to a preheader, a new block run once before the
+ * loop is entered.  An operand does not change if it is a literal, this, a
+ * temporary not written in the loop or a variable of this scope which the loop
+ * does not write and no closure can (see isPrivate).
+ *
+ * Property reads of an unchanging object and reads of names in the environment
+ * can have getters or be changed by anything the loop calls, so they stay
+ * where they are.  They are marked instead, so that names are read straight out
+ * of the binding found last time for as long as it is still the one found (see
+ * PropertyCache.getName); property reads rely on the guards of their cache
+ * (see PropertyCache.getInvariant).
+ */
+public class LoopInvariantCodeMotion extends CompilerPass {
+    // Others without side effects allocate (literals) or depend on where they run (receive_*)
+    private static final Set<Operation> MOVABLE = EnumSet.of(Operation.COPY, Operation.NOT,
+            Operation.STRICT_EQUAL, Operation.STRICT_NOT_EQUAL);
+
+    @Override
+    public String getLabel() {
+        return "licm";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        List<LoopAnalysis.Loop> loops = new LoopAnalysis(cfg).getLoops();
+        if (loops.isEmpty()) return 0;
+
+        Scope scope = cfg.getScope();
+        Set<Integer> captured = isPrivate(scope) ? capturedVariables(scope) : null;
+        Map<TemporaryVariable, Integer> definitions = countDefinitions(cfg);
+        int changes = 0;
+
+        for (LoopAnalysis.Loop loop : loops) {
+            if (isRescuer(cfg, loop.getHeader())) continue;
+
+            changes += run(cfg, loops, loop, captured, definitions);
+        }
+
+        return changes;
+    }
+
+    // A loop entered from an exception handler has nowhere to put a preheader
+    private static boolean isRescuer(CFG cfg, BasicBlock bb) {
+        for (Edge<BasicBlock> edge : cfg.getIncomingEdges(bb)) {
+            if (edge.getType() == CFG.EdgeType.EXCEPTION) return true;
+        }
+
+        return false;
+    }
+
+    private int run(CFG cfg, List<LoopAnalysis.Loop> loops, LoopAnalysis.Loop loop, Set<Integer> captured,
+                    Map<TemporaryVariable, Integer> definitions) {
+        Set<TemporaryVariable> written = new HashSet<>();
+        Set<Integer> writtenVariables = new HashSet<>();
+
+        for (BasicBlock bb : loop.getBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                if (!(instruction instanceof ResultInstruction)) continue;
+
+                Variable result = ((ResultInstruction) instruction).getResult();
+                if (result instanceof TemporaryVariable) {
+                    written.add((TemporaryVariable) result);
+                } else if (result instanceof LocalVariable && ((LocalVariable) result).getDepth() == 0) {
+                    writtenVariables.add(((LocalVariable) result).getOffset());
+                }
+            }
+        }
+
+        Invariance invariance = new Invariance(written, writtenVariables, captured);
+        List<Instruction> hoisted = new ArrayList<>();
+        int changes = 0;
+
+        // Moving one instruction can make those reading its result movable
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+
+            for (BasicBlock bb : loop.getBlocks()) {
+                for (ListIterator<Instruction> iterator = bb.getInstructions().listIterator(); iterator.hasNext(); ) {
+                    Instruction instruction = iterator.next();
+
+                    if (isMovable(instruction, definitions, invariance)) {
+                        iterator.remove();
+                        hoisted.add(instruction);
+                        written.remove(((ResultInstruction) instruction).getResult());
+                        moved = true;
+                    }
+                }
+            }
+        }
+
+        for (BasicBlock bb : loop.getBlocks()) {
+            for (ListIterator<Instruction> iterator = bb.getInstructions().listIterator(); iterator.hasNext(); ) {
+                Instruction instruction = iterator.next();
+
+                if (instruction instanceof PropertyLookup) {
+                    PropertyLookup lookup = (PropertyLookup) instruction;
+
+                    if (!lookup.isInvariant() && invariance.isInvariant(lookup.getBase())) {
+                        lookup.setInvariant(true);
+                        changes++;
+                    }
+                } else if (instruction instanceof Copy && ((Copy) instruction).getValue() instanceof DynamicVariable &&
+                        !(((Copy) instruction).getResult() instanceof DynamicVariable)) {
+                    Copy copy = (Copy) instruction;
+
+                    iterator.set(new LoadName(copy.getResult(), ((DynamicVariable) copy.getValue()).getName()));
+                    changes++;
+                }
+            }
+        }
+
+        if (!hoisted.isEmpty()) {
+            BasicBlock preheader = addPreheader(cfg, loops, loop);
+
+            for (Instruction instruction : hoisted) {
+                preheader.getInstructions().add(preheader.instrCount() - 1, instruction);
+            }
+            changes += hoisted.size();
+        }
+
+        return changes;
+    }
+
+    private boolean isMovable(Instruction instruction, Map<TemporaryVariable, Integer> definitions,
+                              Invariance invariance) {
+        if (!MOVABLE.contains(instruction.getOperation()) || instruction.hasSideEffects() ||
+                instruction.canRaiseException()) {
+            return false;
+        }
+
+        // Only a temporary with one definition is sure to hold the same thing before the loop
+        Variable result = ((ResultInstruction) instruction).getResult();
+        if (!(result instanceof TemporaryVariable) || definitions.get(result) != 1) return false;
+
+        for (Operand operand : instruction.getOperands()) {
+            if (!invariance.isInvariant(operand)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * New block which every edge from outside loop into its header now goes
+     * through.  It belongs to the loops which contain loop.
+     */
+    private BasicBlock addPreheader(CFG cfg, List<LoopAnalysis.Loop> loops, LoopAnalysis.Loop loop) {
+        BasicBlock header = loop.getHeader();
+        BasicBlock preheader = new BasicBlock(cfg, cfg.getScope().getNewLabel());
+
+        cfg.addBasicBlock(preheader);
+
+        for (Edge<BasicBlock> edge : new ArrayList<>(cfg.getIncomingEdges(header))) {
+            BasicBlock source = edge.getSource().getData();
+            if (loop.contains(source)) continue;
+
+            cfg.removeEdge(edge);
+            cfg.addEdge(source, preheader, edge.getType());
+            retarget(source.getLastInstr(), header.getLabel(), preheader.getLabel());
+        }
+
+        preheader.addInstr(new Jump(header.getLabel()));
+        cfg.addEdge(preheader, header, CFG.EdgeType.REGULAR);
+
+        for (LoopAnalysis.Loop each : loops) {
+            if (each != loop && each.contains(header)) each.getBlocks().add(preheader);
+        }
+
+        return preheader;
+    }
+
+    private static void retarget(Instruction instruction, Label from, Label to) {
+        if (instruction instanceof Jump && ((Jump) instruction).getTarget().equals(from)) {
+            ((Jump) instruction).setTarget(to);
+        } else if (instruction instanceof Branch && ((Branch) instruction).getTarget().equals(from)) {
+            ((Branch) instruction).setTarget(to);
+        } else if (instruction instanceof Switch) {
+            ((Switch) instruction).retarget(from, to);
+        }
+    }
+
+    /**
+     * Which operands hold the same thing every time round one loop.
+     */
+    private static class Invariance {
+        private final Set<TemporaryVariable> written;
+        private final Set<Integer> writtenVariables;
+        // null when no variable can be relied on
+        private final Set<Integer> captured;
+
+        Invariance(Set<TemporaryVariable> written, Set<Integer> writtenVariables, Set<Integer> captured) {
+            this.written = written;
+            this.writtenVariables = writtenVariables;
+            this.captured = captured;
+        }
+
+        boolean isInvariant(Operand operand) {
+            if (operand instanceof TemporaryVariable) return !written.contains(operand);
+
+            if (operand instanceof LocalVariable) {
+                LocalVariable variable = (LocalVariable) operand;
+
+                return captured != null && variable.getDepth() == 0 &&
+                        !writtenVariables.contains(variable.getOffset()) && !captured.contains(variable.getOffset());
+            }
+
+            return operand == This.THIS || operand instanceof IntegerNumber || operand instanceof FloatNumber ||
+                    operand instanceof StringLiteral || operand instanceof BooleanLiteral || operand instanceof Null ||
+                    operand instanceof Undefined;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Runs an ordered list of passes over the CFG of each scope before it is
+ * interpreted or compiled.
+ *
+ * When reporting, time spent and changes made are totalled per pass across
+ * all scopes and printed to stderr on exit (see getReport()).
+ */
+public class PassManager {
+    public static final String DEFAULT_PASSES = "constprop,escape,copyprop,dce,unreachable,licm,types,coalesce";
+
+    private static final Map<String, Statistics> STATISTICS = new LinkedHashMap<>();
+    private static boolean reportInstalled = false;
+
+    private final List<CompilerPass> passes;
+    private final boolean report;
+    private Inliner inliner;
+
+    public PassManager(List<CompilerPass> passes, boolean report) {
+        this.passes = passes;
+        this.report = report;
+
+        if (report) installReport();
+    }
+
+    /**
+     * Passes named in a comma separated list, in the order they will run.
+     */
+    public static PassManager create(String names, boolean report) {
+        List<CompilerPass> passes = new ArrayList<>();
+
+        for (String name : names.split(",")) {
+            name = name.trim();
+
+            if (name.isEmpty()) continue;
+
+            passes.add(createPass(name));
+        }
+
+        return new PassManager(passes, report);
+    }
+
+    public static CompilerPass createPass(String name) {
+        switch (name) {
+            case "constprop": return new ConstantPropagation();
+            case "copyprop": return new CopyPropagation();
+            case "dce": return new DeadCodeElimination();
+            case "unreachable": return new UnreachableBlockRemoval();
+            case "escape": return new EscapeAnalysis();
+            case "licm": return new LoopInvariantCodeMotion();
+            case "types": return new TypeInference();
+            case "coalesce": return new TemporaryCoalescing();
+        }
+
+        throw new IllegalArgumentException("Unknown IR pass: " + name);
+    }
+
+    public List<CompilerPass> getPasses() {
+        return Collections.unmodifiableList(passes);
+    }
+
+    /**
+     * Inliner scopes are reoptimized with once they have run a while or null if
+     * they never are.
+     */
+    public Inliner getInliner() {
+        return inliner;
+    }
+
+    public void setInliner(Inliner inliner) {
+        this.inliner = inliner;
+    }
+
+    public void run(CFG cfg) {
+        for (CompilerPass pass : passes) {
+            run(pass, cfg);
+        }
+    }
+
+    /**
+     * Inline calls cfg has made so far and, if any were, run the passes again.
+     */
+    public boolean reoptimize(CFG cfg) {
+        if (inliner == null || run(inliner, cfg) == 0) return false;
+
+        run(cfg);
+
+        return true;
+    }
+
+    private int run(CompilerPass pass, CFG cfg) {
+        if (!report) return pass.run(cfg);
+
+        long start = System.nanoTime();
+        int changes = pass.run(cfg);
+        record(pass.getLabel(), System.nanoTime() - start, changes);
+
+        return changes;
+    }
+
+    private static synchronized void record(String label, long time, int changes) {
+        Statistics statistics = STATISTICS.get(label);
+
+        if (statistics == null) {
+            statistics = new Statistics();
+            STATISTICS.put(label, statistics);
+        }
+
+        statistics.runs++;
+        statistics.time += time;
+        statistics.changes += changes;
+    }
+
+    /**
+     * Runs, time and changes of each pass which has run with reporting on.
+     */
+    public static synchronized String getReport() {
+        StringBuilder report = new StringBuilder();
+
+        report.append(String.format("%-12s %8s %12s %10s%n", "pass", "runs", "time (ms)", "changes"));
+        for (Map.Entry<String, Statistics> each : STATISTICS.entrySet()) {
+            Statistics statistics = each.getValue();
+
+            report.append(String.format("%-12s %8d %12.3f %10d%n", each.getKey(), statistics.runs,
+                    statistics.time / 1000000.0, statistics.changes));
+        }
+
+        return report.toString();
+    }
+
+    private static synchronized void installReport() {
+        if (reportInstalled) return;
+
+        reportInstalled = true;
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                System.err.print(getReport());
+            }
+        });
+    }
+
+    private static class Statistics {
+        int runs;
+        long time;
+        int changes;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.Scope;
+import org.dynjs.ir.ValueType;
+import org.dynjs.ir.instructions.ResultInstruction;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Renumbers temporaries so ones which are never live at the same time share
+ * an offset (linear scan over live intervals), and shrinks the scope to the
+ * number of offsets used.  Frames of the Interpreter and JVM locals of
+ * IRByteCodeCompiler get smaller and a dead temporary's value is overwritten
+ * rather than kept until the scope returns.  When TypeInference has run only
+ * temporaries of the same type share so each offset keeps a single type.
+ *
+ * This has to be the last pass: after it a temporary may be written more than
+ * once and other passes count on single definitions.
+ */
+public class TemporaryCoalescing extends CompilerPass {
+    @Override
+    public String getLabel() {
+        return "coalesce";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        LivenessAnalysis liveness = new LivenessAnalysis(cfg);
+        Map<Integer, Interval> intervals = new HashMap<>();
+        List<BasicBlock> blocks = new ArrayList<>(cfg.getBasicBlocks());
+        int position = 0;
+
+        // Any order works since an interval covers every point its temporary is live at
+        Collections.sort(blocks, new Comparator<BasicBlock>() {
+            @Override
+            public int compare(BasicBlock a, BasicBlock b) {
+                return Integer.compare(a.getID(), b.getID());
+            }
+        });
+
+        for (BasicBlock bb : blocks) {
+            int start = position;
+
+            extend(intervals, liveness.getLiveIn(bb), start);
+            for (Instruction instruction : bb.getInstructions()) {
+                position++;
+                for (Operand operand : instruction.getOperands()) {
+                    if (operand instanceof TemporaryVariable) extend(intervals, (TemporaryVariable) operand, position);
+                }
+
+                TemporaryVariable result = LivenessAnalysis.getTemporaryResult(instruction);
+                if (result != null) extend(intervals, result, position);
+            }
+            position++;
+            extend(intervals, liveness.getLiveOut(bb), position);
+        }
+
+        Scope scope = cfg.getScope();
+        Map<ValueType, List<Interval>> byType = new EnumMap<>(ValueType.class);
+        for (Interval interval : intervals.values()) {
+            ValueType type = scope.getTemporaryType(interval.offset);
+            List<Interval> sameType = byType.get(type);
+
+            if (sameType == null) {
+                sameType = new ArrayList<>();
+                byType.put(type, sameType);
+            }
+            sameType.add(interval);
+        }
+
+        Map<Operand, Operand> renames = new HashMap<>();
+        List<ValueType> types = new ArrayList<>();
+        int changes = 0;
+
+        for (Map.Entry<ValueType, List<Interval>> each : byType.entrySet()) {
+            int size = allocate(each.getValue(), types.size(), renames);
+
+            while (types.size() < size) types.add(each.getKey());
+        }
+
+        for (Map.Entry<Operand, Operand> each : renames.entrySet()) {
+            if (!each.getKey().equals(each.getValue())) changes++;
+        }
+
+        simplifyOperands(cfg, renames);
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                TemporaryVariable result = LivenessAnalysis.getTemporaryResult(instruction);
+                if (result != null) ((ResultInstruction) instruction).updateResult((TemporaryVariable) renames.get(result));
+            }
+        }
+
+        changes += scope.getTemporaryVariableSize() - types.size();
+        scope.setTemporaryVariableSize(types.size());
+        if (scope.getTemporaryTypes() != null) scope.setTemporaryTypes(types.toArray(new ValueType[types.size()]));
+
+        return changes;
+    }
+
+    // Offsets are handed out from first on; answers the offset after the last one used
+    private int allocate(List<Interval> sorted, int first, Map<Operand, Operand> renames) {
+        PriorityQueue<Interval> active = new PriorityQueue<>(11, new Comparator<Interval>() {
+            @Override
+            public int compare(Interval a, Interval b) {
+                return Integer.compare(a.end, b.end);
+            }
+        });
+        BitSet used = new BitSet();
+        int size = 0;
+
+        Collections.sort(sorted, new Comparator<Interval>() {
+            @Override
+            public int compare(Interval a, Interval b) {
+                return Integer.compare(a.start, b.start);
+            }
+        });
+
+        for (Interval interval : sorted) {
+            // Reads happen before the result is written but not for every instruction
+            // in the same way so an interval ending where this starts still conflicts.
+            while (!active.isEmpty() && active.peek().end < interval.start) {
+                used.clear(active.poll().slot);
+            }
+
+            interval.slot = used.nextClearBit(0);
+            used.set(interval.slot);
+            size = Math.max(size, interval.slot + 1);
+            active.add(interval);
+            renames.put(new TemporaryVariable(interval.offset), new TemporaryVariable(first + interval.slot));
+        }
+
+        return first + size;
+    }
+
+    private void extend(Map<Integer, Interval> intervals, BitSet live, int position) {
+        for (int offset = live.nextSetBit(0); offset >= 0; offset = live.nextSetBit(offset + 1)) {
+            extend(intervals, offset, position);
+        }
+    }
+
+    private void extend(Map<Integer, Interval> intervals, TemporaryVariable variable, int position) {
+        extend(intervals, variable.getOffset(), position);
+    }
+
+    private void extend(Map<Integer, Interval> intervals, int offset, int position) {
+        Interval interval = intervals.get(offset);
+
+        if (interval == null) {
+            intervals.put(offset, new Interval(offset, position));
+        } else {
+            interval.start = Math.min(interval.start, position);
+            interval.end = Math.max(interval.end, position);
+        }
+    }
+
+    private static class Interval {
+        final int offset;
+        int start;
+        int end;
+        int slot;
+
+        Interval(int offset, int position) {
+            this.offset = offset;
+            this.start = position;
+            this.end = position;
+        }
+    }
+}
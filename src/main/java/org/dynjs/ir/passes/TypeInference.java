@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operand;
+import org.dynjs.ir.ValueType;
+import org.dynjs.ir.instructions.BinaryInstr;
+import org.dynjs.ir.instructions.Copy;
+import org.dynjs.ir.instructions.UnaryInstr;
+import org.dynjs.ir.operands.BooleanLiteral;
+import org.dynjs.ir.operands.FloatNumber;
+import org.dynjs.ir.operands.IntegerNumber;
+import org.dynjs.ir.operands.StringLiteral;
+import org.dynjs.ir.operands.TemporaryVariable;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Works out which temporaries only ever hold a Long, a Double, a Number, a
+ * Boolean or a String and records it on the scope (Scope.getTemporaryType).
+ *
+ * The type of a temporary joins the types of all instructions defining it and
+ * is found by iterating until nothing changes.  Result types follow what the
+ * IRRuntimeHelpers of each operation can return: comparisons always give a
+ * Boolean, bitwise operators a Long and adding or subtracting Longs a Long
+ * (it wraps like the helper does).  Locals are never typed since a closure
+ * can store anything in them.
+ */
+public class TypeInference extends CompilerPass {
+    @Override
+    public String getLabel() {
+        return "types";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        Map<Integer, ValueType> types = new HashMap<>();
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (BasicBlock bb : cfg.getBasicBlocks()) {
+                for (Instruction instruction : bb.getInstructions()) {
+                    TemporaryVariable result = LivenessAnalysis.getTemporaryResult(instruction);
+
+                    if (result == null) continue;
+
+                    ValueType type = resultType(instruction, types);
+                    if (type == null) continue;
+
+                    ValueType current = types.get(result.getOffset());
+                    ValueType joined = type.join(current);
+                    if (joined != current) {
+                        types.put(result.getOffset(), joined);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        int size = cfg.getScope().getTemporaryVariableSize();
+        ValueType[] temporaryTypes = new ValueType[size];
+        int typed = 0;
+
+        for (int i = 0; i < size; i++) {
+            ValueType type = types.get(i);
+
+            temporaryTypes[i] = type == null ? ValueType.ANY : type;
+            if (temporaryTypes[i] != ValueType.ANY) typed++;
+        }
+        cfg.getScope().setTemporaryTypes(temporaryTypes);
+
+        return typed;
+    }
+
+    // null means it depends on something not known yet
+    private ValueType resultType(Instruction instruction, Map<Integer, ValueType> types) {
+        switch (instruction.getOperation()) {
+            case COPY:
+                return typeOf(((Copy) instruction).getValue(), types);
+            case LT: case LE: case GT: case GE: case EQUAL: case NOT_EQUAL: case STRICT_EQUAL: case STRICT_NOT_EQUAL:
+            case IN: case INSTANCEOF: case NOT: case DELETE_PROPERTY: case DELETE_NAME: case HAS_NEXT_PROPERTY:
+            case INLINE_GUARD:
+                return ValueType.BOOLEAN;
+            case SHIFT_LEFT: case SHIFT_RIGHT: case UNSIGNED_SHIFT_RIGHT: case BITWISE_AND: case BITWISE_OR:
+            case BITWISE_XOR: case BITWISE_NOT:
+                return ValueType.INTEGER;
+            case TYPEOF:
+                return ValueType.STRING;
+            case DIV: case MOD: case NEGATE:
+                return ValueType.NUMBER;
+            case TO_NUMBER: {
+                ValueType value = typeOf(((UnaryInstr) instruction).getValue(), types);
+
+                if (value == null) return null;
+
+                return value.isNumeric() ? value : ValueType.NUMBER;
+            }
+            case ADD: {
+                ValueType lhs = typeOf(((BinaryInstr) instruction).getLHS(), types);
+                ValueType rhs = typeOf(((BinaryInstr) instruction).getRHS(), types);
+
+                if (lhs == ValueType.STRING || rhs == ValueType.STRING) return ValueType.STRING;
+                if (lhs == null || rhs == null) return null;
+                if (lhs.isNumeric() && rhs.isNumeric()) return arithmeticType(lhs, rhs);
+
+                return ValueType.ANY;
+            }
+            case SUB: case MUL: {
+                ValueType lhs = typeOf(((BinaryInstr) instruction).getLHS(), types);
+                ValueType rhs = typeOf(((BinaryInstr) instruction).getRHS(), types);
+
+                // Any operand is converted to a number and a Double one makes the result a Double
+                if (lhs == ValueType.FLOAT || rhs == ValueType.FLOAT) return ValueType.FLOAT;
+                if (lhs == null || rhs == null) return null;
+
+                return arithmeticType(lhs, rhs);
+            }
+        }
+
+        return ValueType.ANY;
+    }
+
+    private ValueType arithmeticType(ValueType lhs, ValueType rhs) {
+        if (lhs == ValueType.INTEGER && rhs == ValueType.INTEGER) return ValueType.INTEGER;
+        if (lhs == ValueType.FLOAT && rhs.isNumeric() || rhs == ValueType.FLOAT && lhs.isNumeric()) return ValueType.FLOAT;
+
+        return ValueType.NUMBER;
+    }
+
+    private ValueType typeOf(Operand operand, Map<Integer, ValueType> types) {
+        if (operand instanceof TemporaryVariable) return types.get(((TemporaryVariable) operand).getOffset());
+
+        return literalType(operand);
+    }
+
+    /**
+     * Type of a literal operand or ANY for anything else.
+     */
+    public static ValueType literalType(Operand operand) {
+        if (operand instanceof IntegerNumber) return ValueType.INTEGER;
+        if (operand instanceof FloatNumber) return ValueType.FLOAT;
+        if (operand instanceof StringLiteral) return ValueType.STRING;
+        if (operand instanceof BooleanLiteral) return ValueType.BOOLEAN;
+
+        return ValueType.ANY;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dynjs.ir.passes;
+
+import org.dynjs.ir.representations.CFG;
+
+/**
+ * Removes basic blocks which cannot be reached from entry (branches folded by
+ * constant propagation leave them behind) and merges what is left into longer
+ * straight-line blocks.
+ */
+public class UnreachableBlockRemoval extends CompilerPass {
+    @Override
+    public String getLabel() {
+        return "unreachable";
+    }
+
+    @Override
+    public int run(CFG cfg) {
+        int removed = cfg.removeUnreachableBlocks();
+        int size = cfg.size();
+
+        cfg.collapseStraightLineBBs();
+
+        return removed + size - cfg.size();
+    }
+}
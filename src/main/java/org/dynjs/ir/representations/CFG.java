@@ -1,10 +1,12 @@
 package org.dynjs.ir.representations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -17,7 +19,9 @@ import org.dynjs.ir.instructions.ExceptionRegionEndMarker;
 import org.dynjs.ir.instructions.ExceptionRegionStartMarker;
 import org.dynjs.ir.instructions.Jump;
 import org.dynjs.ir.instructions.LabelInstr;
+import org.dynjs.ir.instructions.Raise;
 import org.dynjs.ir.instructions.Return;
+import org.dynjs.ir.instructions.Switch;
 import org.dynjs.ir.instructions.ThrowException;
 import org.dynjs.ir.operands.Label;
 import org.jruby.dirgra.DirectedGraph;
@@ -165,10 +169,17 @@ public class CFG {
                     nextBBIsFallThrough = true;
                 } else if (i instanceof Jump) {
                     target = ((Jump) i).getTarget();
+                } else if (i instanceof Switch) {
+                    Set<Label> targets = new LinkedHashSet<Label>(Arrays.asList(((Switch) i).getTargets()));
+                    targets.add(((Switch) i).getDefaultTarget());
+                    for (Label each : targets) {
+                        addEdge(currBB, each, forwardRefs);
+                    }
+                    target = null;
                 } else if (i instanceof Return) {
                     target = null;
                     returnBBs.add(currBB);
-                } else if (i instanceof ThrowException) {
+                } else if (i instanceof ThrowException || i instanceof Raise) {
                     target = null;
                     exceptionBBs.add(currBB);
                 } else {
@@ -306,26 +317,36 @@ public class CFG {
         }
     }
 
-    private void deleteOrphanedBlocks(DirectedGraph<BasicBlock> graph) {
-        // System.out.println("\nGraph:\n" + toStringGraph());
-        // System.out.println("\nInstructions:\n" + toStringInstrs());
-
-        // FIXME: Quick and dirty implementation
-        while (true) {
-            BasicBlock bbToRemove = null;
-            for (BasicBlock b : graph.allData()) {
-                if (b == entryBB) continue; // Skip entry bb!
-
-                // Every other bb should have at least one incoming edge
-                if (graph.findVertexFor(b).getIncomingEdges().isEmpty()) {
-                    bbToRemove = b;
-                    break;
-                }
+    /**
+     * Remove every block not reachable from entry (exit is always kept) and
+     * return how many were removed.
+     */
+    public int removeUnreachableBlocks() {
+        // Anything not reachable from entry is dead (code after a return or a break
+        // can even form loops of its own so it is not enough to look for no incoming edges).
+        Set<BasicBlock> reachable = new HashSet<BasicBlock>();
+        List<BasicBlock> worklist = new ArrayList<BasicBlock>();
+
+        reachable.add(entryBB);
+        worklist.add(entryBB);
+        while (!worklist.isEmpty()) {
+            BasicBlock b = worklist.remove(worklist.size() - 1);
+
+            for (BasicBlock destination : getOutgoingDestinations(b)) {
+                if (reachable.add(destination)) worklist.add(destination);
             }
-            if (bbToRemove == null) break;
+        }
+
+        List<BasicBlock> toRemove = new ArrayList<BasicBlock>();
+        for (BasicBlock b : graph.allData()) {
+            if (!reachable.contains(b) && b != exitBB) toRemove.add(b);
+        }
 
-            removeBB(bbToRemove);
+        for (BasicBlock b : toRemove) {
+            removeBB(b);
         }
+
+        return toRemove.size();
     }
 
     public Collection<BasicBlock> getBasicBlocks() {
@@ -340,6 +361,14 @@ public class CFG {
         return graph.findVertexFor(block).getOutgoingEdges();
     }
 
+    public Set<Edge<BasicBlock>> getIncomingEdges(BasicBlock block) {
+        return graph.findVertexFor(block).getIncomingEdges();
+    }
+
+    public Iterable<BasicBlock> getIncomingSources(BasicBlock block) {
+        return graph.findVertexFor(block).getIncomingSourcesData();
+    }
+
     public BasicBlock getIncomingSourceOfType(BasicBlock block, Object type) {
         return graph.findVertexFor(block).getIncomingSourceDataOfType(type);
     }
@@ -380,9 +409,10 @@ public class CFG {
         // 2. One of 'a' or 'b' is empty.  We dont need to check for rescue block match because
         //    an empty basic block cannot raise an exception, can it?
         if ((aR == bR) || a.isEmpty() || b.isEmpty()) {
-            // First, remove straight-line jump, if present
+            // First, remove straight-line jump, if present.  A branch or switch whose
+            // only successor is b goes there either way so it is removed as well.
             Instruction lastInstr = a.getLastInstr();
-            if (lastInstr instanceof Jump) a.removeInstr(lastInstr);
+            if (lastInstr instanceof Jump || lastInstr instanceof Branch || lastInstr instanceof Switch) a.removeInstr(lastInstr);
 
             // Swallow b's instrs.
             a.swallowBB(b);
@@ -436,7 +466,7 @@ public class CFG {
             }
         }
 
-        deleteOrphanedBlocks(graph);
+        removeUnreachableBlocks();
 
         collapseStraightLineBBs();
     }
@@ -445,6 +475,10 @@ public class CFG {
         return graph.findVertexFor(b).outDegree();
     }
 
+    public void removeEdge(Edge<BasicBlock> edge) {
+        graph.removeEdge(edge);
+    }
+
     public void removeBB(BasicBlock b) {
         graph.removeVertexFor(b);
         bbMap.remove(b.getLabel());
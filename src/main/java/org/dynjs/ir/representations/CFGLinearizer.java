@@ -2,6 +2,7 @@ package org.dynjs.ir.representations;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -37,6 +38,7 @@ public class CFGLinearizer {
         BitSet processed = new BitSet(cfg.size()); // Assumes all id's are used
 
         linearizeInner(cfg, list, processed, cfg.getEntryBB());
+        linearizeRemainingChains(cfg, list, processed);
         verifyAllBasicBlocksProcessed(cfg, processed);
         fixupList(cfg, list);
 
@@ -74,6 +76,29 @@ public class CFGLinearizer {
         }
     }
 
+    /**
+     * A block only reached through a regular edge into the middle of a fall-through
+     * chain (the body of a loop which tests at the bottom) is never laid out by
+     * linearizeInner.  Lay out each such chain from its head.
+     */
+    private static void linearizeRemainingChains(CFG cfg, List<BasicBlock> list, BitSet processed) {
+        List<BasicBlock> blocks = new ArrayList<BasicBlock>(cfg.getBasicBlocks());
+        Collections.sort(blocks);
+
+        for (BasicBlock block : blocks) {
+            if (processed.get(block.getID())) continue;
+
+            BasicBlock head = block;
+            BasicBlock source;
+            while ((source = cfg.getIncomingSourceOfType(head, EdgeType.FALL_THROUGH)) != null &&
+                    !processed.get(source.getID()) && source != block) {
+                head = source;
+            }
+
+            linearizeInner(cfg, list, processed, head);
+        }
+    }
+
     /**
      * Process (fixup) list of instruction and add or remove jumps.
      */
@@ -98,7 +98,10 @@ public class DefaultVisitor implements CodeVisitor {
     @Override
     public Object visit(Object context, ArrayLiteralExpression expr, boolean strict) {
         for (Expression each : expr.getExprs()) {
-            each.accept(context, this, strict);
+            // elisions are null
+            if (each != null) {
+                each.accept(context, this, strict);
+            }
         }
         return null;
     }
@@ -138,13 +141,17 @@ public class DefaultVisitor implements CodeVisitor {
     @Override
     public Object visit(Object context, CaseClause clause, boolean strict) {
         clause.getExpression().accept(context, this, strict);
-        clause.getBlock().accept(context, this, strict);
+        if (clause.getBlock() != null) {
+            clause.getBlock().accept(context, this, strict);
+        }
         return null;
     }
 
     @Override
     public Object visit(Object context, DefaultCaseClause clause, boolean strict) {
-        clause.getBlock().accept(context, this, strict);
+        if (clause.getBlock() != null) {
+            clause.getBlock().accept(context, this, strict);
+        }
         return null;
     }
 
@@ -248,6 +255,7 @@ public class DefaultVisitor implements CodeVisitor {
     public Object visit(Object context, ForVarDeclInStatement statement, boolean strict) {
         statement.getDeclaration().accept(context, this, strict);
         statement.getRhs().accept(context, this, strict);
+        statement.getBlock().accept(context, this, strict);
         return null;
     }
 
@@ -255,6 +263,7 @@ public class DefaultVisitor implements CodeVisitor {
     public Object visit(Object context, ForVarDeclOfStatement statement, boolean strict) {
         statement.getDeclaration().accept(context, this, strict);
         statement.getRhs().accept(context, this, strict);
+        statement.getBlock().accept(context, this, strict);
         return null;
     }
 
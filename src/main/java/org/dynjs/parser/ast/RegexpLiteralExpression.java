@@ -7,6 +7,7 @@ import org.dynjs.parser.CodeVisitor;
 import org.dynjs.parser.js.Position;
 import org.dynjs.parser.js.SyntaxError;
 import org.dynjs.runtime.ExecutionContext;
+import org.joni.Regex;
 
 public class RegexpLiteralExpression extends BaseExpression implements IllegalFunctionMemberExpression {
 
@@ -44,6 +45,8 @@ public class RegexpLiteralExpression extends BaseExpression implements IllegalFu
 
     private String pattern;
     private String flags;
+    // compiled on first evaluation; every evaluation creates a new RegExp using it
+    private volatile Regex regex;
 
     public RegexpLiteralExpression(Position position, String text) {
         super(position);
@@ -64,6 +67,14 @@ public class RegexpLiteralExpression extends BaseExpression implements IllegalFu
         return this.flags;
     }
 
+    public Regex getRegex() {
+        return this.regex;
+    }
+
+    public void setRegex(Regex regex) {
+        this.regex = regex;
+    }
+
     public String toString() {
         return "/" + this.pattern + "/" + this.flags;
     }
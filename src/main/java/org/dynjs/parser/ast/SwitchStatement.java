@@ -22,16 +22,19 @@ import java.util.List;
 import org.dynjs.parser.CodeVisitor;
 import org.dynjs.parser.js.Position;
 import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.SwitchTable;
 
 public class SwitchStatement extends BaseStatement {
 
     private Expression expr;
     private List<CaseClause> caseClauses;
+    private SwitchTable switchTable;
 
     public SwitchStatement(Position position, Expression expr, List<CaseClause> caseClauses) {
         super(position);
         this.expr = expr;
         this.caseClauses = caseClauses;
+        this.switchTable = SwitchTable.create(caseClauses);
     }
 
     public Expression getExpr() {
@@ -42,6 +45,13 @@ public class SwitchStatement extends BaseStatement {
         return this.caseClauses;
     }
 
+    /**
+     * Table of the case labels when they are all literals, otherwise null.
+     */
+    public SwitchTable getSwitchTable() {
+        return this.switchTable;
+    }
+
     public List<VariableDeclaration> getVariableDeclarations() {
         List<VariableDeclaration> decls = new ArrayList<>();
         for (CaseClause each : caseClauses) {
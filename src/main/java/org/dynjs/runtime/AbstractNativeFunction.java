@@ -57,14 +57,14 @@ public abstract class AbstractNativeFunction extends AbstractFunction {
                     v = ((Reference) v).getValue(context);
                 }
             }
-            args[i] = v;
+            args[i] = Types.flatten(v);
         }
 
         for (int i = numArgs; i < paramsLen; ++i) {
             args[i] = Types.UNDEFINED;
         }
 
-        return call(context, self, args);
+        return call(context, Types.flatten(self), args);
     }
 
     public abstract Object call(ExecutionContext context, Object self, Object... args);
@@ -1,49 +1,98 @@
 package org.dynjs.runtime;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.dynjs.parser.ast.FunctionDeclaration;
 import org.dynjs.parser.ast.VariableDeclaration;
 
+/**
+ * A block whose code may be replaced while other threads are calling it.
+ *
+ * <p>
+ * The current code is held together with a version number in an immutable
+ * pair, which is swapped atomically. Callers always see a fully constructed
+ * block, and an installer can use {@link #install(BasicBlock, BasicBlock)} to
+ * only replace the exact code it compiled from.
+ * </p>
+ */
 public class BasicBlockDelegate implements BasicBlock {
 
-    private BasicBlock delegate;
+    private final AtomicReference<Version> current;
 
     public BasicBlockDelegate(BasicBlock initial) {
-        this.delegate = initial;
+        this.current = new AtomicReference<>(new Version(initial, 0));
     }
-    
+
     public void setDelegate(BasicBlock delegate) {
-        this.delegate = delegate;
+        while (true) {
+            Version version = this.current.get();
+            if (this.current.compareAndSet(version, new Version(delegate, version.number + 1))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replace the current code, but only if it is still <code>expected</code>.
+     *
+     * @param expected the code the replacement was derived from.
+     * @param replacement the new code.
+     * @return <code>true</code> if the replacement was installed.
+     */
+    public boolean install(BasicBlock expected, BasicBlock replacement) {
+        Version version = this.current.get();
+        if (version.code != expected) {
+            return false;
+        }
+        return this.current.compareAndSet(version, new Version(replacement, version.number + 1));
     }
-    
+
     public BasicBlock getDelegate() {
-        return this.delegate;
+        return this.current.get().code;
+    }
+
+    /**
+     * @return the number of times the code has been replaced.
+     */
+    public int getVersion() {
+        return this.current.get().number;
     }
-    
+
     @Override
     public Completion call(ExecutionContext context) {
-        return this.delegate.call( context );
+        return getDelegate().call( context );
     }
 
     @Override
     public List<VariableDeclaration> getVariableDeclarations() {
-        return this.delegate.getVariableDeclarations();
+        return getDelegate().getVariableDeclarations();
     }
 
     @Override
     public List<FunctionDeclaration> getFunctionDeclarations() {
-        return this.delegate.getFunctionDeclarations();
+        return getDelegate().getFunctionDeclarations();
     }
 
     @Override
     public String getFileName() {
-        return this.delegate.getFileName();
+        return getDelegate().getFileName();
     }
 
     @Override
     public boolean isStrict() {
-        return this.delegate.isStrict();
+        return getDelegate().isStrict();
+    }
+
+    private static final class Version {
+
+        Version(BasicBlock code, int number) {
+            this.code = code;
+            this.number = number;
+        }
+
+        private final BasicBlock code;
+        private final int number;
     }
 
 }
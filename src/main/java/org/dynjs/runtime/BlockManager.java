@@ -1,24 +1,149 @@
 package org.dynjs.runtime;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.dynjs.parser.Statement;
 
+/**
+ * Concurrent cache of compiled code, keyed by statement number.
+ *
+ * <p>
+ * Entries are only weakly held by the cache itself. Compiled code that looks
+ * an entry up by statement number keeps it strongly reachable, so an entry
+ * lives at least as long as the program that owns it. On top of that, up to
+ * <code>maximumSize</code> recently used entries are retained strongly so
+ * that code which is only reachable through the cache (interpreted function
+ * expressions, JIT candidates) survives garbage collections. Retained entries
+ * are evicted in second-chance (clock) order once the bound is exceeded.
+ * </p>
+ */
 public class BlockManager {
 
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
     public BlockManager() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
 
+    public BlockManager(int maximumSize) {
+        this.maximumSize = maximumSize;
     }
 
     public Entry retrieve(int statementNumber) {
-        Entry entry = this.storage.get(statementNumber);
-        if (entry == null) {
-            entry = new Entry(statementNumber);
-            this.storage.put(statementNumber, entry);
+        expungeCollectedEntries();
+
+        Integer key = statementNumber;
+        while (true) {
+            EntryReference ref = this.storage.get(key);
+            Entry entry = (ref == null ? null : ref.get());
+            if (entry != null) {
+                this.hits.incrementAndGet();
+                entry.referenced = true;
+                return entry;
+            }
+
+            Entry created = new Entry(statementNumber);
+            EntryReference createdRef = new EntryReference(created, this.collected);
+            boolean installed = (ref == null ? this.storage.putIfAbsent(key, createdRef) == null : this.storage.replace(key, ref, createdRef));
+            if (installed) {
+                this.misses.incrementAndGet();
+                retain(created);
+                return created;
+            }
         }
+    }
+
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * @return the number of entries currently known to the cache, whether
+     *         retained or only reachable from their owning code.
+     */
+    public int size() {
+        expungeCollectedEntries();
+        return this.storage.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return the number of entries dropped from the strongly retained set.
+     */
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
 
-        return entry;
+    /**
+     * @return the number of entries which were garbage collected and removed.
+     */
+    public long getCollectedCount() {
+        return this.collections.get();
+    }
+
+    public String toString() {
+        return "[BlockManager: size=" + size() + "; hits=" + getHitCount() + "; misses=" + getMissCount() + "; evictions=" + getEvictionCount()
+                + "; collected=" + getCollectedCount() + "]";
+    }
+
+    /**
+     * Clear the cache's reference to an entry as the garbage collector would,
+     * so that tests can drive collection without relying on
+     * <code>System.gc()</code>. The entry is removed on the next lookup.
+     */
+    void clearReference(int statementNumber) {
+        EntryReference ref = this.storage.get(statementNumber);
+        if (ref != null) {
+            ref.clear();
+            ref.enqueue();
+        }
+    }
+
+    private void retain(Entry entry) {
+        this.retained.add(entry);
+        if (this.retainedSize.incrementAndGet() <= this.maximumSize) {
+            return;
+        }
+
+        // second chance: recently referenced entries go round once more
+        int budget = this.maximumSize;
+        while (this.retainedSize.get() > this.maximumSize) {
+            Entry candidate = this.retained.poll();
+            if (candidate == null) {
+                return;
+            }
+            if (candidate.referenced && budget-- > 0) {
+                candidate.referenced = false;
+                this.retained.add(candidate);
+                continue;
+            }
+            this.retainedSize.decrementAndGet();
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    private void expungeCollectedEntries() {
+        EntryReference ref;
+        while ((ref = (EntryReference) this.collected.poll()) != null) {
+            if (this.storage.remove(ref.statementNumber, ref)) {
+                this.collections.incrementAndGet();
+            }
+        }
     }
 
     public static class Entry {
@@ -28,33 +153,55 @@ public class BlockManager {
         }
 
         public BasicBlock getCompiled() {
-            /*
-             * if (compiled == null) {
-             * System.err.println( "returning null early" );
-             * return null;
-             * }
-             * 
-             * 
-             * return compiled.get();
-             */
             return compiled;
         }
 
         public void setCompiled(BasicBlock compiled) {
-            // this.compiled = new WeakReference<Object>( compiled );
             this.compiled = compiled;
         }
 
+        /**
+         * Publish compiled code unless another thread got there first.
+         *
+         * @return <code>true</code> if <code>compiled</code> was installed.
+         */
+        public boolean compareAndSetCompiled(BasicBlock expected, BasicBlock compiled) {
+            return COMPILED.compareAndSet(this, expected, compiled);
+        }
+
         public String toString() {
-            // return "[Entry: statement=" + statement + "; compiled=" + (compiled == null ? null : compiled.get()) + "]";
             return "[Entry: statement=" + statement + "; compiled=" + compiled + "]";
         }
 
-        public int statementNumber;
-        public Statement statement;
-        // private WeakReference<Object> compiled;
-        private BasicBlock compiled;
+        private static final AtomicReferenceFieldUpdater<Entry, BasicBlock> COMPILED = AtomicReferenceFieldUpdater.newUpdater(Entry.class, BasicBlock.class,
+                "compiled");
+
+        public final int statementNumber;
+        public volatile Statement statement;
+        private volatile BasicBlock compiled;
+        private volatile boolean referenced;
     }
 
-    private Map<Integer, Entry> storage = new HashMap<>();
+    private static class EntryReference extends WeakReference<Entry> {
+
+        EntryReference(Entry entry, ReferenceQueue<Entry> queue) {
+            super(entry, queue);
+            this.statementNumber = entry.statementNumber;
+        }
+
+        private final Integer statementNumber;
+    }
+
+    private final int maximumSize;
+
+    private final ConcurrentMap<Integer, EntryReference> storage = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Entry> collected = new ReferenceQueue<>();
+
+    private final Queue<Entry> retained = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retainedSize = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong collections = new AtomicLong();
 }
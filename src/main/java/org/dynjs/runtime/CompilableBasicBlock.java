@@ -1,37 +1,56 @@
 package org.dynjs.runtime;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dynjs.compiler.jit.JITBasicBlockCompiler;
+import org.dynjs.runtime.interp.InterpretedBasicBlock;
 
 public class CompilableBasicBlock extends BasicBlockDelegate {
-    
+
+    public static final int COMPILE_THRESHOLD = 5;
+
     private AtomicInteger counter = new AtomicInteger();
+    private AtomicBoolean requested = new AtomicBoolean();
     private String grist;
     private JITBasicBlockCompiler compiler;
+    private InterpretedBasicBlock initial;
 
-    public CompilableBasicBlock(JITBasicBlockCompiler compiler, String grist, BasicBlock initial) {
+    public CompilableBasicBlock(JITBasicBlockCompiler compiler, String grist, InterpretedBasicBlock initial) {
         super(initial);
         this.grist = grist;
         this.compiler = compiler;
+        this.initial = initial;
     }
-    
+
     @Override
     public Completion call(ExecutionContext context) {
-        if ( counter.incrementAndGet() == 5 ) {
+        if ( ! this.requested.get() && counter.incrementAndGet() >= COMPILE_THRESHOLD ) {
             enqueueCompilationRequest(context);
         }
         return super.call(context);
     }
-    
+
     public String getGrist() {
         return this.grist;
     }
-    
+
+    /**
+     * @return the interpreted code this block started out with.
+     */
+    public InterpretedBasicBlock getInitial() {
+        return this.initial;
+    }
+
+    public boolean isCompilationRequested() {
+        return this.requested.get();
+    }
+
     protected void enqueueCompilationRequest(ExecutionContext context) {
-        this.compiler.requestJitCompilation( context, this );
+        // only the first caller over the threshold asks for compilation
+        if ( this.requested.compareAndSet( false, true ) ) {
+            this.compiler.requestJitCompilation( context, this );
+        }
     }
-    
-    
 
 }
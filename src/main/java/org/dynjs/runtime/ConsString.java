@@ -0,0 +1,126 @@
+package org.dynjs.runtime;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A JavaScript string made by concatenation which keeps its two halves (a rope)
+ * instead of copying them, so that building a string piece by piece with
+ * <code>s += piece</code> is linear instead of quadratic.
+ *
+ * <p>
+ * The characters are copied into one String the first time they are needed:
+ * by <code>toString()</code>, which every conversion to a Java string goes
+ * through, or by <code>charAt</code>.  The halves are dropped then.  Its length
+ * is known without flattening.
+ * </p>
+ *
+ * <p>
+ * It is a string primitive everywhere a String is (typeof, equality, property
+ * access on it); native functions and Java code only ever see the flattened
+ * String.  It is not equal (in the sense of <code>equals</code>) to a String with
+ * the same characters, so it must never be used as a key.
+ * </p>
+ */
+public final class ConsString implements CharSequence {
+
+    /**
+     * Shorter concatenations are copied as they always were.
+     */
+    public static final int MINIMUM_LENGTH = 256;
+
+    private final int length;
+    private CharSequence left;
+    private CharSequence right;
+    private volatile String flat;
+
+    private ConsString(CharSequence left, CharSequence right, int length) {
+        this.left = left;
+        this.right = right;
+        this.length = length;
+    }
+
+    /**
+     * left followed by right, as a String or as a ConsString when long enough.
+     */
+    public static CharSequence concat(CharSequence left, CharSequence right) {
+        if (left.length() == 0) {
+            return right;
+        }
+        if (right.length() == 0) {
+            return left;
+        }
+
+        int length = left.length() + right.length();
+        if (length < 0) {
+            throw new OutOfMemoryError("string too long");
+        }
+        if (length < MINIMUM_LENGTH) {
+            return left.toString().concat(right.toString());
+        }
+        return new ConsString(left, right, length);
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        String flat = this.flat;
+        if (flat == null) {
+            flat = flatten();
+        }
+        return flat;
+    }
+
+    private synchronized String flatten() {
+        if (this.flat != null) {
+            return this.flat;
+        }
+
+        // Filled from the end, so that the usual left-leaning tree of s += piece
+        // never has more than one pending node.
+        char[] chars = new char[this.length];
+        int end = this.length;
+        Deque<CharSequence> pending = new ArrayDeque<>();
+        pending.push(this.left);
+        CharSequence next = this.right;
+
+        while (next != null) {
+            if (next instanceof ConsString) {
+                ConsString cons = (ConsString) next;
+                String consFlat = cons.flat;
+                CharSequence consLeft = cons.left;
+                CharSequence consRight = cons.right;
+                if (consFlat == null && consLeft != null && consRight != null) {
+                    pending.push(consLeft);
+                    next = consRight;
+                    continue;
+                }
+                next = cons.flat;
+            }
+            String piece = next.toString();
+            end -= piece.length();
+            piece.getChars(0, piece.length(), chars, end);
+            next = pending.poll();
+        }
+
+        String result = new String(chars);
+        this.flat = result;
+        this.left = null;
+        this.right = null;
+        return result;
+    }
+}
@@ -10,6 +10,25 @@ public class DeclarativeEnvironmentRecord implements EnvironmentRecord {
     private Map<String, PropertyDescriptor> mutableBindings = new HashMap<String, PropertyDescriptor>();
     private Map<String, PropertyDescriptor> immutableBindings = new HashMap<String, PropertyDescriptor>();
 
+    // Counts bindings created and deleted, not values set (see PropertyCache.getName).
+    private int version;
+
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Descriptor holding the value of the binding for name, or null if there is
+     * none or it is an immutable binding not initialized yet.
+     */
+    public PropertyDescriptor getInitializedBinding(String name) {
+        PropertyDescriptor desc = this.immutableBindings.get(name);
+        if (desc != null) {
+            return desc.hasInitialized() ? desc : null;
+        }
+        return this.mutableBindings.get(name);
+    }
+
     @Override
     public boolean hasBinding(ExecutionContext context, String name) {
         return this.mutableBindings.containsKey(name) || this.immutableBindings.containsKey(name);
@@ -26,6 +45,7 @@ public class DeclarativeEnvironmentRecord implements EnvironmentRecord {
         desc.setValue(Types.UNDEFINED);
         desc.setConfigurable(configurable);
         this.mutableBindings.put(name, desc);
+        ++this.version;
     }
 
     @Override
@@ -55,6 +75,7 @@ public class DeclarativeEnvironmentRecord implements EnvironmentRecord {
             desc.setValue(value);
             desc.setConfigurable(configurable);
             this.mutableBindings.put(name, desc);
+            ++this.version;
         } else {
             PropertyDescriptor desc = this.mutableBindings.get(name);
             desc.setValue(value);
@@ -107,6 +128,7 @@ public class DeclarativeEnvironmentRecord implements EnvironmentRecord {
             return false;
         }
 
+        ++this.version;
         return (this.mutableBindings.remove(name) != null);
     }
 
@@ -121,7 +143,7 @@ public class DeclarativeEnvironmentRecord implements EnvironmentRecord {
         PropertyDescriptor desc = new PropertyDescriptor();
         desc.setValue(Types.UNDEFINED);
         this.immutableBindings.put(name, desc);
-
+        ++this.version;
     }
 
     public void initializeImmutableBinding(String name, Object value) {
@@ -110,6 +110,22 @@ public class DynArray extends DynObject {
         return super.defineOwnProperty(context, name, desc, shouldThrow);
     }
     
+    /**
+     * Set the elements of an array which has none yet to values from up to to,
+     * by index and with length once, rather than through defineOwnProperty
+     * checking each name and updating length (see JSON.parse).
+     */
+    public void setElements(Object[] values, int from, int to) {
+        reserveProperties(to - from);
+        for (int i = from; i < to; ++i) {
+            putOwnDataProperty(Integer.toString(i - from), values[i]);
+        }
+
+        PropertyDescriptor lengthDesc = new PropertyDescriptor();
+        lengthDesc.setValue((long) (to - from));
+        super.defineOwnProperty(null, "length", lengthDesc, false);
+    }
+
     public long length() {
         return Types.toInt32(null, this.get(null, "length"));
     }
@@ -4,6 +4,7 @@ import jnr.posix.util.Platform;
 import org.dynjs.Config;
 import org.dynjs.cli.Options;
 import org.dynjs.compiler.JSCompiler;
+import org.dynjs.ir.PropertyCacheReport;
 import org.dynjs.runtime.modules.ModuleProvider;
 import org.dynjs.runtime.util.SafePropertyAccessor;
 
@@ -20,6 +21,7 @@ public class DynJS {
     private JSCompiler compiler;
     private ExecutionContext context;
     private GlobalObject globalObject;
+    private PropertyCacheReport propertyCacheReport;
 
     public DynJS() {
         this(new Config());
@@ -28,6 +30,9 @@ public class DynJS {
     public DynJS(Config config) {
         this.config = config;
         this.compiler = new JSCompiler(config);
+        if (config.isIRCacheReport()) {
+            this.propertyCacheReport = new PropertyCacheReport();
+        }
         this.globalObject = GlobalObject.newGlobalObject(this);
         this.context = ExecutionContext.createGlobalExecutionContext(this);
     }
@@ -44,6 +49,14 @@ public class DynJS {
         return this.compiler;
     }
 
+    /**
+     * Where the IR property caches of this runtime are counted, or null when
+     * they are not.
+     */
+    public PropertyCacheReport getPropertyCacheReport() {
+        return this.propertyCacheReport;
+    }
+
     public ExecutionContext getExecutionContext() {
         return this.context;
     }
@@ -16,6 +16,7 @@
 package org.dynjs.runtime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -29,20 +30,31 @@ public class DynObject implements JSObject, Map<String, Object> {
     private String className;
     private JSObject prototype = null;
 
-    private final Map<String, PropertyDescriptor> properties = new LinkedHashMap<>();
+    private static final PropertyDescriptor[] NO_SLOTS = new PropertyDescriptor[0];
+
+    // Own properties live in slots laid out by shape until the object grows too
+    // large or deletes one, after which they live in dictionary and shape is null.
+    private Shape shape;
+    private PropertyDescriptor[] slots = NO_SLOTS;
+    private Map<String, PropertyDescriptor> dictionary;
     private boolean extensible = true;
 
     // Used by globalObject constructor and for ShadowObjectLinker
     public DynObject() {
-        setClassName("Object");
-        setExtensible(true);
+        this(Shape.createRoot());
     }
 
     public DynObject(GlobalObject globalObject) {
-        this();
+        this(globalObject.getRootShape());
         setPrototype(globalObject.getPrototypeFor("Object"));
     }
 
+    private DynObject(Shape shape) {
+        this.shape = shape;
+        setClassName("Object");
+        setExtensible(true);
+    }
+
     // ------------------------------------------------------------------------
     // JSObject
     // ------------------------------------------------------------------------
@@ -109,7 +121,7 @@ public class DynObject implements JSObject, Map<String, Object> {
     public Object getOwnProperty(ExecutionContext context, String name, boolean dupe) {
         // 8.12.1 (step 1)
         // Returns PropertyDescriptor or UNDEFINED
-        PropertyDescriptor x = this.properties.get(name);
+        PropertyDescriptor x = ownDescriptor(name);
 
         // System.err.println("x1: " + name + " > " + x);
 
@@ -223,7 +235,7 @@ public class DynObject implements JSObject, Map<String, Object> {
     @Override
     public boolean delete(ExecutionContext context, String name, boolean shouldThrow) {
         // 8.12.7
-        if (!this.properties.containsKey(name)) {
+        if (ownDescriptor(name) == null) {
             return true;
         }
         Object d = getOwnProperty(context, name, false);
@@ -234,7 +246,7 @@ public class DynObject implements JSObject, Map<String, Object> {
         PropertyDescriptor desc = (PropertyDescriptor) d;
 
         if (desc.isConfigurable()) {
-            this.properties.remove(name);
+            removeDescriptor(name);
             return true;
         }
 
@@ -257,7 +269,7 @@ public class DynObject implements JSObject, Map<String, Object> {
             Object toString = get(context, "toString");
             if (toString instanceof JSFunction) {
                 Object result = context.call((JSFunction) toString, this);
-                if (result instanceof String || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
+                if (Types.isString(result) || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
                     return result;
                 }
             }
@@ -265,7 +277,7 @@ public class DynObject implements JSObject, Map<String, Object> {
             Object valueOf = get(context, "valueOf");
             if (valueOf instanceof JSFunction) {
                 Object result = context.call((JSFunction) valueOf, this);
-                if (result instanceof String || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
+                if (Types.isString(result) || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
                     return result;
                 }
             }
@@ -274,7 +286,7 @@ public class DynObject implements JSObject, Map<String, Object> {
             Object valueOf = get(context, "valueOf");
             if (valueOf instanceof JSFunction) {
                 Object result = context.call((JSFunction) valueOf, this);
-                if (result instanceof String || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
+                if (Types.isString(result) || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
                     return result;
                 }
             }
@@ -282,7 +294,7 @@ public class DynObject implements JSObject, Map<String, Object> {
             Object toString = get(context, "toString");
             if (toString instanceof JSFunction) {
                 Object result = context.call((JSFunction) toString, this);
-                if (result instanceof String || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
+                if (Types.isString(result) || result instanceof Number || result instanceof Boolean || result == Types.UNDEFINED || result == Types.NULL) {
                     return result;
                 }
             }
@@ -302,7 +314,7 @@ public class DynObject implements JSObject, Map<String, Object> {
                 return reject(context, shouldThrow);
             } else {
                 // System.err.println("DEF.initial: " + name + " > " + newDesc);
-                this.properties.put(name, desc.duplicateWithDefaults());
+                putDescriptor(name, desc.duplicateWithDefaults());
                 return true;
             }
         }
@@ -391,7 +403,7 @@ public class DynObject implements JSObject, Map<String, Object> {
         }
 
         newDesc.copyAll(desc);
-        this.properties.put(name, newDesc);
+        putDescriptor(name, newDesc);
         return true;
 
         /*
@@ -420,6 +432,112 @@ public class DynObject implements JSObject, Map<String, Object> {
         return "[object Object]";
     }
 
+    // ------------------------------------------------------------------------
+    // Own property storage
+    // ------------------------------------------------------------------------
+
+    /**
+     * Layout of the own properties or null once they are kept in a map.
+     */
+    public Shape getShape() {
+        return this.shape;
+    }
+
+    /**
+     * Descriptor in slot index of the current shape.
+     */
+    public PropertyDescriptor getSlot(int index) {
+        return this.slots[index];
+    }
+
+    /**
+     * Make room for count more own properties so an object built knowing how
+     * many it gets (see JSON.parse) allocates its slots once.
+     */
+    public void reserveProperties(int count) {
+        if (this.shape != null) {
+            int size = Math.min(this.shape.size() + count, Shape.MAXIMUM_SIZE);
+            if (size > this.slots.length) {
+                this.slots = Arrays.copyOf(this.slots, size);
+            }
+        }
+    }
+
+    /**
+     * Add name as a writable, enumerable and configurable data property (or
+     * replace it by one) without the checks of defineOwnProperty, for building
+     * an object no script has seen yet.
+     */
+    public void putOwnDataProperty(String name, Object value) {
+        putDescriptor(name, PropertyDescriptor.newDataPropertyDescriptor(value, true, true, true));
+    }
+
+    private PropertyDescriptor ownDescriptor(String name) {
+        if (this.shape == null) {
+            return this.dictionary.get(name);
+        }
+
+        int index = this.shape.indexOf(name);
+        return index < 0 ? null : this.slots[index];
+    }
+
+    private void putDescriptor(String name, PropertyDescriptor desc) {
+        if (this.shape != null) {
+            int index = this.shape.indexOf(name);
+            if (index >= 0) {
+                this.slots[index] = desc;
+                return;
+            }
+
+            Shape next = this.shape.addProperty(name);
+            if (next != null) {
+                index = this.shape.size();
+                if (index == this.slots.length) {
+                    this.slots = Arrays.copyOf(this.slots, Math.max(4, index * 2));
+                }
+                this.slots[index] = desc;
+                this.shape = next;
+                return;
+            }
+
+            toDictionary();
+        }
+
+        this.dictionary.put(name, desc);
+    }
+
+    private void removeDescriptor(String name) {
+        if (this.shape != null) {
+            toDictionary();
+        }
+
+        this.dictionary.remove(name);
+    }
+
+    private void toDictionary() {
+        Map<String, PropertyDescriptor> dictionary = new LinkedHashMap<>();
+
+        for (int i = 0; i < this.shape.size(); i++) {
+            dictionary.put(this.shape.getName(i), this.slots[i]);
+        }
+
+        this.dictionary = dictionary;
+        this.shape = null;
+        this.slots = NO_SLOTS;
+    }
+
+    private Collection<String> ownNames() {
+        if (this.shape == null) {
+            return this.dictionary.keySet();
+        }
+
+        ArrayList<String> names = new ArrayList<>(this.shape.size());
+        for (int i = 0; i < this.shape.size(); i++) {
+            names.add(this.shape.getName(i));
+        }
+        return names;
+    }
+
     protected boolean reject(ExecutionContext context, boolean shouldThrow) {
         if (shouldThrow) {
             throw new ThrowException(context, context.createTypeError("unable to perform operation"));
@@ -430,7 +548,7 @@ public class DynObject implements JSObject, Map<String, Object> {
     @Override
     public NameEnumerator getOwnPropertyNames() {
         ArrayList<String> names = new ArrayList<String>();
-        for (String name : this.properties.keySet()) {
+        for (String name : ownNames()) {
             names.add(name);
         }
         return new NameEnumerator(names);
@@ -439,8 +557,8 @@ public class DynObject implements JSObject, Map<String, Object> {
     @Override
     public NameEnumerator getOwnEnumerablePropertyNames() {
         ArrayList<String> names = new ArrayList<String>();
-        for (String name : this.properties.keySet()) {
-            PropertyDescriptor desc = this.properties.get(name);
+        for (String name : ownNames()) {
+            PropertyDescriptor desc = ownDescriptor(name);
             if (desc.isEnumerable()) {
                 names.add(name);
             }
@@ -454,8 +572,8 @@ public class DynObject implements JSObject, Map<String, Object> {
         if (this.prototype != null) {
             names.addAll(this.prototype.getAllEnumerablePropertyNames().toList());
         }
-        for (String name : this.properties.keySet()) {
-            PropertyDescriptor desc = this.properties.get(name);
+        for (String name : ownNames()) {
+            PropertyDescriptor desc = ownDescriptor(name);
             if (desc.isEnumerable()) {
                 names.add(name);
             } else {
@@ -16,22 +16,102 @@
 package org.dynjs.runtime;
 
 import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DynamicClassLoader extends URLClassLoader {
 
+    private final DynamicClassLoader root;
+
+    private final Set<Reference<Class<?>>> generatedClasses;
+    private final ReferenceQueue<Class<?>> unloadedClasses;
+    private final AtomicLong definedClassCount;
+
     public DynamicClassLoader(ClassLoader parentClassLoader) {
         super(new URL[0], parentClassLoader);
+        this.root = this;
+        this.generatedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Reference<Class<?>>, Boolean>());
+        this.unloadedClasses = new ReferenceQueue<>();
+        this.definedClassCount = new AtomicLong();
     }
 
     public DynamicClassLoader() {
-        super(new URL[0]);
+        this(ClassLoader.getSystemClassLoader());
+    }
+
+    private DynamicClassLoader(DynamicClassLoader parent) {
+        super(new URL[0], parent);
+        this.root = parent.root;
+        this.generatedClasses = null;
+        this.unloadedClasses = null;
+        this.definedClassCount = null;
+    }
+
+    /**
+     * Create a loader for a single unit of generated code (a compiled block
+     * and all of its chunk classes). Once nothing references the classes
+     * defined through it, the loader and its classes can be collected.
+     * 
+     * @return a child loader delegating to this one.
+     */
+    public DynamicClassLoader createUnitLoader() {
+        return new DynamicClassLoader(this);
     }
 
     public Class<?> define(String className, byte[] bytecode) {
-        return super.defineClass(className, bytecode, 0, bytecode.length);
+        Class<?> cls = super.defineClass(className, bytecode, 0, bytecode.length);
+        this.root.track(cls);
+        return cls;
+    }
+
+    /**
+     * @return the number of classes defined through this loader or any of its
+     *         unit loaders which have not yet been unloaded.
+     */
+    public int getLiveGeneratedClassCount() {
+        return this.root.expungeUnloadedClasses();
+    }
+
+    /**
+     * @return the total number of classes ever defined through this loader or
+     *         any of its unit loaders.
+     */
+    public long getDefinedGeneratedClassCount() {
+        return this.root.definedClassCount.get();
+    }
+
+    /**
+     * Clear every tracked class reference as the garbage collector would on
+     * unloading, so that tests can check the bookkeeping without relying on
+     * <code>System.gc()</code>.
+     */
+    void clearGeneratedClassReferences() {
+        for (Reference<Class<?>> each : this.root.generatedClasses) {
+            each.clear();
+            each.enqueue();
+        }
+    }
+
+    private void track(Class<?> cls) {
+        this.definedClassCount.incrementAndGet();
+        this.generatedClasses.add(new WeakReference<Class<?>>(cls, this.unloadedClasses));
+        expungeUnloadedClasses();
+    }
+
+    private int expungeUnloadedClasses() {
+        Reference<? extends Class<?>> ref;
+        while ((ref = this.unloadedClasses.poll()) != null) {
+            this.generatedClasses.remove(ref);
+        }
+        return this.generatedClasses.size();
     }
 
     public void append(String path) throws MalformedURLException {
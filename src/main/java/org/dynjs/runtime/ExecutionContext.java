@@ -92,6 +92,10 @@ public class ExecutionContext {
     return this.lexicalEnvironment;
   }
 
+  public void setLexicalEnvironment(LexicalEnvironment lexicalEnvironment) {
+    this.lexicalEnvironment = lexicalEnvironment;
+  }
+
   public LexicalEnvironment getVariableEnvironment() {
     return this.variableEnvironment;
   }
@@ -304,7 +308,7 @@ public class ExecutionContext {
     LexicalEnvironment scope = function.getScope();
     LexicalEnvironment localEnv = LexicalEnvironment.newDeclarativeEnvironment(scope);
     ExecutionContext context = new ExecutionContext(this.runtime, this, localEnv, localEnv, thisBinding, function.isStrict());
-    if (!(function instanceof IRJSFunction)) {
+    if (!(function instanceof IRJSFunction) || ((IRJSFunction) function).needsDeclarationBindings()) {
       context.performDeclarationBindingInstantiation(function, arguments);
     }
     context.fileName = function.getFileName();
@@ -3,6 +3,7 @@ package org.dynjs.runtime;
 import org.dynjs.runtime.builtins.*;
 import org.dynjs.runtime.builtins.Math;
 import org.dynjs.runtime.builtins.types.*;
+import org.dynjs.runtime.builtins.types.regexp.RegExpCache;
 import org.dynjs.runtime.java.JSAdapter;
 import org.dynjs.runtime.java.JavaPackage;
 
@@ -13,12 +14,15 @@ public class GlobalObject extends DynObject {
 
     private DynJS runtime;
     private BlockManager blockManager;
+    private RegExpCache regExpCache;
     private List<AbstractBuiltinType> builtinTypes = new ArrayList<>();
+    private final Shape rootShape = Shape.createRoot();
 
     public GlobalObject(DynJS runtime) {
         super();
         this.runtime = runtime;
-        this.blockManager = new BlockManager();
+        this.blockManager = new BlockManager(runtime.getConfig().getCodeCacheSize());
+        this.regExpCache = new RegExpCache(runtime.getConfig().getRegExpCacheSize());
 
         defineReadOnlyGlobalProperty("__throwTypeError", new ThrowTypeError(this));
 
@@ -126,6 +130,18 @@ public class GlobalObject extends DynObject {
         return this.blockManager;
     }
 
+    public RegExpCache getRegExpCache() {
+        return this.regExpCache;
+    }
+
+    /**
+     * Shape objects of this global object start out with, so their layouts are
+     * shared with each other but not with those of other runtimes.
+     */
+    public Shape getRootShape() {
+        return this.rootShape;
+    }
+
     public org.dynjs.runtime.BlockManager.Entry retrieveBlockEntry(int statementNumber) {
         return this.blockManager.retrieve(statementNumber);
     }
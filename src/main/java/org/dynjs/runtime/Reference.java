@@ -27,7 +27,7 @@ public class Reference {
     }
 
     public boolean hasPrimitiveBase() {
-        return (this.base instanceof String) || (this.base instanceof Number) || (this.base instanceof Boolean);
+        return Types.isString(this.base) || (this.base instanceof Number) || (this.base instanceof Boolean);
     }
 
     public boolean isPropertyReference() {
@@ -49,6 +49,9 @@ public class Reference {
         if (isPropertyReference()) {
             if (!hasPrimitiveBase()) {
                 value = ((JSObject) this.base).get(context, this.referencedName);
+            } else if (this.base instanceof ConsString && this.referencedName.equals("length")) {
+                // Without flattening it
+                value = (long) ((ConsString) this.base).length();
             } else {
                 value = primitiveGet(context, Types.toObject(context, this.base), this.referencedName);
             }
@@ -11,6 +11,8 @@ import org.dynjs.Config;
 import org.dynjs.compiler.JSCompiler;
 import org.dynjs.exception.ThrowException;
 import org.dynjs.ir.Builder;
+import org.dynjs.ir.IRStore;
+import org.dynjs.ir.Scope;
 import org.dynjs.parser.ast.ProgramTree;
 import org.dynjs.parser.js.JavascriptParser;
 import org.dynjs.parser.js.ParserException;
@@ -78,8 +80,7 @@ public class Runner {
 
     public Object execute() {
         try {
-            ProgramTree tree = parseSourceCode();
-            JSProgram program = compile(tree);
+            JSProgram program = load();
 
             Completion completion = this.context.execute(program);
             if (completion.type == Completion.Type.BREAK || completion.type == Completion.Type.CONTINUE) {
@@ -87,9 +88,9 @@ public class Runner {
             }
             Object v = completion.value;
             if (v instanceof Reference) {
-                return ((Reference) v).getValue(context);
+                v = ((Reference) v).getValue(context);
             }
-            return v;
+            return Types.flatten(v);
         } catch (SyntaxError e) {
             throw new ThrowException(this.context, this.context.createSyntaxError(e.getMessage()));
         } catch (ParserException e) {
@@ -101,7 +102,7 @@ public class Runner {
         try {
             ProgramTree tree = parseSourceCode();
             JSProgram program = compile(tree);
-            return this.context.eval(program, this.directEval);
+            return Types.flatten(this.context.eval(program, this.directEval));
         } catch (SyntaxError e) {
             throw new ThrowException(this.context, this.context.createSyntaxError(e.getMessage()));
         } catch (ParserException e) {
@@ -124,11 +125,56 @@ public class Runner {
         }
     }
 
+    /**
+     * Compile the source or, with an IR store, load what an earlier run built from it.
+     */
+    private JSProgram load() {
+        Config config = this.context.getConfig();
+        if (!config.getCompileMode().isIR() || config.getIRStore() == null || config.getIRStore().isEmpty()) {
+            return compile(parseSourceCode());
+        }
+
+        String text = readSourceCode();
+        IRStore store = new IRStore(new File(config.getIRStore()));
+        Scope scope = store.load(text, this.fileName, this.forceStrict, Builder.createPassManager(config));
+
+        if (scope == null) {
+            withSource(text);
+            scope = Builder.build(this.context, parseSourceCode());
+            store.save(text, this.fileName, this.forceStrict, scope);
+        }
+
+        return Builder.compile(this.context, scope, config.getCompileMode());
+    }
+
+    private String readSourceCode() {
+        try {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+
+            for (int read = this.source.read(buffer); read != -1; read = this.source.read(buffer)) {
+                text.append(buffer, 0, read);
+            }
+
+            return text.toString();
+        } catch (IOException e) {
+            throw new ParserException(e);
+        } finally {
+            if (this.shouldClose) {
+                try {
+                    this.source.close();
+                } catch (IOException e) {
+                    throw new ParserException(e);
+                }
+            }
+        }
+    }
+
     private JSProgram compile(ProgramTree tree) {
         // FIXME: getCompiler will go away so just add special IR check for now.
         final Config.CompileMode compileMode = context.getConfig().getCompileMode();
         if (compileMode.isIR()) {
-            return Builder.compile(tree, compileMode);
+            return Builder.compile(this.context, tree, compileMode);
         }
 
         JSCompiler compiler = this.context.getCompiler();
@@ -0,0 +1,126 @@
+package org.dynjs.runtime;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Layout of the own properties of a DynObject: which name lives in which slot.
+ *
+ * Shapes are immutable and shared.  Objects of one GlobalObject which had the
+ * same properties added in the same order end up with the same shape, so a
+ * cache which has seen a shape once knows where a name lives for every object
+ * of that shape.  Objects which grow too large, or delete properties, drop
+ * their shape and keep their properties in a map instead.
+ *
+ * Each GlobalObject has a tree of its own, which goes when the runtime does,
+ * and each shape holds the shapes it leads to weakly so layouts no object (or
+ * cache) has any longer are collected before then.
+ */
+public final class Shape {
+    public static final int MAXIMUM_SIZE = 64;
+
+    // Layouts which branch this widely from one shape are not being shared anyway.
+    // Most objects pass through a few shapes (the root and __ctor__) so this is
+    // well above the layouts a program keeps in use.
+    private static final int MAXIMUM_TRANSITIONS = 1024;
+
+    // Transitions to shapes no longer used are swept out when a shape has this many
+    private static final int SWEEP_SIZE = 32;
+
+    // Below this a scan beats hashing the name
+    private static final int SCAN_SIZE = 8;
+
+    private static final String[] NO_NAMES = new String[0];
+
+    private final String[] names;
+    private final Map<String, Integer> indices;
+    private Map<String, WeakReference<Shape>> transitions;
+    // Transitions held when collected ones are next swept out
+    private int sweepSize = SWEEP_SIZE;
+
+    private Shape(String[] names) {
+        this.names = names;
+
+        if (names.length > SCAN_SIZE) {
+            indices = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                indices.put(names[i], i);
+            }
+        } else {
+            indices = null;
+        }
+    }
+
+    /**
+     * Shape of objects with no own properties, at the root of a new tree (see
+     * GlobalObject.getRootShape()).
+     */
+    public static Shape createRoot() {
+        return new Shape(NO_NAMES);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Slot of name or -1 when objects of this shape do not have it.
+     */
+    public int indexOf(String name) {
+        if (indices != null) {
+            Integer index = indices.get(name);
+
+            return index == null ? -1 : index;
+        }
+
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Shape after adding name, or null when objects should give up on shapes.
+     */
+    public synchronized Shape addProperty(String name) {
+        if (transitions == null) {
+            transitions = new HashMap<>();
+        }
+
+        WeakReference<Shape> reference = transitions.get(name);
+        Shape shape = reference == null ? null : reference.get();
+        if (shape != null) return shape;
+
+        if (names.length >= MAXIMUM_SIZE) return null;
+
+        if (transitions.size() >= sweepSize) {
+            sweepTransitions();
+
+            if (transitions.size() >= MAXIMUM_TRANSITIONS) return null;
+        }
+
+        String[] newNames = new String[names.length + 1];
+        System.arraycopy(names, 0, newNames, 0, names.length);
+        newNames[names.length] = name;
+
+        shape = new Shape(newNames);
+        transitions.put(name, new WeakReference<>(shape));
+
+        return shape;
+    }
+
+    private void sweepTransitions() {
+        for (Iterator<WeakReference<Shape>> i = transitions.values().iterator(); i.hasNext(); ) {
+            if (i.next().get() == null) i.remove();
+        }
+
+        sweepSize = Math.min(MAXIMUM_TRANSITIONS, Math.max(SWEEP_SIZE, transitions.size() * 2));
+    }
+}
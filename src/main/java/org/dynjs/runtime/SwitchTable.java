@@ -0,0 +1,226 @@
+package org.dynjs.runtime;
+
+import static me.qmx.jitescript.util.CodegenUtils.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import me.qmx.jitescript.CodeBlock;
+import me.qmx.jitescript.internal.org.objectweb.asm.tree.LabelNode;
+import org.dynjs.parser.ast.CaseClause;
+import org.dynjs.parser.ast.DefaultCaseClause;
+import org.dynjs.parser.ast.Expression;
+import org.dynjs.parser.ast.IntegerNumberExpression;
+import org.dynjs.parser.ast.StringLiteralExpression;
+import org.dynjs.parser.ast.UnaryMinusExpression;
+
+/**
+ * Which case clause of a switch statement a value selects when every case label
+ * is an integer or string literal.  One hash lookup replaces comparing the value
+ * with each label in turn; evaluating the labels has no effects to keep.
+ *
+ * Labels and values are looked up by key: a string is its own key and a number
+ * with an integral value is the Long of that value, so 1.0 and -0 find the labels
+ * 1 and 0 they are strictly equal to.  Integers beyond 2^53 are not exact as
+ * doubles, so a statement with such a label keeps comparing.  The first of
+ * several equal labels wins as it does when comparing in order.
+ */
+public class SwitchTable {
+
+    private static final long MAX_EXACT = 1L << 53;
+
+    private final Map<Object, Integer> indexes;
+
+    public SwitchTable(Map<Object, Integer> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Table for clauses or null if any case label is not a literal.
+     */
+    public static SwitchTable create(List<CaseClause> clauses) {
+        Map<Object, Integer> indexes = new LinkedHashMap<>();
+
+        for (int i = 0; i < clauses.size(); ++i) {
+            CaseClause each = clauses.get(i);
+            if (each instanceof DefaultCaseClause) {
+                continue;
+            }
+
+            Object key = caseKey(each.getExpression());
+            if (key == null) {
+                return null;
+            }
+            if (!indexes.containsKey(key)) {
+                indexes.put(key, i);
+            }
+        }
+
+        return new SwitchTable(indexes);
+    }
+
+    private static Object caseKey(Expression expr) {
+        if (expr instanceof StringLiteralExpression) {
+            return ((StringLiteralExpression) expr).getLiteral();
+        }
+
+        long sign = 1;
+        if (expr instanceof UnaryMinusExpression) {
+            expr = ((UnaryMinusExpression) expr).getExpr();
+            sign = -1;
+        }
+        if (expr instanceof IntegerNumberExpression) {
+            long value = ((IntegerNumberExpression) expr).getValue();
+            if (value >= -MAX_EXACT && value <= MAX_EXACT) {
+                return sign * value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Key a label strictly equal to value would have or null if no label can be.
+     */
+    public static Object key(Object value) {
+        if (value instanceof String) {
+            return value;
+        }
+        if (value instanceof ConsString) {
+            return value.toString();
+        }
+        if (value instanceof Long) {
+            long l = (Long) value;
+            if (l >= -MAX_EXACT && l <= MAX_EXACT) {
+                return value;
+            }
+        }
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (d >= -MAX_EXACT && d <= MAX_EXACT && d == (long) d) {
+                return (long) d;
+            }
+        }
+        return null;
+    }
+
+    public static int hash(Object key) {
+        return key == null ? 0 : key.hashCode();
+    }
+
+    /**
+     * Index of the clause whose label is strictly equal to value or -1 if there is none.
+     */
+    public int lookup(Object value) {
+        Object key = key(value);
+        if (key == null) {
+            return -1;
+        }
+
+        Integer index = this.indexes.get(key);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Label keys (Longs and Strings) in source order with the index of their clause.
+     */
+    public Map<Object, Integer> getIndexes() {
+        return Collections.unmodifiableMap(this.indexes);
+    }
+
+    /**
+     * Code jumping to targets[lookup(value)] for the value on the stack, or to
+     * otherwise if lookup finds no clause, leaving the stack empty.
+     *
+     * This is what javac does for a switch on strings: a tableswitch (or a
+     * lookupswitch when the hashes are sparse) on the hash of the key and equals
+     * with the labels which have that hash.
+     */
+    public CodeBlock dispatch(LabelNode[] targets, LabelNode otherwise) {
+        CodeBlock block = new CodeBlock();
+        LabelNode noMatch = new LabelNode();
+
+        if (this.indexes.isEmpty()) {
+            return block.pop().go_to(otherwise);
+        }
+
+        Map<Integer, List<Object>> groups = new TreeMap<>();
+        for (Object key : this.indexes.keySet()) {
+            List<Object> group = groups.get(key.hashCode());
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key.hashCode(), group);
+            }
+            group.add(key);
+        }
+
+        int[] hashes = new int[groups.size()];
+        LabelNode[] handlers = new LabelNode[groups.size()];
+        int i = 0;
+        for (Integer each : groups.keySet()) {
+            hashes[i] = each;
+            handlers[i] = new LabelNode();
+            ++i;
+        }
+
+        // value
+        block.invokestatic(p(SwitchTable.class), "key", sig(Object.class, Object.class));
+        // key
+        block.dup();
+        // key key
+        block.invokestatic(p(SwitchTable.class), "hash", sig(int.class, Object.class));
+        // key hash
+        int min = hashes[0];
+        int max = hashes[hashes.length - 1];
+        if ((long) max - min < 2L * hashes.length) {
+            LabelNode[] table = new LabelNode[max - min + 1];
+            for (int j = 0; j < table.length; ++j) {
+                table[j] = noMatch;
+            }
+            for (int j = 0; j < hashes.length; ++j) {
+                table[hashes[j] - min] = handlers[j];
+            }
+            block.tableswitch(min, max, noMatch, table);
+        } else {
+            block.lookupswitch(noMatch, hashes, handlers);
+        }
+
+        i = 0;
+        for (List<Object> group : groups.values()) {
+            block.label(handlers[i++]);
+            // key
+            for (Object key : group) {
+                LabelNode notEqual = new LabelNode();
+
+                block.dup();
+                // key key
+                block.ldc(key);
+                if (key instanceof Long) {
+                    block.invokestatic(p(Long.class), "valueOf", sig(Long.class, long.class));
+                }
+                // key key label
+                block.swap();
+                // key label key
+                block.invokevirtual(p(Object.class), "equals", sig(boolean.class, Object.class));
+                // key bool
+                block.iffalse(notEqual);
+                // key
+                block.pop();
+                block.go_to(targets[this.indexes.get(key)]);
+                block.label(notEqual);
+            }
+            block.go_to(noMatch);
+        }
+
+        block.label(noMatch);
+        // key
+        block.pop();
+        block.go_to(otherwise);
+
+        return block;
+    }
+}
@@ -9,6 +9,8 @@ import org.dynjs.exception.ThrowException;
 import org.dynjs.runtime.builtins.types.bool.DynBoolean;
 import org.dynjs.runtime.builtins.types.number.DynNumber;
 import org.dynjs.runtime.builtins.types.string.DynString;
+import org.dynjs.runtime.util.DoubleToString;
+import org.dynjs.runtime.util.StringToNumber;
 
 public class Types {
 
@@ -40,6 +42,8 @@ public class Types {
     }
 
     public static boolean sameValue(Object left, Object right) {
+        left = flatten(left);
+        right = flatten(right);
 
         if (left.getClass() != right.getClass()) {
             return false;
@@ -66,8 +70,8 @@ public class Types {
         if (o instanceof JSObject) {
             return (JSObject) o;
         }
-        if (o instanceof String) {
-            return new DynString(context.getGlobalObject(), (String) o);
+        if (o instanceof String || o instanceof ConsString) {
+            return new DynString(context.getGlobalObject(), o.toString());
         }
         if (o instanceof Number) {
             return new DynNumber(context.getGlobalObject(), (Number) o);
@@ -88,8 +92,8 @@ public class Types {
         if (o instanceof JSObject) {
             return o;
         }
-        if (o instanceof String) {
-            return new DynString(context.getGlobalObject(), (String) o);
+        if (o instanceof String || o instanceof ConsString) {
+            return new DynString(context.getGlobalObject(), o.toString());
         }
         if (o instanceof Number) {
             return new DynNumber(context.getGlobalObject(), (Number) o);
@@ -108,11 +112,38 @@ public class Types {
     public static Object toPrimitive(ExecutionContext context, Object o, String preferredType) {
         // 9.1
         if (o instanceof JSObject) {
-            return ((JSObject) o).defaultValue(context, preferredType);
+            return flatten(((JSObject) o).defaultValue(context, preferredType));
         }
         return o;
     }
 
+    /**
+     * Whether o is a string primitive: a String or a ConsString.
+     */
+    public static boolean isString(Object o) {
+        return o instanceof String || o instanceof ConsString;
+    }
+
+    /**
+     * o, with a ConsString turned into its String.
+     */
+    public static Object flatten(Object o) {
+        if (o instanceof ConsString) {
+            return o.toString();
+        }
+        return o;
+    }
+
+    /**
+     * The + operator (11.6.1) once either primitive is a string.  Long results
+     * are left as a ConsString.
+     */
+    public static Object concat(ExecutionContext context, Object lhs, Object rhs) {
+        CharSequence l = isString(lhs) ? (CharSequence) lhs : toString(context, lhs);
+        CharSequence r = isString(rhs) ? (CharSequence) rhs : toString(context, rhs);
+        return ConsString.concat(l, r);
+    }
+
     public static Number toNumber(ExecutionContext context, Object o) {
         // 9.3
         if (o instanceof Number) {
@@ -165,20 +196,6 @@ public class Types {
         return result;
     }
 
-    public static String trimNumericString(String value) {
-        char[] val = value.toCharArray();
-
-        StringBuilder newStr = new StringBuilder();
-
-        for (int i = 0; i < val.length; ++i) {
-            if (!isWhitespace(val[i])) {
-                newStr.append(val[i]);
-            }
-        }
-
-        return newStr.toString().trim();
-    }
-
     public static boolean isWhitespace(char c) {
         switch (c) {
         case '\n':
@@ -213,54 +230,9 @@ public class Types {
         return false;
     }
 
-    static final Pattern decimalDigitPattern = Pattern.compile(".*[0-9].*");
     public static Number stringToNumber(String str) {
-        str = trimNumericString(str);
-
-        if (str.equals("")) {
-            return 0L;
-        }
-
-        if (str.equals("-0")) {
-            return Double.valueOf(-0.0);
-        }
-
-        if (str.equals("Infinity") || str.equals("+Infinity")) {
-            return Math.pow(10, 10000);
-        }
-
-        if (str.equals("-Infinity")) {
-            return -Math.pow(10, 10000);
-        }
-
-        if (str.startsWith("0x") || str.startsWith("0X")) {
-            return Long.decode(str);
-        }
-
-        // If we've come this far and there's not a decimal digit in
-        // this string anywhere then bail out early
-        if (!decimalDigitPattern.matcher(str).matches()) {
-            return Double.NaN;
-        }
-
-        if ((str.indexOf("e") > 0) || (str.indexOf("E") > 0)) {
-            if (str.indexOf(".") >= 0) {
-                str = str.replaceFirst("[eE]", "E");
-            } else {
-                str = str.replaceFirst("[eE]", ".0E");
-            }
-        }
-
-        try {
-            if (str.indexOf(".") >= 0) {
-                return Double.valueOf(str);
-            } else {
-                return Long.valueOf(str);
-            }
-        } catch (NumberFormatException e) {
-            return Double.NaN;
-        }
-
+        // 9.3.1
+        return StringToNumber.toNumber(str);
     }
 
     public static Boolean toBoolean(Object o) {
@@ -285,8 +257,8 @@ public class Types {
             }
             return true;
         }
-        if (o instanceof String) {
-            return (((String) o).length() != 0);
+        if (o instanceof String || o instanceof ConsString) {
+            return (((CharSequence) o).length() != 0);
         }
 
         if (o instanceof JSObject) {
@@ -400,7 +372,6 @@ public class Types {
         return o;
     }
 
-    private static Pattern EXP_PATTERN = Pattern.compile("^(.*)e([+-])([0-9]+)$");
     public static String toString(ExecutionContext context, Object o) {
         if (o == Types.UNDEFINED) {
             return "undefined";
@@ -413,63 +384,11 @@ public class Types {
         if (o instanceof JSObject) {
             return (String) toString(context, toPrimitive(context, o, "String"));
         }
+        if (o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte) {
+            return o.toString();
+        }
         if (o instanceof Number) {
-            if (((Number) o).doubleValue() == -0) {
-                return "0";
-            }
-
-            if (o instanceof Double) {
-                Double dbl = (Double) o;
-                if (dbl.doubleValue() == (long) dbl.doubleValue()) {
-                    o = dbl.longValue();
-                }
-            }
-            String result = Types.rewritePossiblyExponentialValue(o.toString());
-
-            Matcher matcher = EXP_PATTERN.matcher(result);
-            if (matcher.matches()) {
-                int expValue = Integer.parseInt(matcher.group(3));
-                if (matcher.group(2).equals("+")) {
-                    if (expValue <= 20) {
-                        String digits = matcher.group(1).replace(".", "");
-                        StringBuilder newResult = new StringBuilder();
-                        int offset = 0;
-                        if (digits.startsWith("-")) {
-                            newResult.append("-");
-                            offset = 1;
-                        }
-                        for (int i = offset; i <= expValue; ++i) {
-                            if (i >= digits.length()) {
-                                newResult.append("0");
-                            } else {
-                                newResult.append(digits.charAt(i));
-                            }
-                        }
-                        if (newResult.length() < digits.length()) {
-                            newResult.append(".");
-                            newResult.append(digits.substring(newResult.length() - 1));
-                        }
-                        result = newResult.toString();
-                    }
-                } else {
-                    if (expValue <= 6) {
-                        StringBuilder newResult = new StringBuilder().append("0.");
-                        for (int i = 0; i < (expValue - 1); ++i) {
-                            newResult.append(0);
-                        }
-
-                        String digits = matcher.group(1).replace(".", "");
-                        if (digits.startsWith("-")) {
-                            newResult.append(digits.substring(1));
-                            newResult.insert(0, "-");
-                        } else {
-                            newResult.append(digits);
-                        }
-                        result = newResult.toString();
-                    }
-                }
-            }
-            return result;
+            return DoubleToString.toString(((Number) o).doubleValue());
         }
         return o.toString();
     }
@@ -503,9 +422,9 @@ public class Types {
             px = toPrimitive(context, x, "Number");
         }
 
-        if (px instanceof String && py instanceof String) {
-            String sx = (String) px;
-            String sy = (String) py;
+        if (isString(px) && isString(py)) {
+            String sx = px.toString();
+            String sy = py.toString();
 
             if (sx.compareTo(sy) < 0) {
                 return true;
@@ -551,6 +470,8 @@ public class Types {
 
     public static boolean compareEquality(ExecutionContext context, Object lhs, Object rhs) {
         // 11.9.3
+        lhs = flatten(lhs);
+        rhs = flatten(rhs);
 
         if (lhs.getClass().equals(rhs.getClass()) || (lhs instanceof Number && rhs instanceof Number)) {
             if (lhs == Types.UNDEFINED) {
@@ -627,6 +548,9 @@ public class Types {
 //        System.err.println( "lhs: " + System.identityHashCode(lhs));
 //        System.err.println( "rhs: " + System.identityHashCode(rhs));
 
+        lhs = flatten(lhs);
+        rhs = flatten(rhs);
+
         if (!lhs.getClass().equals(rhs.getClass())
                 // Allow comparison of Doubles and Longs (because 0 === -0 in Javascript
                 // go figure
@@ -688,7 +612,7 @@ public class Types {
             return "object";
         }
 
-        if (o instanceof String) {
+        if (o instanceof String || o instanceof ConsString) {
             return "string";
         }
 
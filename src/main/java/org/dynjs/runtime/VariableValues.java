@@ -1,5 +1,7 @@
 package org.dynjs.runtime;
 
+import java.util.Arrays;
+
 /**
  * Naive storage for live values.
  */
@@ -23,6 +25,10 @@ public class VariableValues {
         this.vars = vars;
     }
 
+    public void fill(Object value) {
+        Arrays.fill(vars, value);
+    }
+
     public Object getVar(int offset, int depth) {
         if (depth == 0) return vars[offset];
 
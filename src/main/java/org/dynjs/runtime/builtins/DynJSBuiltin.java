@@ -18,4 +18,8 @@ public class DynJSBuiltin {
         return this.runtime.getConfig().getClasspath();
     }
 
+    public int getLiveGeneratedClassCount() {
+        return this.runtime.getConfig().getClassLoader().getLiveGeneratedClassCount();
+    }
+
 }
@@ -18,7 +18,9 @@ package org.dynjs.runtime.builtins;
 import org.dynjs.runtime.DynObject;
 import org.dynjs.runtime.GlobalObject;
 import org.dynjs.runtime.builtins.types.json.Parse;
+import org.dynjs.runtime.builtins.types.json.ParseStream;
 import org.dynjs.runtime.builtins.types.json.Stringify;
+import org.dynjs.runtime.builtins.types.json.StringifyTo;
 
 public class JSON extends DynObject {
 
@@ -26,7 +28,9 @@ public class JSON extends DynObject {
         super(globalObject);
         setClassName("JSON");
         defineNonEnumerableProperty(globalObject, "parse", new Parse(globalObject));
+        defineNonEnumerableProperty(globalObject, "parseStream", new ParseStream(globalObject));
         defineNonEnumerableProperty(globalObject, "stringify", new Stringify(globalObject));
+        defineNonEnumerableProperty(globalObject, "stringifyTo", new StringifyTo(globalObject));
     }
 
 }
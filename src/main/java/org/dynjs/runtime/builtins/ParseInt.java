@@ -15,12 +15,11 @@
  */
 package org.dynjs.runtime.builtins;
 
-import java.math.BigInteger;
-
 import org.dynjs.runtime.AbstractNonConstructorFunction;
 import org.dynjs.runtime.ExecutionContext;
 import org.dynjs.runtime.GlobalObject;
 import org.dynjs.runtime.Types;
+import org.dynjs.runtime.util.StringToNumber;
 
 public class ParseInt extends AbstractNonConstructorFunction {
     
@@ -31,96 +30,10 @@ public class ParseInt extends AbstractNonConstructorFunction {
     @Override
     public Object call(ExecutionContext context, Object self, Object... arguments) {
         String inputString = Types.toString(context, arguments[0]);
-
-        int len = inputString.length();
-        int firstNonWhitespace = -1;
-
-        for (int i = 0; i < len; ++i) {
-            char c = inputString.charAt(i);
-            if (Types.isWhitespace(c)) {
-                // nothing
-            } else {
-                firstNonWhitespace = i;
-                break;
-            }
-        }
-
-        String s = null;
-        int sign = 1;
-
-        if (firstNonWhitespace < 0) {
-            s = "";
-        } else {
-            s = inputString.substring(firstNonWhitespace);
-            char c = s.charAt(0);
-            if (c == '-') {
-                sign = -1;
-            }
-            if (c == '-' || c == '+') {
-                s = s.substring(1);
-            }
-        }
-        
-
-        long r = Types.toInt32(context, arguments[1]);
-
-        boolean stripPrefix = true;
-
-        if (r != 0) {
-            if (r < 2 || r > 36) {
-                return Double.NaN;
-            }
-            if (r != 16) {
-                stripPrefix = false;
-            }
-        } else {
-            r = 10;
-        }
-
-        if (stripPrefix) {
-            if (s.startsWith("0X") || s.startsWith("0x")) {
-                s = s.substring(2);
-                r = 16;
-            }
-        }
-
-        len = s.length();
-        int firstInvalidDigit = -1;
-
-        for (int i = 0; i < len; ++i) {
-            char c = s.charAt(i);
-            if (!isRadixDigit(c, r)) {
-                firstInvalidDigit = i;
-                break;
-            }
-        }
-
-        String z = null;
-        if (firstInvalidDigit < 0) {
-            z = s;
-        } else {
-            z = s.substring(0, firstInvalidDigit);
-        }
-
-        if (z.equals("")) {
-            return Double.NaN;
-        }
-        
-        try {
-            return sign * Long.parseLong(z, (int) r);
-        } catch (NumberFormatException e) {
-            return sign * new BigInteger(z, (int) r).doubleValue();
-        }
+        int radix = Types.toInt32(context, arguments[1]).intValue();
+        return StringToNumber.parseInt(inputString, radix);
     }
 
-    static boolean isRadixDigit(char c, long radix) {
-        if ( radix <= 10 ) {
-            return ( c >= '0' && c <= ('0' + ( radix -1 )) );
-        } else {
-            return ( ( c >= '0' ) && ( c <= '9' ) || ( ( c >= 'a' ) && ( c <= ( 'a' + radix - 11) ) ) ) || ( ( c >= 'A' ) && ( c <= ( 'A' + radix - 11) ) );
-        }
-    }
-    
     @Override
     public void setFileName() {
         this.filename = "org/dynjs/runtime/builtins/ParseInt.java";
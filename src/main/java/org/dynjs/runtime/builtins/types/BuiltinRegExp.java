@@ -17,6 +17,7 @@ import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
 import org.dynjs.runtime.builtins.types.regexp.prototype.Exec;
 import org.dynjs.runtime.builtins.types.regexp.prototype.Test;
 import org.dynjs.runtime.builtins.types.regexp.prototype.ToString;
+import org.joni.Regex;
 
 public class BuiltinRegExp extends AbstractBuiltinType {
 
@@ -82,6 +83,16 @@ public class BuiltinRegExp extends AbstractBuiltinType {
         BuiltinRegExp ctor = (BuiltinRegExp) context.getGlobalObject().get(context, "__Builtin_RegExp");
         return (DynRegExp) context.construct((Object)null, ctor, pattern, flags);
     }
+
+    /**
+     * RegExp for a regular expression literal; compiled is what
+     * DynRegExp.compile returned for its pattern and flags.
+     */
+    public static DynRegExp newRegExp(ExecutionContext context, String pattern, String flags, Regex compiled) {
+        DynRegExp regexp = new DynRegExp(context.getGlobalObject());
+        regexp.setPatternAndFlags(pattern, flags, compiled);
+        return regexp;
+    }
     
     @Override
     public void setFileName() {
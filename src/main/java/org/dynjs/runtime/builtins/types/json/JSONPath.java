@@ -0,0 +1,144 @@
+package org.dynjs.runtime.builtins.types.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/**
+ * The child-step subset of JSONPath: "$" followed by any of .name, ['name'],
+ * [n], .* and [*].  Matching runs on the token stream; the parts of a document
+ * which cannot lead to a match are skipped by the parser without being built.
+ */
+class JSONPath {
+
+    private static final Object WILDCARD = new Object();
+
+    public interface Visitor {
+        /**
+         * Called with the parser on the first token of a matched value, which
+         * must be consumed entirely.  Returns false to stop matching.
+         */
+        boolean matched(JsonParser parser) throws IOException;
+    }
+
+    private final String text;
+    private final Object[] steps;
+
+    private JSONPath(String text, Object[] steps) {
+        this.text = text;
+        this.steps = steps;
+    }
+
+    /**
+     * Path for text or null if it is not one.
+     */
+    static JSONPath compile(String text) {
+        int len = text.length();
+        if (len == 0 || text.charAt(0) != '$') {
+            return null;
+        }
+
+        List<Object> steps = new ArrayList<>();
+        int i = 1;
+        while (i < len) {
+            char c = text.charAt(i++);
+            if (c == '.') {
+                if (i < len && text.charAt(i) == '*') {
+                    steps.add(WILDCARD);
+                    ++i;
+                    continue;
+                }
+                int start = i;
+                while (i < len && text.charAt(i) != '.' && text.charAt(i) != '[') {
+                    ++i;
+                }
+                if (i == start) {
+                    return null;
+                }
+                steps.add(text.substring(start, i));
+            } else if (c == '[') {
+                int end = text.indexOf(']', i);
+                if (end < 0) {
+                    return null;
+                }
+                String selector = text.substring(i, end);
+                i = end + 1;
+                if (selector.equals("*")) {
+                    steps.add(WILDCARD);
+                } else if (selector.length() >= 2 && (selector.charAt(0) == '\'' || selector.charAt(0) == '"')
+                        && selector.charAt(selector.length() - 1) == selector.charAt(0)) {
+                    steps.add(selector.substring(1, selector.length() - 1));
+                } else {
+                    try {
+                        int index = Integer.parseInt(selector);
+                        if (index < 0) {
+                            return null;
+                        }
+                        steps.add(index);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            } else {
+                return null;
+            }
+        }
+
+        return new JSONPath(text, steps.toArray());
+    }
+
+    /**
+     * Visit each value matched in the document whose first token the parser is
+     * on, leaving the parser on its last token.  Returns false if the visitor
+     * stopped matching.
+     */
+    boolean match(JsonParser parser, Visitor visitor) throws IOException {
+        return match(parser, visitor, 0);
+    }
+
+    private boolean match(JsonParser parser, Visitor visitor, int step) throws IOException {
+        if (step == this.steps.length) {
+            return visitor.matched(parser);
+        }
+
+        Object selector = this.steps[step];
+        JsonToken t = parser.getCurrentToken();
+
+        if (t == JsonToken.START_OBJECT && !(selector instanceof Integer)) {
+            while (parser.nextToken() != JsonToken.END_OBJECT) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (selector == WILDCARD || selector.equals(name)) {
+                    if (!match(parser, visitor, step + 1)) {
+                        return false;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else if (t == JsonToken.START_ARRAY && !(selector instanceof String)) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (selector == WILDCARD || selector.equals(index)) {
+                    if (!match(parser, visitor, step + 1)) {
+                        return false;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                ++index;
+            }
+        } else {
+            parser.skipChildren();
+        }
+
+        return true;
+    }
+
+    public String toString() {
+        return this.text;
+    }
+}
@@ -1,6 +1,7 @@
 package org.dynjs.runtime.builtins.types.json;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonParseException;
@@ -8,11 +9,17 @@ import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.JsonToken;
 import org.dynjs.exception.ThrowException;
 import org.dynjs.runtime.*;
-import org.dynjs.runtime.builtins.types.BuiltinArray;
 import org.dynjs.runtime.builtins.types.BuiltinObject;
 
 public class Parse extends AbstractNativeFunction {
 
+    // Thread-safe once configured.  Field names come back canonicalized by its
+    // symbol table, so a key repeated throughout a document is one String.
+    // Readers handed to JSON.parseStream stay open; their owner closes them.
+    static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonParser.Feature.INTERN_FIELD_NAMES)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
     public Parse(GlobalObject globalObject) {
         super(globalObject, true, "text", "reviver");
     }
@@ -20,13 +27,11 @@ public class Parse extends AbstractNativeFunction {
     @Override
     public Object call(ExecutionContext context, Object self, Object... args) {
         String jsonText = Types.toString(context, args[0]);
-        
-        JsonFactory factory = new JsonFactory();
+
         Object unfiltered = null;
-        try {
-            JsonParser parser = factory.createJsonParser(jsonText);
+        try (JsonParser parser = FACTORY.createJsonParser(jsonText)) {
             parser.nextToken();
-            unfiltered = parse(context, parser);
+            unfiltered = new Builder(context, parser).parse();
             if (parser.nextToken() != null) {
                 throw new ThrowException(context, context.createSyntaxError("unexpected token"));
             }
@@ -84,60 +89,103 @@ public class Parse extends AbstractNativeFunction {
         return context.call(reviver, holder, name, val);
     }
 
-    protected Object parse(ExecutionContext context, JsonParser p) throws JsonParseException, IOException {
-        JsonToken t = p.getCurrentToken();
-        if (t == JsonToken.START_ARRAY) {
-            return parseArray(context, p);
-        } else if (t == JsonToken.START_OBJECT) {
-            return parseObject(context, p);
-        } else {
-            return parseValue(context, p);
+    /**
+     * Builds the values of one document straight into fresh objects and arrays.
+     * Members are collected on one stack shared by every level so each object
+     * or array is created once its size is known, with room for exactly that.
+     */
+    static class Builder {
+        private final GlobalObject globalObject;
+        private final JsonParser p;
+        private Object[] stack = new Object[16];
+        private int top;
+
+        Builder(ExecutionContext context, JsonParser p) {
+            this.globalObject = context.getGlobalObject();
+            this.p = p;
         }
-    }
 
-    protected Object parseArray(ExecutionContext context, JsonParser p) throws JsonParseException, IOException {
-        JSObject array = BuiltinArray.newArray(context);
-        int i = 0;
-        while (p.nextToken() != JsonToken.END_ARRAY) {
-            Object value = parse(context, p);
-            array.put(context, "" + i, value, false);
-            ++i;
+        Object parse() throws JsonParseException, IOException {
+            JsonToken t = p.getCurrentToken();
+            if (t == JsonToken.START_ARRAY) {
+                return parseArray();
+            } else if (t == JsonToken.START_OBJECT) {
+                return parseObject();
+            } else {
+                return parseValue();
+            }
         }
 
-        return array;
-    }
+        private Object parseArray() throws JsonParseException, IOException {
+            int base = top;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                push(parse());
+            }
 
-    protected Object parseObject(ExecutionContext context, JsonParser p) throws JsonParseException, IOException {
-        DynObject obj = BuiltinObject.newObject(context);
+            DynArray array = new DynArray(globalObject);
+            array.setElements(stack, base, top);
+            pop(base);
 
-        while (p.nextToken() != JsonToken.END_OBJECT) {
-            String name = p.getCurrentName();
-            Object value = parse(context, p);
-            obj.defineOwnProperty(context, name,
-                    PropertyDescriptor.newDataPropertyDescriptor(value, true, true, true), false);
-            obj.put(context, name, value, false);
+            return array;
         }
-        return obj;
-    }
 
-    protected Object parseValue(ExecutionContext context, JsonParser p) throws JsonParseException, IOException {
-        JsonToken t = p.getCurrentToken();
+        private Object parseObject() throws JsonParseException, IOException {
+            int base = top;
+            while (p.nextToken() != JsonToken.END_OBJECT) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                push(name);
+                push(parse());
+            }
+
+            DynObject obj = new DynObject(globalObject);
+            obj.reserveProperties((top - base) / 2);
+            for (int i = base; i < top; i += 2) {
+                obj.putOwnDataProperty((String) stack[i], stack[i + 1]);
+            }
+            pop(base);
+
+            return obj;
+        }
+
+        private Object parseValue() throws JsonParseException, IOException {
+            JsonToken t = p.getCurrentToken();
+
+            if (t == JsonToken.VALUE_FALSE) {
+                return Boolean.FALSE;
+            } else if (t == JsonToken.VALUE_TRUE) {
+                return Boolean.TRUE;
+            } else if (t == JsonToken.VALUE_NULL) {
+                return Types.NULL;
+            } else if (t == JsonToken.VALUE_STRING) {
+                return p.getText();
+            } else if (t == JsonToken.VALUE_NUMBER_FLOAT) {
+                return p.getDoubleValue();
+            } else if (t == JsonToken.VALUE_NUMBER_INT) {
+                switch (p.getNumberType()) {
+                    case INT:
+                        return p.getIntValue();
+                    case LONG:
+                        return p.getLongValue();
+                    default:
+                        return p.getDoubleValue();
+                }
+            }
 
-        if (t == JsonToken.VALUE_FALSE) {
-            return Boolean.FALSE;
-        } else if (t == JsonToken.VALUE_TRUE) {
-            return Boolean.TRUE;
-        } else if (t == JsonToken.VALUE_NULL) {
             return Types.NULL;
-        } else if (t == JsonToken.VALUE_STRING) {
-            return p.getText();
-        } else if (t == JsonToken.VALUE_NUMBER_FLOAT) {
-            return p.getDoubleValue();
-        } else if (t == JsonToken.VALUE_NUMBER_INT) {
-            return p.getIntValue();
         }
 
-        return Types.NULL;
+        private void push(Object value) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+            }
+            stack[top++] = value;
+        }
+
+        private void pop(int base) {
+            Arrays.fill(stack, base, top, null);
+            top = base;
+        }
     }
 
 }
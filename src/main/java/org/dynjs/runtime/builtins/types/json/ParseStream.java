@@ -0,0 +1,85 @@
+package org.dynjs.runtime.builtins.types.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.dynjs.exception.ThrowException;
+import org.dynjs.runtime.AbstractNativeFunction;
+import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.GlobalObject;
+import org.dynjs.runtime.JSFunction;
+import org.dynjs.runtime.JSObject;
+import org.dynjs.runtime.Types;
+
+/**
+ * JSON.parseStream(source, onValue[, options]): parse the JSON documents read
+ * from source (a java.io.Reader or java.io.InputStream), one after another as
+ * in newline-delimited JSON, calling onValue with each value options.path
+ * selects.  The path defaults to "$", every document; "$.items[*]" would be
+ * each element of the items of each document.  Only matched values are built,
+ * one at a time, so memory stays bounded by the largest of them.
+ *
+ * onValue returning false stops reading.  Returns the number of values passed
+ * to onValue.  The source is left open.
+ */
+public class ParseStream extends AbstractNativeFunction {
+
+    public ParseStream(GlobalObject globalObject) {
+        super(globalObject, true, "source", "onValue", "options");
+    }
+
+    @Override
+    public Object call(final ExecutionContext context, Object self, Object... args) {
+        Object source = args[0];
+        if (!(source instanceof Reader) && !(source instanceof InputStream)) {
+            throw new ThrowException(context, context.createTypeError("JSON.parseStream requires a java.io.Reader or java.io.InputStream"));
+        }
+
+        if (!Types.isCallable(args[1])) {
+            throw new ThrowException(context, context.createTypeError("JSON.parseStream requires an onValue function"));
+        }
+        final JSFunction onValue = (JSFunction) args[1];
+
+        String pathText = "$";
+        if (args[2] instanceof JSObject) {
+            Object path = ((JSObject) args[2]).get(context, "path");
+            if (path != Types.UNDEFINED) {
+                pathText = Types.toString(context, path);
+            }
+        }
+        JSONPath path = JSONPath.compile(pathText);
+        if (path == null) {
+            throw new ThrowException(context, context.createSyntaxError("invalid path: " + pathText));
+        }
+
+        final long[] count = new long[1];
+        try (JsonParser parser = (source instanceof Reader)
+                ? Parse.FACTORY.createJsonParser((Reader) source)
+                : Parse.FACTORY.createJsonParser((InputStream) source)) {
+            final Parse.Builder builder = new Parse.Builder(context, parser);
+            JSONPath.Visitor visitor = new JSONPath.Visitor() {
+                @Override
+                public boolean matched(JsonParser p) throws IOException {
+                    ++count[0];
+                    Object result = context.call(onValue, Types.UNDEFINED, builder.parse());
+                    return !Boolean.FALSE.equals(result);
+                }
+            };
+
+            while (parser.nextToken() != null) {
+                if (!path.match(parser, visitor)) {
+                    break;
+                }
+            }
+        } catch (JsonParseException e) {
+            throw new ThrowException(context, context.createSyntaxError(e.getMessage()));
+        } catch (IOException e) {
+            throw new ThrowException(context, context.createError("Error", e.getMessage()));
+        }
+
+        return count[0];
+    }
+}
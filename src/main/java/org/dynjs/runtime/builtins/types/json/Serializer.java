@@ -0,0 +1,409 @@
+package org.dynjs.runtime.builtins.types.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dynjs.exception.ThrowException;
+import org.dynjs.runtime.DynArray;
+import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.JSFunction;
+import org.dynjs.runtime.JSObject;
+import org.dynjs.runtime.PrimitiveDynObject;
+import org.dynjs.runtime.Types;
+import org.dynjs.runtime.builtins.types.BuiltinObject;
+
+/**
+ * The Str/JO/JA algorithm of JSON.stringify (ES5 15.12.3) writing into one char
+ * buffer.  Without a Writer the buffer grows and holds the whole text; with one
+ * it is flushed to the Writer whenever it fills, so the text never exists as a
+ * whole.
+ *
+ * A value is resolved (toJSON, the replacer, unwrapping Number, String and Boolean
+ * objects) before anything is written for it, which is how an object member with
+ * an undefined or function value is left out without building the member first.
+ */
+class Serializer {
+
+    private static final int INITIAL_SIZE = 256;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Values which have no JSON text: undefined, functions and non-JS objects.
+    private static final Object NOTHING = new Object();
+
+    private final ExecutionContext context;
+    private final JSFunction replacer;
+    private final List<String> propertyList;
+    private final String gap;
+    private final Writer out;
+
+    private final List<Object> stack = new ArrayList<>();
+    private int depth;
+
+    private char[] buf;
+    private int len;
+
+    Serializer(ExecutionContext context, JSFunction replacer, List<String> propertyList, String gap, Writer out) {
+        this.context = context;
+        this.replacer = replacer;
+        this.propertyList = propertyList;
+        this.gap = gap;
+        this.out = out;
+        this.buf = new char[out == null ? INITIAL_SIZE : STREAM_BUFFER_SIZE];
+    }
+
+    /**
+     * Serializer for the replacer and space arguments of JSON.stringify.
+     */
+    static Serializer create(ExecutionContext context, Object replacer, Object space, Writer out) {
+        List<String> propertyList = null;
+        JSFunction replacerFunction = null;
+
+        if (replacer instanceof JSObject) {
+            JSObject jsReplacer = (JSObject) replacer;
+            if (jsReplacer instanceof JSFunction) {
+                replacerFunction = (JSFunction) jsReplacer;
+            } else if (jsReplacer.getClassName().equals("Array")) {
+                propertyList = new ArrayList<>();
+                long len = Types.toInteger(context, jsReplacer.get(context, "length"));
+                for (long i = 0; i < len; ++i) {
+                    Object v = Types.flatten(jsReplacer.get(context, "" + i));
+                    String item = null;
+                    if (Types.type(v).equals("string")) {
+                        item = (String) v;
+                    } else if (Types.type(v).equals("number")) {
+                        item = Types.toString(context, v);
+                    } else if (Types.type(v).equals("object")) {
+                        if (((JSObject) v).getClassName().equals("String") || ((JSObject) v).getClassName().equals("Number")) {
+                            item = Types.toString(context, v);
+                        }
+                    }
+
+                    if ((item != null) && !propertyList.contains(item)) {
+                        propertyList.add(item);
+                    }
+                }
+            }
+        }
+
+        if (space != Types.UNDEFINED) {
+            if (space instanceof JSObject) {
+                if (((JSObject) space).getClassName().equals("Number")) {
+                    space = Types.toNumber(context, space);
+                } else if (((JSObject) space).getClassName().equals("String")) {
+                    space = Types.toString(context, space);
+                }
+            }
+        }
+
+        String gap = "";
+
+        if (Types.type(space).equals("number")) {
+            long spaceInt = Types.toInteger(context, space);
+            if (spaceInt > 10) {
+                spaceInt = 10;
+            }
+            StringBuilder spaces = new StringBuilder();
+            for (long i = 0; i < spaceInt; ++i) {
+                spaces.append(' ');
+            }
+            gap = spaces.toString();
+        } else if (Types.type(space).equals("string")) {
+            String spaceStr = Types.toString(context, space);
+            if (spaceStr.length() <= 10) {
+                gap = spaceStr;
+            } else {
+                gap = spaceStr.substring(0, 10);
+            }
+        }
+
+        return new Serializer(context, replacerFunction, propertyList, gap, out);
+    }
+
+    /**
+     * Write the JSON text of value, returning false (having written nothing) if
+     * it has none.
+     */
+    boolean serialize(Object value) {
+        JSObject wrapper = BuiltinObject.newObject(this.context);
+        wrapper.put(this.context, "", value, false);
+
+        Object resolved = resolve(wrapper, "");
+        if (resolved == NOTHING) {
+            return false;
+        }
+        write(resolved);
+        return true;
+    }
+
+    /**
+     * Text written so far and still in the buffer; all of it without a Writer.
+     */
+    public String toString() {
+        return new String(this.buf, 0, this.len);
+    }
+
+    /**
+     * Hand what is buffered to the Writer.  The Writer itself is not flushed.
+     */
+    void flush() {
+        if (this.len == 0) {
+            return;
+        }
+        try {
+            this.out.write(this.buf, 0, this.len);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        this.len = 0;
+    }
+
+    private ThrowException writeFailed(IOException e) {
+        return new ThrowException(this.context, this.context.createError("Error", e.getMessage()));
+    }
+
+    private Object resolve(JSObject holder, String key) {
+        Object value = holder.get(this.context, key);
+
+        if (value instanceof JSObject) {
+            Object toJSON = ((JSObject) value).get(this.context, "toJSON");
+            if (toJSON instanceof JSFunction) {
+                value = this.context.call((JSFunction) toJSON, value, key);
+            }
+        }
+
+        if (this.replacer != null) {
+            value = this.context.call(this.replacer, holder, key, value);
+        }
+
+        value = Types.flatten(value);
+
+        if (value instanceof JSObject) {
+            String objClass = ((JSObject) value).getClassName();
+            if (objClass.equals("Number")) {
+                value = Types.toNumber(this.context, value);
+            } else if (objClass.equals("String")) {
+                value = Types.toString(this.context, value);
+            } else if (objClass.equals("Boolean")) {
+                value = ((PrimitiveDynObject) value).getPrimitiveValue();
+            }
+        }
+
+        if (value == null || value == Types.NULL || value instanceof Boolean || value instanceof String || value instanceof Number) {
+            return value;
+        }
+
+        if ((value instanceof JSObject) && (!(value instanceof JSFunction))) {
+            return value;
+        }
+
+        return NOTHING;
+    }
+
+    private void write(Object value) {
+        if (value == null || value == Types.NULL) {
+            append("null");
+        } else if (value instanceof Boolean) {
+            append(((Boolean) value) ? "true" : "false");
+        } else if (value instanceof String) {
+            quote((String) value);
+        } else if (value instanceof Number) {
+            if ((value instanceof Double) && ((Double) value).isInfinite()) {
+                append("null");
+            } else {
+                append(Types.toString(this.context, value));
+            }
+        } else if (value instanceof DynArray) {
+            ja((DynArray) value);
+        } else {
+            jo((JSObject) value);
+        }
+    }
+
+    private void ja(DynArray value) {
+        enter(value);
+
+        long len = Types.toInteger(this.context, value.get(this.context, "length"));
+
+        if (len == 0) {
+            append("[]");
+        } else {
+            append('[');
+            for (long i = 0; i < len; ++i) {
+                if (i > 0) {
+                    append(',');
+                }
+                newline(this.depth);
+
+                Object element = resolve(value, "" + i);
+                if (element == NOTHING) {
+                    append("null");
+                } else {
+                    write(element);
+                }
+            }
+            newline(this.depth - 1);
+            append(']');
+        }
+
+        exit();
+    }
+
+    private void jo(JSObject value) {
+        enter(value);
+
+        List<String> k = null;
+        if (this.propertyList == null || this.propertyList.isEmpty()) {
+            k = value.getOwnEnumerablePropertyNames().toList();
+        } else {
+            k = this.propertyList;
+        }
+
+        boolean first = true;
+        for (String p : k) {
+            Object member = resolve(value, p);
+            if (member == NOTHING) {
+                continue;
+            }
+
+            append(first ? '{' : ',');
+            first = false;
+            newline(this.depth);
+            quote(p);
+            append(':');
+            if (!this.gap.isEmpty()) {
+                append(' ');
+            }
+            write(member);
+        }
+
+        if (first) {
+            append("{}");
+        } else {
+            newline(this.depth - 1);
+            append('}');
+        }
+
+        exit();
+    }
+
+    private void enter(JSObject value) {
+        if (this.stack.contains(value)) {
+            throw new ThrowException(this.context, this.context.createTypeError("cyclic structure"));
+        }
+        this.stack.add(value);
+        ++this.depth;
+    }
+
+    private void exit() {
+        this.stack.remove(this.stack.size() - 1);
+        --this.depth;
+    }
+
+    private void newline(int indent) {
+        if (this.gap.isEmpty()) {
+            return;
+        }
+        append('\n');
+        for (int i = 0; i < indent; ++i) {
+            append(this.gap);
+        }
+    }
+
+    /**
+     * Runs of characters which need no escape are copied as they are; only
+     * quotes, backslashes and control characters are written one by one.
+     */
+    private void quote(String value) {
+        append('"');
+
+        int strLen = value.length();
+        int start = 0;
+
+        for (int i = 0; i < strLen; ++i) {
+            char c = value.charAt(i);
+            if (c >= ' ' && c != '"' && c != '\\') {
+                continue;
+            }
+
+            append(value, start, i);
+            start = i + 1;
+
+            switch (c) {
+            case '"':
+            case '\\':
+                append('\\');
+                append(c);
+                break;
+            case '\b':
+                append("\\b");
+                break;
+            case '\f':
+                append("\\f");
+                break;
+            case '\n':
+                append("\\n");
+                break;
+            case '\r':
+                append("\\r");
+                break;
+            case '\t':
+                append("\\t");
+                break;
+            default:
+                append("\\u00");
+                append(HEX[c >> 4]);
+                append(HEX[c & 0xf]);
+            }
+        }
+
+        append(value, start, strLen);
+        append('"');
+    }
+
+    private void append(char c) {
+        if (this.len == this.buf.length) {
+            makeRoom(1);
+        }
+        this.buf[this.len++] = c;
+    }
+
+    private void append(String s) {
+        append(s, 0, s.length());
+    }
+
+    private void append(String s, int from, int to) {
+        int count = to - from;
+        if (count == 0) {
+            return;
+        }
+        if (this.len + count > this.buf.length) {
+            makeRoom(count);
+            if (count > this.buf.length) {
+                // Streaming and larger than the whole buffer: skip the copy.
+                try {
+                    this.out.write(s, from, count);
+                } catch (IOException e) {
+                    throw writeFailed(e);
+                }
+                return;
+            }
+        }
+        s.getChars(from, to, this.buf, this.len);
+        this.len += count;
+    }
+
+    private void makeRoom(int count) {
+        if (this.out != null) {
+            flush();
+            return;
+        }
+
+        char[] bigger = new char[Math.max(this.buf.length * 2, this.len + count)];
+        System.arraycopy(this.buf, 0, bigger, 0, this.len);
+        this.buf = bigger;
+    }
+}
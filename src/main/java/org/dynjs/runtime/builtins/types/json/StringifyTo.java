@@ -0,0 +1,55 @@
+package org.dynjs.runtime.builtins.types.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.dynjs.exception.ThrowException;
+import org.dynjs.runtime.AbstractNativeFunction;
+import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.GlobalObject;
+import org.dynjs.runtime.Types;
+
+/**
+ * JSON.stringifyTo(value, writer[, replacer[, space]]): JSON.stringify writing
+ * the text to a java.io.Writer (or a java.io.OutputStream, as UTF-8) as it is
+ * produced instead of returning it.  Nothing is written when JSON.stringify would
+ * return undefined.  A Writer passed in is not flushed or closed.
+ */
+public class StringifyTo extends AbstractNativeFunction {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public StringifyTo(GlobalObject globalObject) {
+        super(globalObject, true, "value", "writer", "replacer", "space");
+    }
+
+    @Override
+    public Object call(ExecutionContext context, Object self, Object... args) {
+        Writer writer;
+        if (args[1] instanceof Writer) {
+            writer = (Writer) args[1];
+        } else if (args[1] instanceof OutputStream) {
+            writer = new OutputStreamWriter((OutputStream) args[1], UTF8);
+        } else {
+            throw new ThrowException(context, context.createTypeError("JSON.stringifyTo requires a java.io.Writer or java.io.OutputStream"));
+        }
+
+        Serializer serializer = Serializer.create(context, args[2], args[3], writer);
+        serializer.serialize(args[0]);
+        serializer.flush();
+
+        if (writer != args[1]) {
+            // Encoded bytes sit in the encoder until flushed.
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new ThrowException(context, context.createError("Error", e.getMessage()));
+            }
+        }
+
+        return Types.UNDEFINED;
+    }
+}
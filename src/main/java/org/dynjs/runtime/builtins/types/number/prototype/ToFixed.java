@@ -31,7 +31,7 @@ public class ToFixed extends AbstractNativeFunction {
             final BigDecimal bigDecimal = new BigDecimal(number.doubleValue());
             return bigDecimal.setScale((int)digits, BigDecimal.ROUND_HALF_UP).toString();
         } else {
-            return Types.rewritePossiblyExponentialValue(String.valueOf(number.doubleValue()));
+            return Types.toString(context, number);
         }
     }
 }
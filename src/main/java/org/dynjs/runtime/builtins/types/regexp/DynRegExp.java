@@ -25,10 +25,21 @@ import org.joni.exception.JOniException;
 
 public class DynRegExp extends DynObject {
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final WarnCallback WARN_CALLBACK = new WarnCallback() {
+        @Override
+        public void warn(String message) {
+            System.err.println("WARN: " + message);
+        }
+    };
+
+    private final GlobalObject globalObject;
     private Regex pattern;
 
     public DynRegExp(GlobalObject globalObject) {
         super(globalObject);
+        this.globalObject = globalObject;
         setClassName("RegExp");
         setPrototype(globalObject.getPrototypeFor("RegExp"));
     }
@@ -39,16 +50,15 @@ public class DynRegExp extends DynObject {
     }
 
     public void setPatternAndFlags(ExecutionContext context, String pattern, final String flags) {
-        checkSyntaxOfFlags(context, flags);
-
-        // 15.10.4.1:
-        // If P is the empty String, this specification can be met by letting S be "(?:)".
-        if (pattern.equals("")) {
-            pattern = "(?:)";
-        }
+        setPatternAndFlags(pattern, flags, compile(context, this.globalObject, pattern, flags));
+    }
 
+    /**
+     * Set pattern and flags with regex, what compile returned for them.
+     */
+    public void setPatternAndFlags(String pattern, final String flags, Regex regex) {
         defineOwnProperty(null, "source",
-                PropertyDescriptor.newDataPropertyDescriptor(pattern, false, false, false), false);
+                PropertyDescriptor.newDataPropertyDescriptor(source(pattern), false, false, false), false);
 
         if (flags != null) {
             defineOwnProperty(null, "multiline",
@@ -68,43 +78,67 @@ public class DynRegExp extends DynObject {
         defineOwnProperty(null, "lastIndex",
                 PropertyDescriptor.newDataPropertyDescriptor(0L, true, false, false), false);
 
+        this.pattern = regex;
+    }
+
+    /**
+     * Compiled form of pattern with flags, taken from the RegExp cache of the
+     * runtime if the same pattern has been compiled with the same options.
+     */
+    public static Regex compile(ExecutionContext context, GlobalObject globalObject, String pattern, String flags) {
+        checkSyntaxOfFlags(context, flags);
+
+        pattern = source(pattern);
+
         int flagsInt = 0;
 
-        if (get(context, "multiline") == Boolean.TRUE) {
+        if (flags != null && flags.contains("m")) {
             flagsInt = flagsInt | Option.MULTILINE;
         } else {
             flagsInt = flagsInt | Option.SINGLELINE;
         }
 
-        if (get(context, "ignoreCase") == Boolean.TRUE) {
+        if (flags != null && flags.contains("i")) {
             flagsInt = flagsInt | Option.IGNORECASE;
         }
+
+        RegExpCache cache = globalObject.getRegExpCache();
+        Regex regex = cache.get(pattern, flagsInt);
+        if (regex != null) {
+            return regex;
+        }
+
         try {
             // We can't use pattern.getBytes("UTF-8") here because any
             // malformed input will get mapped to the ? character which
             // screws up the regexp
-            Charset charset= Charset.forName("UTF-8");
-            CharsetEncoder encoder = charset.newEncoder();
+            CharsetEncoder encoder = UTF8.newEncoder();
             encoder.onMalformedInput(CodingErrorAction.REPLACE);
             encoder.replaceWith(new byte[] { (byte) 1 });
             ByteBuffer patternBuffer = encoder.encode(CharBuffer.wrap(pattern));
             byte[] patternBytes = new byte[patternBuffer.limit()];
             patternBuffer.get(patternBytes, 0, patternBytes.length);
-            this.pattern = new Regex(patternBytes, 0, patternBytes.length, flagsInt, UTF8Encoding.INSTANCE, Syntax.ECMAScript, new WarnCallback() {
-                @Override
-                public void warn(String message) {
-                    System.err.println("WARN: " + message);
-                }
-            });
-
+            regex = new Regex(patternBytes, 0, patternBytes.length, flagsInt, UTF8Encoding.INSTANCE, Syntax.ECMAScript, WARN_CALLBACK);
         } catch (JOniException e) {
             throw new ThrowException(context, context.createSyntaxError(e.getMessage()));
         } catch (CharacterCodingException e) {
             throw new ThrowException(context, context.createSyntaxError(e.getMessage()));
         }
+
+        cache.put(pattern, flagsInt, regex);
+        return regex;
+    }
+
+    private static String source(String pattern) {
+        // 15.10.4.1:
+        // If P is the empty String, this specification can be met by letting S be "(?:)".
+        if (pattern.equals("")) {
+            return "(?:)";
+        }
+        return pattern;
     }
 
-    private void checkSyntaxOfFlags(ExecutionContext context, String flags) {
+    private static void checkSyntaxOfFlags(ExecutionContext context, String flags) {
         if (flags == null || flags.equals("")) {
             return;
         }
@@ -144,13 +178,34 @@ public class DynRegExp extends DynObject {
         }
     }
 
+    /**
+     * First match at or after char index from, with char offsets, or null.
+     * Encodes str; a caller matching it repeatedly should encode it once, as a
+     * RegExpInput, and match that.
+     */
     public Region match(String str, int from) {
-        byte[] strBytes = str.getBytes();
-        Matcher matcher = this.pattern.matcher(strBytes, 0, strBytes.length);
-        if (matcher.search(from, strBytes.length, 0) >= 0) {
-            return matcher.getEagerRegion();
+        return match(new RegExpInput(str), from);
+    }
+
+    public Region match(RegExpInput input, int from) {
+        if (from < 0 || from > input.getString().length()) {
+            return null;
+        }
+
+        byte[] bytes = input.getBytes();
+        Matcher matcher = this.pattern.matcher(bytes, 0, bytes.length);
+        if (matcher.search(input.byteOffset(from), bytes.length, 0) < 0) {
+            return null;
+        }
+
+        Region region = matcher.getEagerRegion();
+        for (int i = 0; i < region.numRegs; ++i) {
+            if (region.beg[i] >= 0) {
+                region.beg[i] = input.charIndex(region.beg[i]);
+                region.end[i] = input.charIndex(region.end[i]);
+            }
         }
-        return null;
+        return region;
     }
 
     public boolean isGlobal() {
@@ -0,0 +1,147 @@
+package org.dynjs.runtime.builtins.types.regexp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joni.Regex;
+
+/**
+ * Concurrent cache of compiled regular expressions, keyed by pattern and joni
+ * options, shared by every RegExp of a runtime.  A compiled Regex is immutable
+ * (each match gets its own Matcher), so one can back any number of RegExp
+ * objects.
+ *
+ * <p>
+ * Lookups only touch a ConcurrentHashMap and stamp the entry with a tick. Once
+ * more than <code>maximumSize</code> expressions are cached, the least recently
+ * used one is evicted by scanning the stamps; that only happens after a miss,
+ * which has just paid for compiling an expression.
+ * </p>
+ */
+public class RegExpCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    public RegExpCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public RegExpCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return the cached expression or <code>null</code> if it must be compiled
+     *         (and then <code>put</code>).
+     */
+    public Regex get(String pattern, int options) {
+        Entry entry = this.storage.get(new Key(pattern, options));
+        if (entry == null) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        this.hits.incrementAndGet();
+        entry.lastUsed = this.clock.incrementAndGet();
+        return entry.regex;
+    }
+
+    public void put(String pattern, int options, Regex regex) {
+        if (this.maximumSize <= 0) {
+            return;
+        }
+        Entry entry = new Entry(regex);
+        entry.lastUsed = this.clock.incrementAndGet();
+        this.storage.put(new Key(pattern, options), entry);
+
+        if (this.storage.size() > this.maximumSize) {
+            evict();
+        }
+    }
+
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    public int size() {
+        return this.storage.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
+
+    public String toString() {
+        return "[RegExpCache: size=" + size() + "; hits=" + getHitCount() + "; misses=" + getMissCount() + "; evictions=" + getEvictionCount() + "]";
+    }
+
+    private synchronized void evict() {
+        while (this.storage.size() > this.maximumSize) {
+            Key oldest = null;
+            long oldestUsed = Long.MAX_VALUE;
+            for (Map.Entry<Key, Entry> each : this.storage.entrySet()) {
+                if (each.getValue().lastUsed < oldestUsed) {
+                    oldest = each.getKey();
+                    oldestUsed = each.getValue().lastUsed;
+                }
+            }
+            if (oldest == null || this.storage.remove(oldest) == null) {
+                return;
+            }
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    private static class Key {
+
+        Key(String pattern, int options) {
+            this.pattern = pattern;
+            this.options = options;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.pattern.hashCode() * 31 + this.options;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return this.options == that.options && this.pattern.equals(that.pattern);
+        }
+
+        private final String pattern;
+        private final int options;
+    }
+
+    private static class Entry {
+
+        Entry(Regex regex) {
+            this.regex = regex;
+        }
+
+        private final Regex regex;
+        private volatile long lastUsed;
+    }
+
+    private final int maximumSize;
+
+    private final ConcurrentMap<Key, Entry> storage = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+}
@@ -0,0 +1,113 @@
+package org.dynjs.runtime.builtins.types.regexp;
+
+/**
+ * A string encoded once for matching it any number of times.  Expressions are
+ * compiled for UTF-8, so the string is matched as UTF-8 bytes; offsets going in
+ * and out are char indexes, mapped to and from byte offsets here.
+ *
+ * A string which is all ASCII has the same offsets either way and no maps.  An
+ * unpaired surrogate is encoded as the three bytes of its code unit so that
+ * every char still has an offset.
+ */
+public class RegExpInput {
+
+    private final String string;
+    private final byte[] bytes;
+
+    // null when offsets coincide
+    private final int[] charToByte;
+    private final int[] byteToChar;
+
+    public RegExpInput(String string) {
+        this.string = string;
+
+        int n = string.length();
+        int ascii = 0;
+        while (ascii < n && string.charAt(ascii) < 0x80) {
+            ++ascii;
+        }
+
+        if (ascii == n) {
+            this.bytes = new byte[n];
+            for (int i = 0; i < n; ++i) {
+                this.bytes[i] = (byte) string.charAt(i);
+            }
+            this.charToByte = null;
+            this.byteToChar = null;
+            return;
+        }
+
+        int size = ascii;
+        for (int i = ascii; i < n; ++i) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(string.charAt(i + 1))) {
+                size += 4;
+                ++i;
+            } else {
+                size += 3;
+            }
+        }
+
+        byte[] bytes = new byte[size];
+        int[] charToByte = new int[n + 1];
+        int[] byteToChar = new int[size + 1];
+        int b = 0;
+
+        for (int i = 0; i < n; ++i) {
+            char c = string.charAt(i);
+            charToByte[i] = b;
+            byteToChar[b] = i;
+
+            if (c < 0x80) {
+                bytes[b++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[b++] = (byte) (0xc0 | (c >> 6));
+                byteToChar[b] = i;
+                bytes[b++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, string.charAt(i + 1));
+                bytes[b++] = (byte) (0xf0 | (cp >> 18));
+                byteToChar[b] = i;
+                bytes[b++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                byteToChar[b] = i;
+                bytes[b++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                byteToChar[b] = i;
+                bytes[b++] = (byte) (0x80 | (cp & 0x3f));
+                // A search starting between the halves starts after the pair.
+                charToByte[++i] = b;
+            } else {
+                bytes[b++] = (byte) (0xe0 | (c >> 12));
+                byteToChar[b] = i;
+                bytes[b++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                byteToChar[b] = i;
+                bytes[b++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        charToByte[n] = b;
+        byteToChar[b] = n;
+
+        this.bytes = bytes;
+        this.charToByte = charToByte;
+        this.byteToChar = byteToChar;
+    }
+
+    public String getString() {
+        return this.string;
+    }
+
+    public byte[] getBytes() {
+        return this.bytes;
+    }
+
+    public int byteOffset(int charIndex) {
+        return this.charToByte == null ? charIndex : this.charToByte[charIndex];
+    }
+
+    public int charIndex(int byteOffset) {
+        return this.byteToChar == null ? byteOffset : this.byteToChar[byteOffset];
+    }
+}
@@ -1,7 +1,5 @@
 package org.dynjs.runtime.builtins.types.regexp.prototype;
 
-import java.util.Arrays;
-
 import org.dynjs.exception.ThrowException;
 import org.dynjs.runtime.AbstractNonConstructorFunction;
 import org.dynjs.runtime.ExecutionContext;
@@ -10,6 +8,7 @@ import org.dynjs.runtime.JSObject;
 import org.dynjs.runtime.Types;
 import org.dynjs.runtime.builtins.types.BuiltinArray;
 import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
+import org.dynjs.runtime.builtins.types.regexp.RegExpInput;
 import org.joni.Region;
 
 public class Exec extends AbstractNonConstructorFunction {
@@ -26,7 +25,15 @@ public class Exec extends AbstractNonConstructorFunction {
             throw new ThrowException(context, context.createTypeError("only applicable to a RegExp"));
         }
 
-        DynRegExp regexp = (DynRegExp) self;
+        return exec(context, (DynRegExp) self, new RegExpInput(str));
+    }
+
+    /**
+     * 15.10.6.2 on input, which a caller executing regexp repeatedly on the same
+     * string encodes once.
+     */
+    public static Object exec(ExecutionContext context, DynRegExp regexp, RegExpInput input) {
+        String str = input.getString();
 
         long lastIndex = (long) Types.toInteger(context, regexp.get(context, "lastIndex"));
         long i = lastIndex;
@@ -45,7 +52,7 @@ public class Exec extends AbstractNonConstructorFunction {
                 regexp.put(context, "lastIndex", 0L, true);
                 return Types.NULL;
             }
-            r = regexp.match(str, (int) i);
+            r = regexp.match(input, (int) i);
             if (r != null) {
                 matchSucceeded = true;
             } else {
@@ -60,12 +67,10 @@ public class Exec extends AbstractNonConstructorFunction {
         a.put(context, "index", (long) r.beg[0], true);
         a.put(context, "input", str, true);
         a.put(context, "length", (long) r.beg.length, true);
-        byte[] matchedBytes = Arrays.copyOfRange(str.getBytes(), r.beg[0], r.end[0]);
-        a.put(context, "0", new String(matchedBytes), true);
+        a.put(context, "0", str.substring(r.beg[0], r.end[0]), true);
         for (int j = 1; j < r.beg.length; ++j) {
             if (r.beg[j] >= 0 && r.end[j] >= 0) {
-                matchedBytes = Arrays.copyOfRange(str.getBytes(), r.beg[j], r.end[j]);
-                a.put(context, "" + j, new String(matchedBytes), true);
+                a.put(context, "" + j, str.substring(r.beg[j], r.end[j]), true);
             }
         }
 
@@ -1,7 +1,12 @@
 package org.dynjs.runtime.builtins.types.string;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dynjs.exception.ThrowException;
 import org.dynjs.runtime.ExecutionContext;
 import org.dynjs.runtime.GlobalObject;
+import org.dynjs.runtime.NameEnumerator;
 import org.dynjs.runtime.PrimitiveDynObject;
 import org.dynjs.runtime.PropertyDescriptor;
 import org.dynjs.runtime.Types;
@@ -26,13 +31,12 @@ public class DynString extends PrimitiveDynObject {
         int length = str.length();
         defineOwnProperty(null, "length",
                 PropertyDescriptor.newDataPropertyDescriptor((long) length, false, false, false), false);
-
-        for (int i = 0; i < length; i++) {
-            defineOwnProperty(null, "" + i,
-                    PropertyDescriptor.newDataPropertyDescriptor(str.substring(i, i + 1), false, false, true), false);
-        }
     }
 
+    // 15.5.5.2: the chars are own properties too, but they are looked up in the
+    // string rather than defined one by one, which made every method call on a
+    // string primitive cost as much as the string is long.
+
     @Override
     public Object getOwnProperty(ExecutionContext context, String name, boolean dupe) {
         Object d = super.getOwnProperty(context, name, dupe);
@@ -40,20 +44,107 @@ public class DynString extends PrimitiveDynObject {
             return d;
         }
 
-        if (!Types.toString(context, Math.abs(Types.toInteger(context, name))).equals(name)) {
+        int index = index(name);
+        if (index < 0) {
             return Types.UNDEFINED;
         }
 
-        String str = (String) getPrimitiveValue();
-        long index = Types.toInteger(context, name);
+        final String resultStr = ((String) getPrimitiveValue()).substring(index, index + 1);
 
-        if (str.length() <= index) {
-            return Types.UNDEFINED;
+        return PropertyDescriptor.newDataPropertyDescriptor(resultStr, false, false, true);
+    }
+
+    @Override
+    public boolean delete(ExecutionContext context, String name, boolean shouldThrow) {
+        if (index(name) < 0) {
+            return super.delete(context, name, shouldThrow);
         }
+        if (shouldThrow) {
+            throw new ThrowException(context, context.createTypeError("cannot delete unconfigurable property '" + name + "'"));
+        }
+        return false;
+    }
 
-        final String resultStr = str.substring((int) index, (int) index + 1);
+    @Override
+    public NameEnumerator getOwnPropertyNames() {
+        // Where the indexes were when they were defined, right after length.
+        List<String> names = super.getOwnPropertyNames().toList();
+        Object value = getPrimitiveValue();
+        int length = value == null ? 0 : ((String) value).length();
 
-        return PropertyDescriptor.newDataPropertyDescriptor(resultStr, false, false, true);
+        List<String> indexes = new ArrayList<>(length);
+        for (int i = 0; i < length; ++i) {
+            indexes.add(Integer.toString(i));
+        }
+        names.addAll(names.indexOf("length") + 1, indexes);
+
+        return new NameEnumerator(names);
+    }
+
+    @Override
+    public NameEnumerator getOwnEnumerablePropertyNames() {
+        List<String> names = new ArrayList<>();
+        NameEnumerator own = getOwnPropertyNames();
+        while (own.hasNext()) {
+            String name = own.next();
+            if (isEnumerable(name)) {
+                names.add(name);
+            }
+        }
+        return new NameEnumerator(names);
+    }
+
+    @Override
+    public NameEnumerator getAllEnumerablePropertyNames() {
+        List<String> names = new ArrayList<>();
+        if (getPrototype() != null) {
+            names.addAll(getPrototype().getAllEnumerablePropertyNames().toList());
+        }
+        NameEnumerator own = getOwnPropertyNames();
+        while (own.hasNext()) {
+            String name = own.next();
+            if (isEnumerable(name)) {
+                names.add(name);
+            } else {
+                names.remove(name);
+            }
+        }
+        return new NameEnumerator(names);
+    }
+
+    private boolean isEnumerable(String name) {
+        if (index(name) >= 0) {
+            return true;
+        }
+        Object desc = super.getOwnProperty(null, name, false);
+        return desc != Types.UNDEFINED && ((PropertyDescriptor) desc).isEnumerable();
+    }
+
+    /**
+     * Index of the char name is the property name of or -1.
+     */
+    private int index(String name) {
+        Object value = getPrimitiveValue();
+        if (value == null) {
+            return -1;
+        }
+        int length = ((String) value).length();
+
+        int nameLength = name.length();
+        if (nameLength == 0 || nameLength > 10 || (nameLength > 1 && name.charAt(0) == '0')) {
+            return -1;
+        }
+
+        long index = 0;
+        for (int i = 0; i < nameLength; ++i) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+
+        return index < length ? (int) index : -1;
     }
 
 }
@@ -9,6 +9,9 @@ import org.dynjs.runtime.PropertyDescriptor;
 import org.dynjs.runtime.Types;
 import org.dynjs.runtime.builtins.types.BuiltinArray;
 import org.dynjs.runtime.builtins.types.BuiltinRegExp;
+import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
+import org.dynjs.runtime.builtins.types.regexp.RegExpInput;
+import org.dynjs.runtime.builtins.types.regexp.prototype.Exec;
 
 public class Match extends AbstractNonConstructorFunction {
 
@@ -46,8 +49,14 @@ public class Match extends AbstractNonConstructorFunction {
         long n = 0;
         boolean lastMatch = true;
 
+        // The built-in exec can match the string encoded once for all of them.
+        RegExpInput input = null;
+        if (execFn instanceof Exec && rx instanceof DynRegExp) {
+            input = new RegExpInput(s);
+        }
+
         while (lastMatch) {
-            Object result = context.call(execFn, rx, s);
+            Object result = (input == null ? context.call(execFn, rx, s) : Exec.exec(context, (DynRegExp) rx, input));
             if (result == Types.NULL) {
                 lastMatch = false;
             } else {
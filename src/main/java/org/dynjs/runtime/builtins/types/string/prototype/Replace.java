@@ -3,11 +3,10 @@ package org.dynjs.runtime.builtins.types.string.prototype;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.dynjs.runtime.*;
 import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
+import org.dynjs.runtime.builtins.types.regexp.RegExpInput;
 import org.joni.Region;
 
 public class Replace extends AbstractNonConstructorFunction {
@@ -20,52 +19,53 @@ public class Replace extends AbstractNonConstructorFunction {
     public Object call(ExecutionContext context, Object self, Object... args) {
         Types.checkObjectCoercible(context, self);
         final String searchString = Types.toString(context, self);
-        JSFunction replacement;
+        JSFunction function = null;
         if (args[1] instanceof JSFunction) {
-            replacement = (JSFunction) args[1];
-        } else {
-            replacement = new IdentityFunction(context.getGlobalObject(), args[1]);
+            function = (JSFunction) args[1];
         }
 
         if (args[0] instanceof DynRegExp) {
-            return replaceWithRegex(context, searchString, (DynRegExp) args[0], replacement);
+            String replaceValue = (function == null ? Types.toString(context, args[1]) : null);
+            return replaceWithRegex(context, searchString, (DynRegExp) args[0], function, replaceValue);
         } else {
-            return replaceWithString(context, searchString, Types.toString(context, args[0]), replacement);
+            String query = Types.toString(context, args[0]);
+            String replaceValue = (function == null ? Types.toString(context, args[1]) : null);
+            return replaceWithString(context, searchString, query, function, replaceValue);
         }
     }
 
-    private Object replaceWithString(ExecutionContext context, String searchString, String query, JSFunction function) {
+    private Object replaceWithString(ExecutionContext context, String searchString, String query, JSFunction function, String replaceValue) {
         int index = searchString.indexOf(query);
         if (index < 0) {
             return searchString;
         }
+        int end = index + query.length();
 
-        Match match = Match.fromStartAndLength(searchString, index, query.length());
-
-        String replacement = match.buildReplacementString(
-                Types.toString(context, context.call(function, Types.UNDEFINED, match.toFnArgs())));
+        String replacement = replacement(context, Match.fromStartAndLength(searchString, index, query.length()), function, replaceValue);
 
-        return searchString.replaceFirst(Pattern.quote(query), Matcher.quoteReplacement(replacement));
+        return new StringBuilder(searchString.length() - query.length() + replacement.length())
+                .append(searchString, 0, index)
+                .append(replacement)
+                .append(searchString, end, searchString.length())
+                .toString();
     }
 
-    private Object replaceWithRegex(ExecutionContext context, String searchString, DynRegExp regexp, JSFunction function) {
-        final StringBuilder result = new StringBuilder();
+    private Object replaceWithRegex(ExecutionContext context, String searchString, DynRegExp regexp, JSFunction function, String replaceValue) {
+        final StringBuilder result = new StringBuilder(searchString.length());
 
         Region region;
-        Match lastMatch = null;
         int startIndex = 0;
-        while ((region = regexp.match(searchString, startIndex)) != null) {
+        RegExpInput input = new RegExpInput(searchString);
+        while ((region = regexp.match(input, startIndex)) != null) {
             Match match = Match.fromRegion(searchString, region);
-            lastMatch = match;
 
-            String replacement = match.buildReplacementString(
-                    Types.toString(context, context.call(function, Types.UNDEFINED, match.toFnArgs())));
-            result.append(searchString.substring(startIndex, match.start()))
-                    .append(replacement);
+            result.append(searchString, startIndex, match.start())
+                    .append(replacement(context, match, function, replaceValue));
 
-            if (startIndex == match.end()) {
-                result.append(searchString.substring(startIndex, Math.min(startIndex + 1, searchString.length())));
-                startIndex++;
+            if (match.start() == match.end()) {
+                // An empty match consumes nothing; keep the next char and search after it.
+                result.append(searchString, match.end(), Math.min(match.end() + 1, searchString.length()));
+                startIndex = match.end() + 1;
             } else {
                 startIndex = match.end();
             }
@@ -74,27 +74,23 @@ public class Replace extends AbstractNonConstructorFunction {
                 break;
             }
         }
-        if (lastMatch == null) {
-            result.append(searchString);
-        } else {
-            result.append(lastMatch.rest());
-        }
+        result.append(searchString, Math.min(startIndex, searchString.length()), searchString.length());
 
         return result.toString();
     }
 
-    private static class IdentityFunction extends AbstractNativeFunction {
-        private final Object value;
-
-        public IdentityFunction(GlobalObject globalObject, Object value) {
-            super(globalObject);
-            this.value = value;
+    /**
+     * The text for match: what the function returns, as it is, or the replace
+     * value with its $ patterns substituted.
+     */
+    private static String replacement(ExecutionContext context, Match match, JSFunction function, String replaceValue) {
+        if (function != null) {
+            return Types.toString(context, context.call(function, Types.UNDEFINED, match.toFnArgs()));
         }
-
-        @Override
-        public Object call(ExecutionContext context, Object self, Object... args) {
-            return value;
+        if (replaceValue.indexOf('$') < 0) {
+            return replaceValue;
         }
+        return match.buildReplacementString(replaceValue);
     }
 
     private static class Match {
@@ -194,10 +190,6 @@ public class Replace extends AbstractNonConstructorFunction {
         public int end() {
             return captures.get(0).end;
         }
-
-        public String rest() {
-            return searchString.substring(Math.min(searchString.length(), end()));
-        }
     }
 
     private static class Capture {
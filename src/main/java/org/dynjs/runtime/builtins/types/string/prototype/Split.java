@@ -1,13 +1,16 @@
 package org.dynjs.runtime.builtins.types.string.prototype;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.dynjs.runtime.AbstractNonConstructorFunction;
+import org.dynjs.runtime.DynArray;
 import org.dynjs.runtime.ExecutionContext;
 import org.dynjs.runtime.GlobalObject;
-import org.dynjs.runtime.JSObject;
-import org.dynjs.runtime.PropertyDescriptor;
 import org.dynjs.runtime.Types;
 import org.dynjs.runtime.builtins.types.BuiltinArray;
 import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
+import org.dynjs.runtime.builtins.types.regexp.RegExpInput;
 import org.joni.Region;
 
 public class Split extends AbstractNonConstructorFunction {
@@ -22,9 +25,7 @@ public class Split extends AbstractNonConstructorFunction {
         Types.checkObjectCoercible(context, self);
         final String s = Types.toString(context, self);
 
-        JSObject a = BuiltinArray.newArray(context);
-
-        long lengthA = 0;
+        DynArray a = BuiltinArray.newArray(context);
 
         long lim = (long) (args[1] == Types.UNDEFINED ? Math.pow(2, 32) - 1 : Types.toUint32(context, args[1]));
 
@@ -33,9 +34,11 @@ public class Split extends AbstractNonConstructorFunction {
         int p = 0;
 
         Object r = null;
+        RegExpInput input = null;
 
         if (args[0] instanceof DynRegExp) {
             r = args[0];
+            input = new RegExpInput(s);
         } else {
             r = Types.toString(context, args[0]);
         }
@@ -45,25 +48,30 @@ public class Split extends AbstractNonConstructorFunction {
         }
 
         if (args[0] == Types.UNDEFINED) {
-            a.defineOwnProperty(context, "0",
-                    PropertyDescriptor.newDataPropertyDescriptor(s, true, true, true), false);
+            a.setElements(new Object[] { s }, 0, 1);
+            return a;
+        }
+
+        if (r instanceof String) {
+            List<Object> parts = splitString(s, (String) r, lim);
+            a.setElements(parts.toArray(), 0, parts.size());
             return a;
         }
 
         if (sLen == 0) {
-            Region z = splitMatch(context, s, 0, r);
+            Region z = splitMatch(context, s, input, 0, r);
             if (z != null) {
                 return a;
             }
-            a.defineOwnProperty(context, "0",
-                    PropertyDescriptor.newDataPropertyDescriptor(s, true, true, true), false);
+            a.setElements(new Object[] { s }, 0, 1);
             return a;
         }
 
+        List<Object> parts = new ArrayList<>();
         int q = p;
 
         while (q != sLen) {
-            final Region z = splitMatch(context, s, q, r);
+            final Region z = splitMatch(context, s, input, q, r);
             if (z == null) {
                 ++q;
             } else {
@@ -72,10 +80,9 @@ public class Split extends AbstractNonConstructorFunction {
                     ++q;
                 } else {
                     final String t = s.substring(p,Math.max(q, z.beg[0]));
-                    a.defineOwnProperty(context, "" + lengthA,
-                            PropertyDescriptor.newDataPropertyDescriptor(t, true, true, true), false);
-                    ++lengthA;
-                    if ( lengthA == lim ) {
+                    parts.add(t);
+                    if ( parts.size() == lim ) {
+                        a.setElements(parts.toArray(), 0, parts.size());
                         return a;
                     }
                     p = e;
@@ -83,11 +90,9 @@ public class Split extends AbstractNonConstructorFunction {
                     for ( int i = 0 ; i < numCaps ; ++i ) {
                         final int capNum = i+1;
                         //substrDesc.set(Names.VALUE, z.group(capNum));
-                        a.defineOwnProperty(context, "" + lengthA,
-                                PropertyDescriptor.newDataPropertyDescriptor(s.substring(z.beg[capNum], z.end[capNum]),
-                                        true, true, true), false);
-                        ++lengthA;
-                        if ( lengthA == lim ) {
+                        parts.add(s.substring(z.beg[capNum], z.end[capNum]));
+                        if ( parts.size() == lim ) {
+                            a.setElements(parts.toArray(), 0, parts.size());
                             return a;
                         }
                     }
@@ -96,15 +101,49 @@ public class Split extends AbstractNonConstructorFunction {
             }
         }
         final String t = s.substring( p, sLen );
-        a.defineOwnProperty(context, "" + lengthA,
-                PropertyDescriptor.newDataPropertyDescriptor(t, true, true, true), false);
+        parts.add(t);
+        a.setElements(parts.toArray(), 0, parts.size());
         
         return a;
     }
+
+    /**
+     * The pieces of s between occurrences of separator, at most lim of them.
+     * Occurrences are found with indexOf (a char scan for a one-char
+     * separator) instead of trying a match at every index.
+     */
+    private List<Object> splitString(String s, String separator, long lim) {
+        int sLen = s.length();
+        int rLen = separator.length();
+        List<Object> parts = new ArrayList<>();
+
+        if (rLen == 0) {
+            // An empty separator matches between chars, but not at 0 or the end.
+            for (int i = 0; i < sLen && parts.size() < lim; ++i) {
+                parts.add(s.substring(i, i + 1));
+            }
+            return parts;
+        }
+
+        char c = separator.charAt(0);
+        int p = 0;
+        int q = (rLen == 1) ? s.indexOf(c) : s.indexOf(separator);
+        while (q >= 0) {
+            parts.add(s.substring(p, q));
+            if (parts.size() == lim) {
+                return parts;
+            }
+            p = q + rLen;
+            q = (rLen == 1) ? s.indexOf(c, p) : s.indexOf(separator, p);
+        }
+        parts.add(s.substring(p));
+
+        return parts;
+    }
     
-    private Region splitMatch(ExecutionContext context, String s, int q, Object r) {
+    private Region splitMatch(ExecutionContext context, String s, RegExpInput input, int q, Object r) {
         if ( r instanceof DynRegExp ) {
-            return ((DynRegExp)r).match(s, q);
+            return ((DynRegExp)r).match(input, q);
         }
         
         String rStr = (String) r;
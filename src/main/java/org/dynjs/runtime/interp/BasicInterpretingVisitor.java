@@ -88,11 +88,14 @@ import org.dynjs.runtime.JSFunction;
 import org.dynjs.runtime.JSObject;
 import org.dynjs.runtime.PropertyDescriptor;
 import org.dynjs.runtime.Reference;
+import org.dynjs.runtime.SwitchTable;
 import org.dynjs.runtime.Types;
 import org.dynjs.runtime.builtins.types.BuiltinArray;
 import org.dynjs.runtime.builtins.types.BuiltinNumber;
 import org.dynjs.runtime.builtins.types.BuiltinObject;
 import org.dynjs.runtime.builtins.types.BuiltinRegExp;
+import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
+import org.joni.Regex;
 
 public class BasicInterpretingVisitor implements CodeVisitor {
   private BlockManager blockManager;
@@ -113,8 +116,8 @@ public class BasicInterpretingVisitor implements CodeVisitor {
     ExecutionContext context = (ExecutionContext) context1;
     Object lhs = Types.toPrimitive(context, getValue(context, expr.getLhs().accept(context, this, strict)));
     Object rhs = Types.toPrimitive(context, getValue(context, expr.getRhs().accept(context, this, strict)));
-    if (lhs instanceof String || rhs instanceof String) {
-      return (Types.toString(context, lhs) + Types.toString(context, rhs));
+    if (Types.isString(lhs) || Types.isString(rhs)) {
+      return Types.concat(context, lhs, rhs);
     }
     Number lhsNum = Types.toNumber(context, lhs);
     Number rhsNum = Types.toNumber(context, rhs);
@@ -976,7 +979,13 @@ public class BasicInterpretingVisitor implements CodeVisitor {
   }
 
   @Override public Object visit(Object context, RegexpLiteralExpression expr, boolean strict) {
-    return (BuiltinRegExp.newRegExp((ExecutionContext) context, expr.getPattern(), expr.getFlags()));
+    ExecutionContext ctx = (ExecutionContext) context;
+    Regex regex = expr.getRegex();
+    if (regex == null) {
+      regex = DynRegExp.compile(ctx, ctx.getGlobalObject(), expr.getPattern(), expr.getFlags());
+      expr.setRegex(regex);
+    }
+    return BuiltinRegExp.newRegExp(ctx, expr.getPattern(), expr.getFlags(), regex);
   }
 
   @Override public Object visit(Object context1, RelationalExpression expr, boolean strict) {
@@ -1051,12 +1060,20 @@ public class BasicInterpretingVisitor implements CodeVisitor {
     int numClauses = statement.getCaseClauses().size();
     int startIndex = -1;
     int defaultIndex = -1;
-    for (int i = 0; i < numClauses; ++i) {
+    SwitchTable table = statement.getSwitchTable();
+    if (table != null) {
+      startIndex = table.lookup(value);
+    }
+    // without a table test each label in turn, with one only look for the default
+    for (int i = 0; i < numClauses && (table == null || startIndex < 0); ++i) {
       CaseClause each = statement.getCaseClauses().get(i);
       if (each instanceof DefaultCaseClause) {
         defaultIndex = i;
         continue;
       }
+      if (table != null) {
+        continue;
+      }
       Object caseTest = each.getExpression().accept(context, this, strict);
       if (Types.compareStrictEquality(context, value, getValue(context, caseTest))) {
         startIndex = i;
@@ -24,6 +24,11 @@ public class DynJSCoercionMatrix extends CoercionMatrix {
         // Convert JavaScript null and undefined values to Java null
         addCoercion(0, Object.class, Types.Null.class, lookup.findStatic(DynJSCoercionMatrix.class, "jsToJavaNull", methodType(Object.class, Object.class)));
 
+        // Flatten concatenated JavaScript strings
+        addCoercion(0, String.class, ConsString.class, lookup.findStatic(DynJSCoercionMatrix.class, "consStringToString", methodType(String.class, ConsString.class)));
+        addCoercion(0, CharSequence.class, ConsString.class, lookup.findStatic(DynJSCoercionMatrix.class, "consStringToString", methodType(String.class, ConsString.class)));
+        addCoercion(0, Object.class, ConsString.class, lookup.findStatic(DynJSCoercionMatrix.class, "consStringToObject", methodType(Object.class, Object.class)));
+
         // Convert JavaScript objects to Strings
         addCoercion(3, String.class, JSObject.class, lookup.findStatic(DynJSCoercionMatrix.class, "objectToString", methodType(String.class, JSObject.class)));
 
@@ -64,6 +69,14 @@ public class DynJSCoercionMatrix extends CoercionMatrix {
         return null;
     }
 
+    public static String consStringToString(ConsString string) {
+        return string.toString();
+    }
+
+    public static Object consStringToObject(Object string) {
+        return string.toString();
+    }
+
     public static Byte numberToByte(Number value) {
         return value.byteValue();
     }
@@ -32,7 +32,7 @@ public class PrimitiveCallLink extends SmartLink implements Guard {
         }
         Object base = ((DereferencedReference) receiver).getValue();
 
-        return base instanceof String || base instanceof Number || base instanceof Boolean;
+        return Types.isString(base) || base instanceof Number || base instanceof Boolean;
     }
 
     @Override
@@ -0,0 +1,286 @@
+package org.dynjs.runtime.util;
+
+import java.math.BigInteger;
+
+/**
+ * ToString applied to the Number type (ES5 9.8.1): the shortest digits which
+ * read back as the same double, the closest of those if there are several,
+ * written out with or without an exponent as the spec says.
+ *
+ * <p>
+ * The digits come from Ulf Adams' Ryu ("Ryu: fast float-to-string
+ * conversion", PLDI 2018): the bounds of the interval of decimals which round
+ * to the double are scaled by a power of ten using 128-bit approximations of
+ * the powers of five, and digits are removed while the bounds still differ.
+ * Integers which are exactly representable skip all that.
+ * </p>
+ */
+public final class DoubleToString {
+
+    private static final int MANTISSA_BITS = 52;
+    private static final int EXPONENT_BITS = 11;
+    private static final int BIAS = 1023;
+
+    private static final int POW5_BITCOUNT = 125;
+    private static final int POW5_INV_BITCOUNT = 125;
+
+    private static final int POW5_TABLE_SIZE = 326;
+    private static final int POW5_INV_TABLE_SIZE = 342;
+
+    // 5^i scaled to POW5_BITCOUNT bits, as high and low 64-bit words
+    private static final long[] POW5_HIGH = new long[POW5_TABLE_SIZE];
+    private static final long[] POW5_LOW = new long[POW5_TABLE_SIZE];
+
+    // 2^(bits(5^i) - 1 + POW5_INV_BITCOUNT) / 5^i, rounded up, the same way
+    private static final long[] POW5_INV_HIGH = new long[POW5_INV_TABLE_SIZE];
+    private static final long[] POW5_INV_LOW = new long[POW5_INV_TABLE_SIZE];
+
+    static {
+        BigInteger five = BigInteger.valueOf(5);
+        BigInteger lowMask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int i = 0; i < POW5_INV_TABLE_SIZE; ++i) {
+            BigInteger pow = five.pow(i);
+            int bits = pow.bitLength();
+
+            if (i < POW5_TABLE_SIZE) {
+                BigInteger scaled = bits > POW5_BITCOUNT ? pow.shiftRight(bits - POW5_BITCOUNT) : pow.shiftLeft(POW5_BITCOUNT - bits);
+                POW5_HIGH[i] = scaled.shiftRight(64).longValue();
+                POW5_LOW[i] = scaled.and(lowMask).longValue();
+            }
+
+            BigInteger inverse = BigInteger.ONE.shiftLeft(bits - 1 + POW5_INV_BITCOUNT).divide(pow).add(BigInteger.ONE);
+            POW5_INV_HIGH[i] = inverse.shiftRight(64).longValue();
+            POW5_INV_LOW[i] = inverse.and(lowMask).longValue();
+        }
+    }
+
+    // Doubles of integers below this are exact and need no shortening.
+    private static final double EXACT_INTEGER_LIMIT = 9007199254740992.0;
+
+    private DoubleToString() {
+    }
+
+    public static String toString(double value) {
+        if (value != value) {
+            return "NaN";
+        }
+        if (value == 0) {
+            return "0";
+        }
+        if (value == Double.POSITIVE_INFINITY) {
+            return "Infinity";
+        }
+        if (value == Double.NEGATIVE_INFINITY) {
+            return "-Infinity";
+        }
+        if (value > -EXACT_INTEGER_LIMIT && value < EXACT_INTEGER_LIMIT && value == (long) value) {
+            return Long.toString((long) value);
+        }
+
+        long bits = Double.doubleToRawLongBits(value);
+        boolean negative = bits < 0;
+        long ieeeMantissa = bits & ((1L << MANTISSA_BITS) - 1);
+        int ieeeExponent = (int) ((bits >>> MANTISSA_BITS) & ((1 << EXPONENT_BITS) - 1));
+
+        int e2;
+        long m2;
+        if (ieeeExponent == 0) {
+            e2 = 1 - BIAS - MANTISSA_BITS - 2;
+            m2 = ieeeMantissa;
+        } else {
+            e2 = ieeeExponent - BIAS - MANTISSA_BITS - 2;
+            m2 = ieeeMantissa | (1L << MANTISSA_BITS);
+        }
+        boolean acceptBounds = (m2 & 1) == 0;
+
+        // The double and the halfway points to its neighbours, times four.
+        long mv = 4 * m2;
+        int mmShift = (ieeeMantissa != 0 || ieeeExponent <= 1) ? 1 : 0;
+        long mp = mv + 2;
+        long mm = mv - 1 - mmShift;
+
+        long vr, vp, vm;
+        int e10;
+        boolean vmIsTrailingZeros = false;
+        boolean vrIsTrailingZeros = false;
+
+        if (e2 >= 0) {
+            int q = log10Pow2(e2) - (e2 > 3 ? 1 : 0);
+            e10 = q;
+            int k = POW5_INV_BITCOUNT + pow5bits(q) - 1;
+            int i = -e2 + q + k;
+            vr = mulShift(mv, POW5_INV_HIGH[q], POW5_INV_LOW[q], i);
+            vp = mulShift(mp, POW5_INV_HIGH[q], POW5_INV_LOW[q], i);
+            vm = mulShift(mm, POW5_INV_HIGH[q], POW5_INV_LOW[q], i);
+            if (q <= 21) {
+                if (mv % 5 == 0) {
+                    vrIsTrailingZeros = multipleOfPowerOf5(mv, q);
+                } else if (acceptBounds) {
+                    vmIsTrailingZeros = multipleOfPowerOf5(mm, q);
+                } else if (multipleOfPowerOf5(mp, q)) {
+                    --vp;
+                }
+            }
+        } else {
+            int q = log10Pow5(-e2) - (-e2 > 1 ? 1 : 0);
+            e10 = q + e2;
+            int i = -e2 - q;
+            int k = pow5bits(i) - POW5_BITCOUNT;
+            int j = q - k;
+            vr = mulShift(mv, POW5_HIGH[i], POW5_LOW[i], j);
+            vp = mulShift(mp, POW5_HIGH[i], POW5_LOW[i], j);
+            vm = mulShift(mm, POW5_HIGH[i], POW5_LOW[i], j);
+            if (q <= 1) {
+                vrIsTrailingZeros = true;
+                if (acceptBounds) {
+                    vmIsTrailingZeros = mmShift == 1;
+                } else {
+                    --vp;
+                }
+            } else if (q < 63) {
+                vrIsTrailingZeros = (mv & ((1L << q) - 1)) == 0;
+            }
+        }
+
+        // Remove digits while the bounds still differ in what is left.
+        int removed = 0;
+        int lastRemovedDigit = 0;
+        long output;
+        if (vmIsTrailingZeros || vrIsTrailingZeros) {
+            while (vp / 10 > vm / 10) {
+                vmIsTrailingZeros &= vm % 10 == 0;
+                vrIsTrailingZeros &= lastRemovedDigit == 0;
+                lastRemovedDigit = (int) (vr % 10);
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                ++removed;
+            }
+            if (vmIsTrailingZeros) {
+                while (vm % 10 == 0) {
+                    vrIsTrailingZeros &= lastRemovedDigit == 0;
+                    lastRemovedDigit = (int) (vr % 10);
+                    vr /= 10;
+                    vp /= 10;
+                    vm /= 10;
+                    ++removed;
+                }
+            }
+            if (vrIsTrailingZeros && lastRemovedDigit == 5 && vr % 2 == 0) {
+                // Exactly halfway: round to even.
+                lastRemovedDigit = 4;
+            }
+            output = vr + (((vr == vm && (!acceptBounds || !vmIsTrailingZeros)) || lastRemovedDigit >= 5) ? 1 : 0);
+        } else {
+            while (vp / 10 > vm / 10) {
+                lastRemovedDigit = (int) (vr % 10);
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                ++removed;
+            }
+            output = vr + ((vr == vm || lastRemovedDigit >= 5) ? 1 : 0);
+        }
+
+        return format(negative, Long.toString(output), e10 + removed);
+    }
+
+    /**
+     * Steps 5 to 10 of 9.8.1 for digits s and a value of s * 10^exponent.
+     */
+    private static String format(boolean negative, String s, int exponent) {
+        int k = s.length();
+        int n = exponent + k;
+        StringBuilder result = new StringBuilder(k + 8);
+        if (negative) {
+            result.append('-');
+        }
+
+        if (k <= n && n <= 21) {
+            result.append(s);
+            for (int i = k; i < n; ++i) {
+                result.append('0');
+            }
+        } else if (0 < n && n <= 21) {
+            result.append(s, 0, n).append('.').append(s, n, k);
+        } else if (-6 < n && n <= 0) {
+            result.append("0.");
+            for (int i = n; i < 0; ++i) {
+                result.append('0');
+            }
+            result.append(s);
+        } else {
+            result.append(s.charAt(0));
+            if (k > 1) {
+                result.append('.').append(s, 1, k);
+            }
+            result.append('e').append(n - 1 < 0 ? '-' : '+').append(Math.abs(n - 1));
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * (m * (high * 2^64 + low)) >> j, for j >= 64, of which only the low 64 bits
+     * are kept.
+     */
+    private static long mulShift(long m, long high, long low, int j) {
+        long b0High = multiplyHigh(m, low);
+        long b2Low = m * high;
+        long b2High = multiplyHigh(m, high);
+
+        long sumLow = b0High + b2Low;
+        long sumHigh = b2High + ((sumLow + Long.MIN_VALUE) < (b0High + Long.MIN_VALUE) ? 1 : 0);
+
+        int shift = j - 64;
+        if (shift == 0) {
+            return sumLow;
+        }
+        if (shift >= 64) {
+            return sumHigh >>> (shift - 64);
+        }
+        return (sumLow >>> shift) | (sumHigh << (64 - shift));
+    }
+
+    /**
+     * High 64 bits of the unsigned 128-bit product of a and b.
+     */
+    private static long multiplyHigh(long a, long b) {
+        long aLow = a & 0xffffffffL;
+        long aHigh = a >>> 32;
+        long bLow = b & 0xffffffffL;
+        long bHigh = b >>> 32;
+
+        long lowLow = aLow * bLow;
+        long highLow = aHigh * bLow;
+        long lowHigh = aLow * bHigh;
+        long highHigh = aHigh * bHigh;
+
+        long middle = (lowLow >>> 32) + (highLow & 0xffffffffL) + (lowHigh & 0xffffffffL);
+        return highHigh + (highLow >>> 32) + (lowHigh >>> 32) + (middle >>> 32);
+    }
+
+    // ceil(log2(5^e)), or 1 for e == 0
+    private static int pow5bits(int e) {
+        return (int) (((long) e * 1217359) >>> 19) + 1;
+    }
+
+    // floor(log10(2^e))
+    private static int log10Pow2(int e) {
+        return (int) (((long) e * 78913) >>> 18);
+    }
+
+    // floor(log10(5^e))
+    private static int log10Pow5(int e) {
+        return (int) (((long) e * 732923) >>> 20);
+    }
+
+    private static boolean multipleOfPowerOf5(long value, int p) {
+        int count = 0;
+        while (value > 0 && value % 5 == 0) {
+            value /= 5;
+            ++count;
+        }
+        return count >= p;
+    }
+}
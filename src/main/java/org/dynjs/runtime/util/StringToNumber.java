@@ -0,0 +1,306 @@
+package org.dynjs.runtime.util;
+
+import java.math.BigInteger;
+
+import org.dynjs.runtime.Types;
+
+/**
+ * ToNumber applied to the String type (ES5 9.3.1), parseInt (15.1.2.2) and
+ * parseFloat (15.1.2.3), scanning the string in place.  Nothing is thrown for
+ * text which is not a number, and nothing is allocated for the common cases: a
+ * decimal integer of up to 18 digits, a hex integer of up to 15, and a decimal
+ * with up to 15 significant digits and an exponent within 22, which is exact
+ * in double arithmetic.  Longer numbers go to BigInteger or
+ * Double.parseDouble, on text already known to be valid.
+ *
+ * Integers come back as Long, as literals do; ToNumber gives a Double for
+ * anything with a decimal point or an exponent.
+ */
+public final class StringToNumber {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int MAXIMUM_LONG_DIGITS = 18;
+    private static final int MAXIMUM_EXACT_DIGITS = 15;
+    private static final int MAXIMUM_LONG_HEX_DIGITS = 15;
+
+    private StringToNumber() {
+    }
+
+    /**
+     * ToNumber: the whole string, less surrounding white space, must be a
+     * StringNumericLiteral.
+     */
+    public static Number toNumber(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && Types.isWhitespace(s.charAt(start))) {
+            ++start;
+        }
+        while (end > start && Types.isWhitespace(s.charAt(end - 1))) {
+            --end;
+        }
+        if (start == end) {
+            return 0L;
+        }
+
+        char first = s.charAt(start);
+        if (first == '0' && end - start > 2 && (s.charAt(start + 1) == 'x' || s.charAt(start + 1) == 'X')) {
+            return parseHex(s, start + 2, end);
+        }
+
+        boolean negative = first == '-';
+        int p = (first == '-' || first == '+') ? start + 1 : start;
+
+        if (end - p == 8 && s.regionMatches(p, "Infinity", 0, 8)) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        long value = 0;
+        int q = p;
+        while (q < end && q - p < MAXIMUM_LONG_DIGITS && isDigit(s.charAt(q))) {
+            value = value * 10 + (s.charAt(q++) - '0');
+        }
+        if (q == end && q > p) {
+            if (negative) {
+                return value == 0 ? (Number) (-0.0) : (Number) (-value);
+            }
+            return value;
+        }
+
+        if (p == end || scanDecimal(s, p, end) != end) {
+            return Double.NaN;
+        }
+        return decimalValue(s, p, end, negative);
+    }
+
+    /**
+     * parseFloat: the longest prefix, after white space, which is a
+     * StrDecimalLiteral.
+     */
+    public static double parseFloat(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && Types.isWhitespace(s.charAt(start))) {
+            ++start;
+        }
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        char first = s.charAt(start);
+        boolean negative = first == '-';
+        int p = (first == '-' || first == '+') ? start + 1 : start;
+
+        if (s.regionMatches(p, "Infinity", 0, 8)) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        int literalEnd = scanDecimal(s, p, end);
+        if (literalEnd == p) {
+            return Double.NaN;
+        }
+        return decimalValue(s, p, literalEnd, negative);
+    }
+
+    /**
+     * parseInt: the digits in radix which follow white space, a sign and, for
+     * radix 16 or 0 (meaning none given), a 0x prefix.
+     */
+    public static Number parseInt(String s, int radix) {
+        int end = s.length();
+        int p = 0;
+        while (p < end && Types.isWhitespace(s.charAt(p))) {
+            ++p;
+        }
+
+        int sign = 1;
+        if (p < end && (s.charAt(p) == '-' || s.charAt(p) == '+')) {
+            if (s.charAt(p) == '-') {
+                sign = -1;
+            }
+            ++p;
+        }
+
+        boolean stripPrefix = true;
+        if (radix != 0) {
+            if (radix < 2 || radix > 36) {
+                return Double.NaN;
+            }
+            stripPrefix = radix == 16;
+        } else {
+            radix = 10;
+        }
+        if (stripPrefix && p + 1 < end && s.charAt(p) == '0' && (s.charAt(p + 1) == 'x' || s.charAt(p + 1) == 'X')) {
+            p += 2;
+            radix = 16;
+        }
+
+        int start = p;
+        long value = 0;
+        boolean overflow = false;
+        while (p < end) {
+            int digit = digit(s.charAt(p), radix);
+            if (digit < 0) {
+                break;
+            }
+            if (!overflow) {
+                if (value > (Long.MAX_VALUE - digit) / radix) {
+                    overflow = true;
+                } else {
+                    value = value * radix + digit;
+                }
+            }
+            ++p;
+        }
+
+        if (p == start) {
+            return Double.NaN;
+        }
+        if (overflow) {
+            return sign * new BigInteger(s.substring(start, p), radix).doubleValue();
+        }
+        return sign * value;
+    }
+
+    /**
+     * End of the StrUnsignedDecimalLiteral (without Infinity) starting at
+     * start, or start if there is none.
+     */
+    private static int scanDecimal(String s, int start, int end) {
+        int p = start;
+        while (p < end && isDigit(s.charAt(p))) {
+            ++p;
+        }
+        boolean digits = p > start;
+
+        if (p < end && s.charAt(p) == '.') {
+            int q = p + 1;
+            while (q < end && isDigit(s.charAt(q))) {
+                ++q;
+            }
+            if (!digits && q == p + 1) {
+                return start;
+            }
+            p = q;
+        } else if (!digits) {
+            return start;
+        }
+
+        if (p < end && (s.charAt(p) == 'e' || s.charAt(p) == 'E')) {
+            int q = p + 1;
+            if (q < end && (s.charAt(q) == '+' || s.charAt(q) == '-')) {
+                ++q;
+            }
+            if (q < end && isDigit(s.charAt(q))) {
+                while (q < end && isDigit(s.charAt(q))) {
+                    ++q;
+                }
+                p = q;
+            }
+        }
+
+        return p;
+    }
+
+    /**
+     * Value of the valid StrUnsignedDecimalLiteral from start to end.
+     */
+    private static double decimalValue(String s, int start, int end, boolean negative) {
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean fraction = false;
+
+        int p = start;
+        for (; p < end; ++p) {
+            char c = s.charAt(p);
+            if (c == '.') {
+                fraction = true;
+                continue;
+            }
+            if (c == 'e' || c == 'E') {
+                break;
+            }
+            if (fraction) {
+                --exponent;
+            }
+            if (mantissa == 0 && c == '0') {
+                continue;
+            }
+            if (significant < MAXIMUM_LONG_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                ++significant;
+            } else {
+                // Too many digits for the mantissa; only its scale counts here.
+                ++exponent;
+            }
+        }
+
+        if (p < end) {
+            ++p;
+            boolean negativeExponent = false;
+            if (s.charAt(p) == '+' || s.charAt(p) == '-') {
+                negativeExponent = s.charAt(p) == '-';
+                ++p;
+            }
+            int explicit = 0;
+            for (; p < end; ++p) {
+                if (explicit < 100000) {
+                    explicit = explicit * 10 + (s.charAt(p) - '0');
+                }
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (significant <= MAXIMUM_EXACT_DIGITS && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact doubles, so the one rounding is correct.
+            value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            value = Double.parseDouble(s.substring(start, end));
+        }
+        return negative ? -value : value;
+    }
+
+    private static Number parseHex(String s, int start, int end) {
+        long value = 0;
+        for (int p = start; p < end; ++p) {
+            int digit = digit(s.charAt(p), 16);
+            if (digit < 0) {
+                return Double.NaN;
+            }
+            value = (value << 4) | digit;
+        }
+        if (end - start > MAXIMUM_LONG_HEX_DIGITS) {
+            return new BigInteger(s.substring(start, end), 16).doubleValue();
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Value of the ASCII digit c in radix, or -1.
+     */
+    private static int digit(char c, int radix) {
+        int value;
+        if (c >= '0' && c <= '9') {
+            value = c - '0';
+        } else if (c >= 'a' && c <= 'z') {
+            value = c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'Z') {
+            value = c - 'A' + 10;
+        } else {
+            return -1;
+        }
+        return value < radix ? value : -1;
+    }
+}
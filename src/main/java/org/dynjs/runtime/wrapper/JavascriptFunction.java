@@ -8,6 +8,7 @@ import org.dynjs.parser.ast.VariableDeclaration;
 import org.dynjs.runtime.AbstractFunction;
 import org.dynjs.runtime.BasicBlock;
 import org.dynjs.runtime.BasicBlockDelegate;
+import org.dynjs.runtime.CompilableBasicBlock;
 import org.dynjs.runtime.Completion;
 import org.dynjs.runtime.DynObject;
 import org.dynjs.runtime.ExecutionContext;
@@ -35,6 +36,10 @@ public class JavascriptFunction extends AbstractFunction {
                 PropertyDescriptor.newDataPropertyDescriptor(identifier, true, true, false), false);
     }
     
+    public BasicBlock getCode() {
+        return this.code;
+    }
+
     @Override
     public String getFileName() {
         return this.code.getFileName();
@@ -77,7 +82,9 @@ public class JavascriptFunction extends AbstractFunction {
         }
         buffer.append("){\n");
         Statement statement = null;
-        if (code instanceof BasicBlockDelegate && ((BasicBlockDelegate) code).getDelegate() instanceof InterpretedBasicBlock) {
+        if (code instanceof CompilableBasicBlock) {
+            statement = ((CompilableBasicBlock) code).getInitial().getBody();
+        } else if (code instanceof BasicBlockDelegate && ((BasicBlockDelegate) code).getDelegate() instanceof InterpretedBasicBlock) {
             statement = ((InterpretedBasicBlock) ((BasicBlockDelegate) code).getDelegate()).getBody();
         } else if (code instanceof InterpretedBasicBlock) {
             statement = ((InterpretedBasicBlock) code).getBody();
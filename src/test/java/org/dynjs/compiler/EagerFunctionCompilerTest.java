@@ -0,0 +1,68 @@
+package org.dynjs.compiler;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.compiler.bytecode.BytecodeBasicBlock;
+import org.dynjs.parser.ast.FunctionDeclaration;
+import org.dynjs.parser.ast.ProgramTree;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.dynjs.runtime.BasicBlock;
+import org.dynjs.runtime.wrapper.JavascriptFunction;
+import org.junit.Test;
+
+public class EagerFunctionCompilerTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.FORCE);
+        config.setParallelCompile(true);
+        return config;
+    }
+
+    @Test
+    public void testCompilingTheProgramCompilesItsFunctions() {
+        ProgramTree tree = getRuntime().newRunner()
+                .withSource("function a() { return 1; }\nfunction b() { return 2; }\nfunction c() { return 3; }\nvar d = function() { return 4; };")
+                .parseSourceCode();
+        getContext().getCompiler().compileProgram(getContext(), tree, false);
+
+        // the program has not run, so only eager compilation can have filled these in
+        assertThat(tree.getFunctionDeclarations()).hasSize(3);
+        for (FunctionDeclaration each : tree.getFunctionDeclarations()) {
+            assertThat(getContext().getBlockManager().retrieve(each.getBlock().getStatementNumber()).getCompiled()).isInstanceOf(BytecodeBasicBlock.class);
+        }
+    }
+
+    @Test
+    public void testClassesAreDefinedInSourceOrder() {
+        eval("function a() { return 1; }",
+                "function b() { function inner() { return 2; } return inner(); }",
+                "function c() { return 3; }");
+
+        assertThat(classNumberOf("a")).isLessThan(classNumberOf("b"));
+        assertThat(classNumberOf("b")).isLessThan(classNumberOf("c"));
+        assertThat(eval("b()")).isEqualTo(2L);
+    }
+
+    @Test
+    public void testNestedAndAccessorFunctions() {
+        eval("var o = { get x() { return 40; }, set x(v) { this.y = v; } };",
+                "var f = function(n) { return function(m) { return n + m; }; };",
+                "o.x = 1;",
+                "var result = f(o.x)(o.y + 1);");
+
+        assertThat(eval("result")).isEqualTo(42L);
+    }
+
+    private BasicBlock codeOf(String name) {
+        return ((JavascriptFunction) getContext().getGlobalObject().get(getContext(), name)).getCode();
+    }
+
+    private int classNumberOf(String name) {
+        String className = codeOf(name).getClass().getName();
+        return Integer.parseInt(className.substring(className.lastIndexOf("FunctionBody") + "FunctionBody".length()));
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.dynjs.compiler;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.dynjs.Config;
+import org.dynjs.compiler.bytecode.BytecodeBasicBlock;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.dynjs.runtime.CompilableBasicBlock;
+import org.dynjs.runtime.ExecutionContext;
+import org.dynjs.runtime.Types;
+import org.dynjs.runtime.wrapper.JavascriptFunction;
+import org.junit.Test;
+
+public class JITBasicBlockCompilerTest extends AbstractDynJSTestSupport {
+
+    private static final int THREADS = 8;
+    private static final int CALLS = 500;
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.JIT);
+        return config;
+    }
+
+    @Test
+    public void testHotFunctionTiersUpUnderConcurrentCalls() throws Exception {
+        eval("function hot(n) { var s = 0; for (var i = 0; i < n; ++i) { s += i; } return s; }");
+        final JavascriptFunction hot = (JavascriptFunction) getContext().getGlobalObject().get(getContext(), "hot");
+        final CompilableBasicBlock code = (CompilableBasicBlock) hot.getCode();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                results.add(pool.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        ExecutionContext context = ExecutionContext.createGlobalExecutionContext(getRuntime());
+                        start.await();
+                        int wrong = 0;
+                        for (int i = 0; i < CALLS; ++i) {
+                            Object result = context.call(hot, Types.UNDEFINED, 10);
+                            if (((Number) result).longValue() != 45L) {
+                                ++wrong;
+                            }
+                        }
+                        return wrong;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> each : results) {
+                assertThat(each.get()).isEqualTo(0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (code.getVersion() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(code.isCompilationRequested()).isTrue();
+        assertThat(code.getVersion()).isEqualTo(1);
+        assertThat(code.getDelegate()).isInstanceOf(BytecodeBasicBlock.class);
+        assertThat(getContext().call(hot, Types.UNDEFINED, 10)).isEqualTo(45L);
+    }
+
+    @Test
+    public void testInstallOnlyReplacesExpectedCode() {
+        eval("function cold() { return 42; }");
+        JavascriptFunction cold = (JavascriptFunction) getContext().getGlobalObject().get(getContext(), "cold");
+        CompilableBasicBlock code = (CompilableBasicBlock) cold.getCode();
+
+        assertThat(code.install(code.getInitial(), code.getInitial())).isTrue();
+        assertThat(code.getVersion()).isEqualTo(1);
+        assertThat(code.install(null, code.getInitial())).isFalse();
+        assertThat(code.getVersion()).isEqualTo(1);
+    }
+
+}
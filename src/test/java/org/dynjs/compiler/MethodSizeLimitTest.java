@@ -0,0 +1,114 @@
+package org.dynjs.compiler;
+
+import static me.qmx.jitescript.util.CodegenUtils.*;
+import static org.fest.assertions.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.qmx.jitescript.CodeBlock;
+import me.qmx.jitescript.JiteClass;
+
+import org.dynjs.Config;
+import org.dynjs.codegen.CodeGeneratingVisitor;
+import org.dynjs.codegen.CodeGeneratingVisitorFactory;
+import org.dynjs.compiler.bytecode.BytecodeBasicBlockCompiler;
+import org.dynjs.compiler.bytecode.MethodSizeLimit;
+import org.dynjs.parser.ast.ProgramTree;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.dynjs.runtime.BasicBlock;
+import org.dynjs.runtime.BlockManager;
+import org.dynjs.runtime.Completion;
+import org.dynjs.runtime.DynamicClassLoader;
+import org.junit.Test;
+
+import me.qmx.jitescript.internal.org.objectweb.asm.Opcodes;
+
+public class MethodSizeLimitTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.FORCE);
+        return config;
+    }
+
+    @Test
+    public void testMeasureLeavesBlockUsable() throws Exception {
+        CodeBlock block = new CodeBlock().iconst_1().ireturn();
+        assertThat(MethodSizeLimit.measure(block)).isEqualTo(2);
+
+        JiteClass cls = new JiteClass("org/dynjs/gen/MeasuredOne");
+        cls.defineDefaultConstructor();
+        cls.defineMethod("one", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, sig(int.class), block);
+        Class<?> defined = new DynamicClassLoader().define("org.dynjs.gen.MeasuredOne", cls.toBytes());
+
+        assertThat(defined.getMethod("one").invoke(null)).isEqualTo(1);
+    }
+
+    @Test
+    public void testLargeBlocksAreSplitUnderLimit() {
+        getConfig().setMaximumMethodSize(1_000);
+        BytecodeBasicBlockCompiler compiler = new BytecodeBasicBlockCompiler(getConfig(), new CodeGeneratingVisitorFactory(false));
+
+        ProgramTree tree = getRuntime().newRunner().withSource(sequentialAssignments(150)).parseSourceCode();
+        BasicBlock block = compiler.compile(getContext(), "ProgramBody", tree, false);
+        block.call(getContext());
+
+        assertThat(compiler.getMethodSizeLimit().getOversizedMethodCount()).isEqualTo(0);
+        assertThat(getContext().resolve("x149").getValue(getContext())).isEqualTo(149L);
+    }
+
+    @Test
+    public void testStatementsAreGeneratedOnceWhenSplit() {
+        getConfig().setMaximumMethodSize(1_000);
+        final AtomicInteger visitors = new AtomicInteger();
+        BytecodeBasicBlockCompiler compiler = new BytecodeBasicBlockCompiler(getConfig(), new CodeGeneratingVisitorFactory(false) {
+            @Override
+            public CodeGeneratingVisitor create(BlockManager blockManager) {
+                visitors.incrementAndGet();
+                return super.create(blockManager);
+            }
+        });
+
+        ProgramTree tree = getRuntime().newRunner().withSource(sequentialAssignments(150)).parseSourceCode();
+        compiler.compile(getContext(), "ProgramBody", tree, false).call(getContext());
+
+        assertThat(visitors.get()).isEqualTo(150);
+        assertThat(compiler.getMethodSizeLimit().getOversizedMethodCount()).isEqualTo(0);
+        assertThat(getContext().resolve("x149").getValue(getContext())).isEqualTo(149L);
+    }
+
+    @Test
+    public void testPlainBlocksAreSplitLikeTheirStatements() {
+        getConfig().setMaximumMethodSize(1_000);
+        BytecodeBasicBlockCompiler compiler = new BytecodeBasicBlockCompiler(getConfig(), new CodeGeneratingVisitorFactory(false));
+
+        ProgramTree tree = getRuntime().newRunner().withSource("{ {\n" + sequentialAssignments(150) + "} 'last'; }").parseSourceCode();
+        Completion completion = compiler.compile(getContext(), "ProgramBody", tree, false).call(getContext());
+
+        assertThat(compiler.getMethodSizeLimit().getOversizedMethodCount()).isEqualTo(0);
+        assertThat(completion.value).isEqualTo("last");
+        assertThat(getContext().resolve("x149").getValue(getContext())).isEqualTo(149L);
+    }
+
+    @Test
+    public void testUnsplittableStatementsAreReported() {
+        getConfig().setMaximumMethodSize(10);
+        BytecodeBasicBlockCompiler compiler = new BytecodeBasicBlockCompiler(getConfig(), new CodeGeneratingVisitorFactory(false));
+
+        ProgramTree tree = getRuntime().newRunner().withSource("var result = 1 + 2 + 3 + 4;").parseSourceCode();
+        compiler.compile(getContext(), "ProgramBody", tree, false).call(getContext());
+
+        assertThat(compiler.getMethodSizeLimit().getOversizedMethodCount()).isGreaterThan(0);
+        assertThat(getContext().resolve("result").getValue(getContext())).isEqualTo(10L);
+    }
+
+    private String sequentialAssignments(int count) {
+        StringBuilder source = new StringBuilder("var x0 = 0;\n");
+        for (int i = 1; i < count; ++i) {
+            source.append("var x").append(i).append(" = x").append(i - 1).append(" + 1;\n");
+        }
+        return source.toString();
+    }
+
+}
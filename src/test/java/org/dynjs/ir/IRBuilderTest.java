@@ -0,0 +1,97 @@
+package org.dynjs.ir;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.junit.Test;
+
+public class IRBuilderTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        return config;
+    }
+
+    @Test
+    public void testRecursionAndClosures() {
+        check("function fib(n) { return n < 2 ? n : fib(n - 1) + fib(n - 2); }" +
+              "var counter = (function() { var c = 0; return function() { return ++c; }; })();" +
+              "counter();" +
+              "var result = fib(15) + ':' + counter();", "610:2");
+    }
+
+    @Test
+    public void testLoopsWithLabels() {
+        check("var result = '';" +
+              "outer: for (var a = 0; a < 3; a++) {" +
+              "  for (var b = 0; b < 3; b++) {" +
+              "    if (b == 1) continue outer;" +
+              "    if (a == 2) break outer;" +
+              "    result += a + '' + b + ' ';" +
+              "  }" +
+              "}" +
+              "var i = 0; do { i++; } while (i < 5);" +
+              "while (true) { if (i++ > 7) break; }" +
+              "result += i;", "00 10 9");
+    }
+
+    @Test
+    public void testForInAndSwitch() {
+        check("var result = [];" +
+              "for (var k in { x: 1, y: 2 }) result.push(k);" +
+              "switch (3) { case 1: result.push('one'); case 3: result.push('three');" +
+              "  case 4: result.push('four'); break; default: result.push('default'); }" +
+              "result = result.join(',');", "x,y,three,four");
+    }
+
+    @Test
+    public void testTryCatchFinally() {
+        check("var result = [];" +
+              "function f() { try { return 1; } finally { result.push('f1'); } }" +
+              "function g() { try { throw new Error('e'); } finally { result.push('f2'); } }" +
+              "result.push(f());" +
+              "try { g(); } catch (e) { result.push(e.message); }" +
+              "try { null.foo; } catch (e) { result.push(e instanceof TypeError); }" +
+              "result = result.join(',');", "f1,1,f2,e,true");
+    }
+
+    @Test
+    public void testObjectLiteralAccessors() {
+        check("var o = { a: 1, get b() { return this.a + 1; }, set c(v) { this.a = v; } };" +
+              "o.c = 5;" +
+              "var result = o.b;", 6L);
+    }
+
+    @Test
+    public void testWithEvalAndArguments() {
+        check("function g(x) { arguments[0] = 9; return x; }" +
+              "function h() { var q = 1; eval('q = 2'); return q; }" +
+              "var result;" +
+              "with ({ z: 40 }) { result = z + g(1) - 7 + h(); }", 44L);
+    }
+
+    @Test
+    public void testOperators() {
+        check("var x = 5; x += 2; x <<= 1;" +
+              "var result = [x, x++, ++x, -x, ~x, !x, typeof nothing, typeof x, 7 % 3, 1 / 2, 'a' + 1," +
+              "  delete x, 1 in [1, 2], 3 >>> 1, 5 & 3, 5 | 3, 5 ^ 3, null == undefined, null === undefined].join();",
+              "14,14,16,-16,-17,false,undefined,number,1,0.5,a1,false,true,1,1,7,6,true,false");
+    }
+
+    @Test
+    public void testNamedFunctionExpression() {
+        check("var fact = function me(n) { return n <= 1 ? 1 : n * me(n - 1); };" +
+              "function Point(x) { this.x = x; }" +
+              "Point.prototype.get = function() { return this.x; };" +
+              "var result = fact(5) + new Point(4).get();", 124L);
+    }
+
+    @Test
+    public void testProgramCompletionValue() {
+        Object value = eval("var a = 1;", "a + 2;");
+        assertThat(value).isEqualTo(3L);
+    }
+}
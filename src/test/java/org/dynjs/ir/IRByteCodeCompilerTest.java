@@ -0,0 +1,29 @@
+package org.dynjs.ir;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.runtime.JSFunction;
+import org.junit.Test;
+
+/**
+ * Runs everything IRBuilderTest does through code compiled from the IR.
+ */
+public class IRByteCodeCompilerTest extends IRBuilderTest {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IRC);
+        return config;
+    }
+
+    @Test
+    public void testFunctionsAreCompiled() {
+        eval("function add(a, b) { return a + b; }");
+
+        IRJSFunction add = (IRJSFunction) getContext().resolve("add").getValue(getContext());
+        assertThat(add.getFunctionScope().getCompiled()).isNotNull();
+        assertThat(getContext().call((JSFunction) add, getContext().getGlobalObject(), 1L, 2L)).isEqualTo(3L);
+    }
+}
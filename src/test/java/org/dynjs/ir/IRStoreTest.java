@@ -0,0 +1,104 @@
+package org.dynjs.ir;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import org.dynjs.Config;
+import org.dynjs.ir.instructions.ExceptionRegionEndMarker;
+import org.dynjs.ir.instructions.ExceptionRegionStartMarker;
+import org.dynjs.ir.instructions.LabelInstr;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IRStoreTest extends AbstractDynJSTestSupport {
+    private static final String PROGRAM =
+            "var result = [];" +
+            "var counter = (function() { var c = 0; return function next() { return ++c; }; })();" +
+            "outer: for (var a = 0; a < 3; a++) { for (var b in {x: 1, y: 2}) { if (a == 2) break outer; result.push(a + b); } }" +
+            "try { null.foo; } catch (e) { result.push(e instanceof TypeError); } finally { result.push(counter()); }" +
+            "with ({w: 'w'}) { result.push(w); }" +
+            "result.push(typeof undefined, /a+/g.source, -1.5, 'tab\\t\\ud800', [1, , 3].length, {get g() { return 'g'; }}.g);" +
+            "result = result.join(',');";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        return config;
+    }
+
+    @Test
+    public void testScopesReadBackAsWritten() throws Exception {
+        Scope scope = Builder.build(getContext(), getRuntime().newRunner().withSource(PROGRAM).parseSourceCode());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new IRWriter(out).write(scope);
+
+        Scope read = new IRReader(out.toByteArray()).read(scope.getPassManager());
+
+        assertThat(dump(read)).isEqualTo(dump(scope));
+        assertThat(read.getLocalVariableSize()).isEqualTo(scope.getLocalVariableSize());
+        assertThat(read.getTemporaryVariableSize()).isEqualTo(scope.getTemporaryVariableSize());
+        assertThat(read.getChildren().get(0).getChildren().get(0).getSelfName()).isEqualTo("next");
+    }
+
+    @Test
+    public void testProgramsAreLoadedFromTheStore() throws Exception {
+        File store = folder.newFolder("store");
+        getConfig().setIRStore(store.getPath());
+
+        check(PROGRAM, "0x,0y,1x,1y,true,1,w,undefined,a+,-1.5,tab\t\ud800,3,g");
+        check(PROGRAM, "0x,0y,1x,1y,true,1,w,undefined,a+,-1.5,tab\t\ud800,3,g");
+        assertThat(store.list()).hasSize(1);
+
+        // Only the stored IR is used: make the entry of one program that of another
+        File entry = store.listFiles()[0];
+        check("var result = 'other';", "other");
+        File other = store.listFiles()[0].equals(entry) ? store.listFiles()[1] : store.listFiles()[0];
+        Files.copy(other.toPath(), entry.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        check(PROGRAM, "other");
+    }
+
+    @Test
+    public void testUnreadableEntriesAreRebuilt() throws Exception {
+        File store = folder.newFolder("store");
+        getConfig().setIRStore(store.getPath());
+
+        check("var result = 6 * 7;", 42L);
+        Files.write(store.listFiles()[0].toPath(), new byte[] { 1, 2, 3 });
+
+        check("var result = 6 * 7;", 42L);
+    }
+
+    private static String dump(Scope scope) {
+        StringBuilder buf = new StringBuilder();
+
+        buf.append(scope.getFileName()).append(' ').append(scope.isStrict()).append(' ')
+           .append(scope.usesEnvironment()).append(' ').append(scope.getVariableDeclarations().size()).append('\n');
+        for (Instruction instruction : scope.getInstructions()) {
+            if (instruction instanceof LabelInstr) {
+                buf.append(((LabelInstr) instruction).getLabel());
+            } else if (instruction instanceof ExceptionRegionStartMarker) {
+                buf.append("region ").append(((ExceptionRegionStartMarker) instruction).getLabel());
+            } else if (instruction instanceof ExceptionRegionEndMarker) {
+                buf.append("end region");
+            } else {
+                buf.append(instruction);
+            }
+            buf.append('\n');
+        }
+        for (FunctionScope child : scope.getChildren()) {
+            buf.append(child.getName()).append(' ').append(child.getParameterNames().length).append(" {\n");
+            buf.append(dump(child)).append("}\n");
+        }
+
+        return buf.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package org.dynjs.ir;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.ir.instructions.CallMethod;
+import org.dynjs.ir.instructions.PropertyAssign;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.dynjs.runtime.DynJS;
+import org.dynjs.runtime.DynObject;
+import org.dynjs.runtime.Types;
+import org.junit.Test;
+
+/**
+ * Property instructions answered from their inline caches by the IR interpreter.
+ */
+public class PropertyCacheTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        // so caches count their hits
+        config.setIRCacheReport(true);
+        return config;
+    }
+
+    @Test
+    public void testShapesAreShared() {
+        DynObject a = (DynObject) eval("({x: 1, y: 2})");
+        DynObject b = (DynObject) eval("var b = {x: 3}; b.y = 4; b");
+
+        assertThat(a.getShape()).isNotNull();
+        assertThat(a.getShape()).isSameAs(b.getShape());
+
+        eval("delete b.x; b.x = 5");
+        assertThat(b.getShape()).isNull();
+        check("var result = Object.keys(b).join(',') + b.x + b.y;", "y,x54");
+    }
+
+    @Test
+    public void testWidelyBranchingLayoutsKeepShapes() {
+        for (int i = 0; i < 40; i++) {
+            eval("({k" + i + ": 1})");
+        }
+
+        DynObject a = (DynObject) eval("({fresh: 1, y: 2})");
+        DynObject b = (DynObject) eval("var b = {}; b.fresh = 3; b.y = 4; b");
+
+        assertThat(a.getShape()).isNotNull();
+        assertThat(a.getShape()).isSameAs(b.getShape());
+
+        // Objects of another runtime have layouts of their own
+        DynObject other = (DynObject) new DynJS(createConfig()).evaluate("({fresh: 1, y: 2})");
+        assertThat(other.getShape()).isNotNull();
+        assertThat(other.getShape()).isNotSameAs(a.getShape());
+    }
+
+    @Test
+    public void testOwnProperties() {
+        eval("function get(o) { return o.x; }",
+             "function put(o, v) { o.x = v; }",
+             "var o = {x: 1}, total = 0;",
+             "for (var i = 0; i < 10; i++) { put(o, i); total += get(o); }");
+
+        check("var result = total;", 45L);
+        assertThat(cacheOf("get", PropertyLookup.class).getHits()).isGreaterThan(0);
+        assertThat(cacheOf("put", PropertyAssign.class).getHits()).isGreaterThan(0);
+
+        check("var result = get({y: 1, x: 'other'});", "other");
+        check("var result = get({});", Types.UNDEFINED);
+    }
+
+    @Test
+    public void testPrototypeChanges() {
+        eval("var base = {m: function() { return 'base'; }};",
+             "var derived = Object.create(base);",
+             "function call(o) { return o.m(); }",
+             "var seen = [];",
+             "for (var i = 0; i < 3; i++) { seen.push(call(derived)); }",
+             "base.m = function() { return 'replaced'; }; seen.push(call(derived));",
+             "derived.m = function() { return 'own'; }; seen.push(call(derived));",
+             "delete derived.m; seen.push(call(derived));",
+             "Object.defineProperty(base, 'm', {get: function() { return function() { return 'getter'; }; }});",
+             "seen.push(call(derived));");
+
+        check("var result = seen.join(',');", "base,base,base,replaced,own,replaced,getter");
+        assertThat(cacheOf("call", CallMethod.class).getHits()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testReadOnlyProperties() {
+        eval("function put(o, v) { o.x = v; return o.x; }",
+             "var o = {x: 1};",
+             "put(o, 2); put(o, 3);",
+             "Object.freeze(o);");
+
+        check("var result = put(o, 4);", 3L);
+    }
+
+    private PropertyCache cacheOf(String name, Class<? extends Instruction> type) {
+        Scope scope = ((IRJSFunction) getContext().resolve(name).getValue(getContext())).getFunctionScope();
+
+        for (Instruction instruction : scope.getInstructions()) {
+            if (instruction instanceof PropertyLookup && type == PropertyLookup.class) {
+                return ((PropertyLookup) instruction).getCache();
+            } else if (instruction instanceof PropertyAssign && type == PropertyAssign.class) {
+                return ((PropertyAssign) instruction).getCache();
+            } else if (instruction instanceof CallMethod && type == CallMethod.class) {
+                return ((CallMethod) instruction).getCache();
+            }
+        }
+
+        throw new AssertionError("no " + type.getSimpleName() + " in " + name);
+    }
+}
@@ -0,0 +1,77 @@
+package org.dynjs.ir.passes;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.ir.IRJSFunction;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.instructions.ArrayLiteral;
+import org.dynjs.ir.instructions.ObjectLiteral;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.junit.Test;
+
+public class EscapeAnalysisTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        return config;
+    }
+
+    @Test
+    public void testLocalObjectsAreNotAllocated() {
+        eval("function f(a, b) { var p = {x: a, y: b}; var q = p; q.x = p.x + 1; return p.x * p['y']; }");
+
+        assertThat(literals("f")).isEqualTo(0);
+        check("var result = f(2, 3);", 9L);
+    }
+
+    @Test
+    public void testLocalArraysAreNotAllocated() {
+        eval("function f(a) { var v = [a, a + 1, 2]; v[2] = v[0] + v[1]; return v[2] + v.length; }");
+
+        assertThat(literals("f")).isEqualTo(0);
+        check("var result = f(4);", 12L);
+    }
+
+    @Test
+    public void testLiteralsInLoopsAreNotAllocated() {
+        eval("function f(n) { var t = 0; for (var i = 0; i < n; i++) { var p = {x: i, y: 2}; t += p.x * p.y; } return t; }");
+
+        assertThat(literals("f")).isEqualTo(0);
+        check("var result = f(10);", 90L);
+    }
+
+    @Test
+    public void testEscapingLiteralsAreAllocated() {
+        eval("function returned(a) { var p = {x: a}; return p; }",
+             "function inherited(a) { var p = {x: a}; return p.toString(); }",
+             "function captured(a) { var p = {x: a}; var f = function() { return p.x; }; p.x = 5; return f(); }",
+             "function stored(a) { var p = {x: a}; var q = {p: p}; return q.p.x; }",
+             "function getter(a) { var p = {get x() { return a; }}; return p.x; }",
+             "function holes(a) { var v = [a, , 3]; return v[1]; }",
+             "function early() { var s = 0; for (var i = 0; i < 3; i++) { if (i > 0) s += p.x; var p = {x: i}; } return s; }");
+
+        assertThat(literals("returned")).isEqualTo(1);
+        assertThat(literals("inherited")).isEqualTo(1);
+        assertThat(literals("captured")).isEqualTo(1);
+        assertThat(literals("stored")).isEqualTo(1);
+        assertThat(literals("getter")).isEqualTo(1);
+        assertThat(literals("holes")).isEqualTo(1);
+        assertThat(literals("early")).isEqualTo(1);
+        check("var result = returned(1).x + inherited(1) + captured(1) + stored(8) + getter(4) + holes(1) + early();",
+                "1[object Object]584undefined1");
+    }
+
+    private int literals(String name) {
+        IRJSFunction function = (IRJSFunction) getContext().resolve(name).getValue(getContext());
+        int literals = 0;
+
+        for (Instruction instruction : function.getFunctionScope().prepareForInterpret()) {
+            if (instruction instanceof ObjectLiteral || instruction instanceof ArrayLiteral) literals++;
+        }
+
+        return literals;
+    }
+}
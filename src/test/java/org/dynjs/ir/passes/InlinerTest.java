@@ -0,0 +1,105 @@
+package org.dynjs.ir.passes;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.ir.IRJSFunction;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.instructions.InlineGuard;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.junit.Test;
+
+public class InlinerTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        config.setIRInlineThreshold(5);
+        return config;
+    }
+
+    @Test
+    public void testMethodsAreInlined() {
+        eval("function P(x) { this.x = x; }",
+             "P.prototype.getX = function() { return this.x; };",
+             "function work(p) { var s = 0; for (var i = 0; i < 10; i++) { s += p.getX(); } return s; }",
+             "var total = 0;",
+             "for (var j = 0; j < 10; j++) { total += work(new P(j)); }");
+
+        check("var result = total;", 450L);
+        assertThat(guards("work")).isEqualTo(1);
+
+        // A different method of the same name takes the real call
+        check("var result = work({getX: function() { return 'a'; }});", "0aaaaaaaaaa");
+        check("var result = work(new P(2));", 20L);
+    }
+
+    @Test
+    public void testFunctionsAreInlined() {
+        eval("var work = (function() {",
+             "  var add = function(a, b) { var c = a + b; return c; };",
+             "  var work = function(n) { return add(n, 1) * add(n, 2); };",
+             "  work.replace = function(f) { add = f; };",
+             "  return work;",
+             "})();",
+             "var total = 0;",
+             "for (var j = 0; j < 10; j++) { total += work(j); }");
+
+        check("var result = total;", 440L);
+        assertThat(guards("work")).isEqualTo(2);
+
+        check("work.replace(function(a, b) { return 'x'; }); var result = work(1);", Double.NaN);
+    }
+
+    @Test
+    public void testHotCallsOfScopesEnteredOnceAreInlined() {
+        eval("var work = (function() {",
+             "  var add = function(a, b) { return a + b; };",
+             "  return function(n) { var s = 0; for (var i = 0; i < n; i++) { s = add(s, i); } return s; };",
+             "})();",
+             "var total = work(10);");
+
+        check("var result = total;", 45L);
+        assertThat(guards("work")).isEqualTo(0);
+
+        // The call ran often enough during that one execution to be inlined on the next
+        check("var result = work(4);", 6L);
+        assertThat(guards("work")).isEqualTo(1);
+    }
+
+    @Test
+    public void testColdCallsAreNotInlined() {
+        eval("var work = (function() {",
+             "  var add = function(a, b) { return a + b; };",
+             "  return function(n) { var s = n; if (n == 3) { s = add(n, 1); } return s; };",
+             "})();",
+             "var total = 0;",
+             "for (var j = 0; j < 20; j++) { total += work(j); }");
+
+        check("var result = total;", 191L);
+        assertThat(guards("work")).isEqualTo(0);
+    }
+
+    @Test
+    public void testLargeOrPolymorphicCalleesAreNotInlined() {
+        eval("function one() { return 1; }",
+             "function two() { return 2; }",
+             "function work(f) { return f(); }",
+             "for (var j = 0; j < 10; j++) { work(j % 2 ? one : two); }");
+
+        check("var result = work(one);", 1L);
+        assertThat(guards("work")).isEqualTo(0);
+    }
+
+    private int guards(String name) {
+        IRJSFunction function = (IRJSFunction) getContext().resolve(name).getValue(getContext());
+        int guards = 0;
+
+        for (Instruction instruction : function.getFunctionScope().prepareForInterpret()) {
+            if (instruction instanceof InlineGuard) guards++;
+        }
+
+        return guards;
+    }
+}
@@ -0,0 +1,130 @@
+package org.dynjs.ir.passes;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.List;
+import org.dynjs.Config;
+import org.dynjs.ir.IRJSFunction;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.Operation;
+import org.dynjs.ir.instructions.LoadName;
+import org.dynjs.ir.instructions.PropertyLookup;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.junit.Test;
+
+public class LoopInvariantCodeMotionTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        // so caches count their hits
+        config.setIRCacheReport(true);
+        return config;
+    }
+
+    @Test
+    public void testNestedLoopsAreFound() {
+        eval("function f(n) { var r = 0; for (var i = 0; i < n; i++) { for (var j = 0; j < i; j++) { r += j; } } return r; }");
+
+        CFG cfg = cfgOf("f");
+        List<LoopAnalysis.Loop> loops = new LoopAnalysis(cfg).getLoops();
+
+        assertThat(loops).hasSize(2);
+        assertThat(loops.get(1).getBlocks().containsAll(loops.get(0).getBlocks())).isTrue();
+        assertThat(loops.get(1).contains(loops.get(0).getHeader())).isTrue();
+        check("var result = f(5);", 10L);
+    }
+
+    @Test
+    public void testInvariantInstructionsAreHoisted() {
+        eval("function f(a, b) { var n = 0; for (var i = 0; i < 3; i++) { if (a === b) n++; } return n; }");
+
+        CFG cfg = cfgOf("f");
+        LoopAnalysis.Loop loop = new LoopAnalysis(cfg).getLoops().get(0);
+        int inLoop = 0;
+        int outside = 0;
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                if (instruction.getOperation() != Operation.STRICT_EQUAL) continue;
+
+                if (loop.contains(bb)) {
+                    inLoop++;
+                } else {
+                    outside++;
+                }
+            }
+        }
+
+        assertThat(inLoop).isEqualTo(0);
+        assertThat(outside).isEqualTo(1);
+        check("var result = f(1, 1) + ':' + f(1, 2);", "3:0");
+    }
+
+    @Test
+    public void testInvariantLoadsAreMarked() {
+        eval("var k = 3;",
+             "function sum(arr) { var s = 0; for (var i = 0; i < arr.length; i++) { s += arr[i] * k; } return s; }");
+
+        int invariant = 0;
+        int names = 0;
+        for (BasicBlock bb : cfgOf("sum").getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                if (instruction instanceof PropertyLookup && ((PropertyLookup) instruction).isInvariant()) invariant++;
+                if (instruction instanceof LoadName) names++;
+            }
+        }
+
+        assertThat(invariant).isEqualTo(1);
+        assertThat(names).isEqualTo(1);
+        check("var result = sum([1, 2, 3]);", 18L);
+    }
+
+    @Test
+    public void testLoadsSeeChangesMadeInTheLoop() {
+        eval("var k = 1;",
+             "function names() { var t = 0; for (var i = 0; i < 4; i++) { t += k; k = k * 2; } return t; }",
+             "function grow(a) { var n = 0; for (var i = 0; i < a.length && n < 10; i++) { if (i == 0) a.push(0); n++; } return n; }",
+             "function getter(o) { var t = []; for (var i = 0; i < 3; i++) { t.push(o.v); } return t.join(); }",
+             "function closure() { var x = 1, r = 0; function bump() { x++; } for (var i = 0; i < 4; i++) { r += x; bump(); } return r; }");
+
+        check("var result = names();", 15L);
+        check("var result = grow([1, 2]);", 3L);
+        check("var result = getter({c: 0, get v() { return this.c++; }});", "0,1,2");
+        check("var result = closure();", 10L);
+    }
+
+    @Test
+    public void testNameLoadsSeeNewAndChangedBindings() {
+        eval("var k = 3;",
+             "var g = this;",
+             "g.m = 3;",
+             "function shadowed() { var r = []; for (var i = 0; i < 2; i++) { r.push(k); if (i == 0) eval('var k = 5'); } return r.join(); }",
+             "function replaced() { var r = []; for (var i = 0; i < 2; i++) { r.push(m); if (i == 0) { delete g.m; g.m = 7; } } return r.join(); }");
+
+        check("var result = shadowed();", "3,5");
+        check("var result = replaced();", "3,7");
+    }
+
+    @Test
+    public void testUnrelatedStoresKeepNameLoadsCached() {
+        eval("var k = 2;",
+             "function store(o) { var t = 0; for (var i = 0; i < 100; i++) { t += k; o.x = i; } return t; }");
+        check("var result = store({});", 200L);
+
+        long hits = 0;
+        for (BasicBlock bb : cfgOf("store").getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                if (instruction instanceof LoadName) hits += ((LoadName) instruction).getCache().getHits();
+            }
+        }
+
+        assertThat(hits).isEqualTo(99L);
+    }
+
+    private CFG cfgOf(String name) {
+        return ((IRJSFunction) getContext().resolve(name).getValue(getContext())).getFunctionScope().getCFG();
+    }
+}
@@ -0,0 +1,71 @@
+package org.dynjs.ir.passes;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.ir.IRJSFunction;
+import org.dynjs.ir.Instruction;
+import org.dynjs.ir.instructions.BinaryInstr;
+import org.dynjs.ir.instructions.Branch;
+import org.dynjs.ir.representations.BasicBlock;
+import org.dynjs.ir.representations.CFG;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.dynjs.runtime.JSFunction;
+import org.junit.Test;
+
+public class PassManagerTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        return config;
+    }
+
+    @Test
+    public void testConstantsAreFoldedAndDeadCodeRemoved() {
+        eval("function f(a) { var x = (2 * 3 + 4) << 1; if (1 < 2) { return x + a; } return 'never'; }");
+
+        IRJSFunction f = (IRJSFunction) getContext().resolve("f").getValue(getContext());
+        CFG cfg = f.getFunctionScope().getCFG();
+
+        int binaries = 0;
+        for (BasicBlock bb : cfg.getBasicBlocks()) {
+            for (Instruction instruction : bb.getInstructions()) {
+                assertThat(instruction instanceof Branch).isFalse();
+                if (instruction instanceof BinaryInstr) binaries++;
+            }
+        }
+
+        // Only x + a is left
+        assertThat(binaries).isEqualTo(1);
+        assertThat(getContext().call((JSFunction) f, getContext().getGlobalObject(), 1L)).isEqualTo(21L);
+    }
+
+    @Test
+    public void testNothingIsFoldedWhichCouldCallBack() {
+        check("var o = { valueOf: function() { return 4; } };" +
+              "var result = (o * 2) + ':' + ('a' + 1) + ':' + (1 / 0) + ':' + (null === undefined);",
+              "8:a1:Infinity:false");
+    }
+
+    @Test
+    public void testWithoutPasses() {
+        getConfig().setIRPasses("");
+        check("var result = (function() { var x = 2 * 3; if (x > 5) return x; return 0; })();", 6L);
+    }
+
+    @Test
+    public void testPassesAreCreatedInOrder() {
+        PassManager manager = PassManager.create(" constprop, dce ", false);
+
+        assertThat(manager.getPasses()).hasSize(2);
+        assertThat(manager.getPasses().get(0).getLabel()).isEqualTo("constprop");
+        assertThat(manager.getPasses().get(1).getLabel()).isEqualTo("dce");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPass() {
+        PassManager.create("constprop,nonsense", false);
+    }
+}
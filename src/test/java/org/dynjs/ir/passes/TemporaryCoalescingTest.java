@@ -0,0 +1,54 @@
+package org.dynjs.ir.passes;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.dynjs.ir.FunctionScope;
+import org.dynjs.ir.IRJSFunction;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.junit.Test;
+
+public class TemporaryCoalescingTest extends AbstractDynJSTestSupport {
+    private static final String SUM =
+            "function sum(o) { var s = 0; s += o.a * 2; s += o.b * 3; s += o.c * 4; s += o.d * 5; return s; }";
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IR);
+        return config;
+    }
+
+    @Test
+    public void testTemporariesShareOffsets() {
+        getConfig().setIRPasses("constprop,copyprop,dce,unreachable");
+        int uncoalesced = temporariesOf(SUM);
+
+        getConfig().setIRPasses(PassManager.DEFAULT_PASSES);
+        int coalesced = temporariesOf(SUM);
+
+        assertThat(coalesced).isLessThan(uncoalesced);
+        check(SUM + "var result = sum({ a: 1, b: 2, c: 3, d: 4 });", 40L);
+    }
+
+    @Test
+    public void testValuesLiveAcrossLoopsAndHandlers() {
+        check("var result = (function(n) {" +
+              "  var parts = [];" +
+              "  for (var i = 0; i < n; i++) {" +
+              "    var x = i * 2, y = x + 1;" +
+              "    try { if (i == 1) throw y; parts.push(x + ':' + y); } catch (e) { parts.push('e' + e); }" +
+              "  }" +
+              "  return parts.join(',') + (n > 2 ? '!' : '?');" +
+              "})(3);", "0:1,e3,4:5!");
+    }
+
+    private int temporariesOf(String source) {
+        eval(source);
+
+        FunctionScope scope = ((IRJSFunction) getContext().resolve("sum").getValue(getContext())).getFunctionScope();
+        scope.getCFG();
+
+        return scope.getTemporaryVariableSize();
+    }
+}
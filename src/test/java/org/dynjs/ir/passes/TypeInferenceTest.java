@@ -0,0 +1,79 @@
+package org.dynjs.ir.passes;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.dynjs.Config;
+import org.dynjs.ir.IRJSFunction;
+import org.dynjs.ir.Scope;
+import org.dynjs.ir.ValueType;
+import org.dynjs.runtime.AbstractDynJSTestSupport;
+import org.junit.Test;
+
+/**
+ * Runs code on unboxed temporaries compiled by IRByteCodeCompiler.
+ */
+public class TypeInferenceTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.IRC);
+        return config;
+    }
+
+    @Test
+    public void testIntegers() {
+        eval("function ints(a, b) {" +
+             "  var x = a | 0, y = b | 0;" +
+             "  return [x * y | 0, (x * y) >>> 0, x << 33, -1 >>> 0, (x - y) >> 1, ~x, x ^ y, (x & 0xff) + (y | 7)].join(',');" +
+             "}");
+
+        assertThat(typesOf("ints")).contains(ValueType.INTEGER);
+        check("var result = ints(65536, 65536);", "0,0,131072,4294967295,0,-65537,0,65543");
+        check("var result = ints(-7, 3);", "-21,4294967275,-14,4294967295,-5,6,-6,256");
+    }
+
+    @Test
+    public void testFloats() {
+        eval("function floats(a, b) {" +
+             "  var h = a * 0.5, n = b * 1.5;" +
+             "  return [h < (b | 0), h >= 3, n < 1, n >= 1, n == n, 1 / (a * -0.0), h + 0.25, h - (a | 0)].join(',');" +
+             "}");
+
+        assertThat(typesOf("floats")).contains(ValueType.FLOAT);
+        check("var result = floats(5, undefined);", "false,false,false,false,false,-Infinity,2.75,-2.5");
+        check("var result = floats(-4, 2);", "true,false,false,true,true,Infinity,-1.75,2");
+    }
+
+    @Test
+    public void testBooleans() {
+        eval("function bools(a, b) {" +
+             "  var lt = (a | 0) < (b | 0), eq = (a | 0) === (b | 0);" +
+             "  return [lt, !lt, eq, lt == eq, lt !== eq, (a | 0) > 2 ? 'big' : 'small', ('s' + (a | 0)) + typeof (a | 0)].join(',');" +
+             "}");
+
+        assertThat(typesOf("bools")).contains(ValueType.BOOLEAN, ValueType.STRING);
+        check("var result = bools(1, 2);", "true,false,false,false,true,small,s1number");
+        check("var result = bools(3, 3);", "false,true,true,false,true,big,s3number");
+    }
+
+    @Test
+    public void testLoop() {
+        check("var result = (function(n) {" +
+              "  var sum = 0;" +
+              "  for (var i = 0; i < n; i++) { sum = (sum + (i * 31 & 0xffff)) | 0; }" +
+              "  return sum;" +
+              "})(1000);", 15484500L);
+    }
+
+    private List<ValueType> typesOf(String name) {
+        Scope scope = ((IRJSFunction) getContext().resolve(name).getValue(getContext())).getFunctionScope();
+
+        assertThat(scope.getCompiled()).isNotNull();
+
+        return Arrays.asList(scope.getTemporaryTypes());
+    }
+}
@@ -63,4 +63,33 @@ public class AdditiveExpressionTest extends AbstractDynJSTestSupport {
     public void testAddIntegerAndString() {
         assertThat( eval( "42 + 'foo'") ).isEqualTo("42foo" );
     }
+
+    @Test
+    public void testAppendInLoop() {
+        eval("var s = ''; for (var i = 0; i < 2000; ++i) { s += 'ab' + i + ','; }",
+             "var t = ''; for (var i = 0; i < 2000; ++i) { t += 'ab' + i + ','; }");
+        assertThat(eval("typeof s")).isEqualTo("string");
+        assertThat(eval("s.length")).isEqualTo(12890L);
+        assertThat(eval("s.substring(0, 12)")).isEqualTo("ab0,ab1,ab2,");
+        assertThat(eval("[s == t, s === t, s < t + 'x', s === t + 'x', !!s].join()")).isEqualTo("true,true,true,false,true");
+        assertThat(eval("var o = {}; o[s] = 42; o[t]")).isEqualTo(42L);
+        assertThat(eval("s.split(',').length")).isEqualTo(2001L);
+        assertThat(eval("s")).isInstanceOf(String.class);
+    }
+
+    @Test
+    public void testPrependInLoop() {
+        eval("var s = 'x'; for (var i = 0; i < 2000; ++i) { s = i % 10 + s; }");
+        assertThat(eval("s.length")).isEqualTo(2001L);
+        assertThat(eval("s.slice(-4)")).isEqualTo("210x");
+    }
+
+    @Test
+    public void testLongStringFromToString() {
+        eval("var long = ''; for (var i = 0; i < 100; ++i) { long += 'abcdef'; }",
+             "var obj = { toString: function() { return long + long; } }");
+        assertThat(eval("('' + obj).length")).isEqualTo(1200L);
+        assertThat(eval("String(obj).length")).isEqualTo(1200L);
+        assertThat(eval("var r; switch (long + '!') { case long + '!': r = 'matched'; break; default: r = 'missed'; } r")).isEqualTo("matched");
+    }
 }
@@ -0,0 +1,106 @@
+package org.dynjs.runtime;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.dynjs.runtime.BlockManager.Entry;
+import org.junit.Test;
+
+public class BlockManagerTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        BlockManager blockManager = new BlockManager();
+
+        Entry first = blockManager.retrieve(42);
+        Entry second = blockManager.retrieve(42);
+
+        assertThat(second).isSameAs(first);
+        assertThat(blockManager.getMissCount()).isEqualTo(1);
+        assertThat(blockManager.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRetainedEntriesAreBounded() {
+        BlockManager blockManager = new BlockManager(10);
+
+        for (int i = 0; i < 100; ++i) {
+            blockManager.retrieve(i);
+        }
+
+        assertThat(blockManager.getEvictionCount()).isEqualTo(90);
+    }
+
+    @Test
+    public void testEvictedEntriesAreCollected() {
+        BlockManager blockManager = new BlockManager(0);
+
+        for (int i = 0; i < 100; ++i) {
+            blockManager.retrieve(i);
+        }
+        for (int i = 0; i < 100; ++i) {
+            blockManager.clearReference(i);
+        }
+
+        assertThat(blockManager.size()).isEqualTo(0);
+        assertThat(blockManager.getCollectedCount()).isEqualTo(100);
+    }
+
+    @Test
+    public void testCollectedEntriesAreRecompiled() {
+        BlockManager blockManager = new BlockManager(0);
+
+        Entry first = blockManager.retrieve(1);
+        blockManager.clearReference(1);
+        Entry second = blockManager.retrieve(1);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(blockManager.getMissCount()).isEqualTo(2);
+        assertThat(blockManager.getCollectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReferencedEntriesSurviveEviction() {
+        BlockManager blockManager = new BlockManager(0);
+
+        Entry pinned = blockManager.retrieve(1);
+        for (int i = 2; i < 100; ++i) {
+            blockManager.retrieve(i);
+            blockManager.clearReference(i);
+        }
+
+        assertThat(blockManager.getEvictionCount()).isEqualTo(99);
+        assertThat(blockManager.retrieve(1)).isSameAs(pinned);
+        assertThat(blockManager.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentRetrievalYieldsSingleEntry() throws Exception {
+        final BlockManager blockManager = new BlockManager();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Entry>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; ++i) {
+                futures.add(executor.submit(new Callable<Entry>() {
+                    public Entry call() {
+                        return blockManager.retrieve(7);
+                    }
+                }));
+            }
+            Entry expected = futures.get(0).get();
+            for (Future<Entry> each : futures) {
+                assertThat(each.get()).isSameAs(expected);
+            }
+            assertThat(blockManager.getMissCount()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
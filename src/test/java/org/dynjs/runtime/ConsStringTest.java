@@ -0,0 +1,59 @@
+package org.dynjs.runtime;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.junit.Test;
+
+public class ConsStringTest {
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testShortConcatenationIsCopied() {
+        assertThat(ConsString.concat("foo", "bar")).isEqualTo("foobar");
+        assertThat(ConsString.concat("", "bar")).isEqualTo("bar");
+        assertThat(ConsString.concat("foo", "")).isEqualTo("foo");
+    }
+
+    @Test
+    public void testLongConcatenationIsDeferred() {
+        String a = repeat('a', ConsString.MINIMUM_LENGTH);
+        CharSequence result = ConsString.concat(a, "b");
+        assertThat(result).isInstanceOf(ConsString.class);
+        assertThat(result.length()).isEqualTo(ConsString.MINIMUM_LENGTH + 1);
+        assertThat(result.charAt(ConsString.MINIMUM_LENGTH)).isEqualTo('b');
+        assertThat(result.toString()).isEqualTo(a + "b");
+        assertThat(result.toString()).isSameAs(result.toString());
+    }
+
+    @Test
+    public void testDeepTreesFlattenWithoutRecursion() {
+        CharSequence appended = repeat('-', ConsString.MINIMUM_LENGTH);
+        CharSequence prepended = appended;
+        StringBuilder expectedAppended = new StringBuilder(appended);
+        StringBuilder expectedPrepended = new StringBuilder(prepended);
+        for (int i = 0; i < 100000; ++i) {
+            String piece = String.valueOf(i % 10);
+            appended = ConsString.concat(appended, piece);
+            prepended = ConsString.concat(piece, prepended);
+            expectedAppended.append(piece);
+            expectedPrepended.insert(0, piece);
+        }
+        assertThat(appended.toString()).isEqualTo(expectedAppended.toString());
+        assertThat(prepended.toString()).isEqualTo(expectedPrepended.toString());
+    }
+
+    @Test
+    public void testFlattenedPartsAreReused() {
+        CharSequence left = ConsString.concat(repeat('a', ConsString.MINIMUM_LENGTH), "b");
+        CharSequence whole = ConsString.concat(left, ConsString.concat("c", left));
+        String flatLeft = left.toString();
+        assertThat(whole.toString()).isEqualTo(flatLeft + "c" + flatLeft);
+    }
+}
@@ -0,0 +1,60 @@
+package org.dynjs.runtime;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.dynjs.Config;
+import org.junit.Test;
+
+public class DynamicClassLoaderTest extends AbstractDynJSTestSupport {
+
+    @Override
+    protected Config createConfig() {
+        Config config = super.createConfig();
+        config.setCompileMode(Config.CompileMode.FORCE);
+        config.setCodeCacheSize(16);
+        return config;
+    }
+
+    @Test
+    public void testGeneratedClassesAreCounted() {
+        DynamicClassLoader classLoader = getConfig().getClassLoader();
+        long before = classLoader.getDefinedGeneratedClassCount();
+
+        eval("var x = (function() { return 42; })();");
+
+        assertThat(classLoader.getDefinedGeneratedClassCount()).isGreaterThan(before);
+        assertThat(classLoader.getLiveGeneratedClassCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testUnitLoadersDelegateToParent() throws Exception {
+        DynamicClassLoader classLoader = getConfig().getClassLoader();
+        DynamicClassLoader unitLoader = classLoader.createUnitLoader();
+
+        assertThat(unitLoader.getParent()).isSameAs(classLoader);
+        assertThat(unitLoader.loadClass(ExecutionContext.class.getName())).isSameAs(ExecutionContext.class);
+    }
+
+    @Test
+    public void testUnloadedClassesAreNoLongerLive() {
+        DynamicClassLoader classLoader = getConfig().getClassLoader();
+
+        for (int i = 0; i < 50; ++i) {
+            eval("eval('var y" + i + " = (function() { return " + i + "; })();');");
+        }
+
+        long defined = classLoader.getDefinedGeneratedClassCount();
+        assertThat(classLoader.getLiveGeneratedClassCount()).isGreaterThan(0);
+
+        classLoader.clearGeneratedClassReferences();
+
+        assertThat(classLoader.getLiveGeneratedClassCount()).isEqualTo(0);
+        assertThat(classLoader.getDefinedGeneratedClassCount()).isEqualTo(defined);
+
+        eval("var z = (function() { return 42; })();");
+
+        assertThat(classLoader.getLiveGeneratedClassCount()).isGreaterThan(0);
+        assertThat(classLoader.getDefinedGeneratedClassCount()).isGreaterThan(defined);
+    }
+
+}
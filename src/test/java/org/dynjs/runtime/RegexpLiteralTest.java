@@ -3,6 +3,7 @@ package org.dynjs.runtime;
 import static org.fest.assertions.Assertions.*;
 
 import org.dynjs.runtime.builtins.types.regexp.DynRegExp;
+import org.dynjs.runtime.builtins.types.regexp.RegExpCache;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -74,6 +75,42 @@ public class RegexpLiteralTest extends AbstractDynJSTestSupport {
         eval( "new RegExp('^[$A-Za-z_\\x7f-\\uffff][$\\w\\x7f-\\uffff]*$')");
     }
     
+    @Test
+    public void testLiteralIsCompiledOnce() {
+        RegExpCache cache = getContext().getGlobalObject().getRegExpCache();
+        long misses = cache.getMissCount();
+
+        eval("var found = 0;",
+             "for (var i = 0; i < 50; ++i) { if (/o+b/.test('foobar')) { ++found; } }");
+
+        assertThat(cache.getMissCount()).isEqualTo(misses + 1);
+        assertThat(eval("found")).isEqualTo(50L);
+    }
+
+    @Test
+    public void testConstructorUsesCache() {
+        RegExpCache cache = getContext().getGlobalObject().getRegExpCache();
+
+        eval("var r1 = RegExp('ba+r', 'g');");
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+
+        eval("var r2 = RegExp('ba+r');",
+             "var r3 = RegExp('ba+r', 'i');");
+
+        assertThat(cache.getHitCount()).isEqualTo(hits + 1);
+        assertThat(cache.getMissCount()).isEqualTo(misses + 1);
+        check("var result = [r1.global, r2.global, r2.test('baaar'), r3.test('BAR'), r2.test('BAR')].join(',');",
+              "true,false,true,true,false");
+    }
+
+    @Test
+    public void testInvalidFlagsThrowOnEveryEvaluation() {
+        check("var result = 0;" +
+              "for (var i = 0; i < 3; ++i) { try { RegExp('a', 'gg'); } catch (e) { if (e instanceof SyntaxError) { ++result; } } }",
+              3L);
+    }
+
     @Ignore
     @Test
     public void testEmptyCharacterClassRange() {
@@ -2,6 +2,7 @@ package org.dynjs.runtime;
 
 import static org.fest.assertions.Assertions.*;
 
+import org.dynjs.parser.ast.SwitchStatement;
 import org.junit.Test;
 
 public class SwitchStatementTest extends AbstractDynJSTestSupport {
@@ -157,4 +158,51 @@ public class SwitchStatementTest extends AbstractDynJSTestSupport {
         assertThat( result ).isEqualTo( "forty-two" );
     }
     
+    @Test
+    public void testLiteralCasesMatchStrictlyEqualValues() {
+        Object result = eval( "function f(x) {",
+                "  switch(x) {",
+                "    case 0: return 'zero';",
+                "    case 1: return 'one';",
+                "    case -1: return 'minus-one';",
+                "    default: return 'default';",
+                "    case '1': return 'string-one';",
+                "    case 1: return 'again';",
+                "  }",
+                "}",
+                "[f(0), f(-0), f(1), f(1.0), f(1.5), f(-1), f('1'), f(true), f(null), f(NaN), f({})].join(',')" );
+
+        assertThat( result ).isEqualTo( "zero,zero,one,one,default,minus-one,string-one,default,default,default,default" );
+    }
+
+    @Test
+    public void testNonLiteralCasesAreEvaluatedInOrder() {
+        Object result = eval( "var y='';",
+                "function c(v) { y+=v; return v; }",
+                "switch(2) {",
+                "  case 1:",
+                "    y+='one';",
+                "  case c(2):",
+                "    y+='two';",
+                "  case c(3):",
+                "    y+='three';",
+                "}",
+                "y" );
+
+        assertThat( result ).isEqualTo( "2twothree" );
+    }
+
+    @Test
+    public void testOnlyLiteralCasesHaveATable() {
+        assertThat( switchTable( "switch(x) { case 1: case 'a': case -2: default: }" ) ).isNotNull();
+        assertThat( switchTable( "switch(x) { case 1: case y: }" ) ).isNull();
+        assertThat( switchTable( "switch(x) { case 1.5: }" ) ).isNull();
+        assertThat( switchTable( "switch(x) { case 1: case 18014398509481984: }" ) ).isNull();
+    }
+
+    private SwitchTable switchTable(String code) {
+        SwitchStatement statement = (SwitchStatement) getRuntime().newRunner().withSource( code ).parseSourceCode().getBlockContent().get( 0 );
+        return statement.getSwitchTable();
+    }
+
 }
@@ -191,4 +191,24 @@ public class ParsersTest extends AbstractDynJSTestSupport {
     public void parseIntWithInfinity() {
         check("var result = parseInt(Infinity)", Double.NaN);
     }
+    
+    @Test
+    public void parseIntWithLongInput() {
+        check("var result = parseInt('123456789012345678901234567890')", 1.2345678901234568e29);
+    }
+    
+    @Test
+    public void parseFloatStopsAtIncompleteExponent() {
+        check("var result = parseFloat('2.5e+x')", 2.5);
+    }
+    
+    @Test
+    public void numberRejectsInnerWhitespace() {
+        check("var result = Number('1 2')", Double.NaN);
+    }
+    
+    @Test
+    public void comparisonConvertsStrings() {
+        check("var result = '0x10' == 16 && '  1e3 ' > 999", true);
+    }
 }
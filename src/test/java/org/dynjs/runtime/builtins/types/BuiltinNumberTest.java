@@ -107,6 +107,15 @@ public class BuiltinNumberTest extends AbstractDynJSTestSupport {
         assertThat(eval("x.toString();")).isEqualTo("3.123");
     }
 
+    @Test
+    public void testShortestToString() {
+        assertThat(eval("[0.1 + 0.2, 1/3, 2/3, -1.5, 123e-20, 1e21, 1e-7, 0.000001, 5e-324].join(' ')"))
+                .isEqualTo("0.30000000000000004 0.3333333333333333 0.6666666666666666 -1.5 1.23e-18 1e+21 1e-7 0.000001 5e-324");
+        assertThat(eval("[1.5e300, 1.7976931348623157e308, -0, 0.1 * 3, 1e21 / 3].join(' ')"))
+                .isEqualTo("1.5e+300 1.7976931348623157e+308 0 0.30000000000000004 333333333333333300000");
+        assertThat(eval("String(4.35) + (0.1).toString() + JSON.stringify([1e-10])")).isEqualTo("4.350.1[1e-10]");
+    }
+
     @Test
     public void testIntToString() {
         eval("var x = 3;");
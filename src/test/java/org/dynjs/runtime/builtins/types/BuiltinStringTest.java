@@ -66,6 +66,21 @@ public class BuiltinStringTest extends AbstractDynJSTestSupport {
         assertThat(eval("'If the police police the police...'.replace('police', 'sekretpolice')")).isEqualTo("If the sekretpolice police the police...");
     }
 
+    @Test
+    public void testReplaceStringPatternLiterally() {
+        assertThat(eval("'a.b.c'.replace('.', '$')")).isEqualTo("a$b.c");
+        assertThat(eval("'x(1)+[2]'.replace('(1)+[', '\\\\')")).isEqualTo("x\\2]");
+        assertThat(eval("'abc'.replace('', '-')")).isEqualTo("-abc");
+        assertThat(eval("'abc'.replace('c', '')")).isEqualTo("ab");
+        assertThat(eval("'abc'.replace('b', \"[$`|$&|$']\")")).isEqualTo("a[a|b|c]c");
+    }
+
+    @Test
+    public void testReplaceFunctionResultIsNotSubstituted() {
+        assertThat(eval("'abc'.replace('b', function() { return '$&$$'; })")).isEqualTo("a$&$$c");
+        assertThat(eval("'abcb'.replace(/b/g, function() { return '$`'; })")).isEqualTo("a$`c$`");
+    }
+
     @Test
     public void testReplaceOnceWithRegexp() {
         Object o = eval("String('fat freddie').replace(/f/, 'ph')");
@@ -344,6 +359,28 @@ public class BuiltinStringTest extends AbstractDynJSTestSupport {
         assertThat(result.get(getContext(), "2")).isEqualTo("qmx");
     }
 
+    @Test
+    public void testStringObjectIndexProperties() {
+        assertThat(eval("var o = Object('ab'); o.x = 1; var keys = []; for (var k in o) { keys.push(k); } keys.join(',')")).isEqualTo("0,1,x");
+        assertThat(eval("Object.getOwnPropertyNames(Object('ab')).join(',')")).isEqualTo("length,0,1");
+        assertThat(eval("String.prototype.p = 1; var o = Object('ab'); var keys = []; for (var k in o) { keys.push(k); } delete String.prototype.p; keys.join(',')")).isEqualTo("p,0,1");
+        assertThat(eval("var o = Object('ab'); [o[1], o[2], o.hasOwnProperty('0'), o.hasOwnProperty('01'), delete o[0], o[0]].join(',')")).isEqualTo("b,,true,false,false,a");
+    }
+
+    @Test
+    public void testSplitStringSeparators() {
+        assertThat(eval("JSON.stringify(',a,,b,'.split(','))")).isEqualTo("[\"\",\"a\",\"\",\"b\",\"\"]");
+        assertThat(eval("JSON.stringify('a::b:::c'.split('::'))")).isEqualTo("[\"a\",\"b\",\":c\"]");
+        assertThat(eval("JSON.stringify('abc'.split(''))")).isEqualTo("[\"a\",\"b\",\"c\"]");
+        assertThat(eval("JSON.stringify('abc'.split('', 2))")).isEqualTo("[\"a\",\"b\"]");
+        assertThat(eval("JSON.stringify('a,b,c'.split(',', 2))")).isEqualTo("[\"a\",\"b\"]");
+        assertThat(eval("JSON.stringify('abc'.split('abcd'))")).isEqualTo("[\"abc\"]");
+        assertThat(eval("JSON.stringify(''.split(','))")).isEqualTo("[\"\"]");
+        assertThat(eval("JSON.stringify(''.split(''))")).isEqualTo("[]");
+        assertThat(eval("'a,b'.split(',', 0).length")).isEqualTo(0L);
+        assertThat(eval("var parts = 'a\\nb'.split('\\n'); parts.push('c'); parts.join('|') + parts.length")).isEqualTo("a|b|c3");
+    }
+
     @Test
     public void testSubstring() {
         assertThat(eval("'boblanceqmx'.substring(3,8)")).isEqualTo("lance");
@@ -384,4 +421,37 @@ public class BuiltinStringTest extends AbstractDynJSTestSupport {
         assertThat(eval("' bob\t'.trim()")).isEqualTo("bob");
     }
 
+    @Test
+    public void testRegExpOffsetsInNonAsciiStrings() {
+        assertThat(eval("'\\u00e9t\\u00e9 \\u2603 caf\\u00e9'.search(/caf/)")).isEqualTo(6L);
+        assertThat(eval("'na\\u00efve r\\u00e9sum\\u00e9'.replace(/[a-z]+/g, '<$&>')")).isEqualTo("<na>\u00ef<ve> <r>\u00e9<sum>\u00e9");
+        assertThat(eval("'a\\u00e9b\\u00e9c'.split(/\\u00e9/).join('|')")).isEqualTo("a|b|c");
+        assertThat(eval("'x\\u2603y\\u2603z'.match(/[a-z]/g).join('|')")).isEqualTo("x|y|z");
+        assertThat(eval("var m = /(\\w+)-(\\w+)/.exec('\\u00e9\\u00e9 ab-cd'); [m.index, m[0], m[1], m[2]].join('|')")).isEqualTo("3|ab-cd|ab|cd");
+    }
+
+    @Test
+    public void testGlobalMatchUsesCurrentExec() {
+        assertThat(eval("var n = 0; var exec = RegExp.prototype.exec; RegExp.prototype.exec = function(s) { ++n; return exec.call(this, s); }; "
+                + "var r = 'a1b2'.match(/[0-9]/g).join('|') + n; RegExp.prototype.exec = exec; r")).isEqualTo("1|23");
+    }
+
+    @Test
+    public void testReplaceEmptyMatchBeforeText() {
+        assertThat(eval("'ab'.replace(/(?=b)/g, '-')")).isEqualTo("a-b");
+        assertThat(eval("'ab'.replace(/(?=b)/, '-')")).isEqualTo("a-b");
+    }
+
+    @Test
+    public void testRegExpAcrossSurrogatePairs() {
+        assertThat(eval("'a\\ud83d\\ude00b'.replace(/b/, 'B')")).isEqualTo("a\ud83d\ude00B");
+        assertThat(eval("'a\\ud83d\\ude00b'.search(/b/)")).isEqualTo(3L);
+        assertThat(eval("'\\ud83d\\ude00\\ud83d\\ude00'.replace(/x*/g, '-')")).isEqualTo("-\ud83d\ude00-\ud83d\ude00-");
+    }
+
+    @Test
+    public void testExecWithLastIndexInNonAsciiString() {
+        assertThat(eval("var r = /o/g; var s = '\\u00f6o\\u00f6o'; r.exec(s); [r.lastIndex, r.exec(s).index, r.lastIndex].join('|')")).isEqualTo("2|3|4");
+    }
+
 }
@@ -2,6 +2,12 @@ package org.dynjs.runtime.builtins.types;
 
 import static org.fest.assertions.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+
 import org.dynjs.runtime.AbstractDynJSTestSupport;
 import org.dynjs.runtime.DynArray;
 import org.dynjs.runtime.JSObject;
@@ -39,6 +45,20 @@ public class JSONTest extends AbstractDynJSTestSupport {
         assertThat(result.get(getContext(), "bar")).isEqualTo("cheese");
     }
 
+    @Test
+    public void testParseBuildsOrdinaryObjectsAndArrays() {
+        check("var o = JSON.parse('{\"a\": 1, \"b\": [1, {\"c\": 2}], \"a\": 3, \"0\": \"z\"}');" +
+              "o.b.push(4);" +
+              "var result = [o.a, o.b.length, o.b[1].c, o.b[2], o[0], Object.keys(o).join('|'), o.b instanceof Array].join(',');",
+              "3,3,2,4,z,a|b|0,true");
+    }
+
+    @Test
+    public void testParseLargeIntegers() {
+        check("var result = JSON.parse('[12345678901, 123456789012345678901234]').join(',');",
+              "12345678901,1.2345678901234569e+23");
+    }
+
     @Test
     public void testParseWithReviver() {
         JSObject result = (JSObject) eval("JSON.parse( '[1,2,3,4,5,6,7]', function(name,val){",
@@ -112,4 +132,117 @@ public class JSONTest extends AbstractDynJSTestSupport {
         assertThat(result).doesNotContain("\n");
     }
 
+    @Test
+    public void testStringifyNestedWithIndentAndSkippedMembers() {
+        check("var result = JSON.stringify({a: [1, undefined, function() {}, {}], b: undefined, c: {d: []}, e: 'x'}, null, 2);",
+              "{\n" +
+              "  \"a\": [\n" +
+              "    1,\n" +
+              "    null,\n" +
+              "    null,\n" +
+              "    {}\n" +
+              "  ],\n" +
+              "  \"c\": {\n" +
+              "    \"d\": []\n" +
+              "  },\n" +
+              "  \"e\": \"x\"\n" +
+              "}");
+    }
+
+    @Test
+    public void testStringifyEscapes() {
+        check("var s = ''; for (var i = 0; i < 1000; ++i) { s += 'abc'; }" +
+              "var result = JSON.stringify(s + '\"\\\\\\b\\f\\n\\r\\t\\u0001\\u001f' + s) == '\"' + s + '\\\\\"\\\\\\\\\\\\b\\\\f\\\\n\\\\r\\\\t\\\\u0001\\\\u001f' + s + '\"';",
+              true);
+    }
+
+    @Test
+    public void testStringifyTo() {
+        StringWriter writer = new StringWriter();
+        getContext().getGlobalObject().defineGlobalProperty("writer", writer);
+
+        String expected = (String) eval("var s = ''; for (var i = 0; i < 5000; ++i) { s += 'abcd'; }",
+                "var value = {a: [1, 'two', null], b: s, c: {toJSON: function() { return 3; }}};",
+                "JSON.stringifyTo(value, writer);",
+                "JSON.stringify(value)");
+        assertThat(writer.toString()).isEqualTo(expected);
+    }
+
+    @Test
+    public void testStringifyToWithReplacerAndSpace() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        getContext().getGlobalObject().defineGlobalProperty("out", out);
+
+        eval("JSON.stringifyTo({a: 1, b: '\u00e9'}, out, ['b'], 1);",
+             "JSON.stringifyTo(undefined, out);");
+        assertThat(new String(out.toByteArray(), Charset.forName("UTF-8"))).isEqualTo("{\n \"b\": \"\u00e9\"\n}");
+    }
+
+    @Test
+    public void testStringifyToRequiresWriter() {
+        check("var result; try { JSON.stringifyTo({}, {}); } catch (e) { result = e instanceof TypeError; }", true);
+    }
+
+    @Test
+    public void testParseStreamDocuments() {
+        getContext().getGlobalObject().defineGlobalProperty("source", new StringReader("{\"a\": 1}\n{\"a\": [2, 3]}\n\"four\" 5\n"));
+        check("var seen = [];" +
+              "var n = JSON.parseStream(source, function(v) { seen.push(JSON.stringify(v)); });" +
+              "var result = n + ':' + seen.join('|');",
+              "4:{\"a\":1}|{\"a\":[2,3]}|\"four\"|5");
+    }
+
+    @Test
+    public void testParseStreamPath() {
+        getContext().getGlobalObject().defineGlobalProperty("source", new StringReader(
+                "{\"meta\": {\"items\": [0]}, \"items\": [{\"id\": 1}, {\"id\": 2, \"tags\": [\"x\"]}], \"more\": [[1, 2]]}\n" +
+                "{\"items\": [{\"id\": 3}], \"items2\": [{\"id\": 4}]}"));
+        check("var ids = [];" +
+              "JSON.parseStream(source, function(v) { ids.push(v.id); }, {path: '$.items[*]'});" +
+              "var result = ids.join(',');",
+              "1,2,3");
+    }
+
+    @Test
+    public void testParseStreamPathSteps() {
+        String doc = "{\"a b\": [[1, 2], [3, 4]], \"c\": {\"d\": 5, \"e\": 6}}";
+        String[][] cases = {
+                { "$['a b'][1]", "[3,4]" },
+                { "$[\"a b\"][*][0]", "1|3" },
+                { "$.c.*", "5|6" },
+                { "$.c.e", "6" },
+                { "$.c[0]", "" },
+                { "$", doc.replace(" ", "").replace("ab", "a b") },
+        };
+
+        for (String[] each : cases) {
+            getContext().getGlobalObject().defineGlobalProperty("source", new StringReader(doc));
+            getContext().getGlobalObject().defineGlobalProperty("path", each[0]);
+            check("var seen = [];" +
+                  "JSON.parseStream(source, function(v) { seen.push(JSON.stringify(v)); }, {path: path});" +
+                  "var result = seen.join('|');",
+                  each[1]);
+        }
+    }
+
+    @Test
+    public void testParseStreamStopsOnFalse() {
+        getContext().getGlobalObject().defineGlobalProperty("source", new ByteArrayInputStream("[1, 2, 3, 4]".getBytes()));
+        check("var seen = [];" +
+              "var n = JSON.parseStream(source, function(v) { seen.push(v); return v < 2; }, {path: '$[*]'});" +
+              "var result = n + ':' + seen.join(',');",
+              "2:1,2");
+    }
+
+    @Test
+    public void testParseStreamErrors() {
+        getContext().getGlobalObject().defineGlobalProperty("source", new StringReader("[1, 2"));
+        check("var result = [];" +
+              "try { JSON.parseStream(source, function() {}); } catch (e) { result.push(e instanceof SyntaxError); }" +
+              "try { JSON.parseStream(source, function() {}, {path: 'items'}); } catch (e) { result.push(e instanceof SyntaxError); }" +
+              "try { JSON.parseStream('[]', function() {}); } catch (e) { result.push(e instanceof TypeError); }" +
+              "result = result.join(',');",
+              "true,true,true");
+    }
+
 }
@@ -0,0 +1,50 @@
+package org.dynjs.runtime.builtins.types.regexp;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.joni.Option;
+import org.joni.Regex;
+import org.junit.Test;
+
+public class RegExpCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        RegExpCache cache = new RegExpCache();
+        Regex regex = new Regex("a+");
+
+        assertThat(cache.get("a+", Option.SINGLELINE)).isNull();
+        cache.put("a+", Option.SINGLELINE, regex);
+
+        assertThat(cache.get("a+", Option.SINGLELINE)).isSameAs(regex);
+        assertThat(cache.get("a+", Option.MULTILINE)).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        RegExpCache cache = new RegExpCache(2);
+
+        cache.put("a", 0, new Regex("a"));
+        cache.put("b", 0, new Regex("b"));
+        cache.get("a", 0);
+        cache.put("c", 0, new Regex("c"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.get("a", 0)).isNotNull();
+        assertThat(cache.get("b", 0)).isNull();
+        assertThat(cache.get("c", 0)).isNotNull();
+    }
+
+    @Test
+    public void testZeroSizeCachesNothing() {
+        RegExpCache cache = new RegExpCache(0);
+
+        cache.put("a", 0, new Regex("a"));
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get("a", 0)).isNull();
+    }
+}
@@ -0,0 +1,75 @@
+package org.dynjs.runtime.util;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DoubleToStringTest {
+
+    @Test
+    public void testSpecialValues() {
+        assertThat(DoubleToString.toString(Double.NaN)).isEqualTo("NaN");
+        assertThat(DoubleToString.toString(0.0)).isEqualTo("0");
+        assertThat(DoubleToString.toString(-0.0)).isEqualTo("0");
+        assertThat(DoubleToString.toString(Double.POSITIVE_INFINITY)).isEqualTo("Infinity");
+        assertThat(DoubleToString.toString(Double.NEGATIVE_INFINITY)).isEqualTo("-Infinity");
+    }
+
+    @Test
+    public void testIntegers() {
+        assertThat(DoubleToString.toString(42.0)).isEqualTo("42");
+        assertThat(DoubleToString.toString(-9007199254740991.0)).isEqualTo("-9007199254740991");
+        assertThat(DoubleToString.toString(9007199254740992.0)).isEqualTo("9007199254740992");
+        assertThat(DoubleToString.toString(123456789012345680000.0)).isEqualTo("123456789012345680000");
+        assertThat(DoubleToString.toString(1e21)).isEqualTo("1e+21");
+    }
+
+    @Test
+    public void testFractions() {
+        assertThat(DoubleToString.toString(0.1)).isEqualTo("0.1");
+        assertThat(DoubleToString.toString(0.1 + 0.2)).isEqualTo("0.30000000000000004");
+        assertThat(DoubleToString.toString(-1.5)).isEqualTo("-1.5");
+        assertThat(DoubleToString.toString(0.000001)).isEqualTo("0.000001");
+        assertThat(DoubleToString.toString(0.0000001)).isEqualTo("1e-7");
+        assertThat(DoubleToString.toString(1.5e-7)).isEqualTo("1.5e-7");
+        assertThat(DoubleToString.toString(1e300)).isEqualTo("1e+300");
+    }
+
+    @Test
+    public void testExtremes() {
+        assertThat(DoubleToString.toString(Double.MIN_VALUE)).isEqualTo("5e-324");
+        assertThat(DoubleToString.toString(Double.MAX_VALUE)).isEqualTo("1.7976931348623157e+308");
+        assertThat(DoubleToString.toString(Double.MIN_NORMAL)).isEqualTo("2.2250738585072014e-308");
+        // A power of two, whose lower neighbour is closer than its upper one
+        assertThat(DoubleToString.toString(Double.longBitsToDouble(0x60000000000000L))).isEqualTo("7.120236347223045e-307");
+    }
+
+    @Test
+    public void testShortestRoundTrip() {
+        Random random = new Random(9);
+        for (int i = 0; i < 100000; ++i) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                continue;
+            }
+            String text = DoubleToString.toString(d);
+            assertThat(Double.parseDouble(text)).isEqualTo(d);
+
+            String digits = text.replaceFirst("^-", "").replaceFirst("e.*$", "").replace(".", "").replaceFirst("^0+", "").replaceFirst("0+$", "");
+            assertThat(digits.length()).isLessThanOrEqualTo(17);
+            if (digits.length() > 1) {
+                // Neither neighbour with one digit less is the same double.
+                BigDecimal exact = new BigDecimal(d);
+                BigDecimal down = exact.round(new MathContext(digits.length() - 1, RoundingMode.DOWN));
+                BigDecimal up = exact.round(new MathContext(digits.length() - 1, RoundingMode.UP));
+                assertThat(Double.parseDouble(down.toString())).isNotEqualTo(d);
+                assertThat(Double.parseDouble(up.toString())).isNotEqualTo(d);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.dynjs.runtime.util;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class StringToNumberTest {
+
+    @Test
+    public void testIntegers() {
+        assertThat(StringToNumber.toNumber("4242")).isEqualTo(4242L);
+        assertThat(StringToNumber.toNumber("-17")).isEqualTo(-17L);
+        assertThat(StringToNumber.toNumber("+17")).isEqualTo(17L);
+        assertThat(StringToNumber.toNumber("007")).isEqualTo(7L);
+        assertThat(StringToNumber.toNumber("-0")).isEqualTo(-0.0);
+        assertThat(StringToNumber.toNumber("999999999999999999")).isEqualTo(999999999999999999L);
+        assertThat(StringToNumber.toNumber("12345678901234567890")).isEqualTo(12345678901234567890.0);
+    }
+
+    @Test
+    public void testWhitespace() {
+        assertThat(StringToNumber.toNumber("")).isEqualTo(0L);
+        assertThat(StringToNumber.toNumber(" \t\n ﻿")).isEqualTo(0L);
+        assertThat(StringToNumber.toNumber("  42 　")).isEqualTo(42L);
+        assertThat(StringToNumber.toNumber("4 2")).isEqualTo(Double.NaN);
+    }
+
+    @Test
+    public void testHex() {
+        assertThat(StringToNumber.toNumber("0xFF")).isEqualTo(255L);
+        assertThat(StringToNumber.toNumber("0Xff")).isEqualTo(255L);
+        assertThat(StringToNumber.toNumber("0x10000000000000000")).isEqualTo(18446744073709551616.0);
+        assertThat(StringToNumber.toNumber("0x")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("0xG")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("-0x10")).isEqualTo(Double.NaN);
+    }
+
+    @Test
+    public void testDecimals() {
+        assertThat(StringToNumber.toNumber("1.5")).isEqualTo(1.5);
+        assertThat(StringToNumber.toNumber(".5")).isEqualTo(0.5);
+        assertThat(StringToNumber.toNumber("5.")).isEqualTo(5.0);
+        assertThat(StringToNumber.toNumber("-2.5e3")).isEqualTo(-2500.0);
+        assertThat(StringToNumber.toNumber("1E-2")).isEqualTo(0.01);
+        assertThat(StringToNumber.toNumber("1e400")).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(StringToNumber.toNumber("1e-400")).isEqualTo(0.0);
+        assertThat(StringToNumber.toNumber("0.1000000000000000055511151231257827")).isEqualTo(0.1);
+        assertThat(StringToNumber.toNumber("Infinity")).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(StringToNumber.toNumber("-Infinity")).isEqualTo(Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    public void testNotNumbers() {
+        assertThat(StringToNumber.toNumber(".")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("+")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("1e")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("1e+")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("12px")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("1.5d")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("infinity")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.toNumber("NaN")).isEqualTo(Double.NaN);
+    }
+
+    @Test
+    public void testParseFloat() {
+        assertThat(StringToNumber.parseFloat("  3.14abc")).isEqualTo(3.14);
+        assertThat(StringToNumber.parseFloat("1e5x")).isEqualTo(100000.0);
+        assertThat(StringToNumber.parseFloat("1e")).isEqualTo(1.0);
+        assertThat(StringToNumber.parseFloat("-.5.5")).isEqualTo(-0.5);
+        assertThat(StringToNumber.parseFloat("Infinityx")).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(StringToNumber.parseFloat("0x10")).isEqualTo(0.0);
+        assertThat(StringToNumber.parseFloat(".")).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.parseFloat("")).isEqualTo(Double.NaN);
+    }
+
+    @Test
+    public void testParseInt() {
+        assertThat(StringToNumber.parseInt(" -42px", 0)).isEqualTo(-42L);
+        assertThat(StringToNumber.parseInt("0x1F", 0)).isEqualTo(31L);
+        assertThat(StringToNumber.parseInt("0x1F", 16)).isEqualTo(31L);
+        assertThat(StringToNumber.parseInt("0x1F", 10)).isEqualTo(0L);
+        assertThat(StringToNumber.parseInt("zz", 36)).isEqualTo(1295L);
+        assertThat(StringToNumber.parseInt("12", 1)).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.parseInt("12", 37)).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.parseInt("9", 8)).isEqualTo(Double.NaN);
+        assertThat(StringToNumber.parseInt("123456789012345678901234567890", 10)).isEqualTo(1.2345678901234568e29);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(50);
+        for (int i = 0; i < 100000; ++i) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                continue;
+            }
+            String text = Double.toString(d);
+            assertThat(StringToNumber.toNumber(text).doubleValue()).isEqualTo(d);
+            assertThat(StringToNumber.parseFloat(text)).isEqualTo(d);
+        }
+        for (int i = 0; i < 100000; ++i) {
+            String text = random.nextInt(1000000) + "." + random.nextInt(1000000) + "e" + (random.nextInt(60) - 30);
+            assertThat(StringToNumber.toNumber(text)).isEqualTo(Double.parseDouble(text));
+        }
+    }
+}